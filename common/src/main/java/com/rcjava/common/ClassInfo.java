@@ -5,6 +5,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.jar.JarEntry;
 
 /**
@@ -38,6 +39,21 @@ public class ClassInfo {
      */
     private final Collection<String> myImports;
 
+    /**
+     * Annotations on the class, null unless the jar was scanned
+     */
+    private final Collection<String> annotations;
+
+    /**
+     * Super class, null for java.lang.Object or unless the jar was scanned
+     */
+    private final String superclass;
+
+    /**
+     * Directly implemented interfaces, null unless the jar was scanned
+     */
+    private final List<String> interfaces;
+
     /**
      * Constructs a new ClassInfo object
      * @param packaging - packaging
@@ -45,11 +61,44 @@ public class ClassInfo {
      * @param checksum - checksum
      */
     public ClassInfo(String packaging, String className, String checksum, JarEntry jarEntry, Collection<String> myImports) {
+        this(packaging, className, checksum, jarEntry, myImports, null);
+    }
+
+    /**
+     * Constructs a new ClassInfo object for a scanned class
+     * @param packaging - packaging
+     * @param className - classname
+     * @param checksum - checksum
+     * @param jarEntry - jar entry
+     * @param myImports - classes referenced by the class
+     * @param annotations - annotations on the class
+     */
+    public ClassInfo(String packaging, String className, String checksum, JarEntry jarEntry, Collection<String> myImports,
+                     Collection<String> annotations) {
+        this(packaging, className, checksum, jarEntry, myImports, annotations, null, null);
+    }
+
+    /**
+     * Constructs a new ClassInfo object for a scanned class with its supertypes
+     * @param packaging - packaging
+     * @param className - classname
+     * @param checksum - checksum
+     * @param jarEntry - jar entry
+     * @param myImports - classes referenced by the class
+     * @param annotations - annotations on the class
+     * @param superclass - super class, null if there is none
+     * @param interfaces - directly implemented interfaces
+     */
+    public ClassInfo(String packaging, String className, String checksum, JarEntry jarEntry, Collection<String> myImports,
+                     Collection<String> annotations, String superclass, List<String> interfaces) {
         this.packaging = packaging;
         this.className = className;
         this.checksum = checksum;
         this.jarEntry = jarEntry;
         this.myImports = myImports;
+        this.annotations = annotations;
+        this.superclass = superclass;
+        this.interfaces = interfaces;
     }
 
     /**
@@ -100,12 +149,45 @@ public class ClassInfo {
         return myImports;
     }
 
+    /**
+     * Returns the annotations on the class
+     * @return annotation class names, null if the jar wasn't scanned
+     */
+    public Collection<String> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Returns the super class
+     * @return dotted super class name, null for java.lang.Object, module-info or if the jar wasn't scanned
+     */
+    public String getSuperclass() {
+        return superclass;
+    }
+
+    /**
+     * Returns the interfaces the class implements directly, or extends for an interface
+     * @return dotted interface names, null if the jar wasn't scanned
+     */
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Returns the dotted class name (java.lang.String)
+     * @return class name
+     */
+    public String getName() {
+        String simple = className.substring(0, className.length() - ".class".length());
+        return packaging.isEmpty() ? simple : packaging.replace('/', '.') + "." + simple;
+    }
+
     /**
      * Clones this class
      * @return ClassInfo
      */
     @Override
     public ClassInfo clone() {
-        return new ClassInfo(packaging,className,checksum,jarEntry,myImports);
+        return new ClassInfo(packaging,className,checksum,jarEntry,myImports,annotations,superclass,interfaces);
     }
 }
@@ -0,0 +1,124 @@
+package com.rcjava.common;
+
+import com.rcjava.common.index.AnnotationIndex;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.AttributeInfo;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.annotation.Annotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Extracts what the analyses need from a class file. Works directly on the class file structure rather than
+ * through a ClassPool so classes are never retained and jars can be scanned concurrently.
+ * @author Ryan Cuprak
+ */
+final class ClassScanner {
+
+    /**
+     * Utility class
+     */
+    private ClassScanner() {
+    }
+
+    /**
+     * Parses a class file
+     * @param clazz - class file bytes
+     * @return parsed class file
+     * @throws IOException - thrown if the class file is malformed
+     */
+    static ClassFile parse(byte[] clazz) throws IOException {
+        return new ClassFile(new DataInputStream(new ByteArrayInputStream(clazz)));
+    }
+
+    /**
+     * Returns the classes referenced by a class: constant pool entries, field and method descriptors and
+     * annotations. The class itself is excluded.
+     * @param classFile - class file
+     * @return referenced classes with dotted names (java.lang.String)
+     */
+    static Set<String> getReferences(ClassFile classFile) {
+        Set<String> references = new TreeSet<>();
+        // javassist reports every class name it would rename through get, nothing is renamed as null is returned
+        classFile.getRefClasses(new HashMap<>() {
+            @Override
+            public String get(Object jvmName) {
+                references.add(((String) jvmName).replace('/', '.'));
+                return null;
+            }
+        });
+        references.remove(classFile.getName());
+        return references;
+    }
+
+    /**
+     * Returns the super class of a class
+     * @param classFile - class file
+     * @return dotted super class name, null for java.lang.Object and module-info which have none
+     */
+    static String getSuperclass(ClassFile classFile) {
+        return classFile.getSuperclassId() == 0 ? null : classFile.getSuperclass();
+    }
+
+    /**
+     * Returns the annotations on a class, both runtime visible and class file only retention
+     * @param classFile - class file
+     * @return annotation class names
+     */
+    static List<String> getAnnotations(ClassFile classFile) {
+        return getAnnotations(classFile::getAttribute);
+    }
+
+    /**
+     * Returns the class, method and field annotations of a class
+     * @param classFile - class file
+     * @return annotated targets with jar number 0, methods are identified by name and descriptor
+     */
+    static List<AnnotationIndex.Target> getAnnotationTargets(ClassFile classFile) {
+        List<AnnotationIndex.Target> targets = new ArrayList<>();
+        String className = classFile.getName();
+        for(String annotation : getAnnotations(classFile)) {
+            targets.add(new AnnotationIndex.Target(annotation, AnnotationIndex.Kind.CLASS, className, null, 0));
+        }
+        for(MethodInfo method : classFile.getMethods()) {
+            for(String annotation : getAnnotations(method::getAttribute)) {
+                targets.add(new AnnotationIndex.Target(annotation, AnnotationIndex.Kind.METHOD, className,
+                        method.getName() + method.getDescriptor(), 0));
+            }
+        }
+        for(FieldInfo field : classFile.getFields()) {
+            for(String annotation : getAnnotations(field::getAttribute)) {
+                targets.add(new AnnotationIndex.Target(annotation, AnnotationIndex.Kind.FIELD, className, field.getName(), 0));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the annotations held by the attributes of a class, method or field
+     * @param attributes - looks attributes up by name
+     * @return annotation class names
+     */
+    private static List<String> getAnnotations(Function<String,AttributeInfo> attributes) {
+        List<String> annotations = new ArrayList<>();
+        for(String tag : new String[] {AnnotationsAttribute.visibleTag, AnnotationsAttribute.invisibleTag}) {
+            AnnotationsAttribute attribute = (AnnotationsAttribute) attributes.apply(tag);
+            if(attribute != null) {
+                for(Annotation annotation : attribute.getAnnotations()) {
+                    annotations.add(annotation.getTypeName());
+                }
+            }
+        }
+        return annotations;
+    }
+}
@@ -1,8 +1,13 @@
 package com.rcjava.common;
 
-import com.rcjava.common.manifest.ManifestClasspathEntry;
+import com.rcjava.common.index.AnnotationIndex;
+import com.rcjava.common.index.ClasspathIndex;
+import com.rcjava.common.index.PackageIndex;
+import com.rcjava.common.index.ServiceIndex;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -28,13 +33,16 @@ public class Classpath {
     /**
      * Default constructor
      */
-    public Classpath(File base) {}
+    public Classpath(File base) {
+        this.base = base;
+    }
 
     /**
      * Constructs a new classpath with the specified jars
      * @param jars - jars
      */
     public Classpath(File base, List<JarEditor> jars) {
+        this.base = base;
         this.jars.addAll(jars);
     }
 
@@ -102,17 +110,88 @@ public class Classpath {
     }
 
     /**
-     * Analyzes the classpath, for duplicates
+     * Returns the directory where the search started
+     * @return base directory
      */
-    public void analyze() {
-        for(JarEditor jar : jars) {
-            List<ManifestClasspathEntry> classpathEntries = jar.getManifestEditor().getClasspathEntries();
-            for(ManifestClasspathEntry mce : classpathEntries) {
-                mce.getFullPath();
-            }
-        }
+    public File getBase() {
+        return base;
+    }
+
+    /**
+     * Resolves the manifest Class-Path references of every jar transitively, relative to each jar's
+     * location, loading newly discovered jars concurrently.
+     * @return effective classpath along with missing entries and cycles
+     * @throws IOException - thrown if one of the jars on this classpath can't be loaded
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public ClasspathResolution analyze() throws IOException, InterruptedException {
+        return analyze(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Resolves the manifest Class-Path references of every jar transitively
+     * @param threads - number of jars loaded concurrently
+     * @return effective classpath along with missing entries and cycles
+     * @throws IOException - thrown if one of the jars on this classpath can't be loaded
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public ClasspathResolution analyze(int threads) throws IOException, InterruptedException {
+        return new ClasspathResolver(threads).resolve(jars);
+    }
+
+    /**
+     * Resolves the manifest Class-Path references of every jar transitively, optionally scanning the classes
+     * of every jar as it is loaded so class graphs can be built without reading the jars again
+     * @param threads - number of jars loaded concurrently
+     * @param scanJar - true to load every jar with scanning enabled
+     * @return effective classpath along with missing entries and cycles
+     * @throws IOException - thrown if one of the jars on this classpath can't be loaded
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public ClasspathResolution analyze(int threads, boolean scanJar) throws IOException, InterruptedException {
+        return new ClasspathResolver(threads, scanJar).resolve(jars);
     }
 
+    /**
+     * Writes the package index of the resolved classpath, used by IndexedClassLoader to go straight to the
+     * jars containing a package
+     * @param target - index file
+     * @throws IOException - thrown if a jar can't be loaded or the index can't be written
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public void writePackageIndex(File target) throws IOException, InterruptedException {
+        PackageIndex.write(analyze().getJars(), target);
+    }
+
+    /**
+     * Writes the classpath index of the resolved classpath, so later runs can look classes, resources,
+     * packages and service providers up without loading the jars
+     * @param target - index file
+     * @throws IOException - thrown if a jar can't be loaded or the index can't be written
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public void writeIndex(File target) throws IOException, InterruptedException {
+        List<JarEditor> jars = analyze().getJars();
+        ClasspathIndex.write(jars, ServiceIndex.build(jars, Runtime.getRuntime().availableProcessors()), target);
+    }
 
+    /**
+     * Indexes the class, method and field annotations of the resolved classpath
+     * @return annotation index with the jars in classpath order
+     * @throws IOException - thrown if a jar can't be loaded
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public AnnotationIndex getAnnotationIndex() throws IOException, InterruptedException {
+        return AnnotationIndex.forClasspath(analyze().getJars(), Runtime.getRuntime().availableProcessors());
+    }
 
+    /**
+     * Watches the base directory, keeping a classpath of the jars in it current as they change
+     * @param debounce - time the directory must be quiet before changes are applied
+     * @return started watcher, to be closed by the caller
+     * @throws IOException - thrown if the directory can't be watched
+     */
+    public ClasspathWatcher watch(Duration debounce) throws IOException {
+        return new ClasspathWatcher(base, debounce, Runtime.getRuntime().availableProcessors()).start();
+    }
 }
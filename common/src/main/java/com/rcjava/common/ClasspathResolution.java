@@ -0,0 +1,176 @@
+package com.rcjava.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of resolving manifest Class-Path references transitively. The classpath is in the order the
+ * JDK's URLClassLoader searches it: each jar is followed by the jars it references (depth first) before
+ * the next jar, and a jar reached a second time is skipped.
+ * @author Ryan Cuprak
+ */
+public class ClasspathResolution {
+
+    /**
+     * A Class-Path reference that could not be resolved
+     */
+    public static class MissingEntry {
+
+        /**
+         * Jar whose manifest contains the reference
+         */
+        private final File referencedBy;
+
+        /**
+         * Value as it appears in the manifest
+         */
+        private final String value;
+
+        /**
+         * Reason the entry could not be used
+         */
+        private final String reason;
+
+        /**
+         * Constructs a new missing entry
+         * @param referencedBy - jar containing the reference
+         * @param value - manifest value
+         * @param reason - reason
+         */
+        MissingEntry(File referencedBy, String value, String reason) {
+            this.referencedBy = referencedBy;
+            this.value = value;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the jar containing the reference
+         * @return jar
+         */
+        public File getReferencedBy() {
+            return referencedBy;
+        }
+
+        /**
+         * Returns the value as it appears in the manifest
+         * @return value
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the reason the entry could not be used
+         * @return reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Returns a description of the missing entry
+         * @return description
+         */
+        @Override
+        public String toString() {
+            return referencedBy.getName() + " -> " + value + " (" + reason + ")";
+        }
+    }
+
+    /**
+     * Effective classpath, jars and directories
+     */
+    private final List<File> classpath = new ArrayList<>();
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private final List<JarEditor> jars = new ArrayList<>();
+
+    /**
+     * References that could not be resolved
+     */
+    private final List<MissingEntry> missing = new ArrayList<>();
+
+    /**
+     * Reference cycles, each cycle starts and ends with the same jar
+     */
+    private final List<List<File>> cycles = new ArrayList<>();
+
+    /**
+     * Adds an element to the effective classpath
+     * @param file - jar or directory
+     * @param jar - loaded jar, null for directories
+     */
+    void add(File file, JarEditor jar) {
+        classpath.add(file);
+        if(jar != null) {
+            jars.add(jar);
+        }
+    }
+
+    /**
+     * Records a missing entry
+     * @param entry - missing entry
+     */
+    void addMissing(MissingEntry entry) {
+        missing.add(entry);
+    }
+
+    /**
+     * Records a cycle
+     * @param cycle - cycle
+     */
+    void addCycle(List<File> cycle) {
+        cycles.add(cycle);
+    }
+
+    /**
+     * Returns the effective classpath
+     * @return jars and directories in search order
+     */
+    public List<File> getClasspath() {
+        return Collections.unmodifiableList(classpath);
+    }
+
+    /**
+     * Returns the loaded jars in search order
+     * @return jars
+     */
+    public List<JarEditor> getJars() {
+        return Collections.unmodifiableList(jars);
+    }
+
+    /**
+     * Returns the references that could not be resolved
+     * @return missing entries
+     */
+    public List<MissingEntry> getMissing() {
+        return Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * Returns the reference cycles
+     * @return cycles
+     */
+    public List<List<File>> getCycles() {
+        return Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * Returns the effective classpath as a path string
+     * @return classpath string
+     */
+    public String toClasspathString() {
+        StringBuilder builder = new StringBuilder();
+        for(File file : classpath) {
+            if(builder.length() > 0) {
+                builder.append(File.pathSeparatorChar);
+            }
+            builder.append(file.getPath());
+        }
+        return builder.toString();
+    }
+}
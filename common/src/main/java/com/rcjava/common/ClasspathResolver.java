@@ -0,0 +1,298 @@
+package com.rcjava.common;
+
+import com.rcjava.common.manifest.ManifestClasspathEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves manifest Class-Path references transitively. Jars are discovered breadth first and each
+ * level is loaded concurrently, a jar is loaded once no matter how many jars reference it. Once
+ * everything is loaded the search order is computed the same way URLClassLoader builds it. When scanning
+ * is requested every jar is loaded with scanning enabled, a root given unscanned is loaded into a new editor.
+ * @author Ryan Cuprak
+ */
+class ClasspathResolver {
+
+    /**
+     * A jar or directory reached while resolving
+     */
+    private static class Node {
+
+        /**
+         * Canonical file
+         */
+        private final File file;
+
+        /**
+         * Loaded jar, null for directories or jars that failed to load
+         */
+        private JarEditor jar;
+
+        /**
+         * Jar whose manifest first referenced this one, null for a root
+         */
+        private final File referencedBy;
+
+        /**
+         * Class-Path value that referenced this jar, null for a root
+         */
+        private final String value;
+
+        /**
+         * Resolved references in manifest order
+         */
+        private final List<File> references = new ArrayList<>();
+
+        /**
+         * Constructs a new root node
+         * @param file - canonical file
+         * @param jar - root jar, loaded or not
+         */
+        private Node(File file, JarEditor jar) {
+            this(file, jar, null, null);
+        }
+
+        /**
+         * Constructs a new node
+         * @param file - canonical file
+         * @param jar - jar, null if not yet loaded
+         * @param referencedBy - jar whose manifest references this one, null for a root
+         * @param value - referencing Class-Path value, null for a root
+         */
+        private Node(File file, JarEditor jar, File referencedBy, String value) {
+            this.file = file;
+            this.jar = jar;
+            this.referencedBy = referencedBy;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Number of jars loaded concurrently
+     */
+    private final int threads;
+
+    /**
+     * Whether jars are loaded with scanning enabled
+     */
+    private final boolean scanJar;
+
+    /**
+     * Nodes keyed by canonical file
+     */
+    private final Map<File,Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new resolver
+     * @param threads - number of jars loaded concurrently
+     */
+    ClasspathResolver(int threads) {
+        this(threads, false);
+    }
+
+    /**
+     * Constructs a new resolver
+     * @param threads - number of jars loaded concurrently
+     * @param scanJar - true to load every jar with scanning enabled
+     */
+    ClasspathResolver(int threads, boolean scanJar) {
+        this.threads = Math.max(1, threads);
+        this.scanJar = scanJar;
+    }
+
+    /**
+     * Resolves the classpath
+     * @param roots - jars explicitly on the classpath, in order
+     * @return resolution
+     * @throws IOException - thrown if a root jar can't be loaded
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    ClasspathResolution resolve(List<JarEditor> roots) throws IOException, InterruptedException {
+        ClasspathResolution resolution = new ClasspathResolution();
+        List<File> rootFiles = new ArrayList<>(roots.size());
+        List<Node> frontier = new ArrayList<>();
+        List<Node> unloaded = new ArrayList<>();
+        for(JarEditor root : roots) {
+            File file = canonical(root.getJarFile());
+            rootFiles.add(file);
+            boolean rescan = scanJar && !root.isScanned();
+            Node node = new Node(file, rescan ? new JarEditor(root.getJarFile(), true) : root);
+            if(nodes.putIfAbsent(file, node) == null) {
+                if(rescan || root.getManifestEditor() == null) {
+                    unloaded.add(node);
+                }
+                frontier.add(node);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            load(executor, unloaded, resolution);
+            while(!frontier.isEmpty()) {
+                List<Node> next = new ArrayList<>();
+                for(Node node : frontier) {
+                    if(node.jar == null) {
+                        continue;
+                    }
+                    for(ManifestClasspathEntry entry : node.jar.getManifestEditor().getClasspathEntries()) {
+                        File reference = resolveEntry(node.file, entry.getFullPath(), resolution);
+                        if(reference != null) {
+                            node.references.add(reference);
+                            if(nodes.putIfAbsent(reference, new Node(reference, null, node.file, entry.getFullPath())) == null
+                                    && !reference.isDirectory()) {
+                                next.add(nodes.get(reference));
+                            }
+                        }
+                    }
+                }
+                load(executor, next, resolution);
+                frontier = next;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        order(rootFiles, resolution);
+        return resolution;
+    }
+
+    /**
+     * Loads the roots or the jars of one level concurrently, roots load into the editor they were given
+     * @param executor - executor
+     * @param pending - nodes to load
+     * @param resolution - resolution, receives referenced jars that fail to load
+     * @throws IOException - thrown if a root jar can't be loaded
+     * @throws InterruptedException - thrown if interrupted
+     */
+    private void load(ExecutorService executor, List<Node> pending, ClasspathResolution resolution)
+            throws IOException, InterruptedException {
+        List<Callable<JarEditor>> tasks = new ArrayList<>(pending.size());
+        for(Node node : pending) {
+            tasks.add(() -> node.jar != null ? node.jar.load() : new JarEditor(node.file, scanJar).load());
+        }
+        List<Future<JarEditor>> results = executor.invokeAll(tasks);
+        for(int i = 0; i < pending.size(); i++) {
+            Node node = pending.get(i);
+            try {
+                node.jar = results.get(i).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(node.referencedBy == null) {
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+                resolution.addMissing(new ClasspathResolution.MissingEntry(node.referencedBy, node.value,
+                        "unable to load: " + (cause.getMessage() != null ? cause.getMessage() : cause)));
+            }
+        }
+    }
+
+    /**
+     * Resolves a Class-Path value relative to the jar that references it
+     * @param jar - referencing jar
+     * @param value - manifest value (a relative URL)
+     * @param resolution - resolution, receives entries that can't be resolved
+     * @return canonical file or null if it can't be used
+     */
+    private File resolveEntry(File jar, String value, ClasspathResolution resolution) {
+        File file;
+        try {
+            URL url = new URL(jar.getParentFile().toURI().toURL(), value);
+            if(!"file".equals(url.getProtocol())) {
+                resolution.addMissing(new ClasspathResolution.MissingEntry(jar, value, "unsupported protocol " + url.getProtocol()));
+                return null;
+            }
+            file = canonical(new File(url.toURI()));
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            resolution.addMissing(new ClasspathResolution.MissingEntry(jar, value, "invalid entry"));
+            return null;
+        }
+        if(!file.exists()) {
+            resolution.addMissing(new ClasspathResolution.MissingEntry(jar, value, "not found " + file.getPath()));
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Computes the search order: depth first, pre-order, skipping anything already visited. A reference
+     * back to a jar on the current path is a cycle.
+     * @param roots - root jars
+     * @param resolution - resolution being built
+     */
+    private void order(List<File> roots, ClasspathResolution resolution) {
+        Set<File> visited = new HashSet<>();
+        for(File root : roots) {
+            if(!visited.add(root)) {
+                continue;
+            }
+            List<File> path = new ArrayList<>();
+            Set<File> onPath = new HashSet<>();
+            Deque<Iterator<File>> stack = new ArrayDeque<>();
+            enter(root, resolution, path, onPath, stack);
+            while(!stack.isEmpty()) {
+                Iterator<File> itr = stack.peek();
+                if(itr.hasNext()) {
+                    File child = itr.next();
+                    if(onPath.contains(child)) {
+                        List<File> cycle = new ArrayList<>(path.subList(path.indexOf(child), path.size()));
+                        cycle.add(child);
+                        resolution.addCycle(cycle);
+                    } else if(visited.add(child)) {
+                        enter(child, resolution, path, onPath, stack);
+                    }
+                } else {
+                    stack.pop();
+                    onPath.remove(path.remove(path.size() - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a node to the classpath and pushes its references
+     * @param file - file
+     * @param resolution - resolution
+     * @param path - current path
+     * @param onPath - files on the current path
+     * @param stack - stack of reference iterators
+     */
+    private void enter(File file, ClasspathResolution resolution, List<File> path, Set<File> onPath, Deque<Iterator<File>> stack) {
+        Node node = nodes.get(file);
+        if(node.jar != null || file.isDirectory()) {
+            resolution.add(file, node.jar);
+        }
+        path.add(file);
+        onPath.add(file);
+        stack.push(node.jar != null ? node.references.iterator() : Collections.emptyIterator());
+    }
+
+    /**
+     * Returns the canonical file, falling back to the absolute file
+     * @param file - file
+     * @return canonical file
+     */
+    private static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
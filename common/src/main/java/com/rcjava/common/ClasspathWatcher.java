@@ -0,0 +1,463 @@
+package com.rcjava.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the classpath of a lib directory current while jars are added, replaced and deleted. The directory
+ * tree is watched with a WatchService, events are batched until the directory has been quiet for the debounce
+ * period (at most {@link #MAX_DEBOUNCES} periods so a steady trickle of changes still gets applied), then only
+ * the jars named by the batch are reloaded and the class index, duplicate classes and versions are patched.
+ * A redeploy copying hundreds of jars is applied as one update. Jars that can't be read, typically because
+ * they are still being written, are left out and retried on their next event. Queries are thread safe.
+ * @author Ryan Cuprak
+ */
+public class ClasspathWatcher implements Closeable {
+
+    /**
+     * Maximum number of debounce periods a batch waits for the directory to become quiet
+     */
+    public static final int MAX_DEBOUNCES = 10;
+
+    /**
+     * Changes applied in one batch
+     * @param added - jars added to the classpath
+     * @param modified - jars reloaded
+     * @param removed - jars removed from the classpath
+     * @param failed - jars that couldn't be loaded, with the reason, they are not on the classpath
+     */
+    public record Update(List<File> added, List<File> modified, List<File> removed, Map<File,IOException> failed) {
+    }
+
+    /**
+     * Watched directory
+     */
+    private final File directory;
+
+    /**
+     * Time the directory must be quiet before a batch is applied
+     */
+    private final Duration debounce;
+
+    /**
+     * Number of jars loaded concurrently
+     */
+    private final int threads;
+
+    /**
+     * Loaded jars keyed by absolute file, iterated in classpath (path) order
+     */
+    private final Map<File,JarEditor> jars = new TreeMap<>();
+
+    /**
+     * Jars containing each class entry, in classpath order
+     */
+    private final Map<String,List<JarEditor>> classIndex = new HashMap<>();
+
+    /**
+     * Class entries contained by more than one jar
+     */
+    private final Set<String> duplicates = new TreeSet<>();
+
+    /**
+     * Number of jars per class version
+     */
+    private final Map<String,Integer> versions = new HashMap<>();
+
+    /**
+     * Listeners notified after each batch
+     */
+    private final List<Consumer<Update>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Watched directories by watch key
+     */
+    private final Map<WatchKey,Path> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Watch service, null until started
+     */
+    private WatchService watchService;
+
+    /**
+     * Thread waiting for events
+     */
+    private Thread thread;
+
+    /**
+     * Creates a watcher, {@link #start()} loads the jars and starts watching
+     * @param directory - lib directory, searched recursively for jars
+     * @param debounce - time the directory must be quiet before changes are applied
+     * @param threads - number of jars loaded concurrently
+     */
+    public ClasspathWatcher(File directory, Duration debounce, int threads) {
+        this.directory = directory.getAbsoluteFile();
+        this.debounce = debounce;
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a listener notified after each batch on the watching thread
+     * @param listener - listener
+     * @return this watcher
+     */
+    public ClasspathWatcher addListener(Consumer<Update> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Registers the directory tree, loads every jar and starts watching. Directories are registered before
+     * the jars are loaded so nothing written in between is missed.
+     * @return this watcher
+     * @throws IOException - thrown if the directory can't be watched
+     */
+    public synchronized ClasspathWatcher start() throws IOException {
+        if(watchService != null) {
+            throw new IllegalStateException("Already started.");
+        }
+        watchService = directory.toPath().getFileSystem().newWatchService();
+        Set<Path> initial = register(directory.toPath());
+        update(initial);
+        thread = new Thread(this::run, "classpath-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Registers a directory tree with the watch service
+     * @param root - directory
+     * @return jars found in the tree
+     * @throws IOException - thrown if a directory can't be registered or vanishes while the tree is walked
+     */
+    private Set<Path> register(Path root) throws IOException {
+        Set<Path> found = new LinkedHashSet<>();
+        try(Stream<Path> walk = Files.walk(root)) {
+            for(Path path : (Iterable<Path>) walk::iterator) {
+                if(Files.isDirectory(path)) {
+                    keys.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), path);
+                } else if(isJar(path)) {
+                    found.add(path);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return found;
+    }
+
+    /**
+     * Returns true if a path names a jar
+     * @param path - path
+     * @return true if the name ends with .jar
+     */
+    private static boolean isJar(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ENGLISH).endsWith(".jar");
+    }
+
+    /**
+     * Waits for events, batches them and applies each batch until the watcher is closed. A directory that
+     * can't be registered, usually because it was removed while being walked, triggers a rescan, a rescan
+     * that fails is retried after the debounce interval.
+     */
+    private void run() {
+        try {
+            boolean retry = false;
+            while(true) {
+                WatchKey key = retry ? watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS) : watchService.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean rescan = retry;
+                if(key != null) {
+                    rescan |= collect(key, changed);
+                    long deadline = System.nanoTime() + debounce.toNanos() * MAX_DEBOUNCES;
+                    while(System.nanoTime() < deadline && (key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                        rescan |= collect(key, changed);
+                    }
+                }
+                retry = false;
+                if(rescan) {
+                    synchronized(this) {
+                        for(File file : jars.keySet()) {
+                            changed.add(file.toPath());
+                        }
+                    }
+                    try {
+                        changed.addAll(register(directory.toPath()));
+                    } catch (IOException e) {
+                        retry = true;
+                    }
+                }
+                update(changed);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Collects the jars named by the events of a key, registering new directories
+     * @param key - signalled key
+     * @param changed - receives the changed jars
+     * @return true if events were lost or a new directory couldn't be registered and the directory must be rescanned
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        boolean rescan = false;
+        Path dir = keys.get(key);
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                rescan = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    changed.addAll(register(path));
+                } catch (IOException e) {
+                    rescan = true;
+                }
+            } else if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE && !isJar(path)) {
+                synchronized(this) {
+                    for(File file : jars.keySet()) {
+                        if(file.toPath().startsWith(path)) {
+                            changed.add(file.toPath());
+                        }
+                    }
+                }
+            } else if(isJar(path)) {
+                changed.add(path);
+            }
+        }
+        if(!key.reset()) {
+            keys.remove(key);
+        }
+        return rescan;
+    }
+
+    /**
+     * Reloads the jars that exist and drops the others, then patches the indexes and notifies the listeners
+     * @param paths - changed jars
+     * @return applied changes
+     */
+    Update update(Collection<Path> paths) {
+        List<File> files = new ArrayList<>(paths.size());
+        for(Path path : paths) {
+            files.add(path.toFile().getAbsoluteFile());
+        }
+        Map<File,JarEditor> loaded = new HashMap<>();
+        Map<File,IOException> failed = new LinkedHashMap<>();
+        load(files, loaded, failed);
+        List<File> added = new ArrayList<>();
+        List<File> modified = new ArrayList<>();
+        List<File> removed = new ArrayList<>();
+        synchronized(this) {
+            for(File file : files) {
+                JarEditor previous = jars.remove(file);
+                if(previous != null) {
+                    unindex(previous);
+                }
+                JarEditor jar = loaded.get(file);
+                if(jar != null) {
+                    jars.put(file, jar);
+                    index(jar);
+                    (previous != null ? modified : added).add(file);
+                } else if(previous != null) {
+                    removed.add(file);
+                }
+            }
+        }
+        Update update = new Update(added, modified, removed, failed);
+        if(!added.isEmpty() || !modified.isEmpty() || !removed.isEmpty() || !failed.isEmpty()) {
+            for(Consumer<Update> listener : listeners) {
+                listener.accept(update);
+            }
+        }
+        return update;
+    }
+
+    /**
+     * Loads the jars that exist, concurrently
+     * @param files - jars
+     * @param loaded - receives the loaded jars
+     * @param failed - receives the jars that couldn't be loaded
+     */
+    private void load(List<File> files, Map<File,JarEditor> loaded, Map<File,IOException> failed) {
+        List<File> present = new ArrayList<>(files.size());
+        for(File file : files) {
+            if(file.isFile()) {
+                present.add(file);
+            }
+        }
+        if(present.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, present.size())));
+        try {
+            List<Callable<JarEditor>> tasks = new ArrayList<>(present.size());
+            for(File file : present) {
+                tasks.add(() -> new JarEditor(file).load());
+            }
+            List<Future<JarEditor>> futures = executor.invokeAll(tasks);
+            for(int i = 0; i < present.size(); i++) {
+                try {
+                    loaded.put(present.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failed.put(present.get(i), e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds a jar to the class index, duplicates and versions
+     * @param jar - loaded jar
+     */
+    private void index(JarEditor jar) {
+        for(ClassInfo classInfo : jar.getClassInfos()) {
+            String name = classInfo.getJarEntry().getName();
+            List<JarEditor> owners = classIndex.computeIfAbsent(name, k -> new ArrayList<>(1));
+            int position = 0;
+            while(position < owners.size() && owners.get(position).getJarFile().compareTo(jar.getJarFile()) < 0) {
+                position++;
+            }
+            owners.add(position, jar);
+            if(owners.size() == 2) {
+                duplicates.add(name);
+            }
+        }
+        if(jar.getVersion() != null) {
+            versions.merge(jar.getVersion(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes a jar from the class index, duplicates and versions
+     * @param jar - jar being replaced or removed
+     */
+    private void unindex(JarEditor jar) {
+        for(ClassInfo classInfo : jar.getClassInfos()) {
+            String name = classInfo.getJarEntry().getName();
+            List<JarEditor> owners = classIndex.get(name);
+            if(owners != null && owners.remove(jar)) {
+                if(owners.isEmpty()) {
+                    classIndex.remove(name);
+                } else if(owners.size() == 1) {
+                    duplicates.remove(name);
+                }
+            }
+        }
+        if(jar.getVersion() != null) {
+            versions.computeIfPresent(jar.getVersion(), (version, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Returns the jars of the directory
+     * @return loaded jars in classpath (path) order
+     */
+    public synchronized List<JarEditor> getJars() {
+        return new ArrayList<>(jars.values());
+    }
+
+    /**
+     * Finds the jars containing a class
+     * @param fqcn - entry name of the class (com/rcjava/Foo.class)
+     * @return jars in classpath order
+     */
+    public synchronized List<JarEditor> findClass(String fqcn) {
+        List<JarEditor> owners = classIndex.get(fqcn);
+        return owners != null ? new ArrayList<>(owners) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the classes contained by more than one jar
+     * @return jars keyed by class entry name, sorted by name
+     */
+    public synchronized Map<String,List<File>> getDuplicates() {
+        Map<String,List<File>> result = new TreeMap<>();
+        for(String name : duplicates) {
+            List<File> files = new ArrayList<>();
+            for(JarEditor jar : classIndex.get(name)) {
+                files.add(jar.getJarFile());
+            }
+            result.put(name, files);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class versions of the jars
+     * @return unique versions
+     */
+    public synchronized Set<String> getVersions() {
+        return new TreeSet<>(versions.keySet());
+    }
+
+    /**
+     * Returns a snapshot of the classpath
+     * @return classpath of the jars currently in the directory
+     */
+    public Classpath toClasspath() {
+        return new Classpath(directory, getJars());
+    }
+
+    /**
+     * Stops watching, the last state remains queryable
+     * @throws IOException - thrown if the watch service can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        Thread watching;
+        synchronized(this) {
+            watching = thread;
+            thread = null;
+        }
+        if(watchService != null) {
+            watchService.close();
+        }
+        if(watching != null) {
+            try {
+                watching.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.rcjava.common;
+
+import com.rcjava.common.manifest.ManifestEditScript;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
+import com.rcjava.common.zip.ParallelDeflater;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipArchiveWriter;
+import com.rcjava.common.zip.ZipEntryRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+
+/**
+ * Queues removals, insertions and manifest edits against a jar and commits all of them with a single
+ * streaming rewrite. Untouched entries are copied without being recompressed and the result replaces the
+ * target atomically, the jar is left as it was if any edit is invalid. Sessions are created with
+ * {@link JarEditor#openSession()} and can also be driven by a script, one command per line:
+ * <pre>
+ * # comment
+ * remove-class com.rcjava.Foo
+ * remove-entry config/old.properties
+ * add-file com/rcjava build/classes/com/rcjava/Bar.class
+ * manifest add lib/a.jar,lib/b.jar
+ * manifest set Implementation-Version=1.2
+ * </pre>
+ * Manifest commands accept the syntax of {@link ManifestEditScript}.
+ * @author Ryan Cuprak
+ */
+public class JarEditSession {
+
+    /**
+     * Jar being edited
+     */
+    private final File jarFile;
+
+    /**
+     * Entries to be removed
+     */
+    private final Set<String> removals = new LinkedHashSet<>();
+
+    /**
+     * Entries to be added keyed by entry name, the value is either a File or a byte array
+     */
+    private final Map<String,Object> additions = new LinkedHashMap<>();
+
+    /**
+     * Additions that replace the entry of the same name if the jar has one
+     */
+    private final Set<String> replacements = new HashSet<>();
+
+    /**
+     * Manifest edits
+     */
+    private ManifestEditScript manifestScript = new ManifestEditScript();
+
+    /**
+     * Replacement manifest, overrides the manifest script when set
+     */
+    private byte[] manifest;
+
+    /**
+     * Compression policy, when set every entry is compressed again according to the policy, otherwise
+     * entries that are kept are copied as they are
+     */
+    private CompressionPolicy compressionPolicy;
+
+    /**
+     * Report receiving the size and time of every entry written, may be null
+     */
+    private CompressionReport compressionReport;
+
+    /**
+     * Number of threads compressing entries
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Entries whose data is written first, null to keep the order of the jar
+     */
+    private List<String> entryOrder;
+
+    /**
+     * Creates a new session
+     * @param jarFile - jar to be edited
+     */
+    JarEditSession(File jarFile) {
+        this.jarFile = jarFile;
+    }
+
+    /**
+     * Returns the jar being edited
+     * @return jar file
+     */
+    public File getJarFile() {
+        return jarFile;
+    }
+
+    /**
+     * Queues the removal of a class
+     * @param fqcn - class name, either com.rcjava.Foo or com/rcjava/Foo.class
+     * @return this session
+     */
+    public JarEditSession removeClass(String fqcn) {
+        return removeEntry(fqcn.endsWith(".class") ? fqcn : fqcn.replace('.','/') + ".class");
+    }
+
+    /**
+     * Queues the removal of an entry
+     * @param name - entry name
+     * @return this session
+     */
+    public JarEditSession removeEntry(String name) {
+        removals.add(name);
+        return this;
+    }
+
+    /**
+     * Queues the addition of a file
+     * @param path - package/directory in the jar
+     * @param file - file to be added
+     * @return this session
+     * @throws IOException - thrown if the entry was already added
+     */
+    public JarEditSession addFile(String path, File file) throws IOException {
+        return add(JarEditor.entryName(path, file), file);
+    }
+
+    /**
+     * Queues the addition of an entry
+     * @param name - entry name
+     * @param data - content
+     * @return this session
+     * @throws IOException - thrown if the entry was already added
+     */
+    public JarEditSession addEntry(String name, byte[] data) throws IOException {
+        return add(name, data.clone());
+    }
+
+    /**
+     * Queues an entry that is written whether or not the jar already has one of the same name, such as a
+     * generated index
+     * @param name - entry name
+     * @param data - content
+     * @return this session
+     */
+    public JarEditSession putEntry(String name, byte[] data) {
+        additions.put(name, data.clone());
+        replacements.add(name);
+        return this;
+    }
+
+    /**
+     * Queues an addition
+     * @param name - entry name
+     * @param content - File or byte array
+     * @return this session
+     * @throws IOException - thrown if the entry was already added
+     */
+    JarEditSession add(String name, Object content) throws IOException {
+        if(additions.containsKey(name)) {
+            throw new IOException(name + " already exists.");
+        }
+        additions.put(name, content);
+        return this;
+    }
+
+    /**
+     * Returns the manifest edits, edits added to the script are applied when the session is committed
+     * @return manifest script
+     */
+    public ManifestEditScript getManifestScript() {
+        return manifestScript;
+    }
+
+    /**
+     * Replaces the manifest outright, used by {@link JarEditor#regenerate(File)}
+     * @param manifest - manifest content
+     */
+    void setManifest(byte[] manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Sets the compression policy. When a policy is set every entry is inflated and compressed again
+     * according to the policy, by default entries that are kept are copied without being recompressed and
+     * new entries are deflated at the default level.
+     * @param compressionPolicy - policy or null to copy entries as they are
+     * @return this session
+     */
+    public JarEditSession setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the report that receives the size and time trade-offs of every entry written
+     * @param compressionReport - report, may be shared by several sessions
+     * @return this session
+     */
+    public JarEditSession setCompressionReport(CompressionReport compressionReport) {
+        this.compressionReport = compressionReport;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads compressing entries
+     * @param threads - thread count
+     * @return this session
+     */
+    public JarEditSession setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the entries whose data is written first, in the order given, right after the manifest. The other
+     * entries follow in their current order and the central directory keeps the order of the jar, so the
+     * jar lists the same while the data of the listed entries ends up together at the front.
+     * @param entryOrder - entry names, names not in the jar are ignored
+     * @return this session
+     */
+    public JarEditSession setEntryOrder(List<String> entryOrder) {
+        this.entryOrder = entryOrder != null ? new ArrayList<>(entryOrder) : null;
+        return this;
+    }
+
+    /**
+     * Returns true if nothing is queued
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return removals.isEmpty() && additions.isEmpty() && manifestScript.isEmpty() && manifest == null
+                && compressionPolicy == null && entryOrder == null;
+    }
+
+    /**
+     * Adds a command in the script syntax
+     * @param line - command, already trimmed
+     * @throws IOException - thrown if the command is unknown or malformed
+     */
+    public void addCommand(String line) throws IOException {
+        String[] parts = line.split("\\s+", 2);
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+        switch (parts[0]) {
+            case "remove-class" -> removeClass(require(line, argument));
+            case "remove-entry" -> removeEntry(require(line, argument));
+            case "add-file" -> {
+                String[] args = require(line, argument).split("\\s+", 2);
+                if(args.length != 2) {
+                    throw new IOException("Expected add-file path file: " + line);
+                }
+                addFile(args[0], new File(args[1]));
+            }
+            case "manifest" -> {
+                if(!manifestScript.addCommand(require(line, argument))) {
+                    throw new IOException("Unknown manifest command: " + line);
+                }
+            }
+            default -> throw new IOException("Unknown command: " + line);
+        }
+    }
+
+    /**
+     * Verifies a command has an argument
+     * @param line - line for error reporting
+     * @param argument - argument
+     * @return argument
+     * @throws IOException - thrown if the argument is missing
+     */
+    private static String require(String line, String argument) throws IOException {
+        if(argument.isEmpty()) {
+            throw new IOException("Missing argument: " + line);
+        }
+        return argument;
+    }
+
+    /**
+     * Adds the commands of a script, blank lines and lines starting with # are ignored
+     * @param lines - lines of the script
+     * @throws IOException - thrown if a line can't be parsed
+     */
+    public void addCommands(List<String> lines) throws IOException {
+        int lineNumber = 0;
+        for(String line : lines) {
+            lineNumber++;
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                addCommand(line);
+            } catch (IOException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Commits the session to the jar being edited
+     * @throws IOException - thrown if an edit is invalid or there is an error writing
+     */
+    public void commit() throws IOException {
+        commit(jarFile);
+    }
+
+    /**
+     * Commits the session in one pass over the jar. Every edit is validated before anything is written,
+     * the output is written next to the target and moved over it once complete so the target may be the
+     * jar being edited. Entries that need compressing are deflated on a pool of threads and written in order.
+     * The queue is cleared once the commit succeeds.
+     * @param target - jar to be written
+     * @throws IOException - thrown if an edit is invalid or there is an error writing
+     */
+    public void commit(File target) throws IOException {
+        if((!removals.isEmpty() || !additions.isEmpty()) && JarUtil.hasSignatureFiles(jarFile)) {
+            throw new IOException("This JAR file is digitally signed.");
+        }
+        Path tmp = JarUtil.createSiblingTempFile(target);
+        try {
+            CompressionPolicy policy = compressionPolicy != null ? compressionPolicy : new CompressionPolicy();
+            try(ZipArchive archive = new ZipArchive(jarFile);
+                ZipArchiveWriter writer = new ZipArchiveWriter(tmp.toFile());
+                ParallelDeflater deflater = new ParallelDeflater(writer, policy, threads, compressionReport)) {
+                validate(archive);
+                ZipEntryRecord manifestEntry = archive.getManifestEntry();
+                byte[] content = generateManifest(archive);
+                Set<String> written = new HashSet<>();
+                if(content != null && manifestEntry == null) {
+                    written.add(JarFile.MANIFEST_NAME);
+                    deflater.submit(JarFile.MANIFEST_NAME, () -> content, System.currentTimeMillis());
+                }
+                if(entryOrder != null) {
+                    List<String> names = new ArrayList<>(archive.getEntries().size());
+                    for(ZipEntryRecord record : archive.getEntries()) {
+                        names.add(record.getName());
+                    }
+                    writer.setCentralDirectoryOrder(names);
+                }
+                for(ZipEntryRecord record : order(archive, manifestEntry)) {
+                    if(removals.contains(record.getName()) || replacements.contains(record.getName()) || !written.add(record.getName())) {
+                        continue;
+                    }
+                    if(record == manifestEntry && content != null) {
+                        deflater.submit(record.getName(), () -> content, record.getTime());
+                    } else if(compressionPolicy != null) {
+                        deflater.recompress(archive, record);
+                    } else {
+                        deflater.copyRaw(archive, record);
+                    }
+                }
+                for(Map.Entry<String,Object> entry : additions.entrySet()) {
+                    if(entry.getValue() instanceof File file) {
+                        deflater.submit(entry.getKey(), () -> Files.readAllBytes(file.toPath()), file.lastModified());
+                    } else {
+                        byte[] data = (byte[]) entry.getValue();
+                        deflater.submit(entry.getKey(), () -> data, System.currentTimeMillis());
+                    }
+                }
+                deflater.flush();
+                writer.setComment(archive.getComment());
+            }
+            JarUtil.moveAtomically(tmp, target.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        removals.clear();
+        additions.clear();
+        replacements.clear();
+        entryOrder = null;
+        manifestScript = new ManifestEditScript();
+        manifest = null;
+    }
+
+    /**
+     * Returns the entries of the jar in the order their data is written: the META-INF directory and the
+     * manifest first so JarInputStream still finds the manifest, then the entries of the entry order, then
+     * everything else in its current order
+     * @param archive - jar being edited
+     * @param manifestEntry - manifest entry, may be null
+     * @return entries
+     */
+    private List<ZipEntryRecord> order(ZipArchive archive, ZipEntryRecord manifestEntry) {
+        if(entryOrder == null) {
+            return archive.getEntries();
+        }
+        List<ZipEntryRecord> ordered = new ArrayList<>(archive.getEntries().size());
+        Set<ZipEntryRecord> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(ZipEntryRecord record : archive.getEntries()) {
+            if(record == manifestEntry || record.getName().equals("META-INF/")) {
+                placed.add(record);
+                ordered.add(record);
+            }
+        }
+        for(String name : entryOrder) {
+            ZipEntryRecord record = archive.getEntry(name);
+            if(record != null && placed.add(record)) {
+                ordered.add(record);
+            }
+        }
+        for(ZipEntryRecord record : archive.getEntries()) {
+            if(placed.add(record)) {
+                ordered.add(record);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Verifies every removal refers to an existing entry and no addition collides with an entry that stays
+     * @param archive - jar being edited
+     * @throws IOException - thrown listing every invalid edit
+     */
+    private void validate(ZipArchive archive) throws IOException {
+        List<String> errors = new ArrayList<>();
+        for(String name : removals) {
+            if(archive.getEntry(name) == null) {
+                errors.add(name + " not found.");
+            }
+        }
+        for(Map.Entry<String,Object> entry : additions.entrySet()) {
+            String name = entry.getKey();
+            if(archive.getEntry(name) != null && !removals.contains(name) && !replacements.contains(name)) {
+                errors.add(name + " already exists.");
+            }
+            if(entry.getValue() instanceof File file && !file.isFile()) {
+                errors.add(file + " does not exist.");
+            }
+        }
+        if(!errors.isEmpty()) {
+            throw new IOException(String.join(System.lineSeparator(), errors));
+        }
+    }
+
+    /**
+     * Produces the new manifest
+     * @param archive - jar being edited
+     * @return manifest content or null if the manifest is unchanged
+     * @throws IOException - thrown if a manifest edit fails
+     */
+    private byte[] generateManifest(ZipArchive archive) throws IOException {
+        if(manifest != null) {
+            return manifest;
+        }
+        if(manifestScript.isEmpty()) {
+            return null;
+        }
+        ManifestEditor editor = ManifestEditor.createManifestOnlyEditor(archive);
+        try {
+            manifestScript.apply(editor, true);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return editor.isModified() ? editor.generateManifest() : null;
+    }
+}
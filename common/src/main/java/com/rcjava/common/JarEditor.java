@@ -1,27 +1,30 @@
 package com.rcjava.common;
 
+import com.rcjava.common.index.AnnotationIndex;
 import com.rcjava.common.manifest.ManifestClasspathEntry;
 import com.rcjava.common.products.Product;
 import com.rcjava.common.products.Products;
-import javassist.ByteArrayClassPath;
-import javassist.ClassPool;
-import javassist.NotFoundException;
+import com.rcjava.common.trace.ClassLoadTrace;
+import com.rcjava.common.trace.ReorderReport;
+import com.rcjava.common.trace.StartupLayout;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipArchiveWriter;
+import com.rcjava.common.zip.ZipEntryRecord;
+import javassist.bytecode.ClassFile;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.benf.cfr.reader.api.CfrDriver;
 
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,13 +32,14 @@ import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 
 /**
@@ -100,9 +104,14 @@ public class JarEditor implements Serializable, Cloneable {
     private final Set<String> duplicates = new HashSet<>();
 
     /**
-     * New additions to the JAR file, will appear when the jar file is regenerated
+     * New additions to the JAR file keyed by entry name, will appear when the jar file is regenerated
      */
-    private final Map<String,File> additions = new HashMap<>();
+    private final Map<String,File> additions = new LinkedHashMap<>();
+
+    /**
+     * Class entries removed since the jar was loaded, dropped when the jar file is regenerated
+     */
+    private final Set<String> removals = new HashSet<>();
 
     /**
      * Flag indicating the jar is signed
@@ -119,6 +128,16 @@ public class JarEditor implements Serializable, Cloneable {
      */
     private final boolean scanJar;
 
+    /**
+     * Flag indicating whether class, method and field annotations are recorded when loading
+     */
+    private boolean indexAnnotations;
+
+    /**
+     * Annotations recorded when loading, null unless annotation indexing is on
+     */
+    private AnnotationIndex annotationIndex;
+
     /**
      * All of the imports in the file
      */
@@ -141,6 +160,24 @@ public class JarEditor implements Serializable, Cloneable {
         products = Products.getInstance();
     }
 
+    /**
+     * Records the class, method and field annotations of the classes when the jar is loaded
+     * @param indexAnnotations - true to record annotations
+     * @return this instance
+     */
+    public JarEditor setAnnotationIndexing(boolean indexAnnotations) {
+        this.indexAnnotations = indexAnnotations;
+        return this;
+    }
+
+    /**
+     * Returns the annotations recorded when the jar was loaded
+     * @return annotation index or null if the jar wasn't loaded with annotation indexing
+     */
+    public AnnotationIndex getAnnotationIndex() {
+        return annotationIndex;
+    }
+
     /**
      * Returns true if the file is the same file
      * @return true if is the same file
@@ -187,6 +224,8 @@ public class JarEditor implements Serializable, Cloneable {
      */
     public JarEditor load() throws IOException {
         manifestEditor = new ManifestEditor(this);
+        List<AnnotationIndex.Target> annotationTargets = new ArrayList<>();
+        Map<String,Long> classCrcs = new TreeMap<>();
         try(JarFile jar = new JarFile(jarFile)) {
             manifestEditor.setManifest(jar.getManifest());
             Manifest mf = jar.getManifest();
@@ -221,21 +260,23 @@ public class JarEditor implements Serializable, Cloneable {
                             }
                             byte[] clazz = IOUtils.toByteArray(is);
                             Collection<String> clazzes = null;
+                            List<String> annotations = null;
+                            String superclass = null;
+                            List<String> interfaces = null;
+                            ClassFile classFile = scanJar || indexAnnotations ? ClassScanner.parse(clazz) : null;
                             if(scanJar) {
-                                ClassPool cp = ClassPool.getDefault();
-
-                                try {
-                                    String trunc = fullClassname.substring(0,fullClassname.lastIndexOf("."));
-                                    trunc = trunc.replaceAll("/",".");
-                                    cp.insertClassPath(new ByteArrayClassPath(trunc, clazz));
-                                    clazzes = cp.get(trunc).getRefClasses();
-                                    imports.addAll(clazzes);
-                                } catch (NotFoundException e) {
-                                    throw new IOException(e);
-                                }
+                                clazzes = ClassScanner.getReferences(classFile);
+                                annotations = ClassScanner.getAnnotations(classFile);
+                                superclass = ClassScanner.getSuperclass(classFile);
+                                interfaces = List.of(classFile.getInterfaces());
+                                imports.addAll(clazzes);
+                            }
+                            if(indexAnnotations) {
+                                annotationTargets.addAll(ClassScanner.getAnnotationTargets(classFile));
+                                classCrcs.put(fullClassname, file.getCrc());
                             }
                             String fingerprint = DigestUtils.md2Hex(clazz).toUpperCase();
-                            classes.put(fullClassname, new ClassInfo(pack, name, fingerprint , file, clazzes));
+                            classes.put(fullClassname, new ClassInfo(pack, name, fingerprint , file, clazzes, annotations, superclass, interfaces));
                             packages.add(pack);
                             List<Product> prods = products.belongs(pack);
                             if(prods != null) {
@@ -258,6 +299,7 @@ public class JarEditor implements Serializable, Cloneable {
                 }
             }
         }
+        annotationIndex = indexAnnotations ? AnnotationIndex.of(getJarName(), AnnotationIndex.fingerprint(classCrcs), annotationTargets) : null;
         List<String> keys = new ArrayList<>(classes.size());
         keys.addAll(classes.keySet());
         keys.addAll(resources.values());
@@ -305,13 +347,20 @@ public class JarEditor implements Serializable, Cloneable {
     }
 
     /**
-     * Returns true if there is an overlap
-     * @return true if overlaps
+     * Returns the classes both jars contain. The smaller jar's classes are looked up in the other jar,
+     * nothing is copied.
+     * @param jarInfo - other jar
+     * @return overlapping class entry names or null if there are none
      */
     public Set<String> getOverlaps(JarEditor jarInfo) {
-        Set<String> s = new HashSet<>(classes.keySet());
-        // retains the ones that are overlapping
-        s.retainAll(jarInfo.classes.keySet());
+        JarEditor smaller = classes.size() <= jarInfo.classes.size() ? this : jarInfo;
+        JarEditor larger = smaller == this ? jarInfo : this;
+        Set<String> s = new HashSet<>();
+        for(String name : smaller.classes.keySet()) {
+            if(larger.hasClass(name)) {
+                s.add(name);
+            }
+        }
         if(!s.isEmpty()) {
             return s;
         }
@@ -341,6 +390,15 @@ public class JarEditor implements Serializable, Cloneable {
         return resources.containsKey(resource);
     }
 
+    /**
+     * Returns the checksum of a resource
+     * @param resource - resource entry name
+     * @return checksum or null if the jar doesn't contain the resource
+     */
+    public String getResourceChecksum(String resource) {
+        return resources.get(resource);
+    }
+
     /**
      * Returns the packages
      * @return packages
@@ -439,6 +497,31 @@ public class JarEditor implements Serializable, Cloneable {
         return strClasses;
     }
 
+    /**
+     * Returns the summary of a class
+     * @param fqcn - entry name of the class (com/rcjava/Foo.class)
+     * @return class summary or null if not present
+     */
+    public ClassInfo getClassInfo(String fqcn) {
+        return classes.get(fqcn);
+    }
+
+    /**
+     * Returns the summaries of every class in the jar
+     * @return class summaries
+     */
+    public Collection<ClassInfo> getClassInfos() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * Returns true if the jar was scanned, only scanned jars have imports and annotations
+     * @return true if scanned
+     */
+    public boolean isScanned() {
+        return scanJar;
+    }
+
     /**
      * Returns true if this JAR contains the class provided
      * @param fqcn - fully qualified clas name
@@ -467,6 +550,7 @@ public class JarEditor implements Serializable, Cloneable {
         if(classes.remove(fqcn) == null) {
             throw new IOException(fqcn + " not found.");
         }
+        removals.add(fqcn);
     }
 
     /**
@@ -501,111 +585,125 @@ public class JarEditor implements Serializable, Cloneable {
         if(signed) {
             throw new IOException("This JAR file is digitally signed.");
         }
-        if (additions.containsKey(path+"/"+file.getName())) {
-            throw new IOException(path + " already exists.");
+        String name = entryName(path, file);
+        if (additions.containsKey(name)) {
+            throw new IOException(name + " already exists.");
         }
-        additions.put(path,file);
+        additions.put(name,file);
     }
 
     /**
-     * Regenerates the JAR file, basically extract
+     * Returns the name of the entry for a file added under a path
+     * @param path - path (package/directory) in the jar
+     * @param file - file
+     * @return entry name
      */
-    public void regenerate(File newJarFile) throws IOException {
-        File tmpDir = Files.createTempDirectory("dup").toFile();
-        // First we need to unpack the JAR file
-        try(JarFile jar = new JarFile(jarFile)) {
-            String destDir = tmpDir.getAbsolutePath();
-            for (Enumeration<JarEntry> enums = jar.entries(); enums.hasMoreElements(); ) {
-                JarEntry entry = enums.nextElement();
-                String fileName = destDir + File.separator + entry.getName();
-                File f = new File(fileName);
-                if (fileName.endsWith("/")) {
-                    if (!f.mkdirs()) {
-                        throw new IOException("Unable to create " + f.getAbsolutePath());
-                    }
+    static String entryName(String path, File file) {
+        String dir = path.replace('\\','/');
+        while(dir.startsWith("/")) {
+            dir = dir.substring(1);
+        }
+        while(dir.endsWith("/")) {
+            dir = dir.substring(0, dir.length() - 1);
+        }
+        return dir.isEmpty() ? file.getName() : dir + "/" + file.getName();
+    }
+
+    /**
+     * Appends the pending additions to the jar file in place. The new entries are written after the last
+     * existing entry followed by a new central directory, the existing entries are never read or rewritten
+     * so the cost depends only on the size of the additions. The jar does not need to be loaded.
+     * Not crash safe, use {@link #regenerate(File)} if the jar must survive an interrupted write.
+     * @throws IOException - thrown if the jar is signed, an entry already exists or there is an error writing
+     */
+    public void append() throws IOException {
+        if(signed || JarUtil.hasSignatureFiles(jarFile)) {
+            throw new IOException("This JAR file is digitally signed.");
+        }
+        try(ZipArchiveWriter writer = ZipArchiveWriter.append(jarFile)) {
+            for(String name : additions.keySet()) {
+                if(writer.contains(name)) {
+                    throw new IOException(name + " already exists.");
                 }
             }
-            for (Enumeration<JarEntry> enums = jar.entries(); enums.hasMoreElements(); ) {
-                JarEntry entry = enums.nextElement();
-                String fileName = destDir + File.separator + entry.getName();
-                File f = new File(fileName);
-                if (!fileName.endsWith("/")) {
-                    if(entry.getName().equals("META-INF/MANIFEST.MF")) {
-                        manifestEditor.generateManifest(f);
-                    } else {
-                        if(!entry.getName().endsWith(".class") || classes.containsKey(entry.getName())) {
-                            try (InputStream is = jar.getInputStream(entry);
-                                 FileOutputStream fos = new FileOutputStream(f)) {
-                                while (is.available() > 0) {
-                                    fos.write(is.read());
-                                }
-                            }
-                        }
-                    }
-                }
+            for(Map.Entry<String,File> entry : additions.entrySet()) {
+                File file = entry.getValue();
+                writer.writeEntry(entry.getKey(), Files.readAllBytes(file.toPath()), ZipEntryRecord.DEFLATED, file.lastModified());
             }
         }
-        // Let's add the new entries to the file
-        for(Map.Entry<String,File> entry : additions.entrySet()) {
-           File dir = new File(tmpDir.getAbsolutePath()+File.separator+entry.getKey());
-           if(!dir.mkdirs()) {
-               throw new IOException("Unable to create: " + dir.getAbsolutePath());
-           }
-           try(InputStream is = new FileInputStream(entry.getValue())) {
-               Path target = Paths.get(dir.getAbsolutePath()+File.separator+entry.getValue().getName());
-               Files.copy(is,target);
-           }
+        additions.clear();
+    }
+
+    /**
+     * Opens an edit session on the jar. The jar does not need to be loaded, the session queues any number
+     * of edits and applies them in a single pass when committed.
+     * @return new edit session
+     */
+    public JarEditSession openSession() {
+        return new JarEditSession(jarFile);
+    }
+
+    /**
+     * Regenerates the JAR file without the removed classes, with the additions and the manifest as it is
+     * held by the manifest editor. Entries that are kept are copied without being recompressed.
+     * @param newJarFile - target, may be the jar being edited
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void regenerate(File newJarFile) throws IOException {
+        regenerate(newJarFile, null, null);
+    }
+
+    /**
+     * Regenerates the JAR file, compressing every entry according to a policy
+     * @param newJarFile - target, may be the jar being edited
+     * @param policy - compression policy, null to copy entries that are kept as they are
+     * @param report - report receiving the size and time trade-offs, may be null
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void regenerate(File newJarFile, CompressionPolicy policy, CompressionReport report) throws IOException {
+        regenerateSession().setCompressionPolicy(policy).setCompressionReport(report).commit(newJarFile);
+    }
+
+    /**
+     * Regenerates the JAR file with the classes a trace loads moved to the front in load order, right after
+     * the manifest, so startup reads a few contiguous pages instead of pages scattered across the jar. The
+     * central directory keeps its order and entries are copied without being recompressed.
+     * @param newJarFile - target, may be the jar being edited
+     * @param trace - class-load trace of the application starting
+     * @return entries moved and pages touched by them before and after
+     * @throws IOException - thrown if there is an error writing
+     */
+    public ReorderReport regenerate(File newJarFile, ClassLoadTrace trace) throws IOException {
+        List<String> startup;
+        int before;
+        try(ZipArchive archive = new ZipArchive(jarFile)) {
+            startup = StartupLayout.getStartupEntries(trace, archive);
+            before = StartupLayout.countPages(archive, startup);
         }
-        // now we need to re-assemble it
-        try(JarOutputStream jos = new JarOutputStream(new FileOutputStream(newJarFile))) {
-            File[] files = tmpDir.listFiles();
-            if(files != null) {
-                for(File file : files) {
-                    add(tmpDir.getPath(),file,jos);
-                }
-            }
+        regenerateSession().setEntryOrder(startup).commit(newJarFile);
+        try(ZipArchive archive = new ZipArchive(newJarFile)) {
+            startup.removeIf(name -> archive.getEntry(name) == null);
+            return new ReorderReport(startup, before, StartupLayout.countPages(archive, startup));
         }
     }
 
     /**
-     * Adds a file to the archive
-     * @param base - base path
-     * @param source - source file
-     * @param target - target output stream
-     * @throws IOException - thrown if there is an error
+     * Opens a session with the removals, additions and manifest edits made through this editor
+     * @return session
+     * @throws IOException - thrown if an addition can't be queued
      */
-    private static void add(String base, File source, JarOutputStream target) throws IOException {
-        String name = source.getPath().substring(base.length()+1);
-        name = name.replaceAll("\\\\","/");
-        if (source.isDirectory()) {
-            if (!name.endsWith("/")) {
-                name += "/";
-            }
-            JarEntry entry = new JarEntry(name);
-            entry.setTime(source.lastModified());
-            target.putNextEntry(entry);
-            target.closeEntry();
-            File[] files = source.listFiles();
-            if(files != null) {
-                for (File nestedFile : files) {
-                    add(base,nestedFile, target);
-                }
-            }
-        } else {
-            JarEntry entry = new JarEntry(name);
-            entry.setTime(source.lastModified());
-            target.putNextEntry(entry);
-            try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(source))) {
-                byte[] buffer = new byte[1024];
-                while (true) {
-                    int count = in.read(buffer);
-                    if (count == -1)
-                        break;
-                    target.write(buffer, 0, count);
-                }
-                target.closeEntry();
-            }
+    private JarEditSession regenerateSession() throws IOException {
+        JarEditSession session = openSession();
+        for(String name : removals) {
+            session.removeEntry(name);
+        }
+        for(Map.Entry<String,File> entry : additions.entrySet()) {
+            session.add(entry.getKey(), entry.getValue());
+        }
+        if(manifestEditor != null) {
+            session.setManifest(manifestEditor.generateManifest());
         }
+        return session;
     }
 
     /**
@@ -637,6 +735,7 @@ public class JarEditor implements Serializable, Cloneable {
         jarInfo.fingerPrint = fingerPrint;
         jarInfo.automaticModuleName = automaticModuleName;
         jarInfo.duplicates.addAll(duplicates);
+        jarInfo.annotationIndex = annotationIndex;
         for(Map.Entry<String,ClassInfo> entry : classes.entrySet()) {
             jarInfo.classes.put(entry.getKey(),(ClassInfo) entry.getValue().clone());
         }
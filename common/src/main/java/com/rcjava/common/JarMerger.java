@@ -0,0 +1,452 @@
+package com.rcjava.common;
+
+import com.rcjava.common.index.AnnotationIndex;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
+import com.rcjava.common.zip.ParallelDeflater;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipArchiveWriter;
+import com.rcjava.common.zip.ZipEntryRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Merges many jars into one uber-jar in a single pass. Only the central directories are read to plan the
+ * merge, entries are then copied raw in classpath order without being inflated. Entries that appear in more
+ * than one jar with the same checksum and size are written once, entries whose content differs are resolved
+ * with a strategy chosen by entry prefix: first wins (the jar earliest on the classpath), fail or merge
+ * (the contents are concatenated, for META-INF/services and similar resources). Signature files are dropped,
+ * as are INDEX.LIST and shipped annotation indexes which describe a single jar, the manifest of the first
+ * jar is kept without its Class-Path.
+ * @author Ryan Cuprak
+ */
+public class JarMerger {
+
+    /**
+     * How conflicting entries are resolved
+     */
+    public enum Strategy {
+        /**
+         * The entry from the first jar on the classpath is kept
+         */
+        FIRST_WINS,
+        /**
+         * The merge fails
+         */
+        FAIL,
+        /**
+         * The contents are concatenated in classpath order
+         */
+        MERGE
+    }
+
+    /**
+     * Maximum number of source jars open at once while copying
+     */
+    static final int MAX_OPEN_ARCHIVES = 64;
+
+    /**
+     * Resources that are concatenated by default
+     */
+    private static final List<String> MERGED_BY_DEFAULT = List.of("META-INF/services/", "META-INF/spring.handlers",
+            "META-INF/spring.schemas", "META-INF/spring.factories");
+
+    /**
+     * An entry in one of the jars
+     * @param jar - jar
+     * @param record - entry
+     */
+    private record Source(File jar, ZipEntryRecord record) {
+    }
+
+    /**
+     * Source jars opened during the copy, at most a fixed number at once so merging a classpath of thousands
+     * of jars stays within the open file limit. Opened and evicted on the writing thread only.
+     */
+    private static class ArchivePool implements Closeable {
+
+        /**
+         * Open archives, least recently used first
+         */
+        private final LinkedHashMap<File,ZipArchive> open = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Returns an open archive, closing the least recently used one if too many are open. Entries in flight
+         * may still read from it, so they are written first.
+         * @param jar - jar
+         * @param deflater - deflater holding the entries in flight
+         * @return open archive
+         * @throws IOException - thrown if the jar can't be opened or an entry in flight can't be written
+         */
+        private ZipArchive get(File jar, ParallelDeflater deflater) throws IOException {
+            ZipArchive archive = open.get(jar);
+            if(archive == null) {
+                if(open.size() >= MAX_OPEN_ARCHIVES) {
+                    deflater.flush();
+                    Iterator<ZipArchive> eldest = open.values().iterator();
+                    ZipArchive evicted = eldest.next();
+                    eldest.remove();
+                    evicted.close();
+                }
+                archive = new ZipArchive(jar);
+                open.put(jar, archive);
+            }
+            return archive;
+        }
+
+        /**
+         * Closes every open archive, even if closing one of them fails
+         * @throws IOException - thrown with the first failure
+         */
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for(ZipArchive archive : open.values()) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    if(failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            open.clear();
+            if(failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<File> jars;
+
+    /**
+     * Strategies keyed by entry prefix, the longest matching prefix applies
+     */
+    private final Map<String,Strategy> strategies = new TreeMap<>();
+
+    /**
+     * Strategy for entries that don't match a prefix
+     */
+    private Strategy defaultStrategy = Strategy.FIRST_WINS;
+
+    /**
+     * Main-Class of the merged jar, null to keep the first one found
+     */
+    private String mainClass;
+
+    /**
+     * Compression policy, null to copy entries as they are
+     */
+    private CompressionPolicy compressionPolicy;
+
+    /**
+     * Report receiving the compression trade-offs, may be null
+     */
+    private CompressionReport compressionReport;
+
+    /**
+     * Number of threads compressing entries
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a merger
+     * @param jars - jars in classpath order
+     */
+    public JarMerger(List<File> jars) {
+        this.jars = new ArrayList<>(jars);
+        for(String prefix : MERGED_BY_DEFAULT) {
+            strategies.put(prefix, Strategy.MERGE);
+        }
+    }
+
+    /**
+     * Creates a merger for every jar on a classpath, including the jars referenced by manifest Class-Path
+     * entries, in the order the JVM searches them. Directories on the classpath are skipped.
+     * @param classpath - classpath
+     * @return merger
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while resolving the classpath
+     */
+    public static JarMerger forClasspath(Classpath classpath) throws IOException, InterruptedException {
+        List<File> jars = new ArrayList<>();
+        for(File file : classpath.analyze().getClasspath()) {
+            if(file.isFile()) {
+                jars.add(file);
+            }
+        }
+        return new JarMerger(jars);
+    }
+
+    /**
+     * Sets the strategy used for conflicts that don't match a prefix
+     * @param strategy - strategy
+     * @return this merger
+     */
+    public JarMerger setDefaultStrategy(Strategy strategy) {
+        this.defaultStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Sets the strategy for entries starting with a prefix, an entry name matches itself
+     * @param prefix - entry prefix such as META-INF/services/
+     * @param strategy - strategy
+     * @return this merger
+     */
+    public JarMerger setStrategy(String prefix, Strategy strategy) {
+        strategies.put(prefix, strategy);
+        return this;
+    }
+
+    /**
+     * Sets the Main-Class of the merged jar
+     * @param mainClass - main class
+     * @return this merger
+     */
+    public JarMerger setMainClass(String mainClass) {
+        this.mainClass = mainClass;
+        return this;
+    }
+
+    /**
+     * Sets the compression policy, when set every entry is compressed again
+     * @param compressionPolicy - policy or null to copy entries as they are
+     * @return this merger
+     */
+    public JarMerger setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the report receiving the compression trade-offs
+     * @param compressionReport - report
+     * @return this merger
+     */
+    public JarMerger setCompressionReport(CompressionReport compressionReport) {
+        this.compressionReport = compressionReport;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads compressing entries
+     * @param threads - thread count
+     * @return this merger
+     */
+    public JarMerger setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Returns the strategy for an entry
+     * @param name - entry name
+     * @return strategy
+     */
+    Strategy getStrategy(String name) {
+        String match = null;
+        for(String prefix : strategies.keySet()) {
+            if(name.startsWith(prefix) && (match == null || prefix.length() > match.length())) {
+                match = prefix;
+            }
+        }
+        return match != null ? strategies.get(match) : defaultStrategy;
+    }
+
+    /**
+     * Merges the jars. The plan is built from the central directories with one jar open at a time, the copy
+     * then keeps a bounded number of jars open. The output is written next to the target and moved over it
+     * once complete.
+     * @param target - merged jar
+     * @return result
+     * @throws IOException - thrown if a conflict can't be resolved or there is an error reading or writing
+     */
+    public MergeResult merge(File target) throws IOException {
+        MergeResult result = new MergeResult(jars);
+        List<byte[]> manifests = new ArrayList<>();
+        Map<String,List<Source>> entries = plan(manifests, result);
+        byte[] manifest = generateManifest(manifests);
+        CompressionPolicy policy = compressionPolicy != null ? compressionPolicy : new CompressionPolicy();
+        Path tmp = JarUtil.createSiblingTempFile(target);
+        try {
+            try(ZipArchiveWriter writer = new ZipArchiveWriter(tmp.toFile());
+                ArchivePool archives = new ArchivePool();
+                ParallelDeflater deflater = new ParallelDeflater(writer, policy, threads, compressionReport)) {
+                deflater.submit(JarFile.MANIFEST_NAME, () -> manifest, System.currentTimeMillis());
+                result.addEntry();
+                for(Map.Entry<String,List<Source>> entry : entries.entrySet()) {
+                    List<Source> sources = entry.getValue();
+                    List<Source> distinct = distinct(sources);
+                    result.addDuplicates(sources.size() - distinct.size());
+                    Source first = distinct.get(0);
+                    if(distinct.size() > 1 && getStrategy(entry.getKey()) == Strategy.MERGE) {
+                        byte[] content = concatenate(distinct, archives, deflater);
+                        deflater.submit(entry.getKey(), () -> content, first.record().getTime());
+                    } else if(compressionPolicy != null) {
+                        deflater.recompress(archives.get(first.jar(), deflater), first.record());
+                    } else {
+                        deflater.copyRaw(archives.get(first.jar(), deflater), first.record());
+                    }
+                    result.addEntry();
+                }
+                deflater.flush();
+            }
+            JarUtil.moveAtomically(tmp, target.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return result;
+    }
+
+    /**
+     * Groups the entries of every jar by name in classpath order and checks for conflicts. Only the central
+     * directories and manifests are read, each jar is closed before the next is opened.
+     * @param manifests - receives the manifest of each jar that has one, in classpath order
+     * @param result - result receiving the conflicts
+     * @return entries keyed by name in the order they are written
+     * @throws IOException - thrown listing every conflict if one must fail the merge
+     */
+    private Map<String,List<Source>> plan(List<byte[]> manifests, MergeResult result) throws IOException {
+        Map<String,List<Source>> entries = new LinkedHashMap<>();
+        for(File jar : jars) {
+            try(ZipArchive archive = new ZipArchive(jar)) {
+                ZipEntryRecord manifestEntry = archive.getManifestEntry();
+                if(manifestEntry != null) {
+                    manifests.add(archive.readContent(manifestEntry));
+                }
+                for(ZipEntryRecord record : archive.getEntries()) {
+                    String name = record.getName();
+                    if(record == manifestEntry || name.equals("META-INF/INDEX.LIST") || name.equals(AnnotationIndex.ENTRY)) {
+                        continue;
+                    }
+                    if(JarUtil.isSignatureFile(name)) {
+                        result.addSignatureFile();
+                        continue;
+                    }
+                    entries.computeIfAbsent(name, k -> new ArrayList<>()).add(new Source(jar, record));
+                }
+            }
+        }
+        List<String> failures = new ArrayList<>();
+        for(Map.Entry<String,List<Source>> entry : entries.entrySet()) {
+            List<Source> distinct = distinct(entry.getValue());
+            if(distinct.size() > 1 && !entry.getKey().endsWith("/")) {
+                Strategy strategy = getStrategy(entry.getKey());
+                List<File> files = new ArrayList<>(distinct.size());
+                for(Source source : distinct) {
+                    files.add(source.jar());
+                }
+                MergeResult.Conflict conflict = new MergeResult.Conflict(entry.getKey(), files, strategy);
+                result.addConflict(conflict);
+                if(strategy == Strategy.FAIL) {
+                    failures.add(conflict.toString());
+                }
+            }
+        }
+        if(!failures.isEmpty()) {
+            throw new IOException("Conflicting entries:" + System.lineSeparator() + String.join(System.lineSeparator(), failures));
+        }
+        return entries;
+    }
+
+    /**
+     * Removes sources whose checksum and size match an earlier source, directories are always identical
+     * @param sources - sources in classpath order
+     * @return distinct sources in classpath order
+     */
+    private static List<Source> distinct(List<Source> sources) {
+        if(sources.size() == 1 || sources.get(0).record().isDirectory()) {
+            return sources.subList(0, 1);
+        }
+        List<Source> distinct = new ArrayList<>(sources.size());
+        for(Source source : sources) {
+            boolean duplicate = false;
+            for(Source kept : distinct) {
+                if(kept.record().getCrc() == source.record().getCrc() && kept.record().getSize() == source.record().getSize()) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if(!duplicate) {
+                distinct.add(source);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Concatenates the content of several entries on the writing thread, each part ends with a line break
+     * @param sources - sources in classpath order
+     * @param archives - open source jars
+     * @param deflater - deflater holding the entries in flight
+     * @return merged content
+     * @throws IOException - thrown if an entry can't be read
+     */
+    private static byte[] concatenate(List<Source> sources, ArchivePool archives, ParallelDeflater deflater) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for(Source source : sources) {
+            byte[] content = archives.get(source.jar(), deflater).readContent(source.record());
+            bos.write(content);
+            if(content.length > 0 && content[content.length - 1] != '\n') {
+                bos.write('\n');
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Produces the manifest of the merged jar from the main attributes of the first jar with a manifest.
+     * Class-Path is dropped since the referenced jars are merged in, per entry sections are dropped along with
+     * the signatures they belong to.
+     * @param manifests - manifests of the jars in classpath order
+     * @return manifest content
+     * @throws IOException - thrown if a manifest can't be parsed
+     */
+    private byte[] generateManifest(List<byte[]> manifests) throws IOException {
+        Manifest merged = null;
+        String main = mainClass;
+        for(byte[] content : manifests) {
+            Manifest manifest = new Manifest(new ByteArrayInputStream(content));
+            if(merged == null) {
+                merged = new Manifest();
+                merged.getMainAttributes().putAll(manifest.getMainAttributes());
+            }
+            if(main == null) {
+                main = manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+            }
+        }
+        if(merged == null) {
+            merged = new Manifest();
+        }
+        Attributes attributes = merged.getMainAttributes();
+        attributes.putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.remove(Attributes.Name.CLASS_PATH);
+        if(main != null) {
+            attributes.put(Attributes.Name.MAIN_CLASS, main);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        merged.write(bos);
+        return bos.toByteArray();
+    }
+}
@@ -1,31 +1,52 @@
 package com.rcjava.common;
 
 import com.rcjava.common.compile.CustomSinkFactory;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
+import com.rcjava.common.zip.ParallelDeflater;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipArchiveWriter;
+import com.rcjava.common.zip.ZipEntryRecord;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.benf.cfr.reader.api.CfrDriver;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarInputStream;
-import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
 
@@ -36,11 +57,6 @@ public class JarUtil {
      */
     private static final Set<String> ENDINGS = new HashSet<>();
 
-    /**
-     * Buffer used in generating the file
-     */
-    private static final byte[] buffer = new byte[4096];
-
     static {
         ENDINGS.add(".SF");
         ENDINGS.add(".DSA");
@@ -164,60 +180,256 @@ public class JarUtil {
     }
 
     /**
-     * Duplicates a JAR file without
+     * Checks for signature files using only the central directory. Much cheaper than {@link #checkSigned(File)},
+     * nothing is inflated or verified.
+     * @param jarFile - jar file to check
+     * @return true if the jar contains signature files
+     * @throws IOException - thrown if the jar can't be read
+     */
+    public static boolean hasSignatureFiles(File jarFile) throws IOException {
+        try(ZipArchive archive = new ZipArchive(jarFile)) {
+            for(ZipEntryRecord record : archive.getEntries()) {
+                if(isSignatureFile(record.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the entry is a signature file (.SF, .DSA, .EC or .RSA in META-INF)
+     * @param name - entry name
+     * @return true if signature file
+     */
+    static boolean isSignatureFile(String name) {
+        if(name.startsWith("META-INF")) {
+            for (String ending : ENDINGS) {
+                if (name.endsWith(ending)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Duplicates a JAR file without the signature files. Entries are copied without being recompressed and the
+     * per-entry digests are dropped from the manifest. Safe to call from several threads at once.
+     * Use {@link #unsignJar(Path, boolean, CompressionPolicy, CompressionReport)} to recompress the output.
      * @param jarFile - JAR File
      * @param overwrite - true if we need to overwrite the jar file
      * @return path to unsigned jar
      */
     public static Path unsignJar(Path jarFile, boolean overwrite) throws IOException {
-        Path unsignedPath = Files.createTempFile("tmp","jar");
+        return unsignJar(jarFile, overwrite, null, null);
+    }
+
+    /**
+     * Duplicates a JAR file without the signature files, compressing the entries according to a policy
+     * @param jarFile - JAR File
+     * @param overwrite - true if we need to overwrite the jar file
+     * @param policy - compression policy, null to copy the entries without recompressing them
+     * @param report - report receiving the size and time trade-offs, may be null
+     * @return path to unsigned jar
+     * @throws IOException - thrown if there is an error writing
+     */
+    public static Path unsignJar(Path jarFile, boolean overwrite, CompressionPolicy policy, CompressionReport report) throws IOException {
+        return unsignJar(jarFile, overwrite, policy, report, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Duplicates a JAR file without the signature files
+     * @param jarFile - JAR File
+     * @param overwrite - true if we need to overwrite the jar file
+     * @param policy - compression policy, null to copy the entries without recompressing them
+     * @param report - report receiving the size and time trade-offs, may be null
+     * @param threads - number of threads compressing entries
+     * @return path to unsigned jar
+     * @throws IOException - thrown if there is an error writing
+     */
+    private static Path unsignJar(Path jarFile, boolean overwrite, CompressionPolicy policy, CompressionReport report,
+                                  int threads) throws IOException {
+        jarFile = jarFile.toAbsolutePath();
         Path target;
-        try(JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(unsignedPath.toFile()));
-            JarInputStream jarInputStream = new JarInputStream(new FileInputStream(jarFile.toFile()))) {
-            JarEntry entry;
-            while ((entry = jarInputStream.getNextJarEntry()) != null) {
-                if (entry.getName().startsWith("META-INF")) {
-                    boolean copy = true;
-                    for (String ending : ENDINGS) {
-                        if (entry.getName().endsWith(ending)) {
-                            copy = false;
-                            break;
-                        }
+        if(overwrite) {
+            target = jarFile;
+        } else {
+            String newName = jarFile.getFileName().toString();
+            newName = newName.substring(0, newName.lastIndexOf('.')) + "_unsigned.jar";
+            target = jarFile.resolveSibling(newName);
+        }
+        Path unsignedPath = createSiblingTempFile(target.toFile());
+        try {
+            try(ZipArchive archive = new ZipArchive(jarFile.toFile());
+                ZipArchiveWriter writer = new ZipArchiveWriter(unsignedPath.toFile());
+                ParallelDeflater deflater = new ParallelDeflater(writer, policy != null ? policy : new CompressionPolicy(), threads, report)) {
+                ZipEntryRecord manifestEntry = archive.getManifestEntry();
+                Set<String> written = new HashSet<>();
+                for(ZipEntryRecord record : archive.getEntries()) {
+                    if(isSignatureFile(record.getName()) || !written.add(record.getName())) {
+                        continue;
                     }
-                    if(copy) {
-                        copyFile(outputStream,jarInputStream,entry);
+                    if(record == manifestEntry) {
+                        byte[] manifest = stripDigests(archive.readContent(record));
+                        deflater.submit(record.getName(), () -> manifest, record.getTime());
+                    } else if(policy != null) {
+                        deflater.recompress(archive, record);
+                    } else {
+                        deflater.copyRaw(archive, record);
                     }
-                } else {
-                    copyFile(outputStream,jarInputStream,entry);
                 }
+                deflater.flush();
+            }
+            moveAtomically(unsignedPath, target);
+        } finally {
+            Files.deleteIfExists(unsignedPath);
+        }
+        return target;
+    }
+
+    /**
+     * Removes the per-entry digests left behind by jarsigner, sections left empty are dropped
+     * @param content - manifest content
+     * @return manifest content without digests
+     * @throws IOException - thrown if the manifest can't be parsed
+     */
+    private static byte[] stripDigests(byte[] content) throws IOException {
+        Manifest manifest = new Manifest(new ByteArrayInputStream(content));
+        Iterator<Map.Entry<String, Attributes>> sections = manifest.getEntries().entrySet().iterator();
+        while(sections.hasNext()) {
+            Attributes attributes = sections.next().getValue();
+            attributes.keySet().removeIf(key -> key.toString().toUpperCase(Locale.ENGLISH).endsWith("-DIGEST"));
+            if(attributes.isEmpty()) {
+                sections.remove();
+            }
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(content.length);
+        manifest.write(bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Unsigns every signed jar under a directory in parallel. Unsigned jars are skipped after a look at their
+     * central directory.
+     * @param dir - directory, searched recursively
+     * @param overwrite - true if the jars should be overwritten
+     * @param threads - number of jars processed concurrently
+     * @return unsigned jars keyed by the original jar
+     * @throws IOException - thrown if any jar could not be unsigned, the failures are attached as suppressed
+     * @throws InterruptedException - thrown if interrupted while waiting
+     */
+    public static Map<Path,Path> unsignJars(Path dir, boolean overwrite, int threads) throws IOException, InterruptedException {
+        return unsignJars(dir, overwrite, threads, null, null);
+    }
+
+    /**
+     * Unsigns every signed jar under a directory in parallel, compressing the entries according to a policy.
+     * Each jar is compressed on the thread unsigning it.
+     * @param dir - directory, searched recursively
+     * @param overwrite - true if the jars should be overwritten
+     * @param threads - number of jars processed concurrently
+     * @param policy - compression policy, null to copy the entries without recompressing them
+     * @param report - report receiving the size and time trade-offs of every jar, may be null
+     * @return unsigned jars keyed by the original jar
+     * @throws IOException - thrown if any jar could not be unsigned, the failures are attached as suppressed
+     * @throws InterruptedException - thrown if interrupted while waiting
+     */
+    public static Map<Path,Path> unsignJars(Path dir, boolean overwrite, int threads, CompressionPolicy policy,
+                                            CompressionReport report) throws IOException, InterruptedException {
+        List<File> jars = findJars(List.of(dir.toFile()));
+        Map<Path,Path> unsigned = new ConcurrentHashMap<>();
+        Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(jars.size());
+            for(File jar : jars) {
+                tasks.add(() -> {
+                    try {
+                        if(hasSignatureFiles(jar)) {
+                            unsigned.put(jar.toPath(), unsignJar(jar.toPath(), overwrite, policy, report, 1));
+                        }
+                    } catch (IOException e) {
+                        failures.add(new IOException(jar + ": " + e.getMessage(), e));
+                    }
+                    return null;
+                });
             }
+            executor.invokeAll(tasks);
         } finally {
-            if(overwrite) {
-                target = jarFile;
-                Files.delete(jarFile);
-                Files.copy(unsignedPath,jarFile);
-                Files.delete(unsignedPath);
+            executor.shutdownNow();
+        }
+        if(!failures.isEmpty()) {
+            IOException e = new IOException("Unable to unsign " + failures.size() + " jar(s)");
+            failures.forEach(e::addSuppressed);
+            throw e;
+        }
+        return new TreeMap<>(unsigned);
+    }
+
+    /**
+     * Expands a list of jars and directories into jars, directories are searched recursively for *.jar
+     * @param files - jars and directories
+     * @return jars in a stable order, duplicates removed
+     * @throws IOException - thrown if a directory can't be read
+     */
+    public static List<File> findJars(List<File> files) throws IOException {
+        Set<File> jars = new LinkedHashSet<>();
+        for(File file : files) {
+            if(file.isDirectory()) {
+                try(Stream<Path> walk = Files.walk(file.toPath())) {
+                    walk.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().toLowerCase(Locale.ENGLISH).endsWith(".jar"))
+                            .sorted()
+                            .forEach(p -> jars.add(p.toFile()));
+                }
             } else {
-                System.out.println("Jar: " + jarFile);
-                String newName = jarFile.getName(jarFile.getNameCount()-1).toString();
-                newName = newName.substring(0, newName.lastIndexOf('.')) + "_unsigned.jar";
-                target = jarFile.getParent().resolve(newName);
-                Files.move(unsignedPath,target);
+                jars.add(file);
             }
         }
-        return target;
+        return new ArrayList<>(jars);
+    }
+
+    /**
+     * Creates a temp file next to the target so that it can later be moved over the target atomically
+     * @param target - file that will eventually be replaced
+     * @return temp file
+     * @throws IOException - thrown if the file can't be created
+     */
+    public static Path createSiblingTempFile(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        return Files.createTempFile(dir.toPath(), "." + target.getName(), ".tmp");
+    }
+
+    /**
+     * Gives a temp file the permissions of the file it replaces, temp files are only readable by the owner.
+     * A new file gets the usual rw-r--r--. Ignored on file systems without POSIX permissions.
+     * @param original - file being replaced, may not exist
+     * @param replacement - temp file
+     * @throws IOException - thrown if the permissions can't be set
+     */
+    private static void copyPermissions(Path original, Path replacement) throws IOException {
+        try {
+            Set<PosixFilePermission> permissions = Files.exists(original) ? Files.getPosixFilePermissions(original)
+                    : PosixFilePermissions.fromString("rw-r--r--");
+            Files.setPosixFilePermissions(replacement, permissions);
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
     }
 
     /**
-     * Writes a stream
+     * Moves a file over the target, atomically if the file system supports it
+     * @param source - file to move
+     * @param target - file to be replaced
+     * @throws IOException - thrown if the move fails
      */
-    private static void copyFile(JarOutputStream outputStream,JarInputStream jarInputStream, JarEntry entry) throws IOException {
-        outputStream.putNextEntry(new JarEntry(entry.getName()));
-        int read;
-        while((read = jarInputStream.read(buffer)) != -1) {
-            outputStream.write(buffer,0,read);
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        copyPermissions(target, source);
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
-        outputStream.closeEntry();
     }
 
     /**
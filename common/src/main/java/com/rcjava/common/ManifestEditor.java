@@ -2,12 +2,19 @@ package com.rcjava.common;
 
 import com.rcjava.common.manifest.ManifestClasspathEntry;
 import com.rcjava.common.manifest.MetaInfResource;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipArchiveWriter;
+import com.rcjava.common.zip.ZipEntryRecord;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -47,6 +54,22 @@ public class ManifestEditor {
 
     private JarEditor jarEditor;
 
+    /**
+     * Flag indicating that only the manifest and META-INF listing were read, the jar is rewritten by
+     * copying all other entries verbatim
+     */
+    private boolean manifestOnly;
+
+    /**
+     * Classpath as it was read from the jar, used to detect modifications
+     */
+    private final List<String> originalClasspath = new LinkedList<>();
+
+    /**
+     * Main attributes as they were read from the jar, used to detect modifications
+     */
+    private Attributes originalAttributes = new Attributes();
+
     /**
      *
      * @param jarEditor
@@ -65,6 +88,43 @@ public class ManifestEditor {
         return jarEditor.getManifestEditor();
     }
 
+    /**
+     * Creates a manifest editor that only reads the manifest and the META-INF listing from the central
+     * directory. Classes are never inflated or hashed and {@link #regenerate(File)} rewrites only the
+     * manifest entry, all other entries are copied without being recompressed.
+     * @param file - jar file to edit
+     * @return ManifestEditor instance
+     * @throws IOException - thrown if the jar file can't be read
+     */
+    public static ManifestEditor createManifestOnlyEditor(File file) throws IOException {
+        try(ZipArchive archive = new ZipArchive(file)) {
+            return createManifestOnlyEditor(archive);
+        }
+    }
+
+    /**
+     * Creates a manifest only editor from an archive that is already open
+     * @param archive - open archive
+     * @return ManifestEditor instance
+     * @throws IOException - thrown if the manifest can't be read
+     */
+    static ManifestEditor createManifestOnlyEditor(ZipArchive archive) throws IOException {
+        ManifestEditor editor = new ManifestEditor(new JarEditor(archive.getFile()));
+        editor.manifestOnly = true;
+        for(ZipEntryRecord record : archive.getEntries()) {
+            if(record.getName().startsWith("META-INF")) {
+                editor.processEntry(new JarEntry(record.getName()));
+            }
+        }
+        ZipEntryRecord manifestEntry = archive.getManifestEntry();
+        if(manifestEntry != null) {
+            editor.setManifest(new Manifest(new ByteArrayInputStream(archive.readContent(manifestEntry))));
+        } else {
+            editor.setManifest(null);
+        }
+        return editor;
+    }
+
     /**
      * Processes an entry in the JAR file
      * Called from JarEditor.load
@@ -87,6 +147,7 @@ public class ManifestEditor {
         this.manifest = manifest;
         if(manifest != null) {
             mainAttributes = manifest.getMainAttributes();
+            originalAttributes = (Attributes) mainAttributes.clone();
             String classpath = manifest.getMainAttributes().getValue("Class-Path");
             if(classpath != null) {
                 StringTokenizer tokenizer = new StringTokenizer(classpath, " ");
@@ -94,11 +155,53 @@ public class ManifestEditor {
                 while (tokenizer.hasMoreElements()) {
                     element = tokenizer.nextElement().toString();
                     classpathEntries.add(new ManifestClasspathEntry(element));
+                    originalClasspath.add(element);
                 }
             }
         }
     }
 
+    /**
+     * Returns true if the classpath or any main attribute differs from what was read from the jar
+     * @return true if modified
+     */
+    public boolean isModified() {
+        List<String> current = new LinkedList<>();
+        for(ManifestClasspathEntry cpe : classpathEntries) {
+            current.add(cpe.getFullPath());
+        }
+        if(!current.equals(originalClasspath)) {
+            return true;
+        }
+        Attributes before = (Attributes) originalAttributes.clone();
+        before.remove(Attributes.Name.CLASS_PATH);
+        Attributes after = mainAttributes != null ? (Attributes) mainAttributes.clone() : new Attributes();
+        after.remove(Attributes.Name.CLASS_PATH);
+        return !before.equals(after);
+    }
+
+    /**
+     * Sets a main attribute. Setting Class-Path replaces the classpath entries.
+     * @param name - attribute name
+     * @param value - attribute value
+     */
+    public void setAttribute(String name, String value) {
+        if(Attributes.Name.CLASS_PATH.toString().equalsIgnoreCase(name)) {
+            classpathEntries.clear();
+            StringTokenizer tokenizer = new StringTokenizer(value, " ");
+            while (tokenizer.hasMoreElements()) {
+                classpathEntries.add(new ManifestClasspathEntry(tokenizer.nextElement().toString()));
+            }
+            return;
+        }
+        if(manifest == null) {
+            manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            mainAttributes = manifest.getMainAttributes();
+        }
+        mainAttributes.putValue(name, value);
+    }
+
     /**
      * Returns the MetaInfo resources
      * @return resources in the meta-inf directory
@@ -150,6 +253,22 @@ public class ManifestEditor {
         }
     }
 
+    /**
+     * Removes a jar from the classpath if it is present
+     * @param jar - jar to be removed
+     * @return true if the jar was removed
+     */
+    public boolean removeJarIfPresent(String jar) {
+        Iterator<ManifestClasspathEntry> itr = classpathEntries.iterator();
+        while(itr.hasNext()) {
+            if(itr.next().getJarName().equals(jar)) {
+                itr.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Removes multiple jar files
      * @param jars jars
@@ -179,10 +298,17 @@ public class ManifestEditor {
     }
 
     /**
-     * Generates the manifest file
-     * @param manifestFile - manifest file
+     * Serializes the manifest with the current classpath entries. The Class-Path attribute is dropped
+     * when there are no entries left.
+     * @return manifest bytes
+     * @throws IOException - thrown if the manifest can't be written
      */
-    void generateManifest(File manifestFile) throws IOException {
+    byte[] generateManifest() throws IOException {
+        if(manifest == null) {
+            manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            mainAttributes = manifest.getMainAttributes();
+        }
         StringBuilder builder = new StringBuilder();
         boolean addSpace = false;
         for(ManifestClasspathEntry cpe : classpathEntries) {
@@ -193,20 +319,71 @@ public class ManifestEditor {
             }
             builder.append(cpe.getFullPath());
         }
-        manifest.getMainAttributes().putValue("Class-Path",builder.toString());
+        if(classpathEntries.isEmpty()) {
+            manifest.getMainAttributes().remove(Attributes.Name.CLASS_PATH);
+        } else {
+            manifest.getMainAttributes().putValue("Class-Path", builder.toString());
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.write(bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Generates the manifest file
+     * @param manifestFile - manifest file
+     */
+    void generateManifest(File manifestFile) throws IOException {
+        byte[] content = generateManifest();
         if(!manifestFile.createNewFile()) {
             throw new IOException("Unable to create: " + manifestFile.getAbsolutePath());
         }
         try (FileOutputStream fos = new FileOutputStream(manifestFile)) {
-            manifest.write(fos);
+            fos.write(content);
         }
     }
 
     /**
-     * Regenerates the JAR file and manifest. Delegates to the JarEditor
+     * Regenerates the JAR file and manifest. Delegates to the JarEditor unless the editor was created with
+     * {@link #createManifestOnlyEditor(File)}.
      * @param target - target
      */
     public void regenerate(File target) throws IOException {
-        jarEditor.regenerate(target);
+        if(manifestOnly) {
+            rewriteManifest(target);
+        } else {
+            jarEditor.regenerate(target);
+        }
+    }
+
+    /**
+     * Writes a copy of the jar with the new manifest. Every other entry is copied raw, the result is moved
+     * over the target once it is complete so the target may be the jar being edited.
+     * @param target - target
+     * @throws IOException - thrown if there is an error writing
+     */
+    private void rewriteManifest(File target) throws IOException {
+        byte[] content = generateManifest();
+        Path tmp = JarUtil.createSiblingTempFile(target);
+        try {
+            try (ZipArchive archive = new ZipArchive(jarEditor.getJarFile());
+                 ZipArchiveWriter writer = new ZipArchiveWriter(tmp.toFile())) {
+                ZipEntryRecord manifestEntry = archive.getManifestEntry();
+                if(manifestEntry == null) {
+                    writer.writeEntry(JarFile.MANIFEST_NAME, content, ZipEntryRecord.DEFLATED, System.currentTimeMillis());
+                }
+                for(ZipEntryRecord record : archive.getEntries()) {
+                    if(record == manifestEntry) {
+                        writer.writeEntry(record.getName(), content, ZipEntryRecord.DEFLATED, record.getTime());
+                    } else if(!writer.contains(record.getName())) {
+                        writer.copyRaw(archive, record);
+                    }
+                }
+                writer.setComment(archive.getComment());
+            }
+            JarUtil.moveAtomically(tmp, target.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
     }
 }
@@ -0,0 +1,199 @@
+package com.rcjava.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of merging jars with {@link JarMerger}
+ * @author Ryan Cuprak
+ */
+public class MergeResult {
+
+    /**
+     * An entry present with different content in more than one jar
+     */
+    public static class Conflict {
+
+        /**
+         * Entry name
+         */
+        private final String name;
+
+        /**
+         * Jars containing the entry in classpath order, the first one won unless the entry was merged
+         */
+        private final List<File> jars;
+
+        /**
+         * Strategy used to resolve the conflict
+         */
+        private final JarMerger.Strategy strategy;
+
+        /**
+         * Constructs a new conflict
+         * @param name - entry name
+         * @param jars - jars containing the entry
+         * @param strategy - strategy used
+         */
+        Conflict(String name, List<File> jars, JarMerger.Strategy strategy) {
+            this.name = name;
+            this.jars = List.copyOf(jars);
+            this.strategy = strategy;
+        }
+
+        /**
+         * Returns the entry name
+         * @return entry name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the jars containing the entry in classpath order
+         * @return jars
+         */
+        public List<File> getJars() {
+            return jars;
+        }
+
+        /**
+         * Returns the strategy used to resolve the conflict
+         * @return strategy
+         */
+        public JarMerger.Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * Returns a description of the conflict
+         * @return description
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append(" (").append(strategy).append("): ");
+            for(int i = 0; i < jars.size(); i++) {
+                if(i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(jars.get(i).getName());
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Jars that were merged in classpath order
+     */
+    private final List<File> jars;
+
+    /**
+     * Conflicts found
+     */
+    private final List<Conflict> conflicts = new ArrayList<>();
+
+    /**
+     * Number of entries written
+     */
+    private int entries;
+
+    /**
+     * Number of entries skipped because an identical entry was already written
+     */
+    private int duplicates;
+
+    /**
+     * Number of signature files dropped
+     */
+    private int signatureFiles;
+
+    /**
+     * Creates a new result
+     * @param jars - jars being merged
+     */
+    MergeResult(List<File> jars) {
+        this.jars = List.copyOf(jars);
+    }
+
+    /**
+     * Records a conflict
+     * @param conflict - conflict
+     */
+    void addConflict(Conflict conflict) {
+        conflicts.add(conflict);
+    }
+
+    /**
+     * Records an entry that was written
+     */
+    void addEntry() {
+        entries++;
+    }
+
+    /**
+     * Records identical entries that were skipped
+     * @param count - number of entries skipped
+     */
+    void addDuplicates(int count) {
+        duplicates += count;
+    }
+
+    /**
+     * Records a signature file that was dropped
+     */
+    void addSignatureFile() {
+        signatureFiles++;
+    }
+
+    /**
+     * Returns the jars that were merged in classpath order
+     * @return jars
+     */
+    public List<File> getJars() {
+        return jars;
+    }
+
+    /**
+     * Returns the conflicts
+     * @return conflicts
+     */
+    public List<Conflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Returns the number of entries written
+     * @return entries
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the number of entries skipped because an identical copy was already written
+     * @return duplicates
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns the number of signature files dropped
+     * @return signature files
+     */
+    public int getSignatureFiles() {
+        return signatureFiles;
+    }
+
+    /**
+     * Returns a summary
+     * @return summary
+     */
+    @Override
+    public String toString() {
+        return "Merged " + jars.size() + " jars: " + entries + " entries, " + duplicates + " identical duplicates skipped, "
+                + conflicts.size() + " conflicts, " + signatureFiles + " signature files dropped";
+    }
+}
@@ -0,0 +1,175 @@
+package com.rcjava.common.cds;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class list for a Class Data Sharing archive, with the classpath it was generated for. The archive is only
+ * used by a JVM whose classpath starts with the jars it was dumped with, in the same order.
+ * @author Ryan Cuprak
+ */
+public class ClassList {
+
+    /**
+     * Why a class was left out
+     */
+    public enum Exclusion {
+
+        /**
+         * The class is in a signed jar, the JVM doesn't archive those
+         */
+        SIGNED,
+
+        /**
+         * The class is defined by more than one jar
+         */
+        SHADOWED,
+
+        /**
+         * The jar holds the class twice
+         */
+        DUPLICATE
+    }
+
+    /**
+     * Classes with slashes (java/lang/Object), in list order
+     */
+    private final List<String> classes;
+
+    /**
+     * Classes left out, by name with slashes
+     */
+    private final Map<String,Exclusion> excluded;
+
+    /**
+     * Jars of the classpath in order
+     */
+    private final List<File> classpath;
+
+    /**
+     * Traced classes loaded from outside the classpath
+     */
+    private final int outsideClasspath;
+
+    /**
+     * Creates a class list
+     * @param classes - classes in list order
+     * @param excluded - classes left out
+     * @param classpath - jars in classpath order
+     * @param outsideClasspath - traced classes loaded from outside the classpath
+     */
+    ClassList(List<String> classes, Map<String,Exclusion> excluded, List<File> classpath, int outsideClasspath) {
+        this.classes = classes;
+        this.excluded = new TreeMap<>(excluded);
+        this.classpath = classpath;
+        this.outsideClasspath = outsideClasspath;
+    }
+
+    /**
+     * Returns the classes of the list
+     * @return class names with slashes, in list order
+     */
+    public List<String> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Returns the classes that were left out
+     * @return reason keyed by class name with slashes, sorted by name
+     */
+    public Map<String,Exclusion> getExcluded() {
+        return Collections.unmodifiableMap(excluded);
+    }
+
+    /**
+     * Returns the classpath the list was generated for
+     * @return jars in classpath order
+     */
+    public List<File> getClasspath() {
+        return Collections.unmodifiableList(classpath);
+    }
+
+    /**
+     * Returns the number of traced classes loaded from jars or directories outside the classpath
+     * @return class count
+     */
+    public int getOutsideClasspath() {
+        return outsideClasspath;
+    }
+
+    /**
+     * Returns the classpath as a path string
+     * @return classpath string
+     */
+    public String toClasspathString() {
+        StringBuilder builder = new StringBuilder();
+        for(File file : classpath) {
+            if(builder.length() > 0) {
+                builder.append(File.pathSeparatorChar);
+            }
+            builder.append(file.getAbsolutePath());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the list in the format read by -XX:SharedClassListFile, one class per line
+     * @param file - list file
+     * @throws IOException - thrown if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        List<String> lines = new ArrayList<>(classes.size() + 1);
+        lines.add("# " + classes.size() + " classes for " + classpath.size() + " jars");
+        lines.addAll(classes);
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the JVM options dumping the archive
+     * @param listFile - class list written by {@link #write(File)}
+     * @param archiveFile - archive to be created
+     * @return options, followed by -cp and the classpath
+     */
+    public List<String> getDumpOptions(File listFile, File archiveFile) {
+        return List.of("-Xshare:dump", "-XX:SharedClassListFile=" + listFile.getAbsolutePath(),
+                "-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath(), "-cp", toClasspathString());
+    }
+
+    /**
+     * Returns the JVM options running with the archive
+     * @param archiveFile - dumped archive
+     * @return options, followed by -cp and the classpath
+     */
+    public List<String> getRuntimeOptions(File archiveFile) {
+        return List.of("-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath(), "-cp", toClasspathString());
+    }
+
+    /**
+     * Returns a summary
+     * @return summary
+     */
+    @Override
+    public String toString() {
+        Map<Exclusion,Integer> counts = new EnumMap<>(Exclusion.class);
+        for(Exclusion exclusion : excluded.values()) {
+            counts.merge(exclusion, 1, Integer::sum);
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(classes.size()).append(" classes listed, ").append(excluded.size()).append(" left out");
+        for(Map.Entry<Exclusion,Integer> entry : counts.entrySet()) {
+            builder.append(", ").append(entry.getValue()).append(' ').append(entry.getKey().name().toLowerCase());
+        }
+        if(outsideClasspath > 0) {
+            builder.append(", ").append(outsideClasspath).append(" traced classes outside the classpath");
+        }
+        return builder.append(System.lineSeparator()).toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.rcjava.common.cds;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.trace.ClassLoadTrace;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the class list used to dump a Class Data Sharing archive (-Xshare:dump -XX:SharedClassListFile)
+ * for a classpath. Without a trace every class that can be archived is listed in classpath order. With a
+ * trace only the classes the application loaded are listed, in load order, JDK classes included since a
+ * class list replaces the default list of the JDK. Classes the JVM won't archive or that would be archived
+ * from the wrong jar are left out: classes of signed jars, classes defined by more than one jar and jars
+ * holding the same entry twice.
+ * @author Ryan Cuprak
+ */
+public class ClassListGenerator {
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Class-load trace, null to list every class
+     */
+    private ClassLoadTrace trace;
+
+    /**
+     * Creates a generator
+     * @param jars - loaded jars in classpath order
+     */
+    public ClassListGenerator(List<JarEditor> jars) {
+        this.jars = jars;
+    }
+
+    /**
+     * Sets the trace selecting and ordering the classes
+     * @param trace - class-load trace, null to list every class
+     * @return this generator
+     */
+    public ClassListGenerator setTrace(ClassLoadTrace trace) {
+        this.trace = trace;
+        return this;
+    }
+
+    /**
+     * Generates the class list
+     * @return class list
+     */
+    public ClassList generate() {
+        Map<String,List<JarEditor>> owners = new LinkedHashMap<>();
+        for(JarEditor jar : jars) {
+            for(ClassInfo classInfo : jar.getClassInfos()) {
+                String entryName = classInfo.getJarEntry().getName();
+                if(entryName.startsWith("META-INF/") || entryName.endsWith("module-info.class")) {
+                    continue;
+                }
+                String name = entryName.substring(0, entryName.length() - ".class".length());
+                List<JarEditor> list = owners.computeIfAbsent(name, k -> new ArrayList<>(1));
+                if(!list.contains(jar)) {
+                    list.add(jar);
+                }
+            }
+        }
+        Map<String,ClassList.Exclusion> excluded = new HashMap<>();
+        for(Map.Entry<String,List<JarEditor>> entry : owners.entrySet()) {
+            JarEditor first = entry.getValue().get(0);
+            if(entry.getValue().size() > 1) {
+                excluded.put(entry.getKey(), ClassList.Exclusion.SHADOWED);
+            } else if(first.isSigned()) {
+                excluded.put(entry.getKey(), ClassList.Exclusion.SIGNED);
+            } else if(first.getDuplicates().contains(entry.getKey() + ".class")) {
+                excluded.put(entry.getKey(), ClassList.Exclusion.DUPLICATE);
+            }
+        }
+        Set<String> classes = new LinkedHashSet<>();
+        int outside = 0;
+        if(trace == null) {
+            for(String name : owners.keySet()) {
+                if(!excluded.containsKey(name)) {
+                    classes.add(name);
+                }
+            }
+        } else {
+            for(ClassLoadTrace.Entry entry : trace.getEntries()) {
+                String name = entry.className().replace('.', '/');
+                if(owners.containsKey(name)) {
+                    if(!excluded.containsKey(name)) {
+                        classes.add(name);
+                    }
+                } else if(entry.className().contains("/")) {
+                    // hidden classes (lambdas, lambda forms) are generated at run time
+                } else if(entry.location() == null) {
+                    classes.add(name);
+                } else {
+                    outside++;
+                }
+            }
+        }
+        List<File> classpath = new ArrayList<>(jars.size());
+        for(JarEditor jar : jars) {
+            classpath.add(jar.getJarFile());
+        }
+        return new ClassList(new ArrayList<>(classes), excluded, classpath, outside);
+    }
+}
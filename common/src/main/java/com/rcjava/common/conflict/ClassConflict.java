@@ -0,0 +1,124 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class defined by more than one jar of a classpath
+ * @author Ryan Cuprak
+ */
+public class ClassConflict {
+
+    /**
+     * Entry name of the class (com/foo/Bar.class)
+     */
+    private final String name;
+
+    /**
+     * Jars defining the class, in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Checksum of each copy, same order as the jars
+     */
+    private final List<String> checksums;
+
+    /**
+     * Creates a conflict
+     * @param name - entry name of the class
+     * @param jars - jars defining the class in classpath order
+     * @param checksums - checksum of each copy
+     */
+    ClassConflict(String name, List<JarEditor> jars, List<String> checksums) {
+        this.name = name;
+        this.jars = jars;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Returns the entry name of the class
+     * @return entry name (com/foo/Bar.class)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the class name
+     * @return class name (com.foo.Bar)
+     */
+    public String getClassName() {
+        return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * Returns the jars defining the class
+     * @return jars in classpath order
+     */
+    public List<JarEditor> getJars() {
+        return Collections.unmodifiableList(jars);
+    }
+
+    /**
+     * Returns the checksums of the copies
+     * @return checksums in the order of the jars
+     */
+    public List<String> getChecksums() {
+        return Collections.unmodifiableList(checksums);
+    }
+
+    /**
+     * Returns the jar whose copy is loaded, the first under classpath order
+     * @return winning jar
+     */
+    public JarEditor getWinner() {
+        return jars.get(0);
+    }
+
+    /**
+     * Returns true if every copy is byte for byte the same, the duplicate is harmless
+     * @return true if identical
+     */
+    public boolean isIdentical() {
+        for(String checksum : checksums) {
+            if(!checksum.equals(checksums.get(0))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the jars whose copy differs from the one loaded, code compiled against them may fail with
+     * NoSuchMethodError and the like
+     * @return shadowed divergent jars in classpath order
+     */
+    public List<JarEditor> getDivergent() {
+        List<JarEditor> divergent = new ArrayList<>();
+        for(int i = 1; i < jars.size(); i++) {
+            if(!checksums.get(i).equals(checksums.get(0))) {
+                divergent.add(jars.get(i));
+            }
+        }
+        return divergent;
+    }
+
+    /**
+     * Returns a description
+     * @return class, the winning jar and the jars it shadows
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(getClassName()).append(": ")
+                .append(getWinner().getJarName()).append(" wins");
+        for(int i = 1; i < jars.size(); i++) {
+            builder.append(", ").append(checksums.get(i).equals(checksums.get(0)) ? "same in " : "differs in ")
+                    .append(jars.get(i).getJarName());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,205 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds every class defined by more than one jar of a classpath. Class names are hash partitioned: jars are
+ * read concurrently extracting their classes and assigning each class to a partition, then each partition is searched for repeated names
+ * on its own thread with a map holding only its share of the names. Partitions are scanned jar by jar in
+ * classpath order so the copies of a class come out in classpath order, the first one being the copy loaded.
+ * module-info classes are not classes and are ignored.
+ * @author Ryan Cuprak
+ */
+public class ConflictAnalyzer {
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Number of threads
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates an analyzer
+     * @param jars - loaded jars in classpath order
+     */
+    public ConflictAnalyzer(List<JarEditor> jars) {
+        this.jars = jars;
+    }
+
+    /**
+     * Sets the number of threads
+     * @param threads - number of threads
+     * @return this analyzer
+     */
+    public ConflictAnalyzer setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * The classes of one jar
+     * @param names - class entry names
+     * @param checksums - checksums of the classes
+     */
+    record Classes(String[] names, String[] checksums) {
+    }
+
+    /**
+     * The classes of one jar with the partition of each
+     * @param classes - classes
+     * @param partitions - partition of each class
+     */
+    private record Partitioned(Classes classes, byte[] partitions) {
+    }
+
+    /**
+     * Finds the conflicts
+     * @return report
+     * @throws InterruptedException - thrown if interrupted
+     */
+    public ConflictReport analyze() throws InterruptedException {
+        List<Callable<Classes>> extractors = new ArrayList<>(jars.size());
+        for(JarEditor jar : jars) {
+            extractors.add(() -> extract(jar));
+        }
+        return find(jars, extractors, threads);
+    }
+
+    /**
+     * Extracts the class entry names and checksums of a jar
+     * @param jar - loaded jar
+     * @return classes
+     */
+    private static Classes extract(JarEditor jar) {
+        List<String> names = new ArrayList<>(jar.getClassCount());
+        List<String> checksums = new ArrayList<>(jar.getClassCount());
+        for(ClassInfo classInfo : jar.getClassInfos()) {
+            String name = classInfo.getJarEntry().getName();
+            if(!name.endsWith("module-info.class")) {
+                names.add(name);
+                checksums.add(classInfo.getChecksum());
+            }
+        }
+        return new Classes(names.toArray(new String[0]), checksums.toArray(new String[0]));
+    }
+
+    /**
+     * Finds the names occurring in more than one jar. Each jar's classes are extracted and partitioned by one
+     * task, the partitions are then searched concurrently.
+     * @param jars - jars in classpath order
+     * @param extractors - tasks returning the classes of each jar
+     * @param threads - number of threads
+     * @return report, conflicts sorted by name
+     * @throws InterruptedException - thrown if interrupted
+     */
+    static ConflictReport find(List<JarEditor> jars, List<Callable<Classes>> extractors, int threads) throws InterruptedException {
+        int bits = Math.min(8, 32 - Integer.numberOfLeadingZeros(Math.max(1, threads * 4 - 1)));
+        int partitionCount = 1 << bits;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Partitioned>> partitionTasks = new ArrayList<>(extractors.size());
+            for(Callable<Classes> extractor : extractors) {
+                partitionTasks.add(() -> {
+                    Classes classes = extractor.call();
+                    byte[] partitions = new byte[classes.names().length];
+                    for(int i = 0; i < partitions.length; i++) {
+                        partitions[i] = (byte) partition(classes.names()[i], bits);
+                    }
+                    return new Partitioned(classes, partitions);
+                });
+            }
+            List<Partitioned> partitioned = new ArrayList<>(extractors.size());
+            int classCount = 0;
+            for(Future<Partitioned> future : executor.invokeAll(partitionTasks)) {
+                Partitioned jarClasses = get(future);
+                partitioned.add(jarClasses);
+                classCount += jarClasses.partitions().length;
+            }
+            int expected = classCount / partitionCount + 16;
+            List<Callable<List<ClassConflict>>> searchTasks = new ArrayList<>(partitionCount);
+            for(int p = 0; p < partitionCount; p++) {
+                byte partition = (byte) p;
+                searchTasks.add(() -> {
+                    Map<String,Long> first = new HashMap<>(expected * 2);
+                    Map<String,List<Long>> repeated = new HashMap<>();
+                    for(int jar = 0; jar < partitioned.size(); jar++) {
+                        String[] jarNames = partitioned.get(jar).classes().names();
+                        byte[] jarPartitions = partitioned.get(jar).partitions();
+                        for(int i = 0; i < jarNames.length; i++) {
+                            if(jarPartitions[i] == partition) {
+                                long location = ((long) jar << 32) | i;
+                                Long previous = first.putIfAbsent(jarNames[i], location);
+                                if(previous != null) {
+                                    repeated.computeIfAbsent(jarNames[i], k -> new ArrayList<>(List.of(previous))).add(location);
+                                }
+                            }
+                        }
+                    }
+                    List<ClassConflict> conflicts = new ArrayList<>(repeated.size());
+                    for(Map.Entry<String,List<Long>> entry : repeated.entrySet()) {
+                        List<JarEditor> owners = new ArrayList<>(entry.getValue().size());
+                        List<String> sums = new ArrayList<>(entry.getValue().size());
+                        for(long location : entry.getValue()) {
+                            int jar = (int) (location >>> 32);
+                            owners.add(jars.get(jar));
+                            sums.add(partitioned.get(jar).classes().checksums()[(int) location]);
+                        }
+                        conflicts.add(new ClassConflict(entry.getKey(), owners, sums));
+                    }
+                    return conflicts;
+                });
+            }
+            List<ClassConflict> conflicts = new ArrayList<>();
+            for(Future<List<ClassConflict>> future : executor.invokeAll(searchTasks)) {
+                conflicts.addAll(get(future));
+            }
+            conflicts.sort(Comparator.comparing(ClassConflict::getName));
+            return new ConflictReport(jars, classCount, conflicts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the partition of a name, from the high bits of its scrambled hash
+     * @param name - class entry name
+     * @param bits - number of partition bits
+     * @return partition
+     */
+    private static int partition(String name, int bits) {
+        return bits == 0 ? 0 : (name.hashCode() * 0x9E3779B9) >>> (32 - bits);
+    }
+
+    /**
+     * Returns the result of a task
+     * @param future - completed task
+     * @param <T> - result type
+     * @return result
+     */
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
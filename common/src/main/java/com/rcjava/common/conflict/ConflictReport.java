@@ -0,0 +1,120 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classes defined by more than one jar of a classpath
+ * @author Ryan Cuprak
+ */
+public class ConflictReport {
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Number of classes analyzed, copies included
+     */
+    private final int classCount;
+
+    /**
+     * Conflicts sorted by class
+     */
+    private final List<ClassConflict> conflicts;
+
+    /**
+     * Creates a report
+     * @param jars - jars in classpath order
+     * @param classCount - number of classes analyzed
+     * @param conflicts - conflicts sorted by class
+     */
+    ConflictReport(List<JarEditor> jars, int classCount, List<ClassConflict> conflicts) {
+        this.jars = jars;
+        this.classCount = classCount;
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * Returns the number of classes analyzed
+     * @return class count, every copy counted
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns every class defined by more than one jar
+     * @return conflicts sorted by class
+     */
+    public List<ClassConflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Returns the classes whose copies are all the same
+     * @return identical duplicates sorted by class
+     */
+    public List<ClassConflict> getIdentical() {
+        List<ClassConflict> identical = new ArrayList<>();
+        for(ClassConflict conflict : conflicts) {
+            if(conflict.isIdentical()) {
+                identical.add(conflict);
+            }
+        }
+        return identical;
+    }
+
+    /**
+     * Returns the classes with at least one copy differing from the one loaded
+     * @return divergent duplicates sorted by class
+     */
+    public List<ClassConflict> getDivergent() {
+        List<ClassConflict> divergent = new ArrayList<>();
+        for(ClassConflict conflict : conflicts) {
+            if(!conflict.isIdentical()) {
+                divergent.add(conflict);
+            }
+        }
+        return divergent;
+    }
+
+    /**
+     * Returns the conflicts involving a jar
+     * @param jar - jar of the classpath, compared by identity since jars with the same content are equal
+     * @return conflicts sorted by class
+     */
+    public List<ClassConflict> getConflicts(JarEditor jar) {
+        List<ClassConflict> involving = new ArrayList<>();
+        for(ClassConflict conflict : conflicts) {
+            for(JarEditor owner : conflict.getJars()) {
+                if(owner == jar) {
+                    involving.add(conflict);
+                    break;
+                }
+            }
+        }
+        return involving;
+    }
+
+    /**
+     * Returns a summary followed by the divergent classes
+     * @return report
+     */
+    @Override
+    public String toString() {
+        List<ClassConflict> divergent = getDivergent();
+        StringBuilder builder = new StringBuilder();
+        builder.append(conflicts.size()).append(" of ").append(classCount).append(" classes in ").append(jars.size())
+                .append(" jars are defined more than once: ").append(conflicts.size() - divergent.size())
+                .append(" identical, ").append(divergent.size()).append(" divergent").append(System.lineSeparator());
+        for(ClassConflict conflict : divergent) {
+            builder.append(conflict).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.JarEditor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A package whose classes are spread over several jars. The module system requires every package to be in a
+ * single module, so these jars can't all move to the module path as they are.
+ * @author Ryan Cuprak
+ */
+public class SplitPackage {
+
+    /**
+     * Package name with slashes
+     */
+    private final String name;
+
+    /**
+     * Jars containing classes of the package, in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Number of classes of the package in each jar
+     */
+    private final List<Integer> classCounts;
+
+    /**
+     * Creates a split package
+     * @param name - package name with slashes
+     * @param jars - jars in classpath order
+     * @param classCounts - number of classes of the package in each jar
+     */
+    SplitPackage(String name, List<JarEditor> jars, List<Integer> classCounts) {
+        this.name = name;
+        this.jars = jars;
+        this.classCounts = classCounts;
+    }
+
+    /**
+     * Returns the package name
+     * @return package name (com.foo)
+     */
+    public String getName() {
+        return name.replace('/', '.');
+    }
+
+    /**
+     * Returns the jars containing classes of the package
+     * @return jars in classpath order
+     */
+    public List<JarEditor> getJars() {
+        return Collections.unmodifiableList(jars);
+    }
+
+    /**
+     * Returns the number of classes of the package in each jar
+     * @return class counts in the order of the jars
+     */
+    public List<Integer> getClassCounts() {
+        return Collections.unmodifiableList(classCounts);
+    }
+
+    /**
+     * Returns the jar holding most of the package, the first one on ties
+     * @return owning jar
+     */
+    public JarEditor getOwner() {
+        int owner = 0;
+        for(int i = 1; i < jars.size(); i++) {
+            if(classCounts.get(i) > classCounts.get(owner)) {
+                owner = i;
+            }
+        }
+        return jars.get(owner);
+    }
+
+    /**
+     * Returns the package with its jars, their module names and class counts
+     * @return description
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(getName()).append(':');
+        for(int i = 0; i < jars.size(); i++) {
+            String moduleName = jars.get(i).getAutomaticModuleName();
+            builder.append(i > 0 ? ", " : " ").append(jars.get(i).getJarName())
+                    .append(" [").append(moduleName != null ? moduleName : "no Automatic-Module-Name").append("] ")
+                    .append(classCounts.get(i)).append(classCounts.get(i) == 1 ? " class" : " classes");
+        }
+        return builder.toString();
+    }
+}
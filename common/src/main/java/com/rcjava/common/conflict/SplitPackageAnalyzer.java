@@ -0,0 +1,106 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds the packages whose classes are spread over several jars of a classpath. The package to jars multimap
+ * is built in a single pass with the jars counted concurrently. Classes in the unnamed package and under
+ * META-INF (multi-release versions) are left out, the former can't be in a module at all and are reported
+ * separately.
+ * @author Ryan Cuprak
+ */
+public class SplitPackageAnalyzer {
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Number of threads
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates an analyzer
+     * @param jars - loaded jars in classpath order
+     */
+    public SplitPackageAnalyzer(List<JarEditor> jars) {
+        this.jars = jars;
+    }
+
+    /**
+     * Sets the number of threads
+     * @param threads - number of threads
+     * @return this analyzer
+     */
+    public SplitPackageAnalyzer setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Finds the split packages
+     * @return report
+     * @throws InterruptedException - thrown if interrupted
+     */
+    public SplitPackageReport analyze() throws InterruptedException {
+        Map<String,Map<Integer,Integer>> packages = new ConcurrentHashMap<>();
+        Map<Integer,Integer> unnamed = new ConcurrentSkipListMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jars.size())));
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(jars.size());
+            for(int i = 0; i < jars.size(); i++) {
+                int index = i;
+                tasks.add(() -> {
+                    Map<String,Integer> counts = new HashMap<>();
+                    for(ClassInfo classInfo : jars.get(index).getClassInfos()) {
+                        String name = classInfo.getJarEntry().getName();
+                        int slash = name.lastIndexOf('/');
+                        if(slash < 0) {
+                            if(!name.equals("module-info.class")) {
+                                unnamed.merge(index, 1, Integer::sum);
+                            }
+                        } else if(!name.startsWith("META-INF/")) {
+                            counts.merge(name.substring(0, slash), 1, Integer::sum);
+                        }
+                    }
+                    for(Map.Entry<String,Integer> entry : counts.entrySet()) {
+                        packages.computeIfAbsent(entry.getKey(), k -> new ConcurrentSkipListMap<>()).put(index, entry.getValue());
+                    }
+                    return null;
+                });
+            }
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        List<SplitPackage> splits = new ArrayList<>();
+        for(Map.Entry<String,Map<Integer,Integer>> entry : new TreeMap<>(packages).entrySet()) {
+            if(entry.getValue().size() > 1) {
+                List<JarEditor> owners = new ArrayList<>(entry.getValue().size());
+                for(int index : entry.getValue().keySet()) {
+                    owners.add(jars.get(index));
+                }
+                splits.add(new SplitPackage(entry.getKey(), owners, new ArrayList<>(entry.getValue().values())));
+            }
+        }
+        List<JarEditor> unnamedJars = new ArrayList<>(unnamed.size());
+        for(int index : unnamed.keySet()) {
+            unnamedJars.add(jars.get(index));
+        }
+        return new SplitPackageReport(jars, packages.size(), splits, unnamedJars);
+    }
+}
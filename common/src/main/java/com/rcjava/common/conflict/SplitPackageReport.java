@@ -0,0 +1,227 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Split packages of a classpath, with a plan to get rid of them
+ * @author Ryan Cuprak
+ */
+public class SplitPackageReport {
+
+    /**
+     * What to do with the part of a split package held by a jar
+     */
+    public enum Action {
+
+        /**
+         * Every class of the package in the jar is identical in the owning jar, the copies can be deleted
+         */
+        DROP,
+
+        /**
+         * The jar has classes of its own in the package, they have to be relocated to another package or the
+         * jar merged with the owning jar
+         */
+        RELOCATE
+    }
+
+    /**
+     * A step of the plan
+     * @param action - what to do
+     * @param split - split package
+     * @param jar - jar holding part of the package
+     * @param owner - jar holding most of the package, which keeps it
+     * @param classCount - number of classes of the package in the jar
+     */
+    public record Suggestion(Action action, SplitPackage split, JarEditor jar, JarEditor owner, int classCount) {
+
+        /**
+         * Returns the step as a sentence
+         * @return description
+         */
+        @Override
+        public String toString() {
+            String classes = classCount + (classCount == 1 ? " class" : " classes");
+            if(action == Action.DROP) {
+                return "delete " + split.getName() + " from " + jar.getJarName() + ", its " + classes
+                        + (classCount == 1 ? " is" : " are") + " identical in " + owner.getJarName();
+            }
+            return "relocate " + split.getName() + " in " + jar.getJarName() + " (" + classes + ") or merge "
+                    + jar.getJarName() + " into " + owner.getJarName();
+        }
+    }
+
+    /**
+     * Jars analyzed in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Number of packages found
+     */
+    private final int packageCount;
+
+    /**
+     * Split packages sorted by name
+     */
+    private final List<SplitPackage> splits;
+
+    /**
+     * Jars with classes in the unnamed package
+     */
+    private final List<JarEditor> unnamedPackageJars;
+
+    /**
+     * Creates a report
+     * @param jars - jars analyzed in classpath order
+     * @param packageCount - number of packages found
+     * @param splits - split packages sorted by name
+     * @param unnamedPackageJars - jars with classes in the unnamed package
+     */
+    SplitPackageReport(List<JarEditor> jars, int packageCount, List<SplitPackage> splits, List<JarEditor> unnamedPackageJars) {
+        this.jars = jars;
+        this.packageCount = packageCount;
+        this.splits = splits;
+        this.unnamedPackageJars = unnamedPackageJars;
+    }
+
+    /**
+     * Returns the split packages
+     * @return split packages sorted by name
+     */
+    public List<SplitPackage> getSplitPackages() {
+        return Collections.unmodifiableList(splits);
+    }
+
+    /**
+     * Returns the jars with classes in the unnamed package, which can't become modules as they are
+     * @return jars in classpath order
+     */
+    public List<JarEditor> getUnnamedPackageJars() {
+        return Collections.unmodifiableList(unnamedPackageJars);
+    }
+
+    /**
+     * Returns what to do about each jar holding part of a package owned by another jar
+     * @return suggestions by package, then classpath order
+     */
+    public List<Suggestion> getSuggestions() {
+        List<Suggestion> suggestions = new ArrayList<>();
+        for(SplitPackage split : splits) {
+            JarEditor owner = split.getOwner();
+            String packaging = split.getName().replace('.', '/');
+            for(int i = 0; i < split.getJars().size(); i++) {
+                JarEditor jar = split.getJars().get(i);
+                if(jar == owner) {
+                    continue;
+                }
+                boolean identical = true;
+                for(ClassInfo classInfo : jar.getClassInfos()) {
+                    if(classInfo.getPackaging().equals(packaging)) {
+                        ClassInfo owned = owner.getClassInfo(classInfo.getJarEntry().getName());
+                        identical &= owned != null && owned.getChecksum().equals(classInfo.getChecksum());
+                    }
+                }
+                suggestions.add(new Suggestion(identical ? Action.DROP : Action.RELOCATE, split, jar, owner,
+                        split.getClassCounts().get(i)));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the groups of jars tied together by packages they both have classes of their own in. Merging each
+     * group into one module, instead of relocating, resolves all of its split packages.
+     * @return groups of two or more jars, each in classpath order
+     */
+    public List<List<JarEditor>> getMergeGroups() {
+        Map<JarEditor,JarEditor> parents = new IdentityHashMap<>();
+        for(Suggestion suggestion : getSuggestions()) {
+            if(suggestion.action() == Action.RELOCATE) {
+                JarEditor a = root(parents, suggestion.jar());
+                JarEditor b = root(parents, suggestion.owner());
+                if(a != b) {
+                    parents.put(a, b);
+                }
+            }
+        }
+        Map<JarEditor,List<JarEditor>> groups = new IdentityHashMap<>();
+        List<List<JarEditor>> ordered = new ArrayList<>();
+        for(JarEditor jar : jars) {
+            if(parents.containsKey(jar)) {
+                List<JarEditor> group = groups.get(root(parents, jar));
+                if(group == null) {
+                    group = new ArrayList<>();
+                    groups.put(root(parents, jar), group);
+                    ordered.add(group);
+                }
+                group.add(jar);
+            }
+        }
+        List<List<JarEditor>> result = new ArrayList<>();
+        for(List<JarEditor> group : ordered) {
+            if(group.size() > 1) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the representative of a jar's group
+     * @param parents - parent of each jar seen
+     * @param jar - jar
+     * @return representative
+     */
+    private static JarEditor root(Map<JarEditor,JarEditor> parents, JarEditor jar) {
+        parents.putIfAbsent(jar, jar);
+        while(parents.get(jar) != jar) {
+            jar = parents.get(jar);
+        }
+        return jar;
+    }
+
+    /**
+     * Returns the plan: a step per jar and the merge groups
+     * @return plan
+     */
+    public String getPlan() {
+        StringBuilder builder = new StringBuilder();
+        for(Suggestion suggestion : getSuggestions()) {
+            builder.append(suggestion).append(System.lineSeparator());
+        }
+        for(List<JarEditor> group : getMergeGroups()) {
+            builder.append("or merge into one module:");
+            for(int i = 0; i < group.size(); i++) {
+                builder.append(i > 0 ? ", " : " ").append(group.get(i).getJarName());
+            }
+            builder.append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a summary followed by the split packages
+     * @return report
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(splits.size()).append(" of ").append(packageCount).append(" packages in ").append(jars.size())
+                .append(" jars are split").append(System.lineSeparator());
+        for(SplitPackage split : splits) {
+            builder.append(split).append(System.lineSeparator());
+        }
+        for(JarEditor jar : unnamedPackageJars) {
+            builder.append(jar.getJarName()).append(" has classes in the unnamed package").append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,605 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Class reference graph of a classpath in compressed sparse row form. Every class that would be loaded is a
+ * node with an int id, a class shadowed by the same class earlier on the classpath is not. The targets of node
+ * i are edges[offsets[i]] to edges[offsets[i + 1] - 1], references to classes that aren't on the classpath
+ * (the JDK for instance) are dropped. Built from jars loaded with scanning enabled. The reverse graph, used
+ * for "who depends on" queries, is built on first use in the same layout. The copy of a class a multi-release
+ * jar holds under META-INF/versions/N is a node of its own, referenced by the base class of the same jar so
+ * it is reached, along with what it references, whenever the base class is.
+ * @author Ryan Cuprak
+ */
+public class ClassGraph {
+
+    /**
+     * Directory of the release specific classes of a multi-release jar
+     */
+    static final String VERSIONS = "META-INF/versions/";
+
+    /**
+     * Class names (java.lang.String) by id
+     */
+    private final String[] names;
+
+    /**
+     * Ids keyed by class name
+     */
+    private final Map<String,Integer> ids;
+
+    /**
+     * Class summaries by id
+     */
+    private final ClassInfo[] classes;
+
+    /**
+     * Index of the jar providing each class
+     */
+    private final int[] owners;
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Start of the edges of each node, offsets[size] is the number of edges
+     */
+    private final int[] offsets;
+
+    /**
+     * Edge targets
+     */
+    private final int[] edges;
+
+    /**
+     * Start of the reverse edges of each node, built on first use
+     */
+    private int[] reverseOffsets;
+
+    /**
+     * Reverse edge targets, the classes referencing each node
+     */
+    private int[] reverseEdges;
+
+    /**
+     * Creates a graph from its arrays
+     * @param names - class names by id
+     * @param ids - ids keyed by class name
+     * @param classes - class summaries by id
+     * @param owners - jar index by id
+     * @param jars - jars
+     * @param offsets - edge offsets
+     * @param edges - edge targets
+     */
+    private ClassGraph(String[] names, Map<String,Integer> ids, ClassInfo[] classes, int[] owners, List<JarEditor> jars,
+                       int[] offsets, int[] edges) {
+        this.names = names;
+        this.ids = ids;
+        this.classes = classes;
+        this.owners = owners;
+        this.jars = jars;
+        this.offsets = offsets;
+        this.edges = edges;
+    }
+
+    /**
+     * Builds the graph of a classpath
+     * @param jars - jars in classpath order, loaded with scanning enabled
+     * @return graph
+     * @throws IllegalArgumentException - thrown if a jar wasn't scanned
+     */
+    public static ClassGraph build(List<JarEditor> jars) {
+        Map<String,Integer> ids = new HashMap<>();
+        List<ClassInfo> classes = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for(int i = 0; i < jars.size(); i++) {
+            JarEditor jar = jars.get(i);
+            if(!jar.isScanned()) {
+                throw new IllegalArgumentException(jar.getJarName() + " was not scanned.");
+            }
+            for(ClassInfo classInfo : jar.getClassInfos()) {
+                if(ids.putIfAbsent(classInfo.getName(), classes.size()) == null) {
+                    classes.add(classInfo);
+                    owners.add(i);
+                }
+            }
+        }
+        int size = classes.size();
+        Map<Integer,List<Integer>> versions = new HashMap<>();
+        for(int i = 0; i < size; i++) {
+            Integer base = ids.get(getVersionedBase(classes.get(i).getJarEntry().getName()));
+            if(base != null && owners.get(base).equals(owners.get(i))) {
+                versions.computeIfAbsent(base, k -> new ArrayList<>()).add(i);
+            }
+        }
+        String[] names = new String[size];
+        int[] ownerArray = new int[size];
+        int[] offsets = new int[size + 1];
+        for(int i = 0; i < size; i++) {
+            names[i] = classes.get(i).getName();
+            ownerArray[i] = owners.get(i);
+            offsets[i + 1] = offsets[i] + countTargets(names[i], classes.get(i).getImports(), ids)
+                    + versions.getOrDefault(i, List.of()).size();
+        }
+        int[] edges = new int[offsets[size]];
+        for(int i = 0; i < size; i++) {
+            int position = offsets[i];
+            Collection<String> imports = classes.get(i).getImports();
+            if(imports != null) {
+                for(String name : imports) {
+                    Integer target = ids.get(name);
+                    if(target != null && target != i) {
+                        edges[position++] = target;
+                    }
+                }
+            }
+            for(int version : versions.getOrDefault(i, List.of())) {
+                edges[position++] = version;
+            }
+        }
+        return new ClassGraph(names, ids, classes.toArray(new ClassInfo[0]), ownerArray, List.copyOf(jars), offsets, edges);
+    }
+
+    /**
+     * Builds the graph of every jar on a classpath, including the jars referenced by manifest Class-Path
+     * entries. The classpath is resolved with scanning enabled, each jar is read once.
+     * @param classpath - classpath
+     * @param threads - number of jars scanned concurrently
+     * @return graph
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public static ClassGraph forClasspath(Classpath classpath, int threads) throws IOException, InterruptedException {
+        return build(classpath.analyze(threads, true).getJars());
+    }
+
+    /**
+     * Returns the base class of a class a multi-release jar holds for a given release
+     * @param entry - class entry name (META-INF/versions/11/com/foo/Bar.class)
+     * @return base class name (com.foo.Bar) or null if the entry isn't a release specific class
+     */
+    static String getVersionedBase(String entry) {
+        if(!entry.startsWith(VERSIONS) || !entry.endsWith(".class")) {
+            return null;
+        }
+        int slash = entry.indexOf('/', VERSIONS.length());
+        if(slash <= VERSIONS.length()) {
+            return null;
+        }
+        for(int i = VERSIONS.length(); i < slash; i++) {
+            if(!Character.isDigit(entry.charAt(i))) {
+                return null;
+            }
+        }
+        return entry.substring(slash + 1, entry.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * Counts the references that are nodes of the graph
+     * @param self - name of the referencing class, references to itself aren't edges
+     * @param imports - referenced classes
+     * @param ids - node ids
+     * @return number of edges
+     */
+    private static int countTargets(String self, Collection<String> imports, Map<String,Integer> ids) {
+        int count = 0;
+        if(imports != null) {
+            for(String name : imports) {
+                if(ids.containsKey(name) && !name.equals(self)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of classes
+     * @return node count
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the number of references between classes
+     * @return edge count
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the id of a class
+     * @param name - class name (java.lang.String)
+     * @return id or -1 if the class isn't on the classpath
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the name of a class
+     * @param id - id
+     * @return class name
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the summary of a class
+     * @param id - id
+     * @return class summary
+     */
+    public ClassInfo getClassInfo(int id) {
+        return classes[id];
+    }
+
+    /**
+     * Returns the index of the jar providing a class
+     * @param id - id
+     * @return jar index
+     */
+    public int getJarIndex(int id) {
+        return owners[id];
+    }
+
+    /**
+     * Returns the jar providing a class
+     * @param id - id
+     * @return jar
+     */
+    public JarEditor getJar(int id) {
+        return jars.get(owners[id]);
+    }
+
+    /**
+     * Returns the jars in classpath order
+     * @return jars
+     */
+    public List<JarEditor> getJars() {
+        return Collections.unmodifiableList(jars);
+    }
+
+    /**
+     * Returns the first edge of a node, the edges of node id run from getEdgeStart(id) to getEdgeStart(id + 1)
+     * @param id - id, may be size() for the end of the last node
+     * @return edge index
+     */
+    public int getEdgeStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * Returns the target of an edge
+     * @param edge - edge index
+     * @return target id
+     */
+    public int getEdgeTarget(int edge) {
+        return edges[edge];
+    }
+
+    /**
+     * Builds the reverse edges by counting the incoming edges of each node
+     */
+    private synchronized void buildReverse() {
+        if(reverseOffsets != null) {
+            return;
+        }
+        int[] offsets = new int[names.length + 1];
+        for(int edge : edges) {
+            offsets[edge + 1]++;
+        }
+        for(int i = 0; i < names.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] positions = Arrays.copyOf(offsets, names.length);
+        int[] reverse = new int[edges.length];
+        for(int id = 0; id < names.length; id++) {
+            for(int edge = this.offsets[id]; edge < this.offsets[id + 1]; edge++) {
+                reverse[positions[edges[edge]]++] = id;
+            }
+        }
+        reverseEdges = reverse;
+        reverseOffsets = offsets;
+    }
+
+    /**
+     * Returns the classes a class references directly
+     * @param id - id
+     * @return target ids
+     */
+    public int[] getDependencies(int id) {
+        return Arrays.copyOfRange(edges, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * Returns the classes referencing a class directly
+     * @param id - id
+     * @return source ids
+     */
+    public int[] getDependents(int id) {
+        buildReverse();
+        return Arrays.copyOfRange(reverseEdges, reverseOffsets[id], reverseOffsets[id + 1]);
+    }
+
+    /**
+     * Computes the classes reachable from a set of roots with a breadth first walk
+     * @param roots - root ids
+     * @return reachable ids, roots included
+     */
+    public BitSet reachableFrom(BitSet roots) {
+        return walk(roots, offsets, edges);
+    }
+
+    /**
+     * Computes the classes that reach any of a set of classes, everything that would be affected if they changed
+     * @param targets - target ids
+     * @return ids of the classes depending on the targets, targets included
+     */
+    public BitSet dependentsOf(BitSet targets) {
+        buildReverse();
+        return walk(targets, reverseOffsets, reverseEdges);
+    }
+
+    /**
+     * Returns the names of the classes a class needs, directly or transitively
+     * @param name - class name (java.lang.String)
+     * @return class names, empty if the class isn't on the classpath
+     */
+    public Set<String> getTransitiveDependencies(String name) {
+        return transitive(name, false);
+    }
+
+    /**
+     * Returns the names of the classes that need a class, directly or transitively
+     * @param name - class name (java.lang.String)
+     * @return class names, empty if the class isn't on the classpath
+     */
+    public Set<String> getTransitiveDependents(String name) {
+        return transitive(name, true);
+    }
+
+    /**
+     * Walks the graph from one class
+     * @param name - class name
+     * @param reverse - true to follow the reverse edges
+     * @return class names reached, the class itself excluded
+     */
+    private Set<String> transitive(String name, boolean reverse) {
+        Set<String> result = new TreeSet<>();
+        int id = getId(name);
+        if(id >= 0) {
+            BitSet start = new BitSet(names.length);
+            start.set(id);
+            BitSet reached = reverse ? dependentsOf(start) : reachableFrom(start);
+            reached.clear(id);
+            for(int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+                result.add(names[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the jars each jar needs, derived from the references between their classes
+     * @return dependencies keyed by jar, both in classpath order
+     */
+    public Map<JarEditor,Set<JarEditor>> getJarDependencies() {
+        BitSet[] dependencies = jarAdjacency();
+        Map<JarEditor,Set<JarEditor>> result = new LinkedHashMap<>();
+        for(int i = 0; i < jars.size(); i++) {
+            Set<JarEditor> targets = new LinkedHashSet<>();
+            for(int j = dependencies[i].nextSetBit(0); j >= 0; j = dependencies[i].nextSetBit(j + 1)) {
+                targets.add(jars.get(j));
+            }
+            result.put(jars.get(i), targets);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the groups of jars that depend on each other
+     * @return cycles, each in classpath order
+     */
+    public List<List<JarEditor>> getJarCycles() {
+        BitSet[] dependencies = jarAdjacency();
+        int[] jarOffsets = new int[jars.size() + 1];
+        for(int i = 0; i < jars.size(); i++) {
+            jarOffsets[i + 1] = jarOffsets[i] + dependencies[i].cardinality();
+        }
+        int[] jarEdges = new int[jarOffsets[jars.size()]];
+        for(int i = 0; i < jars.size(); i++) {
+            int position = jarOffsets[i];
+            for(int j = dependencies[i].nextSetBit(0); j >= 0; j = dependencies[i].nextSetBit(j + 1)) {
+                jarEdges[position++] = j;
+            }
+        }
+        List<List<JarEditor>> cycles = new ArrayList<>();
+        for(int[] component : cycles(components(jars.size(), jarOffsets, jarEdges))) {
+            List<JarEditor> cycle = new ArrayList<>(component.length);
+            for(int jar : component) {
+                cycle.add(jars.get(jar));
+            }
+            cycles.add(cycle);
+        }
+        return cycles;
+    }
+
+    /**
+     * Returns the groups of classes that reference each other, directly or through other classes. Nested
+     * classes and their outer class always form such a group.
+     * @return cycles as class names, largest first
+     */
+    public List<List<String>> getCycles() {
+        List<List<String>> cycles = new ArrayList<>();
+        for(int[] component : cycles(components(names.length, offsets, edges))) {
+            List<String> cycle = new ArrayList<>(component.length);
+            for(int id : component) {
+                cycle.add(names[id]);
+            }
+            Collections.sort(cycle);
+            cycles.add(cycle);
+        }
+        cycles.sort((a, b) -> b.size() - a.size());
+        return cycles;
+    }
+
+    /**
+     * Computes which jars reference classes of which other jars
+     * @return adjacency per jar index
+     */
+    private BitSet[] jarAdjacency() {
+        BitSet[] dependencies = new BitSet[jars.size()];
+        for(int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = new BitSet(dependencies.length);
+        }
+        for(int id = 0; id < names.length; id++) {
+            for(int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                int target = owners[edges[edge]];
+                if(target != owners[id]) {
+                    dependencies[owners[id]].set(target);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Breadth first walk over a graph in compressed sparse row form
+     * @param roots - starting nodes
+     * @param offsets - edge offsets
+     * @param edges - edge targets
+     * @return nodes reached, roots included
+     */
+    static BitSet walk(BitSet roots, int[] offsets, int[] edges) {
+        BitSet reached = (BitSet) roots.clone();
+        int[] queue = new int[offsets.length - 1];
+        int head = 0;
+        int tail = 0;
+        for(int id = roots.nextSetBit(0); id >= 0; id = roots.nextSetBit(id + 1)) {
+            queue[tail++] = id;
+        }
+        while(head < tail) {
+            int id = queue[head++];
+            for(int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                int target = edges[edge];
+                if(!reached.get(target)) {
+                    reached.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Computes the strongly connected components of a graph with Tarjan's algorithm. The depth first search
+     * keeps its own stack so deep graphs can't overflow the thread stack.
+     * @param size - number of nodes
+     * @param offsets - edge offsets
+     * @param edges - edge targets
+     * @return component number of each node
+     */
+    static int[] components(int size, int[] offsets, int[] edges) {
+        int[] index = new int[size];
+        int[] low = new int[size];
+        int[] component = new int[size];
+        int[] stack = new int[size];
+        int[] callStack = new int[size];
+        int[] next = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int components = 0;
+        int sp = 0;
+        for(int start = 0; start < size; start++) {
+            if(index[start] >= 0) {
+                continue;
+            }
+            int csp = 0;
+            callStack[csp++] = start;
+            index[start] = low[start] = counter++;
+            stack[sp++] = start;
+            onStack[start] = true;
+            next[start] = offsets[start];
+            while(csp > 0) {
+                int node = callStack[csp - 1];
+                if(next[node] < offsets[node + 1]) {
+                    int target = edges[next[node]++];
+                    if(index[target] < 0) {
+                        index[target] = low[target] = counter++;
+                        stack[sp++] = target;
+                        onStack[target] = true;
+                        next[target] = offsets[target];
+                        callStack[csp++] = target;
+                    } else if(onStack[target]) {
+                        low[node] = Math.min(low[node], index[target]);
+                    }
+                } else {
+                    csp--;
+                    if(csp > 0) {
+                        int caller = callStack[csp - 1];
+                        low[caller] = Math.min(low[caller], low[node]);
+                    }
+                    if(low[node] == index[node]) {
+                        int member;
+                        do {
+                            member = stack[--sp];
+                            onStack[member] = false;
+                            component[member] = components;
+                        } while(member != node);
+                        components++;
+                    }
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Groups the nodes of the components with more than one member
+     * @param component - component number of each node
+     * @return members of each cycle in node order
+     */
+    private static List<int[]> cycles(int[] component) {
+        int count = 0;
+        for(int c : component) {
+            count = Math.max(count, c + 1);
+        }
+        int[] sizes = new int[count];
+        for(int c : component) {
+            sizes[c]++;
+        }
+        Map<Integer,int[]> members = new LinkedHashMap<>();
+        int[] filled = new int[count];
+        for(int node = 0; node < component.length; node++) {
+            int c = component[node];
+            if(sizes[c] > 1) {
+                members.computeIfAbsent(c, k -> new int[sizes[k]])[filled[c]++] = node;
+            }
+        }
+        return new ArrayList<>(members.values());
+    }
+}
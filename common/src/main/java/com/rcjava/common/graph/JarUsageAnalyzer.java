@@ -0,0 +1,155 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.index.ServiceIndex;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the jars of a classpath that the application never uses. The class references are rolled up into a
+ * jar graph which is walked from the application's own jars. A jar that is never reached may still be used
+ * through ServiceLoader, so a jar providing a service whose interface is in a used jar, or outside the
+ * classpath (the JDK), is kept as well. Every used jar keeps the chain of references that proves it is needed.
+ * @author Ryan Cuprak
+ */
+public class JarUsageAnalyzer {
+
+    /**
+     * Class graph of the classpath
+     */
+    private final ClassGraph graph;
+
+    /**
+     * Names or paths of the application's own jars
+     */
+    private final Set<String> applicationJars = new LinkedHashSet<>();
+
+    /**
+     * Creates an analyzer
+     * @param graph - class graph of the classpath
+     */
+    public JarUsageAnalyzer(ClassGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Adds one of the application's own jars, when none are added the first jar on the classpath is used
+     * @param jar - jar file name or path
+     * @return this analyzer
+     */
+    public JarUsageAnalyzer addApplicationJar(String jar) {
+        applicationJars.add(jar);
+        return this;
+    }
+
+    /**
+     * Walks the jar graph from the application jars
+     * @return report
+     * @throws IOException - thrown if an application jar isn't on the classpath or a service file can't be read
+     */
+    public JarUsageReport analyze() throws IOException {
+        List<JarEditor> jars = graph.getJars();
+        int count = jars.size();
+        Map<Long,int[]> examples = new HashMap<>();
+        List<List<Integer>> adjacency = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            adjacency.add(new ArrayList<>());
+        }
+        for(int id = 0; id < graph.size(); id++) {
+            int from = graph.getJarIndex(id);
+            for(int edge = graph.getEdgeStart(id); edge < graph.getEdgeStart(id + 1); edge++) {
+                int target = graph.getEdgeTarget(edge);
+                int to = graph.getJarIndex(target);
+                if(from != to && examples.putIfAbsent((long) from * count + to, new int[] {id, target}) == null) {
+                    adjacency.get(from).add(to);
+                }
+            }
+        }
+        List<List<String>> evidence = new ArrayList<>(Collections.nCopies(count, null));
+        Deque<Integer> queue = new ArrayDeque<>();
+        for(int index : findApplicationJars()) {
+            if(evidence.get(index) == null) {
+                evidence.set(index, List.of(jars.get(index).getJarName() + " is an application jar"));
+                queue.add(index);
+            }
+        }
+        List<Map<String,List<String>>> services = new ArrayList<>(count);
+        for(JarEditor jar : jars) {
+            services.add(ServiceIndex.read(jar.getJarFile()));
+        }
+        boolean changed = true;
+        while(changed) {
+            while(!queue.isEmpty()) {
+                int from = queue.poll();
+                for(int to : adjacency.get(from)) {
+                    if(evidence.get(to) == null) {
+                        int[] example = examples.get((long) from * count + to);
+                        List<String> chain = new ArrayList<>(evidence.get(from));
+                        chain.add(String.format("%s: %s -> %s: %s", jars.get(from).getJarName(), graph.getName(example[0]),
+                                jars.get(to).getJarName(), graph.getName(example[1])));
+                        evidence.set(to, chain);
+                        queue.add(to);
+                    }
+                }
+            }
+            changed = false;
+            for(int i = 0; i < count && !changed; i++) {
+                if(evidence.get(i) != null) {
+                    continue;
+                }
+                for(String service : services.get(i).keySet()) {
+                    int id = graph.getId(service);
+                    if(id < 0 || evidence.get(graph.getJarIndex(id)) != null) {
+                        List<String> chain = new ArrayList<>(id >= 0 ? evidence.get(graph.getJarIndex(id)) : List.of());
+                        chain.add(String.format("%s provides %s%s", jars.get(i).getJarName(), service,
+                                id >= 0 ? " from " + jars.get(graph.getJarIndex(id)).getJarName() : ""));
+                        evidence.set(i, chain);
+                        queue.add(i);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return new JarUsageReport(jars, evidence);
+    }
+
+    /**
+     * Resolves the application jars
+     * @return jar indexes
+     * @throws IOException - thrown if an application jar isn't on the classpath
+     */
+    private List<Integer> findApplicationJars() throws IOException {
+        List<JarEditor> jars = graph.getJars();
+        List<Integer> indexes = new ArrayList<>();
+        if(applicationJars.isEmpty()) {
+            if(!jars.isEmpty()) {
+                indexes.add(0);
+            }
+            return indexes;
+        }
+        for(String name : applicationJars) {
+            int found = -1;
+            for(int i = 0; i < jars.size() && found < 0; i++) {
+                JarEditor jar = jars.get(i);
+                if(jar.getJarName().equals(name) || jar.getJarFile().getPath().equals(name)) {
+                    found = i;
+                }
+            }
+            if(found < 0) {
+                throw new IOException(name + " is not on the classpath.");
+            }
+            indexes.add(found);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.JarEditor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which jars of a classpath are used, and why
+ * @author Ryan Cuprak
+ */
+public class JarUsageReport {
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Evidence chain of each jar, null for unused jars
+     */
+    private final List<List<String>> evidence;
+
+    /**
+     * Creates a report
+     * @param jars - jars in classpath order
+     * @param evidence - evidence chain of each jar, null for unused jars
+     */
+    JarUsageReport(List<JarEditor> jars, List<List<String>> evidence) {
+        this.jars = jars;
+        this.evidence = evidence;
+    }
+
+    /**
+     * Returns the jars the application needs
+     * @return used jars in classpath order
+     */
+    public List<JarEditor> getUsed() {
+        List<JarEditor> used = new ArrayList<>();
+        for(int i = 0; i < jars.size(); i++) {
+            if(evidence.get(i) != null) {
+                used.add(jars.get(i));
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Returns the jars that can be removed from the classpath
+     * @return unused jars in classpath order
+     */
+    public List<JarEditor> getUnused() {
+        List<JarEditor> unused = new ArrayList<>();
+        for(int i = 0; i < jars.size(); i++) {
+            if(evidence.get(i) == null) {
+                unused.add(jars.get(i));
+            }
+        }
+        return unused;
+    }
+
+    /**
+     * Returns the chain of references from an application jar to a jar, one line per hop
+     * @param jar - jar
+     * @return evidence, empty for an unused jar
+     */
+    public List<String> getEvidence(JarEditor jar) {
+        int index = jars.indexOf(jar);
+        return index >= 0 && evidence.get(index) != null ? Collections.unmodifiableList(evidence.get(index)) : List.of();
+    }
+
+    /**
+     * Returns the used jars with their evidence followed by the unused jars
+     * @return report
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(JarEditor jar : getUsed()) {
+            builder.append("Used: ").append(jar.getJarName()).append(System.lineSeparator());
+            for(String line : getEvidence(jar)) {
+                builder.append("  ").append(line).append(System.lineSeparator());
+            }
+        }
+        for(JarEditor jar : getUnused()) {
+            builder.append("Unused: ").append(jar.getJarName()).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,188 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.ManifestEditor;
+import com.rcjava.common.index.ServiceIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the classes of a classpath that can be reached from its entry points by following the class
+ * references collected while scanning. Entry points are the Main-Class of each jar, the providers listed in
+ * META-INF/services, classes carrying a root annotation and explicitly named roots. Names may end with .* for
+ * the classes of a package or .** to include sub packages. Classes loaded only by reflection must be named
+ * as roots.
+ * @author Ryan Cuprak
+ */
+public class ReachabilityAnalyzer {
+
+    /**
+     * Jars in classpath order, loaded with scanning enabled
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Explicit roots, class names or package wildcards
+     */
+    private final Set<String> roots = new LinkedHashSet<>();
+
+    /**
+     * Annotations marking a class as a root
+     */
+    private final Set<String> rootAnnotations = new LinkedHashSet<>();
+
+    /**
+     * Whether the Main-Class of each jar is a root
+     */
+    private boolean mainClasses = true;
+
+    /**
+     * Whether service providers are roots
+     */
+    private boolean serviceProviders = true;
+
+    /**
+     * Creates an analyzer
+     * @param jars - jars in classpath order, loaded with scanning enabled
+     */
+    public ReachabilityAnalyzer(List<JarEditor> jars) {
+        this.jars = new ArrayList<>(jars);
+    }
+
+    /**
+     * Creates an analyzer for every jar on a classpath, including the jars referenced by manifest Class-Path
+     * entries. The classpath is resolved with scanning enabled, each jar is read once.
+     * @param classpath - classpath
+     * @param threads - number of jars scanned concurrently
+     * @return analyzer
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public static ReachabilityAnalyzer forClasspath(Classpath classpath, int threads) throws IOException, InterruptedException {
+        return new ReachabilityAnalyzer(classpath.analyze(threads, true).getJars());
+    }
+
+    /**
+     * Adds a root
+     * @param root - class name (java.lang.String), package.* or package.**
+     * @return this analyzer
+     */
+    public ReachabilityAnalyzer addRoot(String root) {
+        roots.add(root);
+        return this;
+    }
+
+    /**
+     * Adds an annotation whose classes are roots
+     * @param annotation - annotation class name
+     * @return this analyzer
+     */
+    public ReachabilityAnalyzer addRootAnnotation(String annotation) {
+        rootAnnotations.add(annotation);
+        return this;
+    }
+
+    /**
+     * Sets whether the Main-Class of each jar is a root
+     * @param mainClasses - true if main classes are roots
+     * @return this analyzer
+     */
+    public ReachabilityAnalyzer setMainClasses(boolean mainClasses) {
+        this.mainClasses = mainClasses;
+        return this;
+    }
+
+    /**
+     * Sets whether providers listed in META-INF/services are roots
+     * @param serviceProviders - true if service providers are roots
+     * @return this analyzer
+     */
+    public ReachabilityAnalyzer setServiceProviders(boolean serviceProviders) {
+        this.serviceProviders = serviceProviders;
+        return this;
+    }
+
+    /**
+     * Builds the class graph and computes the reachable classes
+     * @return result
+     * @throws IOException - thrown if a service file can't be read
+     */
+    public ReachabilityResult analyze() throws IOException {
+        ClassGraph graph = ClassGraph.build(jars);
+        BitSet rootIds = new BitSet(graph.size());
+        List<String> unresolved = new ArrayList<>();
+        for(JarEditor jar : jars) {
+            if(mainClasses) {
+                ManifestEditor manifestEditor = jar.getManifestEditor();
+                String mainClass = manifestEditor != null && manifestEditor.getEntries() != null
+                        ? manifestEditor.getEntries().getValue("Main-Class") : null;
+                if(mainClass != null) {
+                    addRoot(graph, rootIds, mainClass.trim(), unresolved);
+                }
+            }
+            if(serviceProviders) {
+                for(List<String> providers : ServiceIndex.read(jar.getJarFile()).values()) {
+                    for(String provider : providers) {
+                        addRoot(graph, rootIds, provider, unresolved);
+                    }
+                }
+            }
+        }
+        for(String root : roots) {
+            if(root.endsWith(".*") || root.endsWith(".**")) {
+                boolean recursive = root.endsWith(".**");
+                String prefix = root.substring(0, root.lastIndexOf('.') + 1);
+                boolean matched = false;
+                for(int id = 0; id < graph.size(); id++) {
+                    String name = graph.getName(id);
+                    if(name.startsWith(prefix) && (recursive || name.indexOf('.', prefix.length()) < 0)) {
+                        rootIds.set(id);
+                        matched = true;
+                    }
+                }
+                if(!matched) {
+                    unresolved.add(root);
+                }
+            } else {
+                addRoot(graph, rootIds, root, unresolved);
+            }
+        }
+        if(!rootAnnotations.isEmpty()) {
+            for(int id = 0; id < graph.size(); id++) {
+                Collection<String> annotations = graph.getClassInfo(id).getAnnotations();
+                if(annotations != null) {
+                    for(String annotation : annotations) {
+                        if(rootAnnotations.contains(annotation)) {
+                            rootIds.set(id);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return new ReachabilityResult(graph, rootIds, graph.reachableFrom(rootIds), unresolved);
+    }
+
+    /**
+     * Marks a class as a root
+     * @param graph - graph
+     * @param rootIds - roots
+     * @param name - class name
+     * @param unresolved - receives names not on the classpath
+     */
+    private static void addRoot(ClassGraph graph, BitSet rootIds, String name, List<String> unresolved) {
+        int id = graph.getId(name);
+        if(id >= 0) {
+            rootIds.set(id);
+        } else {
+            unresolved.add(name);
+        }
+    }
+}
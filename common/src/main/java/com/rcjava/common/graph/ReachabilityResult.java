@@ -0,0 +1,170 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditSession;
+import com.rcjava.common.JarEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a reachability analysis: the roots, the reachable classes and, per jar, the classes that can be
+ * removed. A class is removable when it can't be reached or when it is shadowed by the same class in a jar
+ * earlier on the classpath. The copies of a multi-release jar under META-INF/versions/N follow their base
+ * class, module-info and package-info classes are never removable.
+ * @author Ryan Cuprak
+ */
+public class ReachabilityResult {
+
+    /**
+     * Class graph
+     */
+    private final ClassGraph graph;
+
+    /**
+     * Root ids
+     */
+    private final BitSet roots;
+
+    /**
+     * Reachable ids
+     */
+    private final BitSet reachable;
+
+    /**
+     * Roots that aren't on the classpath
+     */
+    private final List<String> unresolvedRoots;
+
+    /**
+     * Creates a result
+     * @param graph - class graph
+     * @param roots - root ids
+     * @param reachable - reachable ids
+     * @param unresolvedRoots - roots that aren't on the classpath
+     */
+    ReachabilityResult(ClassGraph graph, BitSet roots, BitSet reachable, List<String> unresolvedRoots) {
+        this.graph = graph;
+        this.roots = roots;
+        this.reachable = reachable;
+        this.unresolvedRoots = unresolvedRoots;
+    }
+
+    /**
+     * Returns the class graph
+     * @return graph
+     */
+    public ClassGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of roots found on the classpath
+     * @return root count
+     */
+    public int getRootCount() {
+        return roots.cardinality();
+    }
+
+    /**
+     * Returns the roots that aren't on the classpath
+     * @return class names or wildcards
+     */
+    public List<String> getUnresolvedRoots() {
+        return Collections.unmodifiableList(unresolvedRoots);
+    }
+
+    /**
+     * Returns the number of reachable classes
+     * @return reachable count
+     */
+    public int getReachableCount() {
+        return reachable.cardinality();
+    }
+
+    /**
+     * Returns true if a class is reachable
+     * @param name - class name (java.lang.String)
+     * @return true if reachable
+     */
+    public boolean isReachable(String name) {
+        int id = graph.getId(name);
+        return id >= 0 && reachable.get(id);
+    }
+
+    /**
+     * Returns the entries of the classes a jar doesn't need to contain
+     * @param jarIndex - index of the jar on the classpath
+     * @return class entry names (com/foo/Bar.class)
+     */
+    public List<String> getRemovable(int jarIndex) {
+        List<String> removable = new ArrayList<>();
+        for(ClassInfo classInfo : graph.getJars().get(jarIndex).getClassInfos()) {
+            String entry = classInfo.getJarEntry().getName();
+            if(classInfo.getClassName().equals("module-info.class") || classInfo.getClassName().equals("package-info.class")) {
+                continue;
+            }
+            String base = ClassGraph.getVersionedBase(entry);
+            int id = graph.getId(base != null ? base : classInfo.getName());
+            if(id < 0 || graph.getJarIndex(id) != jarIndex || !reachable.get(id)) {
+                removable.add(entry);
+            }
+        }
+        Collections.sort(removable);
+        return removable;
+    }
+
+    /**
+     * Writes a copy of every jar without its removable classes, resources are kept. Jars that lose every
+     * class are still written so the classpath stays valid.
+     * @param outputDir - directory receiving the jars, file names are kept
+     * @return shrunk jars keyed by original jar
+     * @throws IOException - thrown if two jars share a name or a jar can't be written
+     */
+    public Map<File,File> shrink(File outputDir) throws IOException {
+        if(!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Unable to create " + outputDir);
+        }
+        Map<File,File> shrunk = new LinkedHashMap<>();
+        List<JarEditor> jars = graph.getJars();
+        for(int i = 0; i < jars.size(); i++) {
+            JarEditor jar = jars.get(i);
+            File target = new File(outputDir, jar.getJarFile().getName());
+            if(shrunk.containsValue(target)) {
+                throw new IOException("More than one jar is named " + target.getName());
+            }
+            JarEditSession session = jar.openSession();
+            for(String entry : getRemovable(i)) {
+                session.removeEntry(entry);
+            }
+            session.commit(target);
+            shrunk.put(jar.getJarFile(), target);
+        }
+        return shrunk;
+    }
+
+    /**
+     * Returns a summary with the removable class count of each jar
+     * @return summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d of %d classes reachable from %d roots%n", getReachableCount(), graph.size(), getRootCount()));
+        List<JarEditor> jars = graph.getJars();
+        for(int i = 0; i < jars.size(); i++) {
+            builder.append(String.format("  %-40s %6d of %6d classes removable%n", jars.get(i).getJarName(),
+                    getRemovable(i).size(), jars.get(i).getClassCount()));
+        }
+        for(String root : unresolvedRoots) {
+            builder.append("  root not found: ").append(root).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
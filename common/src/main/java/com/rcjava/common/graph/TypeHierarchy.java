@@ -0,0 +1,313 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Type hierarchy of a classpath in the compressed sparse row form of the class graph. Every class that would
+ * be loaded is a node with an int id, followed by the supertypes named by those classes but not on the
+ * classpath (java.lang.Object, JDK interfaces), so "every implementation of java.lang.Runnable" can be asked.
+ * The supertypes of node i are supers[superOffsets[i]] to supers[superOffsets[i + 1] - 1], the super class
+ * first, then the interfaces in declaration order. The direct subtypes are kept in the same layout. Built from
+ * the super class and interfaces recorded for each class when the jars are scanned.
+ * @author Ryan Cuprak
+ */
+public class TypeHierarchy {
+
+    /**
+     * Class names (java.lang.String) by id
+     */
+    private final String[] names;
+
+    /**
+     * Ids keyed by class name
+     */
+    private final Map<String,Integer> ids;
+
+    /**
+     * Index of the jar providing each class, -1 for supertypes that aren't on the classpath
+     */
+    private final int[] owners;
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Start of the supertypes of each node, superOffsets[size] is the number of supertype edges
+     */
+    private final int[] superOffsets;
+
+    /**
+     * Direct supertypes
+     */
+    private final int[] supers;
+
+    /**
+     * Start of the subtypes of each node
+     */
+    private final int[] subOffsets;
+
+    /**
+     * Direct subtypes, in id order
+     */
+    private final int[] subs;
+
+    /**
+     * Creates a hierarchy from its arrays, deriving the subtypes
+     * @param names - class names by id
+     * @param ids - ids keyed by class name
+     * @param owners - jar index by id
+     * @param jars - jars
+     * @param superOffsets - supertype offsets
+     * @param supers - supertype targets
+     */
+    private TypeHierarchy(String[] names, Map<String,Integer> ids, int[] owners, List<JarEditor> jars, int[] superOffsets,
+                          int[] supers) {
+        this.names = names;
+        this.ids = ids;
+        this.owners = owners;
+        this.jars = jars;
+        this.superOffsets = superOffsets;
+        this.supers = supers;
+        subOffsets = new int[names.length + 1];
+        for(int target : supers) {
+            subOffsets[target + 1]++;
+        }
+        for(int i = 0; i < names.length; i++) {
+            subOffsets[i + 1] += subOffsets[i];
+        }
+        int[] positions = Arrays.copyOf(subOffsets, names.length);
+        subs = new int[supers.length];
+        for(int id = 0; id < names.length; id++) {
+            for(int edge = superOffsets[id]; edge < superOffsets[id + 1]; edge++) {
+                subs[positions[supers[edge]]++] = id;
+            }
+        }
+    }
+
+    /**
+     * Builds the hierarchy of a classpath
+     * @param jars - jars in classpath order, loaded with scanning enabled
+     * @return hierarchy
+     * @throws IllegalArgumentException - thrown if a jar wasn't scanned
+     */
+    public static TypeHierarchy build(List<JarEditor> jars) {
+        Map<String,Integer> ids = new HashMap<>();
+        List<ClassInfo> classes = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for(int i = 0; i < jars.size(); i++) {
+            JarEditor jar = jars.get(i);
+            if(!jar.isScanned()) {
+                throw new IllegalArgumentException(jar.getJarName() + " was not scanned.");
+            }
+            for(ClassInfo classInfo : jar.getClassInfos()) {
+                if(ids.putIfAbsent(classInfo.getName(), classes.size()) == null) {
+                    classes.add(classInfo);
+                    owners.add(i);
+                }
+            }
+        }
+        List<String> names = new ArrayList<>(classes.size());
+        classes.forEach(classInfo -> names.add(classInfo.getName()));
+        int[] superOffsets = new int[classes.size() + 1];
+        for(int i = 0; i < classes.size(); i++) {
+            List<String> supertypes = supertypes(classes.get(i));
+            for(String name : supertypes) {
+                if(ids.putIfAbsent(name, names.size()) == null) {
+                    names.add(name);
+                }
+            }
+            superOffsets[i + 1] = superOffsets[i] + supertypes.size();
+        }
+        int[] supers = new int[superOffsets[classes.size()]];
+        int position = 0;
+        for(ClassInfo classInfo : classes) {
+            for(String name : supertypes(classInfo)) {
+                supers[position++] = ids.get(name);
+            }
+        }
+        int size = names.size();
+        int[] ownerArray = new int[size];
+        Arrays.fill(ownerArray, -1);
+        for(int i = 0; i < classes.size(); i++) {
+            ownerArray[i] = owners.get(i);
+        }
+        // supertypes outside the classpath have no supertypes of their own
+        int[] offsets = Arrays.copyOf(superOffsets, size + 1);
+        Arrays.fill(offsets, classes.size() + 1, size + 1, supers.length);
+        return new TypeHierarchy(names.toArray(new String[0]), ids, ownerArray, List.copyOf(jars), offsets, supers);
+    }
+
+    /**
+     * Returns the direct supertypes of a class
+     * @param classInfo - scanned class
+     * @return super class followed by the interfaces
+     */
+    private static List<String> supertypes(ClassInfo classInfo) {
+        List<String> supertypes = new ArrayList<>(classInfo.getInterfaces().size() + 1);
+        if(classInfo.getSuperclass() != null) {
+            supertypes.add(classInfo.getSuperclass());
+        }
+        supertypes.addAll(classInfo.getInterfaces());
+        return supertypes;
+    }
+
+    /**
+     * Builds the hierarchy of every jar on a classpath, including the jars referenced by manifest Class-Path
+     * entries. The classpath is resolved with scanning enabled, each jar is read once.
+     * @param classpath - classpath
+     * @param threads - number of jars scanned concurrently
+     * @return hierarchy
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while loading
+     */
+    public static TypeHierarchy forClasspath(Classpath classpath, int threads) throws IOException, InterruptedException {
+        return build(classpath.analyze(threads, true).getJars());
+    }
+
+    /**
+     * Returns the number of types, classpath classes followed by the supertypes outside the classpath
+     * @return node count
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the id of a type
+     * @param name - class name (java.lang.String)
+     * @return id or -1 if the type is neither on the classpath nor a supertype of a class on it
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the name of a type
+     * @param id - id
+     * @return class name
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns true if a type is on the classpath
+     * @param id - id
+     * @return true if a jar provides the type
+     */
+    public boolean isOnClasspath(int id) {
+        return owners[id] >= 0;
+    }
+
+    /**
+     * Returns the jar providing a type
+     * @param id - id
+     * @return jar or null if the type isn't on the classpath
+     */
+    public JarEditor getJar(int id) {
+        return owners[id] >= 0 ? jars.get(owners[id]) : null;
+    }
+
+    /**
+     * Returns the direct supertypes of a type
+     * @param id - id
+     * @return super class id followed by the interface ids
+     */
+    public int[] getSupertypes(int id) {
+        return Arrays.copyOfRange(supers, superOffsets[id], superOffsets[id + 1]);
+    }
+
+    /**
+     * Returns the direct subtypes of a type
+     * @param id - id
+     * @return ids of the classes extending or implementing the type
+     */
+    public int[] getSubtypes(int id) {
+        return Arrays.copyOfRange(subs, subOffsets[id], subOffsets[id + 1]);
+    }
+
+    /**
+     * Computes every supertype of a set of types
+     * @param types - type ids
+     * @return ids of the supertypes, types included
+     */
+    public BitSet supertypesOf(BitSet types) {
+        return ClassGraph.walk(types, superOffsets, supers);
+    }
+
+    /**
+     * Computes every subtype of a set of types, everything affected if one of them changes
+     * @param types - type ids
+     * @return ids of the subtypes, types included
+     */
+    public BitSet subtypesOf(BitSet types) {
+        return ClassGraph.walk(types, subOffsets, subs);
+    }
+
+    /**
+     * Returns true if a type extends or implements another, directly or transitively
+     * @param subtype - type id
+     * @param supertype - type id
+     * @return true if subtype is supertype or one of its subtypes
+     */
+    public boolean isSubtype(int subtype, int supertype) {
+        BitSet start = new BitSet(names.length);
+        start.set(subtype);
+        return supertypesOf(start).get(supertype);
+    }
+
+    /**
+     * Returns every supertype of a class, the classes and interfaces it can be assigned to
+     * @param name - class name (java.lang.String)
+     * @return class names in id order, empty if the type is unknown
+     */
+    public Set<String> getTransitiveSupertypes(String name) {
+        return transitive(name, false);
+    }
+
+    /**
+     * Returns every subtype of a class or interface, all implementations of an interface for instance
+     * @param name - class name
+     * @return class names in id order, classpath classes first, empty if the type is unknown
+     */
+    public Set<String> getTransitiveSubtypes(String name) {
+        return transitive(name, true);
+    }
+
+    /**
+     * Walks the hierarchy from one type
+     * @param name - class name
+     * @param down - true to walk the subtypes
+     * @return class names reached, the type itself excluded
+     */
+    private Set<String> transitive(String name, boolean down) {
+        Set<String> result = new LinkedHashSet<>();
+        int id = getId(name);
+        if(id >= 0) {
+            BitSet start = new BitSet(names.length);
+            start.set(id);
+            BitSet reached = down ? subtypesOf(start) : supertypesOf(start);
+            reached.clear(id);
+            for(int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+                result.add(names[i]);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
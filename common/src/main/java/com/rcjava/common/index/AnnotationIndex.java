@@ -0,0 +1,414 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The class, method and field annotations of one or more jars, recorded while the jars are loaded so that
+ * "every class annotated with X" is answered without reading a class file. A per-jar index can be shipped
+ * inside the jar as {@link #ENTRY}, indexes of the jars of a classpath are merged in classpath order.
+ * Each jar is recorded with a fingerprint of its class entry names and CRCs, a shipped index whose
+ * fingerprint no longer matches the jar (merged, classes removed) is ignored and the jar is scanned again.
+ * Both runtime visible and class file retention annotations are recorded. Binary layout, integers big endian:
+ * <pre>
+ * header    magic, version
+ * strings   count followed by each distinct string in modified UTF-8
+ * jars      count followed by (jar name, fingerprint) string number pairs
+ * targets   count followed by (annotation, kind, class, member or -1, jar) with kind a byte, grouped by annotation
+ * </pre>
+ * @author Ryan Cuprak
+ */
+public class AnnotationIndex {
+
+    /**
+     * Name of the index entry when shipped inside a jar
+     */
+    public static final String ENTRY = "META-INF/rcjava/annotations.idx";
+
+    /**
+     * Identifies the format, RCAI
+     */
+    static final int MAGIC = 0x52434149;
+
+    /**
+     * Format version
+     */
+    static final int VERSION = 2;
+
+    /**
+     * What an annotation is on
+     */
+    public enum Kind {
+        CLASS, METHOD, FIELD
+    }
+
+    /**
+     * An annotated class, method or field
+     * @param annotation - annotation class name (javax.inject.Inject)
+     * @param kind - what the annotation is on
+     * @param className - class declaring the target (com.foo.Bar)
+     * @param member - method name with its descriptor (run()V) or field name, null for a class
+     * @param jar - jar number within the index
+     */
+    public record Target(String annotation, Kind kind, String className, String member, int jar) {
+    }
+
+    /**
+     * Names of the indexed jars in classpath order
+     */
+    private final List<String> jars;
+
+    /**
+     * Fingerprints of the class entries of the indexed jars, in the order of the jars
+     */
+    private final List<String> fingerprints;
+
+    /**
+     * Targets keyed by annotation, sorted by annotation then in classpath order
+     */
+    private final Map<String,List<Target>> targets = new TreeMap<>();
+
+    /**
+     * Creates an index
+     * @param jars - jar names in classpath order
+     * @param fingerprints - class entry fingerprint of each jar
+     * @param targets - annotated targets
+     */
+    private AnnotationIndex(List<String> jars, List<String> fingerprints, Collection<Target> targets) {
+        this.jars = List.copyOf(jars);
+        this.fingerprints = List.copyOf(fingerprints);
+        for(Target target : targets) {
+            this.targets.computeIfAbsent(target.annotation(), k -> new ArrayList<>()).add(target);
+        }
+    }
+
+    /**
+     * Creates the index of a single jar
+     * @param jar - jar name
+     * @param fingerprint - fingerprint of the jar's class entries, see {@link #fingerprint(Map)}
+     * @param targets - annotated targets, jar number 0
+     * @return index
+     */
+    public static AnnotationIndex of(String jar, String fingerprint, Collection<Target> targets) {
+        return new AnnotationIndex(List.of(jar), List.of(fingerprint), targets);
+    }
+
+    /**
+     * Computes the fingerprint of the class entries of a jar, independent of the order of the entries
+     * @param classCrcs - CRC of each class entry keyed by entry name
+     * @return fingerprint
+     */
+    public static String fingerprint(Map<String,Long> classCrcs) {
+        StringBuilder builder = new StringBuilder();
+        for(Map.Entry<String,Long> entry : new TreeMap<>(classCrcs).entrySet()) {
+            builder.append(entry.getKey()).append(':').append(Long.toHexString(entry.getValue())).append('\n');
+        }
+        return DigestUtils.md5Hex(builder.toString()).toUpperCase();
+    }
+
+    /**
+     * Merges indexes, jars are renumbered in the order given
+     * @param indexes - indexes in classpath order
+     * @return merged index
+     */
+    public static AnnotationIndex merge(List<AnnotationIndex> indexes) {
+        List<String> jars = new ArrayList<>();
+        List<String> fingerprints = new ArrayList<>();
+        List<Target> targets = new ArrayList<>();
+        for(AnnotationIndex index : indexes) {
+            int offset = jars.size();
+            jars.addAll(index.jars);
+            fingerprints.addAll(index.fingerprints);
+            for(List<Target> list : index.targets.values()) {
+                for(Target target : list) {
+                    targets.add(new Target(target.annotation(), target.kind(), target.className(), target.member(), offset + target.jar()));
+                }
+            }
+        }
+        return new AnnotationIndex(jars, fingerprints, targets);
+    }
+
+    /**
+     * Builds the index of a classpath. Each jar contributes the index recorded when it was loaded, else the
+     * index shipped inside it if it still matches the jar, else it is loaded again with annotation indexing,
+     * concurrently.
+     * @param jars - loaded jars in classpath order
+     * @param threads - number of jars indexed concurrently
+     * @return merged index
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while indexing
+     */
+    public static AnnotationIndex forClasspath(List<JarEditor> jars, int threads) throws IOException, InterruptedException {
+        List<AnnotationIndex> indexes = new ArrayList<>(jars.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jars.size())));
+        try {
+            List<Callable<AnnotationIndex>> tasks = new ArrayList<>(jars.size());
+            for(JarEditor jar : jars) {
+                tasks.add(() -> {
+                    if(jar.getAnnotationIndex() != null) {
+                        return jar.getAnnotationIndex();
+                    }
+                    AnnotationIndex shipped = jar.hasResource(ENTRY) ? read(jar.getJarFile()) : null;
+                    if(shipped != null) {
+                        return new AnnotationIndex(List.of(jar.getJarName()), shipped.fingerprints, shipped.getTargets());
+                    }
+                    return new JarEditor(jar.getJarFile()).setAnnotationIndexing(true).load().getAnnotationIndex();
+                });
+            }
+            for(Future<AnnotationIndex> future : executor.invokeAll(tasks)) {
+                try {
+                    indexes.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return merge(indexes);
+    }
+
+    /**
+     * Reads the index shipped inside a jar
+     * @param jar - jar file
+     * @return index or null if the jar doesn't ship one or its classes changed since it was indexed
+     * @throws IOException - thrown if the jar can't be read or the index is malformed
+     */
+    public static AnnotationIndex read(File jar) throws IOException {
+        try(ZipArchive archive = new ZipArchive(jar)) {
+            ZipEntryRecord record = archive.getEntry(ENTRY);
+            if(record == null) {
+                return null;
+            }
+            AnnotationIndex index = fromByteArray(archive.readContent(record));
+            Map<String,Long> classCrcs = new HashMap<>();
+            for(ZipEntryRecord entry : archive.getEntries()) {
+                if(!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".class")) {
+                    classCrcs.put(entry.getName(), entry.getCrc());
+                }
+            }
+            return index.fingerprints.equals(List.of(fingerprint(classCrcs))) ? index : null;
+        }
+    }
+
+    /**
+     * Writes the index recorded for a jar inside it, replacing any index it already ships
+     * @param jar - jar loaded with annotation indexing
+     * @param target - jar to be written, may be the jar itself
+     * @throws IOException - thrown if the jar has no recorded index, is signed or can't be written
+     */
+    public static void write(JarEditor jar, File target) throws IOException {
+        if(jar.getAnnotationIndex() == null) {
+            throw new IOException(jar.getJarName() + " was not loaded with annotation indexing.");
+        }
+        jar.openSession().putEntry(ENTRY, jar.getAnnotationIndex().toByteArray()).commit(target);
+    }
+
+    /**
+     * Serializes the index
+     * @return index bytes
+     */
+    public byte[] toByteArray() {
+        Map<String,Integer> numbers = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        List<Target> all = getTargets();
+        for(int i = 0; i < jars.size(); i++) {
+            number(numbers, strings, jars.get(i));
+            number(numbers, strings, fingerprints.get(i));
+        }
+        for(Target target : all) {
+            number(numbers, strings, target.annotation());
+            number(numbers, strings, target.className());
+            if(target.member() != null) {
+                number(numbers, strings, target.member());
+            }
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for(String string : strings) {
+                out.writeUTF(string);
+            }
+            out.writeInt(jars.size());
+            for(int i = 0; i < jars.size(); i++) {
+                out.writeInt(numbers.get(jars.get(i)));
+                out.writeInt(numbers.get(fingerprints.get(i)));
+            }
+            out.writeInt(all.size());
+            for(Target target : all) {
+                out.writeInt(numbers.get(target.annotation()));
+                out.writeByte(target.kind().ordinal());
+                out.writeInt(numbers.get(target.className()));
+                out.writeInt(target.member() != null ? numbers.get(target.member()) : -1);
+                out.writeInt(target.jar());
+            }
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Assigns a string its number, the first time it is seen
+     * @param numbers - numbers keyed by string
+     * @param strings - strings in number order
+     * @param string - string
+     */
+    private static void number(Map<String,Integer> numbers, List<String> strings, String string) {
+        if(numbers.putIfAbsent(string, strings.size()) == null) {
+            strings.add(string);
+        }
+    }
+
+    /**
+     * Deserializes an index
+     * @param bytes - index bytes
+     * @return index
+     * @throws IOException - thrown if the bytes aren't an index
+     */
+    public static AnnotationIndex fromByteArray(byte[] bytes) throws IOException {
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not an annotation index.");
+            }
+            int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported annotation index version " + version + ".");
+            }
+            String[] strings = new String[in.readInt()];
+            for(int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            List<String> jars = new ArrayList<>();
+            List<String> fingerprints = new ArrayList<>();
+            for(int i = in.readInt(); i > 0; i--) {
+                jars.add(strings[in.readInt()]);
+                fingerprints.add(strings[in.readInt()]);
+            }
+            List<Target> targets = new ArrayList<>();
+            Kind[] kinds = Kind.values();
+            for(int i = in.readInt(); i > 0; i--) {
+                String annotation = strings[in.readInt()];
+                Kind kind = kinds[in.readByte()];
+                String className = strings[in.readInt()];
+                int member = in.readInt();
+                int jar = in.readInt();
+                if(jar < 0 || jar >= jars.size()) {
+                    throw new IOException("Annotation index refers to jar " + jar + " of " + jars.size() + ".");
+                }
+                targets.add(new Target(annotation, kind, className, member >= 0 ? strings[member] : null, jar));
+            }
+            return new AnnotationIndex(jars, fingerprints, targets);
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed annotation index.", e);
+        }
+    }
+
+    /**
+     * Returns the names of the indexed jars
+     * @return jar names in classpath order
+     */
+    public List<String> getJars() {
+        return jars;
+    }
+
+    /**
+     * Returns the fingerprints of the class entries of the indexed jars
+     * @return fingerprints in the order of the jars
+     */
+    public List<String> getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Returns the annotations found
+     * @return sorted annotation class names
+     */
+    public Set<String> getAnnotations() {
+        return Collections.unmodifiableSet(targets.keySet());
+    }
+
+    /**
+     * Returns every annotated target
+     * @return targets sorted by annotation, then in classpath order
+     */
+    public List<Target> getTargets() {
+        List<Target> all = new ArrayList<>();
+        targets.values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Returns the targets of an annotation
+     * @param annotation - annotation class name
+     * @return targets in classpath order
+     */
+    public List<Target> getTargets(String annotation) {
+        return Collections.unmodifiableList(targets.getOrDefault(annotation, List.of()));
+    }
+
+    /**
+     * Returns the classes carrying an annotation
+     * @param annotation - annotation class name
+     * @return class names, each once, in classpath order
+     */
+    public Set<String> getAnnotatedClasses(String annotation) {
+        return getDeclaringClasses(annotation, Kind.CLASS);
+    }
+
+    /**
+     * Returns the classes declaring a method or field, or being a class, carrying an annotation
+     * @param annotation - annotation class name
+     * @param kind - what the annotation is on
+     * @return class names, each once, in classpath order
+     */
+    public Set<String> getDeclaringClasses(String annotation, Kind kind) {
+        Set<String> classes = new LinkedHashSet<>();
+        for(Target target : getTargets(annotation)) {
+            if(target.kind() == kind) {
+                classes.add(target.className());
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Returns the number of annotated targets
+     * @return target count
+     */
+    public int size() {
+        int size = 0;
+        for(List<Target> list : targets.values()) {
+            size += list.size();
+        }
+        return size;
+    }
+}
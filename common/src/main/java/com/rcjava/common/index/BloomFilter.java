@@ -0,0 +1,177 @@
+package com.rcjava.common.index;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Blocked Bloom filter over names: every name sets a few bits of a single 64 bit word, so a lookup reads one
+ * word instead of one cache line per hash. A negative answer is exact, a positive one is wrong about 2% of
+ * the time at the default 10 bits per name. Names can be added but not removed. Not thread safe while names
+ * are added.
+ * @author Ryan Cuprak
+ */
+public final class BloomFilter {
+
+    /**
+     * Bits reserved per name
+     */
+    private static final int BITS_PER_NAME = 10;
+
+    /**
+     * Bits set per name
+     */
+    private static final int HASHES = 6;
+
+    /**
+     * Filter words
+     */
+    private final long[] words;
+
+    /**
+     * Creates an empty filter
+     * @param words - filter words
+     */
+    private BloomFilter(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Creates an empty filter sized for a number of names
+     * @param expectedNames - number of names expected
+     * @return filter
+     */
+    public static BloomFilter create(int expectedNames) {
+        return new BloomFilter(new long[Math.max(1, (int) (((long) expectedNames * BITS_PER_NAME + 63) / 64))]);
+    }
+
+    /**
+     * Creates a filter holding names
+     * @param names - names
+     * @return filter
+     */
+    public static BloomFilter of(Collection<String> names) {
+        BloomFilter filter = create(names.size());
+        for(String name : names) {
+            filter.add(name);
+        }
+        return filter;
+    }
+
+    /**
+     * Restores a filter written by {@link #toByteArray()}
+     * @param bytes - filter bytes
+     * @return filter
+     * @throws IllegalArgumentException - thrown if the bytes aren't a filter
+     */
+    public static BloomFilter fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(bytes.length < 4 || buffer.getInt(0) < 1 || bytes.length != 4 + buffer.getInt(0) * 8L) {
+            throw new IllegalArgumentException("Not a Bloom filter.");
+        }
+        long[] words = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(words);
+        return new BloomFilter(words);
+    }
+
+    /**
+     * Hashes a name, FNV-1a over the characters followed by a 64 bit finalizer
+     * @param name - name
+     * @return hash
+     */
+    static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Returns the word holding the bits of a hash
+     * @param hash - hash of a name
+     * @return word index
+     */
+    private int word(long hash) {
+        return word(hash, words.length);
+    }
+
+    /**
+     * Returns the word holding the bits of a hash
+     * @param hash - hash of a name
+     * @param count - number of words in the filter
+     * @return word index
+     */
+    private static int word(long hash, int count) {
+        return (int) (((hash >>> 32) * count) >>> 32);
+    }
+
+    /**
+     * Returns the bits of a hash within its word
+     * @param hash - hash of a name
+     * @return mask
+     */
+    private static long mask(long hash) {
+        long bits = hash * 0x9E3779B97F4A7C15L;
+        long mask = 0;
+        for(int i = 0; i < HASHES; i++) {
+            mask |= 1L << ((bits >>> (58 - 6 * i)) & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * Adds a name
+     * @param name - name
+     */
+    public void add(String name) {
+        long hash = hash(name);
+        words[word(hash)] |= mask(hash);
+    }
+
+    /**
+     * Returns false if the name was never added
+     * @param name - name
+     * @return true if the name may have been added
+     */
+    public boolean mightContain(String name) {
+        long hash = hash(name);
+        long mask = mask(hash);
+        return (words[word(hash)] & mask) == mask;
+    }
+
+    /**
+     * Probes a filter serialized by {@link #toByteArray()} in place, without copying it out of the buffer
+     * @param buffer - buffer holding the filter
+     * @param position - absolute position of the filter bytes
+     * @param hash - hash of the name, see {@link #hash(String)}
+     * @return true if the name may have been added
+     */
+    static boolean mightContain(ByteBuffer buffer, int position, long hash) {
+        long mask = mask(hash);
+        return (buffer.getLong(position + 4 + word(hash, buffer.getInt(position)) * 8) & mask) == mask;
+    }
+
+    /**
+     * Returns the size of the filter
+     * @return size in bits
+     */
+    public long getBitCount() {
+        return words.length * 64L;
+    }
+
+    /**
+     * Serializes the filter: the word count followed by the words, big endian
+     * @return filter bytes
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + words.length * 8);
+        buffer.putInt(words.length);
+        buffer.asLongBuffer().put(words);
+        return buffer.array();
+    }
+}
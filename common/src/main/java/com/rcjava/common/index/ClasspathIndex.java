@@ -0,0 +1,574 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.JarUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Everything a classpath scan learns about the names of a classpath, saved so a later run can answer lookups
+ * without loading a single jar. The file is memory mapped and searched in place: opening it reads the header
+ * only, name and package lookups are binary searches over the mapped tables. A Bloom filter over every entry
+ * name of the classpath is probed before the name table, so most misses never reach the binary search. Layout, all integers big endian:
+ * <pre>
+ * header    magic, version, jar count, name count, package count, service count, jar table offset,
+ *           name table offset, package table offset, service table offset, list offset, string offset,
+ *           name filter list offset
+ * jars      path, fingerprint, version (-1 if none), automatic module name (-1 if none), flags (1 = signed),
+ *           jar length (long), jar last modified (long)
+ * names     (entry name string offset, list offset) sorted by the unsigned UTF-8 bytes of the name
+ * packages  (name string offset, list offset) sorted the same way
+ * services  (service string offset, list offset) sorted the same way
+ * lists     per name: count followed by (jar number, checksum string offset) pairs, per package: count
+ *           followed by jar numbers, per service: count followed by (provider string offset, jar number,
+ *           flags (1 = provider class missing)) triples in classpath order, then the bytes of the name filter
+ * strings   byte length followed by UTF-8 bytes, each distinct string once
+ * </pre>
+ * Names are entry names (com/foo/Bar.class, com/foo/bar.properties), packages use slashes as in the package index.
+ * @author Ryan Cuprak
+ */
+public class ClasspathIndex {
+
+    /**
+     * Identifies the file format, RCCI
+     */
+    static final int MAGIC = 0x52434349;
+
+    /**
+     * Format version
+     */
+    static final int VERSION = 3;
+
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 52;
+
+    /**
+     * Size of a jar table entry in bytes
+     */
+    private static final int JAR_SIZE = 36;
+
+    /**
+     * Mapped index
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of jars
+     */
+    private final int jarCount;
+
+    /**
+     * Number of names
+     */
+    private final int nameCount;
+
+    /**
+     * Number of packages
+     */
+    private final int packageCount;
+
+    /**
+     * Number of services
+     */
+    private final int serviceCount;
+
+    /**
+     * Offset of the jar table
+     */
+    private final int jarTable;
+
+    /**
+     * Offset of the name table
+     */
+    private final int nameTable;
+
+    /**
+     * Offset of the package table
+     */
+    private final int packageTable;
+
+    /**
+     * Offset of the service table
+     */
+    private final int serviceTable;
+
+    /**
+     * Offset of the lists
+     */
+    private final int lists;
+
+    /**
+     * Offset of the strings
+     */
+    private final int strings;
+
+    /**
+     * Offset of the filter over the entry names
+     */
+    private final int nameFilter;
+
+    /**
+     * Opens a mapped index
+     * @param buffer - index content
+     * @throws IOException - thrown if the content isn't an index
+     */
+    private ClasspathIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a classpath index.");
+        }
+        if(buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported classpath index version " + buffer.getInt(4) + ".");
+        }
+        jarCount = buffer.getInt(8);
+        nameCount = buffer.getInt(12);
+        packageCount = buffer.getInt(16);
+        serviceCount = buffer.getInt(20);
+        jarTable = buffer.getInt(24);
+        nameTable = buffer.getInt(28);
+        packageTable = buffer.getInt(32);
+        serviceTable = buffer.getInt(36);
+        lists = buffer.getInt(40);
+        strings = buffer.getInt(44);
+        nameFilter = lists + buffer.getInt(48);
+    }
+
+    /**
+     * Opens an index by mapping it, the mapping stays valid after the file is closed
+     * @param file - index file
+     * @return index
+     * @throws IOException - thrown if the file can't be mapped or isn't an index
+     */
+    public static ClasspathIndex open(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new ClasspathIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the index of a classpath. The file is written next to the target and moved over it once complete.
+     * @param jars - loaded jars in classpath order
+     * @param services - service providers of the jars
+     * @param target - index file
+     * @throws IOException - thrown if the index can't be written
+     */
+    public static void write(List<JarEditor> jars, ServiceIndex services, File target) throws IOException {
+        Map<String,List<Integer>> names = new TreeMap<>(StringTable.ORDER);
+        Map<String,List<Integer>> packages = new TreeMap<>(StringTable.ORDER);
+        for(int i = 0; i < jars.size(); i++) {
+            JarEditor jar = jars.get(i);
+            for(ClassInfo classInfo : jar.getClassInfos()) {
+                names.computeIfAbsent(classInfo.getJarEntry().getName(), k -> new ArrayList<>(1)).add(i);
+            }
+            for(String resource : jar.getResources()) {
+                names.computeIfAbsent(resource, k -> new ArrayList<>(1)).add(i);
+            }
+            for(String name : PackageIndex.getPackages(jar)) {
+                packages.computeIfAbsent(name, k -> new ArrayList<>()).add(i);
+            }
+        }
+        StringTable stringTable = new StringTable();
+        ByteArrayOutputStream listBytes = new ByteArrayOutputStream();
+        DataOutputStream listData = new DataOutputStream(listBytes);
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream tableData = new DataOutputStream(tableBytes);
+        for(JarEditor jar : jars) {
+            File file = jar.getJarFile().getAbsoluteFile();
+            tableData.writeInt(stringTable.add(file.getPath()));
+            tableData.writeInt(stringTable.add(jar.fingerPrint() != null ? jar.fingerPrint() : ""));
+            tableData.writeInt(jar.getVersion() != null ? stringTable.add(jar.getVersion()) : -1);
+            tableData.writeInt(jar.getAutomaticModuleName() != null ? stringTable.add(jar.getAutomaticModuleName()) : -1);
+            tableData.writeInt(jar.isSigned() ? 1 : 0);
+            tableData.writeLong(file.length());
+            tableData.writeLong(file.lastModified());
+        }
+        int nameTable = HEADER_SIZE + tableData.size();
+        for(Map.Entry<String,List<Integer>> entry : names.entrySet()) {
+            tableData.writeInt(stringTable.add(entry.getKey()));
+            tableData.writeInt(listData.size());
+            listData.writeInt(entry.getValue().size());
+            for(int jar : entry.getValue()) {
+                listData.writeInt(jar);
+                listData.writeInt(stringTable.add(checksum(jars.get(jar), entry.getKey())));
+            }
+        }
+        int packageTable = HEADER_SIZE + tableData.size();
+        for(Map.Entry<String,List<Integer>> entry : packages.entrySet()) {
+            tableData.writeInt(stringTable.add(entry.getKey()));
+            tableData.writeInt(listData.size());
+            listData.writeInt(entry.getValue().size());
+            for(int jar : entry.getValue()) {
+                listData.writeInt(jar);
+            }
+        }
+        int serviceTable = HEADER_SIZE + tableData.size();
+        for(String service : services.getServices()) {
+            List<ServiceIndex.Provider> providers = services.getDeclarations(service);
+            tableData.writeInt(stringTable.add(service));
+            tableData.writeInt(listData.size());
+            listData.writeInt(providers.size());
+            for(ServiceIndex.Provider provider : providers) {
+                listData.writeInt(stringTable.add(provider.className()));
+                listData.writeInt(indexOf(jars, provider.jar()));
+                listData.writeInt(provider.missing() ? 1 : 0);
+            }
+        }
+        int lists = HEADER_SIZE + tableData.size();
+        int filter = listData.size();
+        listData.write(BloomFilter.of(names.keySet()).toByteArray());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(lists + listData.size() + stringTable.size());
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(jars.size());
+        out.writeInt(names.size());
+        out.writeInt(packages.size());
+        out.writeInt(services.getServices().size());
+        out.writeInt(HEADER_SIZE);
+        out.writeInt(nameTable);
+        out.writeInt(packageTable);
+        out.writeInt(serviceTable);
+        out.writeInt(lists);
+        out.writeInt(lists + listData.size());
+        out.writeInt(filter);
+        tableBytes.writeTo(out);
+        listBytes.writeTo(out);
+        stringTable.writeTo(out);
+        out.flush();
+        Path tmp = JarUtil.createSiblingTempFile(target);
+        try {
+            Files.write(tmp, bos.toByteArray());
+            JarUtil.moveAtomically(tmp, target.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns the position of a jar in the classpath, jars compare by content so identity is used
+     * @param jars - loaded jars
+     * @param jar - jar searched
+     * @return jar number
+     */
+    private static int indexOf(List<JarEditor> jars, JarEditor jar) {
+        for(int i = 0; i < jars.size(); i++) {
+            if(jars.get(i) == jar) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(jar.getJarName() + " is not on the classpath.");
+    }
+
+    /**
+     * Returns the checksum of an entry
+     * @param jar - loaded jar
+     * @param name - class or resource entry name
+     * @return checksum, empty if unknown
+     */
+    private static String checksum(JarEditor jar, String name) {
+        ClassInfo classInfo = jar.getClassInfo(name);
+        String checksum = classInfo != null ? classInfo.getChecksum() : jar.getResourceChecksum(name);
+        return checksum != null ? checksum : "";
+    }
+
+    /**
+     * Reads a string
+     * @param offset - offset relative to the strings, -1 for none
+     * @return string or null
+     */
+    private String string(int offset) {
+        return offset < 0 ? null : StringTable.read(buffer, strings + offset);
+    }
+
+    /**
+     * Binary searches a sorted table of (string offset, list offset) pairs
+     * @param table - offset of the table
+     * @param count - number of pairs
+     * @param name - name searched
+     * @return absolute offset of the list of the name, -1 if absent
+     */
+    private int search(int table, int count, String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = table + middle * 8;
+            int comparison = StringTable.compare(buffer, strings + buffer.getInt(entry), key);
+            if(comparison == 0) {
+                return lists + buffer.getInt(entry + 4);
+            } else if(comparison < 0) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of a jar table entry
+     * @param jar - jar number
+     * @return absolute offset
+     */
+    private int jar(int jar) {
+        if(jar < 0 || jar >= jarCount) {
+            throw new IndexOutOfBoundsException("Jar " + jar + " of " + jarCount);
+        }
+        return jarTable + jar * JAR_SIZE;
+    }
+
+    /**
+     * Returns the number of jars
+     * @return jar count
+     */
+    public int getJarCount() {
+        return jarCount;
+    }
+
+    /**
+     * Returns the number of distinct class and resource names
+     * @return name count
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the number of packages
+     * @return package count
+     */
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * Returns a jar
+     * @param jar - jar number
+     * @return jar file
+     */
+    public File getJar(int jar) {
+        return new File(string(buffer.getInt(jar(jar))));
+    }
+
+    /**
+     * Returns the jars of the classpath
+     * @return jar files in classpath order
+     */
+    public List<File> getJars() {
+        List<File> files = new ArrayList<>(jarCount);
+        for(int i = 0; i < jarCount; i++) {
+            files.add(getJar(i));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the fingerprint of a jar's content when it was indexed
+     * @param jar - jar number
+     * @return fingerprint
+     */
+    public String getFingerprint(int jar) {
+        return string(buffer.getInt(jar(jar) + 4));
+    }
+
+    /**
+     * Returns the class file version of a jar
+     * @param jar - jar number
+     * @return version or null if the jar has no classes
+     */
+    public String getVersion(int jar) {
+        return string(buffer.getInt(jar(jar) + 8));
+    }
+
+    /**
+     * Returns the Automatic-Module-Name of a jar
+     * @param jar - jar number
+     * @return module name or null if there is none
+     */
+    public String getAutomaticModuleName(int jar) {
+        return string(buffer.getInt(jar(jar) + 12));
+    }
+
+    /**
+     * Returns true if a jar is signed
+     * @param jar - jar number
+     * @return true if signed
+     */
+    public boolean isSigned(int jar) {
+        return (buffer.getInt(jar(jar) + 16) & 1) != 0;
+    }
+
+    /**
+     * Returns the filter over the entry names of every jar
+     * @return filter
+     */
+    public BloomFilter getNameFilter() {
+        byte[] bytes = new byte[4 + buffer.getInt(nameFilter) * 8];
+        buffer.get(nameFilter, bytes);
+        return BloomFilter.fromByteArray(bytes);
+    }
+
+    /**
+     * Returns false if no jar contains a name, probing the mapped name filter
+     * @param name - class or resource entry name
+     * @return true if a jar may contain the name
+     */
+    private boolean mightContain(String name) {
+        return BloomFilter.mightContain(buffer, nameFilter, BloomFilter.hash(name));
+    }
+
+    /**
+     * Returns true if a jar changed since it was indexed, judged from its length and modification time
+     * @param jar - jar number
+     * @return true if the jar is missing or changed
+     */
+    public boolean isStale(int jar) {
+        File file = getJar(jar);
+        int position = jar(jar);
+        return !file.isFile() || file.length() != buffer.getLong(position + 20) || file.lastModified() != buffer.getLong(position + 28);
+    }
+
+    /**
+     * Returns the jars containing an entry
+     * @param name - class or resource entry name (com/foo/Bar.class)
+     * @return jar numbers in classpath order, empty if no jar contains the entry
+     */
+    public int[] findEntry(String name) {
+        int list = mightContain(name) ? search(nameTable, nameCount, name) : -1;
+        if(list < 0) {
+            return new int[0];
+        }
+        int[] indexes = new int[buffer.getInt(list)];
+        for(int i = 0; i < indexes.length; i++) {
+            indexes[i] = buffer.getInt(list + 4 + i * 8);
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the checksum of an entry in a jar
+     * @param name - class or resource entry name
+     * @param jar - jar number
+     * @return checksum or null if the jar doesn't contain the entry
+     */
+    public String getChecksum(String name, int jar) {
+        int list = mightContain(name) ? search(nameTable, nameCount, name) : -1;
+        if(list >= 0) {
+            for(int i = 0; i < buffer.getInt(list); i++) {
+                if(buffer.getInt(list + 4 + i * 8) == jar) {
+                    return string(buffer.getInt(list + 8 + i * 8));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the jars containing a given class
+     * @param className - class name (java.lang.String)
+     * @return jar files in classpath order
+     */
+    public List<File> findClass(String className) {
+        int[] indexes = findEntry(className.replace('.', '/') + ".class");
+        List<File> files = new ArrayList<>(indexes.length);
+        for(int index : indexes) {
+            files.add(getJar(index));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the jars containing a package
+     * @param name - package name with slashes (com/foo)
+     * @return jar numbers in classpath order, empty if no jar contains the package
+     */
+    public int[] getPackageJars(String name) {
+        int list = search(packageTable, packageCount, name);
+        if(list < 0) {
+            return new int[0];
+        }
+        int[] indexes = new int[buffer.getInt(list)];
+        for(int i = 0; i < indexes.length; i++) {
+            indexes[i] = buffer.getInt(list + 4 + i * 4);
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the number of services with provider declarations
+     * @return service count
+     */
+    public int getServiceCount() {
+        return serviceCount;
+    }
+
+    /**
+     * Returns the services with provider declarations
+     * @return service names in index order
+     */
+    public List<String> getServices() {
+        List<String> services = new ArrayList<>(serviceCount);
+        for(int i = 0; i < serviceCount; i++) {
+            services.add(string(buffer.getInt(serviceTable + i * 8)));
+        }
+        return services;
+    }
+
+    /**
+     * Returns the providers of a service the way ServiceLoader iterates them
+     * @param service - service interface (com.foo.Spi)
+     * @return provider class names, each once, in classpath order
+     */
+    public List<String> getServiceProviders(String service) {
+        return providers(service, false);
+    }
+
+    /**
+     * Returns the providers of a service whose class was missing when the classpath was indexed
+     * @param service - service interface
+     * @return provider class names, each once, in classpath order
+     */
+    public List<String> getMissingProviders(String service) {
+        return providers(service, true);
+    }
+
+    /**
+     * Reads the providers of a service
+     * @param service - service interface
+     * @param missing - true to return only the providers whose class is missing
+     * @return provider class names, each once, in classpath order
+     */
+    private List<String> providers(String service, boolean missing) {
+        int list = search(serviceTable, serviceCount, service);
+        if(list < 0) {
+            return List.of();
+        }
+        Set<String> providers = new LinkedHashSet<>();
+        for(int i = 0; i < buffer.getInt(list); i++) {
+            int entry = list + 4 + i * 12;
+            if(!missing || (buffer.getInt(entry + 8) & 1) != 0) {
+                providers.add(string(buffer.getInt(entry)));
+            }
+        }
+        return new ArrayList<>(providers);
+    }
+}
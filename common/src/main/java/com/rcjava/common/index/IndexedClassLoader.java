@@ -0,0 +1,205 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class loader that looks classes and resources up in a package index, so each lookup reads only the jars
+ * containing the package instead of probing every jar on the classpath the way URLClassLoader does. Jars are
+ * opened on first use and memory mapped. Parallel capable: classes with different names load concurrently.
+ * @author Ryan Cuprak
+ */
+public class IndexedClassLoader extends ClassLoader implements Closeable {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * Package index
+     */
+    private final PackageIndex index;
+
+    /**
+     * Opened jars by jar number
+     */
+    private final AtomicReferenceArray<ZipArchive> archives;
+
+    /**
+     * Protection domains by jar number
+     */
+    private final AtomicReferenceArray<ProtectionDomain> domains;
+
+    /**
+     * Creates a class loader
+     * @param index - package index of the classpath
+     * @param parent - parent class loader, consulted first
+     */
+    public IndexedClassLoader(PackageIndex index, ClassLoader parent) {
+        super("indexed", parent);
+        this.index = index;
+        this.archives = new AtomicReferenceArray<>(index.getJars().size());
+        this.domains = new AtomicReferenceArray<>(index.getJars().size());
+    }
+
+    /**
+     * Returns the directory of an entry
+     * @param entryName - entry name
+     * @return package name with slashes
+     */
+    private static String directory(String entryName) {
+        int slash = entryName.lastIndexOf('/');
+        return slash > 0 ? entryName.substring(0, slash) : "";
+    }
+
+    /**
+     * Returns an opened jar, opening it on first use
+     * @param jar - jar number
+     * @return archive
+     * @throws IOException - thrown if the jar can't be opened
+     */
+    private ZipArchive archive(int jar) throws IOException {
+        ZipArchive archive = archives.get(jar);
+        if(archive == null) {
+            ZipArchive opened = new ZipArchive(index.getJars().get(jar), true);
+            if(archives.compareAndSet(jar, null, opened)) {
+                archive = opened;
+            } else {
+                opened.close();
+                archive = archives.get(jar);
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Returns the protection domain of the classes of a jar
+     * @param jar - jar number
+     * @return protection domain
+     * @throws MalformedURLException - thrown if the jar path can't be converted
+     */
+    private ProtectionDomain domain(int jar) throws MalformedURLException {
+        ProtectionDomain domain = domains.get(jar);
+        if(domain == null) {
+            CodeSource codeSource = new CodeSource(index.getJars().get(jar).toURI().toURL(), (Certificate[]) null);
+            domains.compareAndSet(jar, null, new ProtectionDomain(codeSource, null, this, null));
+            domain = domains.get(jar);
+        }
+        return domain;
+    }
+
+    /**
+     * Finds a class in the jars containing its package
+     * @param name - binary class name
+     * @return class
+     * @throws ClassNotFoundException - thrown if no jar contains the class or it can't be read
+     */
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String entryName = name.replace('.', '/') + ".class";
+        for(int jar : index.getJarIndexes(directory(entryName))) {
+            try {
+                ZipArchive archive = archive(jar);
+                ZipEntryRecord record = archive.getEntry(entryName);
+                if(record != null) {
+                    byte[] bytes = archive.readContent(record);
+                    int dot = name.lastIndexOf('.');
+                    if(dot > 0) {
+                        definePackageIfAbsent(name.substring(0, dot));
+                    }
+                    return defineClass(name, bytes, 0, bytes.length, domain(jar));
+                }
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    /**
+     * Defines a package unless another thread already has
+     * @param name - package name
+     */
+    private void definePackageIfAbsent(String name) {
+        if(getDefinedPackage(name) == null) {
+            try {
+                definePackage(name, null, null, null, null, null, null, null);
+            } catch (IllegalArgumentException e) {
+                // defined concurrently
+            }
+        }
+    }
+
+    /**
+     * Finds the first resource with a name
+     * @param name - resource name
+     * @return URL or null if not found
+     */
+    @Override
+    protected URL findResource(String name) {
+        List<URL> urls = find(name, true);
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    /**
+     * Finds every resource with a name
+     * @param name - resource name
+     * @return URLs in classpath order
+     */
+    @Override
+    protected Enumeration<URL> findResources(String name) {
+        return Collections.enumeration(find(name, false));
+    }
+
+    /**
+     * Looks a resource up in the jars containing its directory
+     * @param name - resource name
+     * @param first - true to stop at the first match
+     * @return jar URLs of the resource
+     */
+    private List<URL> find(String name, boolean first) {
+        List<URL> urls = new ArrayList<>();
+        for(int jar : index.getJarIndexes(directory(name))) {
+            try {
+                if(archive(jar).getEntry(name) != null) {
+                    File file = index.getJars().get(jar);
+                    urls.add(new URL("jar:" + file.toURI() + "!/" + name));
+                    if(first) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // unreadable jars are skipped, as URLClassLoader does
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Closes the opened jars, classes already loaded remain usable
+     * @throws IOException - thrown if a jar can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for(int i = 0; i < archives.length(); i++) {
+            ZipArchive archive = archives.getAndSet(i, null);
+            if(archive != null) {
+                archive.close();
+            }
+        }
+    }
+}
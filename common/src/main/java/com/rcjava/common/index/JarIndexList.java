@@ -0,0 +1,98 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates META-INF/INDEX.LIST, the JDK jar index. The root jar lists the packages of itself and of every jar
+ * it references so a class loader honouring the index (URLClassLoader up to JDK 17) opens only the jars
+ * that contain a package. The format is the one written by jar -i: a version line, then for each jar its
+ * path relative to the root jar followed by its directories, one per line, and a blank line. Entries at the
+ * root of a jar are listed by name.
+ * @author Ryan Cuprak
+ */
+public final class JarIndexList {
+
+    /**
+     * Name of the index entry
+     */
+    public static final String NAME = "META-INF/INDEX.LIST";
+
+    /**
+     * Utility class
+     */
+    private JarIndexList() {
+    }
+
+    /**
+     * Generates the index
+     * @param root - loaded root jar
+     * @param jars - loaded jars in classpath order, the root jar included
+     * @param target - file receiving the root jar with its index, paths are relative to it
+     * @return index content
+     */
+    public static byte[] generate(JarEditor root, List<JarEditor> jars, File target) {
+        Path base = target.getAbsoluteFile().getParentFile().toPath();
+        StringBuilder builder = new StringBuilder("JarIndex-Version: 1.0\n\n");
+        for(JarEditor jar : jars) {
+            File file = jar == root ? target : jar.getJarFile();
+            builder.append(base.relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/'))
+                    .append('\n');
+            for(String name : getIndexedNames(jar)) {
+                builder.append(name).append('\n');
+            }
+            builder.append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns what the index lists for a jar: the directories of its entries, or the names of entries at the
+     * root of the jar. The manifest, an existing index and multi-release versions are left out as jar -i does.
+     * @param jar - loaded jar
+     * @return sorted names
+     */
+    static Set<String> getIndexedNames(JarEditor jar) {
+        Set<String> names = new TreeSet<>();
+        for(ClassInfo classInfo : jar.getClassInfos()) {
+            add(names, classInfo.getJarEntry().getName());
+        }
+        for(String resource : jar.getResources()) {
+            add(names, resource);
+        }
+        return names;
+    }
+
+    /**
+     * Adds the indexed name of an entry
+     * @param names - indexed names
+     * @param entryName - entry name
+     */
+    private static void add(Set<String> names, String entryName) {
+        if(entryName.equalsIgnoreCase(NAME) || entryName.equalsIgnoreCase("META-INF/MANIFEST.MF")
+                || entryName.startsWith("META-INF/versions/")) {
+            return;
+        }
+        int slash = entryName.lastIndexOf('/');
+        names.add(slash > 0 ? entryName.substring(0, slash) : entryName);
+    }
+
+    /**
+     * Writes the index into the root jar during a single streaming rewrite, replacing any existing index
+     * @param root - loaded root jar, the first jar of the classpath it indexes
+     * @param jars - loaded jars in classpath order, the root jar included
+     * @param target - jar to be written, may be the root jar itself
+     * @throws IOException - thrown if the root jar is signed or can't be written
+     */
+    public static void write(JarEditor root, List<JarEditor> jars, File target) throws IOException {
+        root.openSession().putEntry(NAME, generate(root, jars, target)).commit(target);
+    }
+}
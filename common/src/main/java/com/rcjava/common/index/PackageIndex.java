@@ -0,0 +1,255 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.JarUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Maps every package (directory) of a classpath to the jars containing it, in classpath order. The index is a
+ * binary file that is memory mapped and searched in place, opening it reads nothing but the header. Layout,
+ * all integers big endian:
+ * <pre>
+ * header    magic, version, jar count, package count, package table offset, list offset, string offset
+ * jars      string offset of each jar path
+ * packages  (name string offset, list offset) sorted by the unsigned UTF-8 bytes of the name
+ * lists     jar count followed by jar numbers, one list per package
+ * strings   byte length followed by UTF-8 bytes
+ * </pre>
+ * Package names use slashes (com/foo), entries at the root of a jar are in the package "".
+ * @author Ryan Cuprak
+ */
+public class PackageIndex {
+
+    /**
+     * Identifies the file format, RCPI
+     */
+    static final int MAGIC = 0x52435049;
+
+    /**
+     * Format version
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 28;
+
+    /**
+     * Mapped index
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Jar files in classpath order
+     */
+    private final List<File> jars;
+
+    /**
+     * Number of packages
+     */
+    private final int packageCount;
+
+    /**
+     * Offset of the package table
+     */
+    private final int packageTable;
+
+    /**
+     * Offset of the jar lists
+     */
+    private final int lists;
+
+    /**
+     * Offset of the strings
+     */
+    private final int strings;
+
+    /**
+     * Opens a mapped index
+     * @param buffer - index content
+     * @throws IOException - thrown if the content isn't an index
+     */
+    private PackageIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a package index.");
+        }
+        if(buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported package index version " + buffer.getInt(4) + ".");
+        }
+        int jarCount = buffer.getInt(8);
+        packageCount = buffer.getInt(12);
+        packageTable = buffer.getInt(16);
+        lists = buffer.getInt(20);
+        strings = buffer.getInt(24);
+        List<File> files = new ArrayList<>(jarCount);
+        for(int i = 0; i < jarCount; i++) {
+            files.add(new File(string(buffer.getInt(HEADER_SIZE + i * 4))));
+        }
+        jars = List.copyOf(files);
+    }
+
+    /**
+     * Opens an index by mapping it, the mapping stays valid after the file is closed
+     * @param file - index file
+     * @return index
+     * @throws IOException - thrown if the file can't be mapped or isn't an index
+     */
+    public static PackageIndex open(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new PackageIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the packages of a jar: the directories of its classes and resources
+     * @param jar - loaded jar
+     * @return package names with slashes
+     */
+    static Set<String> getPackages(JarEditor jar) {
+        Set<String> packages = new LinkedHashSet<>(jar.getPackages());
+        for(String resource : jar.getResources()) {
+            int index = resource.lastIndexOf('/');
+            packages.add(index > 0 ? resource.substring(0, index) : "");
+        }
+        return packages;
+    }
+
+    /**
+     * Writes the index of a classpath. The file is written next to the target and moved over it once complete.
+     * @param jars - loaded jars in classpath order
+     * @param target - index file
+     * @throws IOException - thrown if the index can't be written
+     */
+    public static void write(List<JarEditor> jars, File target) throws IOException {
+        Map<String,List<Integer>> packages = new TreeMap<>(StringTable.ORDER);
+        for(int i = 0; i < jars.size(); i++) {
+            for(String name : getPackages(jars.get(i))) {
+                packages.computeIfAbsent(name, k -> new ArrayList<>()).add(i);
+            }
+        }
+        StringTable stringTable = new StringTable();
+        ByteArrayOutputStream listBytes = new ByteArrayOutputStream();
+        DataOutputStream listData = new DataOutputStream(listBytes);
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream tableData = new DataOutputStream(tableBytes);
+        for(JarEditor jar : jars) {
+            tableData.writeInt(stringTable.add(jar.getJarFile().getAbsolutePath()));
+        }
+        int packageTable = HEADER_SIZE + tableData.size();
+        for(Map.Entry<String,List<Integer>> entry : packages.entrySet()) {
+            tableData.writeInt(stringTable.add(entry.getKey()));
+            tableData.writeInt(listData.size());
+            listData.writeInt(entry.getValue().size());
+            for(int jar : entry.getValue()) {
+                listData.writeInt(jar);
+            }
+        }
+        int lists = HEADER_SIZE + tableData.size();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(lists + listData.size() + stringTable.size());
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(jars.size());
+        out.writeInt(packages.size());
+        out.writeInt(packageTable);
+        out.writeInt(lists);
+        out.writeInt(lists + listData.size());
+        tableBytes.writeTo(out);
+        listBytes.writeTo(out);
+        stringTable.writeTo(out);
+        out.flush();
+        Path tmp = JarUtil.createSiblingTempFile(target);
+        try {
+            Files.write(tmp, bos.toByteArray());
+            JarUtil.moveAtomically(tmp, target.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads a string
+     * @param offset - offset relative to the strings
+     * @return string
+     */
+    private String string(int offset) {
+        return StringTable.read(buffer, strings + offset);
+    }
+
+    /**
+     * Returns the jars of the classpath
+     * @return jar files in classpath order
+     */
+    public List<File> getJars() {
+        return jars;
+    }
+
+    /**
+     * Returns the number of packages
+     * @return package count
+     */
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * Returns the jars containing a package with a binary search of the package table
+     * @param name - package name with slashes (com/foo)
+     * @return jar numbers in classpath order, empty if no jar contains the package
+     */
+    public int[] getJarIndexes(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = packageCount - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = packageTable + middle * 8;
+            int comparison = StringTable.compare(buffer, strings + buffer.getInt(entry), key);
+            if(comparison == 0) {
+                int list = lists + buffer.getInt(entry + 4);
+                int[] indexes = new int[buffer.getInt(list)];
+                for(int i = 0; i < indexes.length; i++) {
+                    indexes[i] = buffer.getInt(list + 4 + i * 4);
+                }
+                return indexes;
+            } else if(comparison < 0) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the jars containing a package
+     * @param name - package name with slashes (com/foo)
+     * @return jar files in classpath order
+     */
+    public List<File> getJars(String name) {
+        int[] indexes = getJarIndexes(name);
+        List<File> files = new ArrayList<>(indexes.length);
+        for(int index : indexes) {
+            files.add(jars.get(index));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,204 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maps every service interface declared in META-INF/services across a classpath to its providers, in the
+ * order ServiceLoader finds them: jars in classpath order, lines in file order, a provider named twice
+ * counted once. Providers whose class is neither on the classpath nor in the JDK are flagged, ServiceLoader
+ * fails on them with a ServiceConfigurationError.
+ * @author Ryan Cuprak
+ */
+public class ServiceIndex {
+
+    /**
+     * Directory holding service provider files
+     */
+    public static final String SERVICES = "META-INF/services/";
+
+    /**
+     * A provider declaration
+     * @param service - service interface (com.foo.Spi)
+     * @param className - provider class (com.foo.impl.SpiImpl)
+     * @param jar - jar declaring the provider
+     * @param missing - true if the provider class can't be found
+     */
+    public record Provider(String service, String className, JarEditor jar, boolean missing) {
+    }
+
+    /**
+     * Provider declarations keyed by service, sorted by service then in classpath order
+     */
+    private final Map<String,List<Provider>> services;
+
+    /**
+     * Creates an index
+     * @param services - provider declarations keyed by service
+     */
+    private ServiceIndex(Map<String,List<Provider>> services) {
+        this.services = services;
+    }
+
+    /**
+     * Reads the service files of a jar
+     * @param jar - jar
+     * @return provider class names keyed by service interface, in file order
+     * @throws IOException - thrown if the jar can't be read
+     */
+    public static Map<String,List<String>> read(File jar) throws IOException {
+        Map<String,List<String>> services = new LinkedHashMap<>();
+        try(ZipArchive archive = new ZipArchive(jar)) {
+            for(ZipEntryRecord record : archive.getEntries()) {
+                String name = record.getName();
+                if(!name.startsWith(SERVICES) || record.isDirectory() || name.indexOf('/', SERVICES.length()) >= 0) {
+                    continue;
+                }
+                List<String> providers = services.computeIfAbsent(name.substring(SERVICES.length()), k -> new ArrayList<>());
+                for(String line : new String(archive.readContent(record), StandardCharsets.UTF_8).split("\\R")) {
+                    int comment = line.indexOf('#');
+                    String provider = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                    if(!provider.isEmpty()) {
+                        providers.add(provider);
+                    }
+                }
+            }
+        }
+        return services;
+    }
+
+    /**
+     * Builds the index of a classpath, reading the jars concurrently
+     * @param jars - loaded jars in classpath order
+     * @param threads - number of jars read concurrently
+     * @return index
+     * @throws IOException - thrown if a jar can't be read
+     * @throws InterruptedException - thrown if interrupted while reading
+     */
+    public static ServiceIndex build(List<JarEditor> jars, int threads) throws IOException, InterruptedException {
+        List<Map<String,List<String>>> declared = new ArrayList<>(jars.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jars.size())));
+        try {
+            List<Callable<Map<String,List<String>>>> tasks = new ArrayList<>(jars.size());
+            for(JarEditor jar : jars) {
+                tasks.add(() -> read(jar.getJarFile()));
+            }
+            for(Future<Map<String,List<String>>> future : executor.invokeAll(tasks)) {
+                try {
+                    declared.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Map<String,List<Provider>> services = new TreeMap<>();
+        for(int i = 0; i < jars.size(); i++) {
+            for(Map.Entry<String,List<String>> entry : declared.get(i).entrySet()) {
+                List<Provider> providers = services.computeIfAbsent(entry.getKey(), k -> new ArrayList<>());
+                for(String className : entry.getValue()) {
+                    providers.add(new Provider(entry.getKey(), className, jars.get(i), !exists(jars, className)));
+                }
+            }
+        }
+        return new ServiceIndex(services);
+    }
+
+    /**
+     * Returns true if a class is on the classpath or in the JDK
+     * @param jars - loaded jars
+     * @param className - class name (com.foo.Bar)
+     * @return true if found
+     */
+    private static boolean exists(List<JarEditor> jars, String className) {
+        String entryName = className.replace('.', '/') + ".class";
+        for(JarEditor jar : jars) {
+            if(jar.hasClass(entryName)) {
+                return true;
+            }
+        }
+        return ClassLoader.getPlatformClassLoader().getResource(entryName) != null;
+    }
+
+    /**
+     * Returns the services with at least one provider declaration
+     * @return sorted service names
+     */
+    public Set<String> getServices() {
+        return Collections.unmodifiableSet(services.keySet());
+    }
+
+    /**
+     * Returns the providers of a service the way ServiceLoader iterates them
+     * @param service - service interface
+     * @return provider class names, each once, in classpath order
+     */
+    public List<String> getProviders(String service) {
+        Set<String> providers = new LinkedHashSet<>();
+        for(Provider provider : services.getOrDefault(service, List.of())) {
+            providers.add(provider.className());
+        }
+        return new ArrayList<>(providers);
+    }
+
+    /**
+     * Returns every declaration of a service, repeated declarations included
+     * @param service - service interface
+     * @return declarations in classpath order
+     */
+    public List<Provider> getDeclarations(String service) {
+        return Collections.unmodifiableList(services.getOrDefault(service, List.of()));
+    }
+
+    /**
+     * Returns the declarations whose provider class can't be found
+     * @return declarations sorted by service, then in classpath order
+     */
+    public List<Provider> getMissing() {
+        List<Provider> missing = new ArrayList<>();
+        for(List<Provider> providers : services.values()) {
+            for(Provider provider : providers) {
+                if(provider.missing()) {
+                    missing.add(provider);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns each service with its providers, followed by the missing providers
+     * @return report
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(String service : services.keySet()) {
+            builder.append(service).append(": ").append(String.join(", ", getProviders(service))).append(System.lineSeparator());
+        }
+        for(Provider provider : getMissing()) {
+            builder.append("Missing provider: ").append(provider.className()).append(" of ").append(provider.service())
+                    .append(" declared in ").append(provider.jar().getJarName()).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
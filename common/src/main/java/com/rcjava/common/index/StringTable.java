@@ -0,0 +1,109 @@
+package com.rcjava.common.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * String section shared by the index files: length prefixed UTF-8 strings, each distinct string stored once.
+ * Tables refer to strings by offset and sort them by their unsigned UTF-8 bytes so a key can be compared
+ * with a stored string without decoding it.
+ * @author Ryan Cuprak
+ */
+final class StringTable {
+
+    /**
+     * Orders strings by their unsigned UTF-8 bytes, the order of the sorted tables
+     */
+    static final Comparator<String> ORDER = (a, b) -> Arrays.compareUnsigned(
+            a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Written strings
+     */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /**
+     * Output over the written strings
+     */
+    private final DataOutputStream data = new DataOutputStream(bytes);
+
+    /**
+     * Offsets of the strings already written
+     */
+    private final Map<String,Integer> offsets = new HashMap<>();
+
+    /**
+     * Adds a string unless it was already added
+     * @param value - string
+     * @return offset of the string relative to the section
+     * @throws IOException - thrown if there is an error writing
+     */
+    int add(String value) throws IOException {
+        Integer offset = offsets.get(value);
+        if(offset == null) {
+            offset = data.size();
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(utf8.length);
+            data.write(utf8);
+            offsets.put(value, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the size of the section
+     * @return size in bytes
+     */
+    int size() {
+        return data.size();
+    }
+
+    /**
+     * Writes the section
+     * @param out - output
+     * @throws IOException - thrown if there is an error writing
+     */
+    void writeTo(OutputStream out) throws IOException {
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Reads a string
+     * @param buffer - index content
+     * @param position - absolute position of the string
+     * @return string
+     */
+    static String read(ByteBuffer buffer, int position) {
+        byte[] utf8 = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a key with a stored string without decoding it
+     * @param buffer - index content
+     * @param position - absolute position of the stored string
+     * @param key - UTF-8 key
+     * @return comparison of the unsigned bytes
+     */
+    static int compare(ByteBuffer buffer, int position, byte[] key) {
+        int length = buffer.getInt(position);
+        position += 4;
+        int common = Math.min(key.length, length);
+        for(int i = 0; i < common; i++) {
+            int difference = (key[i] & 0xFF) - (buffer.get(position + i) & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return key.length - length;
+    }
+}
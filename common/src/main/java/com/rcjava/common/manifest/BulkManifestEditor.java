@@ -0,0 +1,89 @@
+package com.rcjava.common.manifest;
+
+import com.rcjava.common.JarUtil;
+import com.rcjava.common.ManifestEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies one manifest edit script to many jars concurrently. Each jar is opened with the manifest-only
+ * editor, jars whose manifest doesn't change are left alone and the others are replaced atomically.
+ * @author Ryan Cuprak
+ */
+public class BulkManifestEditor {
+
+    /**
+     * Script applied to every jar
+     */
+    private final ManifestEditScript script;
+
+    /**
+     * Maximum number of jars edited at the same time
+     */
+    private final int threads;
+
+    /**
+     * Constructs a new bulk editor
+     * @param script - script to apply
+     * @param threads - maximum number of jars edited concurrently
+     */
+    public BulkManifestEditor(ManifestEditScript script, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.script = script;
+        this.threads = threads;
+    }
+
+    /**
+     * Applies the script to all of the jars
+     * @param jars - jar files
+     * @return summary of the jars that changed, didn't change or failed
+     * @throws InterruptedException - thrown if interrupted while waiting for the edits
+     */
+    public BulkManifestResult apply(Collection<File> jars) throws InterruptedException {
+        BulkManifestResult result = new BulkManifestResult();
+        List<Callable<Void>> tasks = new ArrayList<>(jars.size());
+        for(File jar : jars) {
+            tasks.add(() -> {
+                try {
+                    ManifestEditor editor = ManifestEditor.createManifestOnlyEditor(jar);
+                    script.apply(editor, false);
+                    if(editor.isModified()) {
+                        editor.regenerate(jar);
+                        result.changed(jar);
+                    } else {
+                        result.unchanged(jar);
+                    }
+                } catch (Exception e) {
+                    result.failed(jar, e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, tasks.size())));
+        try {
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Expands a list of jars and directories into jars, directories are searched recursively for *.jar
+     * @param files - jars and directories
+     * @return jars in a stable order
+     * @throws IOException - thrown if a directory can't be read
+     */
+    public static List<File> collectJars(List<File> files) throws IOException {
+        return JarUtil.findJars(files);
+    }
+}
@@ -0,0 +1,91 @@
+package com.rcjava.common.manifest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk manifest edit
+ * @author Ryan Cuprak
+ */
+public class BulkManifestResult {
+
+    /**
+     * Jars that were rewritten
+     */
+    private final List<File> changed = new ArrayList<>();
+
+    /**
+     * Jars whose manifest was already in the requested state
+     */
+    private final List<File> unchanged = new ArrayList<>();
+
+    /**
+     * Jars that could not be edited, with the reason
+     */
+    private final Map<File,String> failed = new TreeMap<>();
+
+    /**
+     * Records a changed jar
+     * @param jar - jar
+     */
+    synchronized void changed(File jar) {
+        changed.add(jar);
+    }
+
+    /**
+     * Records an unchanged jar
+     * @param jar - jar
+     */
+    synchronized void unchanged(File jar) {
+        unchanged.add(jar);
+    }
+
+    /**
+     * Records a failure
+     * @param jar - jar
+     * @param reason - reason
+     */
+    synchronized void failed(File jar, String reason) {
+        failed.put(jar, reason);
+    }
+
+    /**
+     * Returns the jars that were rewritten, sorted by path
+     * @return changed jars
+     */
+    public synchronized List<File> getChanged() {
+        List<File> sorted = new ArrayList<>(changed);
+        sorted.sort(Comparator.naturalOrder());
+        return sorted;
+    }
+
+    /**
+     * Returns the jars that didn't need to change, sorted by path
+     * @return unchanged jars
+     */
+    public synchronized List<File> getUnchanged() {
+        List<File> sorted = new ArrayList<>(unchanged);
+        sorted.sort(Comparator.naturalOrder());
+        return sorted;
+    }
+
+    /**
+     * Returns the jars that failed with the reason
+     * @return failures
+     */
+    public synchronized Map<File,String> getFailed() {
+        return new TreeMap<>(failed);
+    }
+
+    /**
+     * Returns true if any jar failed
+     * @return true for failures
+     */
+    public synchronized boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+}
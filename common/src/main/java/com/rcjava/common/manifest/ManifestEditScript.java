@@ -0,0 +1,176 @@
+package com.rcjava.common.manifest;
+
+import com.rcjava.common.ManifestEditor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Ordered list of manifest edits that can be applied to any number of jars. Scripts are built either
+ * programmatically or parsed from text, one command per line:
+ * <pre>
+ * # comment
+ * clear
+ * add A.jar,lib/B.jar
+ * remove C.jar
+ * set Implementation-Version=1.2
+ * </pre>
+ * @author Ryan Cuprak
+ */
+public class ManifestEditScript {
+
+    /**
+     * A single edit
+     */
+    private interface Operation {
+
+        /**
+         * Applies the edit
+         * @param editor - manifest editor
+         * @param strict - true if removing a jar that isn't present is an error
+         * @throws Exception - thrown if the edit fails
+         */
+        void apply(ManifestEditor editor, boolean strict) throws Exception;
+    }
+
+    /**
+     * Edits in the order they are applied
+     */
+    private final List<Operation> operations = new LinkedList<>();
+
+    /**
+     * Clears the classpath
+     * @return this script
+     */
+    public ManifestEditScript clearClasspath() {
+        operations.add((editor, strict) -> editor.clearClasspath());
+        return this;
+    }
+
+    /**
+     * Appends jars to the classpath
+     * @param jars - jars to add
+     * @return this script
+     */
+    public ManifestEditScript addJars(List<String> jars) {
+        List<String> copy = new ArrayList<>(jars);
+        operations.add((editor, strict) -> editor.addJars(copy));
+        return this;
+    }
+
+    /**
+     * Removes jars from the classpath
+     * @param jars - jar names to remove
+     * @return this script
+     */
+    public ManifestEditScript removeJars(List<String> jars) {
+        List<String> copy = new ArrayList<>(jars);
+        operations.add((editor, strict) -> {
+            if(strict) {
+                editor.removeJars(copy);
+            } else {
+                for(String jar : copy) {
+                    editor.removeJarIfPresent(jar);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Sets a main attribute
+     * @param name - attribute name
+     * @param value - value
+     * @return this script
+     */
+    public ManifestEditScript setAttribute(String name, String value) {
+        operations.add((editor, strict) -> editor.setAttribute(name, value));
+        return this;
+    }
+
+    /**
+     * Returns true if the script has no edits
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Applies the script to a manifest
+     * @param editor - manifest editor
+     * @param strict - true if removing a jar that isn't present is an error
+     * @throws Exception - thrown if an edit fails
+     */
+    public void apply(ManifestEditor editor, boolean strict) throws Exception {
+        for(Operation operation : operations) {
+            operation.apply(editor, strict);
+        }
+    }
+
+    /**
+     * Adds a command in the script syntax
+     * @param line - command line, already trimmed
+     * @return false if the line is not a manifest command
+     * @throws IOException - thrown if the command is malformed
+     */
+    public boolean addCommand(String line) throws IOException {
+        String[] parts = line.split("\\s+", 2);
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+        switch (parts[0]) {
+            case "clear" -> clearClasspath();
+            case "add" -> addJars(split(line, argument));
+            case "remove" -> removeJars(split(line, argument));
+            case "set" -> {
+                int index = argument.indexOf('=');
+                if(index <= 0) {
+                    throw new IOException("Expected set Name=Value: " + line);
+                }
+                setAttribute(argument.substring(0, index).trim(), argument.substring(index + 1).trim());
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a comma or space separated list of jars
+     * @param line - line for error reporting
+     * @param argument - argument
+     * @return jars
+     * @throws IOException - thrown if the list is empty
+     */
+    private static List<String> split(String line, String argument) throws IOException {
+        if(argument.isBlank()) {
+            throw new IOException("Expected one or more jars: " + line);
+        }
+        return Arrays.asList(argument.split("[,\\s]+"));
+    }
+
+    /**
+     * Parses a script
+     * @param lines - lines of the script
+     * @return script
+     * @throws IOException - thrown if a line can't be parsed
+     */
+    public static ManifestEditScript parse(List<String> lines) throws IOException {
+        ManifestEditScript script = new ManifestEditScript();
+        int lineNumber = 0;
+        for(String line : lines) {
+            lineNumber++;
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if(!script.addCommand(line)) {
+                throw new IOException("Unknown command on line " + lineNumber + ": " + line);
+            }
+        }
+        return script;
+    }
+}
@@ -0,0 +1,180 @@
+package com.rcjava.common.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classes recorded by the jtrace agent, in load order. A trace is made of L lines defining a numbered
+ * location and C lines naming a class with its location number, or - for classes without a code source.
+ * Lines starting with # are comments. The output of -verbose:class is read as well.
+ * @author Ryan Cuprak
+ */
+public class ClassLoadTrace {
+
+    /**
+     * A loaded class
+     * @param className - class name (java.lang.String)
+     * @param location - location the class was loaded from, null for the JDK
+     */
+    public record Entry(String className, String location) {
+
+        /**
+         * Returns the jar or directory the class was loaded from
+         * @return file or null if the location isn't a local file
+         */
+        public File getFile() {
+            if(location == null || !location.startsWith("file:")) {
+                return null;
+            }
+            try {
+                return new File(new URI(location));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Classes in load order
+     */
+    private final List<Entry> entries;
+
+    /**
+     * Creates a trace
+     * @param entries - classes in load order
+     */
+    public ClassLoadTrace(List<Entry> entries) {
+        this.entries = new ArrayList<>(entries);
+    }
+
+    /**
+     * Unified logging line of -verbose:class or -Xlog:class+load (JDK 9 and later)
+     */
+    private static final Pattern UNIFIED = Pattern.compile("\\[class,load\\s*\\]\\s+(\\S+)\\s+source:\\s*(.*)$");
+
+    /**
+     * -verbose:class line of JDK 8 and earlier
+     */
+    private static final Pattern LEGACY = Pattern.compile("^\\[Loaded (\\S+) from (.*)\\]$");
+
+    /**
+     * Reads a trace written by the jtrace agent or the output of -verbose:class. The format is detected from
+     * the first line, lines of -verbose:class output that don't report a class load are skipped.
+     * @param file - trace file
+     * @return trace
+     * @throws IOException - thrown if the file can't be read or is malformed
+     */
+    public static ClassLoadTrace read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        for(String line : lines) {
+            if(!line.isEmpty()) {
+                if(line.startsWith("#") || line.startsWith("L ") || line.startsWith("C ")) {
+                    return readTrace(file, lines);
+                }
+                break;
+            }
+        }
+        return readVerbose(lines);
+    }
+
+    /**
+     * Parses a trace written by the jtrace agent
+     * @param file - trace file, for error messages
+     * @param lines - lines of the trace
+     * @return trace
+     * @throws IOException - thrown if a line is malformed
+     */
+    private static ClassLoadTrace readTrace(File file, List<String> lines) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Map<String,String> locations = new HashMap<>();
+        int number = 0;
+        for(String line : lines) {
+            number++;
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(" ", 3);
+            if(fields.length != 3) {
+                throw new IOException(file + ":" + number + " is malformed.");
+            }
+            if(fields[0].equals("L")) {
+                locations.put(fields[1], fields[2]);
+            } else if(fields[0].equals("C")) {
+                String location = fields[1].equals("-") ? null : locations.get(fields[1]);
+                if(location == null && !fields[1].equals("-")) {
+                    throw new IOException(file + ":" + number + " refers to an undefined location.");
+                }
+                entries.add(new Entry(fields[2], location));
+            } else {
+                throw new IOException(file + ":" + number + " is malformed.");
+            }
+        }
+        return new ClassLoadTrace(entries);
+    }
+
+    /**
+     * Parses -verbose:class output, which may be interleaved with the output of the application
+     * @param lines - output lines
+     * @return trace
+     */
+    static ClassLoadTrace readVerbose(List<String> lines) {
+        List<Entry> entries = new ArrayList<>();
+        for(String line : lines) {
+            Matcher matcher = UNIFIED.matcher(line);
+            if(!matcher.find()) {
+                matcher = LEGACY.matcher(line);
+                if(!matcher.find()) {
+                    continue;
+                }
+            }
+            entries.add(new Entry(matcher.group(1), toLocation(matcher.group(2).trim())));
+        }
+        return new ClassLoadTrace(entries);
+    }
+
+    /**
+     * Converts the source reported by -verbose:class to a location
+     * @param source - file: URL, jar: URL, path or a description such as "shared objects file"
+     * @return file: URL or null if the class doesn't come from a local jar or directory
+     */
+    private static String toLocation(String source) {
+        if(source.startsWith("jar:file:")) {
+            int separator = source.indexOf("!/");
+            return separator > 0 ? source.substring(4, separator) : source.substring(4);
+        }
+        if(source.startsWith("file:")) {
+            return source;
+        }
+        if(source.startsWith("/") || (source.length() > 2 && source.charAt(1) == ':')) {
+            return new File(source).toURI().toString();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the classes in load order
+     * @return entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the number of classes loaded
+     * @return class count
+     */
+    public int size() {
+        return entries.size();
+    }
+}
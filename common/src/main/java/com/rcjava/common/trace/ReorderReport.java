@@ -0,0 +1,72 @@
+package com.rcjava.common.trace;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of reordering a jar by class-load order
+ * @author Ryan Cuprak
+ */
+public class ReorderReport {
+
+    /**
+     * Entries moved to the front, in load order
+     */
+    private final List<String> startupEntries;
+
+    /**
+     * Pages touched loading the startup entries from the original jar
+     */
+    private final int pagesBefore;
+
+    /**
+     * Pages touched loading the startup entries from the reordered jar
+     */
+    private final int pagesAfter;
+
+    /**
+     * Creates a report
+     * @param startupEntries - entries moved to the front
+     * @param pagesBefore - pages touched before
+     * @param pagesAfter - pages touched after
+     */
+    public ReorderReport(List<String> startupEntries, int pagesBefore, int pagesAfter) {
+        this.startupEntries = List.copyOf(startupEntries);
+        this.pagesBefore = pagesBefore;
+        this.pagesAfter = pagesAfter;
+    }
+
+    /**
+     * Returns the entries moved to the front
+     * @return entry names in load order
+     */
+    public List<String> getStartupEntries() {
+        return Collections.unmodifiableList(startupEntries);
+    }
+
+    /**
+     * Returns the number of pages the startup entries occupied in the original jar
+     * @return page count
+     */
+    public int getPagesBefore() {
+        return pagesBefore;
+    }
+
+    /**
+     * Returns the number of pages the startup entries occupy in the reordered jar
+     * @return page count
+     */
+    public int getPagesAfter() {
+        return pagesAfter;
+    }
+
+    /**
+     * Returns a summary
+     * @return summary
+     */
+    @Override
+    public String toString() {
+        return startupEntries.size() + " startup classes, " + pagesBefore + " pages touched before, "
+                + pagesAfter + " after (" + StartupLayout.PAGE_SIZE + " byte pages)";
+    }
+}
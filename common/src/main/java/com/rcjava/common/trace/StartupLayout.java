@@ -0,0 +1,72 @@
+package com.rcjava.common.trace;
+
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Works out the layout of a jar for startup: which entries a class-load trace reads from it and how many pages
+ * of the file those reads touch. Entries loaded at startup that are scattered across the jar cost a page fault
+ * (or a read) each, grouped at the front they share pages and are read ahead together.
+ * @author Ryan Cuprak
+ */
+public final class StartupLayout {
+
+    /**
+     * Page size used for the estimate
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    /**
+     * Utility class
+     */
+    private StartupLayout() {
+    }
+
+    /**
+     * Returns the class entries of a jar in the order a trace first loads them. Classes are matched by name
+     * rather than by location so a trace recorded against another copy of the jar can be used.
+     * @param trace - class-load trace
+     * @param archive - opened jar
+     * @return entry names in first-load order
+     */
+    public static List<String> getStartupEntries(ClassLoadTrace trace, ZipArchive archive) {
+        Set<String> names = new LinkedHashSet<>();
+        for(ClassLoadTrace.Entry entry : trace.getEntries()) {
+            String name = entry.className().replace('.', '/') + ".class";
+            if(archive.getEntry(name) != null) {
+                names.add(name);
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Counts the pages holding the local headers and data of entries
+     * @param archive - opened jar
+     * @param names - entry names, names not in the jar are ignored
+     * @return number of distinct pages
+     * @throws IOException - thrown if a local header can't be read
+     */
+    public static int countPages(ZipArchive archive, Collection<String> names) throws IOException {
+        BitSet pages = new BitSet();
+        for(String name : names) {
+            ZipEntryRecord record = archive.getEntry(name);
+            if(record == null) {
+                continue;
+            }
+            long end = archive.getDataOffset(record) + record.getCompressedSize();
+            int first = (int) (record.getLocalHeaderOffset() / PAGE_SIZE);
+            int last = (int) (Math.max(end - 1, record.getLocalHeaderOffset()) / PAGE_SIZE);
+            pages.set(first, last + 1);
+        }
+        return pages.cardinality();
+    }
+}
@@ -0,0 +1,174 @@
+package com.rcjava.common.trace;
+
+import com.rcjava.common.ClassInfo;
+import com.rcjava.common.JarEditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Correlates a class load trace with the jars of a classpath: which classes of each jar were loaded, in which
+ * order, and which were never loaded. Classes are matched to a jar by the location they were loaded from.
+ * @author Ryan Cuprak
+ */
+public class TraceCorrelation {
+
+    /**
+     * Jars in classpath order
+     */
+    private final List<JarEditor> jars;
+
+    /**
+     * Loaded classes of each jar in load order
+     */
+    private final List<Set<String>> loaded;
+
+    /**
+     * Position in the trace of the first class loaded from each jar, -1 if none
+     */
+    private final int[] firstLoad;
+
+    /**
+     * Number of classes loaded from locations that aren't on the classpath, the JDK excluded
+     */
+    private final int outside;
+
+    /**
+     * Creates a correlation
+     * @param jars - jars in classpath order
+     * @param loaded - loaded classes of each jar
+     * @param firstLoad - position of the first class loaded from each jar
+     * @param outside - classes loaded from other locations
+     */
+    private TraceCorrelation(List<JarEditor> jars, List<Set<String>> loaded, int[] firstLoad, int outside) {
+        this.jars = jars;
+        this.loaded = loaded;
+        this.firstLoad = firstLoad;
+        this.outside = outside;
+    }
+
+    /**
+     * Correlates a trace with loaded jars
+     * @param trace - trace
+     * @param jars - jars in classpath order
+     * @return correlation
+     * @throws IOException - thrown if a path can't be resolved
+     */
+    public static TraceCorrelation correlate(ClassLoadTrace trace, List<JarEditor> jars) throws IOException {
+        Map<File,Integer> indexes = new HashMap<>();
+        List<Set<String>> loaded = new ArrayList<>(jars.size());
+        int[] firstLoad = new int[jars.size()];
+        for(int i = 0; i < jars.size(); i++) {
+            indexes.putIfAbsent(jars.get(i).getJarFile().getCanonicalFile(), i);
+            loaded.add(new LinkedHashSet<>());
+            firstLoad[i] = -1;
+        }
+        Map<String,File> canonical = new HashMap<>();
+        int outside = 0;
+        List<ClassLoadTrace.Entry> entries = trace.getEntries();
+        for(int position = 0; position < entries.size(); position++) {
+            ClassLoadTrace.Entry entry = entries.get(position);
+            if(entry.location() == null) {
+                continue;
+            }
+            File file = canonical.get(entry.location());
+            if(file == null && entry.getFile() != null) {
+                file = entry.getFile().getCanonicalFile();
+                canonical.put(entry.location(), file);
+            }
+            Integer index = file != null ? indexes.get(file) : null;
+            if(index == null) {
+                outside++;
+                continue;
+            }
+            loaded.get(index).add(entry.className());
+            if(firstLoad[index] < 0) {
+                firstLoad[index] = position;
+            }
+        }
+        return new TraceCorrelation(List.copyOf(jars), loaded, firstLoad, outside);
+    }
+
+    /**
+     * Returns the jars in classpath order
+     * @return jars
+     */
+    public List<JarEditor> getJars() {
+        return jars;
+    }
+
+    /**
+     * Returns the classes loaded from a jar
+     * @param jar - jar
+     * @return class names in load order
+     */
+    public List<String> getLoaded(JarEditor jar) {
+        int index = jars.indexOf(jar);
+        return index >= 0 ? new ArrayList<>(loaded.get(index)) : List.of();
+    }
+
+    /**
+     * Returns the classes of a jar that were never loaded
+     * @param jar - jar
+     * @return class names, sorted
+     */
+    public List<String> getNeverLoaded(JarEditor jar) {
+        int index = jars.indexOf(jar);
+        List<String> neverLoaded = new ArrayList<>();
+        if(index >= 0) {
+            for(ClassInfo classInfo : jar.getClassInfos()) {
+                if(!loaded.get(index).contains(classInfo.getName())) {
+                    neverLoaded.add(classInfo.getName());
+                }
+            }
+            Collections.sort(neverLoaded);
+        }
+        return neverLoaded;
+    }
+
+    /**
+     * Returns the position in the trace of the first class loaded from a jar, jars loaded early belong early
+     * on the classpath
+     * @param jar - jar
+     * @return position or -1 if nothing was loaded from the jar
+     */
+    public int getFirstLoad(JarEditor jar) {
+        int index = jars.indexOf(jar);
+        return index >= 0 ? firstLoad[index] : -1;
+    }
+
+    /**
+     * Returns the number of classes loaded from locations that aren't on the classpath, the JDK excluded
+     * @return class count
+     */
+    public int getOutsideClasspath() {
+        return outside;
+    }
+
+    /**
+     * Returns a summary line per jar
+     * @return summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < jars.size(); i++) {
+            JarEditor jar = jars.get(i);
+            int total = jar.getClassCount();
+            int count = loaded.get(i).size();
+            builder.append(String.format("%-40s %6d of %6d classes loaded (%3d%%)%s%n", jar.getJarName(), count, total,
+                    total > 0 ? count * 100 / total : 0, count == 0 ? " never used" : ""));
+        }
+        if(outside > 0) {
+            builder.append(String.format("%d classes loaded from outside the classpath%n", outside));
+        }
+        return builder.toString();
+    }
+}
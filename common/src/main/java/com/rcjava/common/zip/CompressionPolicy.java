@@ -0,0 +1,247 @@
+package com.rcjava.common.zip;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Chooses how each entry is compressed when an archive is written. Entries are matched by extension,
+ * anything that isn't matched uses the default level. Entries below a minimum size are stored, and so are
+ * entries whose measured ratio (compressed / uncompressed) after deflating is above the maximum ratio. A policy
+ * can be parsed from a specification that starts with an optional preset, such as
+ * <code>startup,xml=9,min-size=256</code> or <code>class=store,png=store,*=9,max-ratio=0.9</code>.
+ * @author Ryan Cuprak
+ */
+public class CompressionPolicy {
+
+    /**
+     * Level indicating the entry is STORED rather than deflated
+     */
+    public static final int STORE = -2;
+
+    /**
+     * Extensions of formats that are already compressed, deflating them gains next to nothing
+     */
+    public static final Set<String> COMPRESSED_EXTENSIONS = Set.of("png", "jpg", "jpeg", "gif", "webp", "ico",
+            "zip", "jar", "war", "ear", "jmod", "gz", "tgz", "bz2", "xz", "7z", "mp3", "mp4", "ogg", "woff", "woff2");
+
+    /**
+     * Entries smaller than this are stored
+     */
+    private long minSize;
+
+    /**
+     * Deflated entries whose ratio is above this are stored instead
+     */
+    private double maxRatio = 1.0;
+
+    /**
+     * Level used for entries that aren't matched
+     */
+    private int defaultLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Levels keyed by lower case extension
+     */
+    private final Map<String,Integer> levels = new HashMap<>();
+
+    /**
+     * Sets the level used for entries that aren't matched
+     * @param level - deflate level or STORE
+     * @return this policy
+     */
+    public CompressionPolicy setDefaultLevel(int level) {
+        defaultLevel = checkLevel(level);
+        return this;
+    }
+
+    /**
+     * Sets the level used for entries with an extension
+     * @param extension - extension without the dot, such as class
+     * @param level - deflate level or STORE
+     * @return this policy
+     */
+    public CompressionPolicy setLevel(String extension, int level) {
+        levels.put(normalize(extension), checkLevel(level));
+        return this;
+    }
+
+    /**
+     * Stores entries with an extension without compressing them
+     * @param extension - extension without the dot
+     * @return this policy
+     */
+    public CompressionPolicy store(String extension) {
+        return setLevel(extension, STORE);
+    }
+
+    /**
+     * Sets the size below which entries are stored, the deflate headers outweigh the savings on tiny entries
+     * @param minSize - size in bytes
+     * @return this policy
+     */
+    public CompressionPolicy setMinSize(long minSize) {
+        this.minSize = minSize;
+        return this;
+    }
+
+    /**
+     * Sets the highest compressed / uncompressed ratio worth keeping, entries that compress worse are stored
+     * @param maxRatio - ratio between 0 and 1
+     * @return this policy
+     */
+    public CompressionPolicy setMaxRatio(double maxRatio) {
+        if(maxRatio <= 0 || maxRatio > 1) {
+            throw new IllegalArgumentException("Invalid ratio: " + maxRatio);
+        }
+        this.maxRatio = maxRatio;
+        return this;
+    }
+
+    /**
+     * Decides whether a deflated entry is kept or stored, based on the measured ratio
+     * @param size - uncompressed size
+     * @param compressedSize - deflated size
+     * @return true if the deflated form is kept
+     */
+    public boolean keepDeflated(long size, long compressedSize) {
+        return compressedSize < size && compressedSize <= size * maxRatio;
+    }
+
+    /**
+     * Returns the level for an entry
+     * @param name - entry name
+     * @param size - uncompressed size
+     * @return deflate level or STORE
+     */
+    public int getLevel(String name, long size) {
+        if(size == 0 || size < minSize || name.endsWith("/")) {
+            return STORE;
+        }
+        Integer level = levels.get(extension(name));
+        return level != null ? level : defaultLevel;
+    }
+
+    /**
+     * Returns the lower case extension of an entry name
+     * @param name - entry name
+     * @return extension or an empty string
+     */
+    static String extension(String name) {
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        return dot > slash ? name.substring(dot + 1).toLowerCase(Locale.ENGLISH) : "";
+    }
+
+    /**
+     * Normalizes an extension
+     * @param extension - extension with or without a leading dot or *.
+     * @return lower case extension
+     */
+    private static String normalize(String extension) {
+        String ext = extension.trim();
+        if(ext.startsWith("*")) {
+            ext = ext.substring(1);
+        }
+        if(ext.startsWith(".")) {
+            ext = ext.substring(1);
+        }
+        return ext.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Verifies a level
+     * @param level - level
+     * @return level
+     */
+    private static int checkLevel(int level) {
+        if(level != STORE && (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        return level;
+    }
+
+    /**
+     * Policy for jars that should load as fast as possible: classes and already compressed formats are stored so
+     * nothing is inflated when a class is loaded, other resources are deflated unless they compress poorly
+     * @return policy
+     */
+    public static CompressionPolicy startupOptimized() {
+        CompressionPolicy policy = new CompressionPolicy().store("class").setMinSize(512).setMaxRatio(0.9);
+        for(String extension : COMPRESSED_EXTENSIONS) {
+            policy.store(extension);
+        }
+        return policy;
+    }
+
+    /**
+     * Policy for the smallest jar: everything is deflated at the best level except formats that are already compressed
+     * @return policy
+     */
+    public static CompressionPolicy smallest() {
+        CompressionPolicy policy = new CompressionPolicy().setDefaultLevel(Deflater.BEST_COMPRESSION);
+        for(String extension : COMPRESSED_EXTENSIONS) {
+            policy.store(extension);
+        }
+        return policy;
+    }
+
+    /**
+     * Parses a comma separated specification. The first element may be a preset (startup, smallest or default),
+     * the others are extension=level pairs where level is 0-9, default or store and the extension * sets the
+     * default level, or min-size=bytes and max-ratio=ratio.
+     * @param spec - specification
+     * @return policy
+     * @throws IOException - thrown if the specification is malformed
+     */
+    public static CompressionPolicy parse(String spec) throws IOException {
+        String[] parts = spec.split(",");
+        CompressionPolicy policy = switch (parts[0].trim().toLowerCase(Locale.ENGLISH)) {
+            case "startup", "startup-optimized" -> startupOptimized();
+            case "smallest" -> smallest();
+            case "default" -> new CompressionPolicy();
+            default -> null;
+        };
+        int start = 1;
+        if(policy == null) {
+            policy = new CompressionPolicy();
+            start = 0;
+        }
+        for(int i = start; i < parts.length; i++) {
+            String part = parts[i];
+            if(part.isBlank()) {
+                continue;
+            }
+            int index = part.indexOf('=');
+            if(index <= 0) {
+                throw new IOException("Expected extension=level: " + part);
+            }
+            String key = part.substring(0, index).trim();
+            String value = part.substring(index + 1).trim().toLowerCase(Locale.ENGLISH);
+            try {
+                switch (key.toLowerCase(Locale.ENGLISH)) {
+                    case "min-size" -> policy.setMinSize(Long.parseLong(value));
+                    case "max-ratio" -> policy.setMaxRatio(Double.parseDouble(value));
+                    default -> {
+                        int level = switch (value) {
+                            case "store", "stored" -> STORE;
+                            case "default" -> Deflater.DEFAULT_COMPRESSION;
+                            default -> checkLevel(Integer.parseInt(value));
+                        };
+                        if(key.equals("*")) {
+                            policy.setDefaultLevel(level);
+                        } else {
+                            policy.setLevel(key, level);
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid compression setting: " + part);
+            }
+        }
+        return policy;
+    }
+}
@@ -0,0 +1,244 @@
+package com.rcjava.common.zip;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the size and time trade-offs made while writing archives, broken down by extension. Entries that
+ * were recompressed record both their size in the source archive and the time it took to inflate them, which
+ * is roughly what the JVM pays each time the entry is loaded from the original. A report can be shared by
+ * several writers, all methods are thread safe.
+ * @author Ryan Cuprak
+ */
+public class CompressionReport {
+
+    /**
+     * Totals for one extension
+     */
+    public static class Totals {
+
+        /**
+         * Number of entries
+         */
+        private int entries;
+
+        /**
+         * Number of stored entries in the output
+         */
+        private int stored;
+
+        /**
+         * Number of entries copied without being recompressed
+         */
+        private int copied;
+
+        /**
+         * Uncompressed size
+         */
+        private long size;
+
+        /**
+         * Size of the entries in the source archives, for entries that had one
+         */
+        private long inputSize;
+
+        /**
+         * Size of the entries in the output
+         */
+        private long outputSize;
+
+        /**
+         * Time spent inflating the entries from the source archives in nanoseconds
+         */
+        private long inflateNanos;
+
+        /**
+         * Time spent deflating in nanoseconds
+         */
+        private long deflateNanos;
+
+        /**
+         * Adds another set of totals
+         * @param other - totals
+         */
+        private void add(Totals other) {
+            entries += other.entries;
+            stored += other.stored;
+            copied += other.copied;
+            size += other.size;
+            inputSize += other.inputSize;
+            outputSize += other.outputSize;
+            inflateNanos += other.inflateNanos;
+            deflateNanos += other.deflateNanos;
+        }
+
+        /**
+         * Returns the number of entries
+         * @return entries
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * Returns the number of stored entries in the output
+         * @return stored entries
+         */
+        public int getStored() {
+            return stored;
+        }
+
+        /**
+         * Returns the number of entries copied as they were
+         * @return copied entries
+         */
+        public int getCopied() {
+            return copied;
+        }
+
+        /**
+         * Returns the uncompressed size
+         * @return size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the size in the source archives
+         * @return size in bytes
+         */
+        public long getInputSize() {
+            return inputSize;
+        }
+
+        /**
+         * Returns the size in the output
+         * @return size in bytes
+         */
+        public long getOutputSize() {
+            return outputSize;
+        }
+
+        /**
+         * Returns the time spent inflating the source entries
+         * @return nanoseconds
+         */
+        public long getInflateNanos() {
+            return inflateNanos;
+        }
+
+        /**
+         * Returns the time spent deflating
+         * @return nanoseconds
+         */
+        public long getDeflateNanos() {
+            return deflateNanos;
+        }
+    }
+
+    /**
+     * Totals keyed by extension
+     */
+    private final Map<String,Totals> byExtension = new TreeMap<>();
+
+    /**
+     * Records an entry that was compressed (or stored) by the writer
+     * @param name - entry name
+     * @param method - method used in the output
+     * @param size - uncompressed size
+     * @param inputSize - size in the source archive or -1 if the entry is new
+     * @param outputSize - size in the output
+     * @param inflateNanos - time spent inflating the source entry
+     * @param deflateNanos - time spent deflating
+     */
+    public synchronized void recordCompressed(String name, int method, long size, long inputSize, long outputSize,
+                                              long inflateNanos, long deflateNanos) {
+        Totals totals = totals(name);
+        totals.entries++;
+        if(method == ZipEntryRecord.STORED) {
+            totals.stored++;
+        }
+        totals.size += size;
+        totals.inputSize += inputSize < 0 ? outputSize : inputSize;
+        totals.outputSize += outputSize;
+        totals.inflateNanos += inflateNanos;
+        totals.deflateNanos += deflateNanos;
+    }
+
+    /**
+     * Records an entry that was copied without being recompressed
+     * @param record - entry
+     */
+    public synchronized void recordCopied(ZipEntryRecord record) {
+        Totals totals = totals(record.getName());
+        totals.entries++;
+        totals.copied++;
+        if(record.getMethod() == ZipEntryRecord.STORED) {
+            totals.stored++;
+        }
+        totals.size += record.getSize();
+        totals.inputSize += record.getCompressedSize();
+        totals.outputSize += record.getCompressedSize();
+    }
+
+    /**
+     * Returns the totals for an extension, creating them if needed
+     * @param name - entry name
+     * @return totals
+     */
+    private Totals totals(String name) {
+        String extension = name.endsWith("/") ? "(directory)" : CompressionPolicy.extension(name);
+        return byExtension.computeIfAbsent(extension.isEmpty() ? "(none)" : extension, k -> new Totals());
+    }
+
+    /**
+     * Returns a copy of the totals keyed by extension
+     * @return totals by extension
+     */
+    public synchronized Map<String,Totals> getTotalsByExtension() {
+        return new TreeMap<>(byExtension);
+    }
+
+    /**
+     * Returns the totals over every extension
+     * @return totals
+     */
+    public synchronized Totals getTotals() {
+        Totals total = new Totals();
+        for(Totals totals : byExtension.values()) {
+            total.add(totals);
+        }
+        return total;
+    }
+
+    /**
+     * Formats the report as a table
+     * @return report
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        String format = "%-14s %8s %8s %8s %14s %14s %14s %8s %12s %12s%n";
+        builder.append(String.format(format, "Extension", "Entries", "Stored", "Copied", "Size", "Input", "Output", "Ratio",
+                "Inflate ms", "Deflate ms"));
+        for(Map.Entry<String,Totals> entry : byExtension.entrySet()) {
+            append(builder, format, entry.getKey(), entry.getValue());
+        }
+        append(builder, format, "Total", getTotals());
+        return builder.toString();
+    }
+
+    /**
+     * Appends a line of the table
+     * @param builder - builder
+     * @param format - line format
+     * @param label - label of the line
+     * @param totals - totals
+     */
+    private static void append(StringBuilder builder, String format, String label, Totals totals) {
+        String ratio = totals.size == 0 ? "-" : String.format("%.2f", (double) totals.outputSize / totals.size);
+        builder.append(String.format(format, label, totals.entries, totals.stored, totals.copied, totals.size,
+                totals.inputSize, totals.outputSize, ratio, totals.inflateNanos / 1_000_000, totals.deflateNanos / 1_000_000));
+    }
+}
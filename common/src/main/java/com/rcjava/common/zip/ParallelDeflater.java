@@ -0,0 +1,346 @@
+package com.rcjava.common.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses entries on a pool of threads and hands them to a {@link ZipArchiveWriter} in the order they were
+ * submitted. The thread submitting entries is the only one that writes, a bounded number of entries are in
+ * flight so memory use doesn't grow with the archive. Deflaters and output buffers are pooled and reused.
+ * Raw copies can be interleaved with compressed entries and keep their position.
+ * @author Ryan Cuprak
+ */
+public class ParallelDeflater implements Closeable {
+
+    /**
+     * Initial size of an output buffer
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Buffers that grew beyond this size aren't returned to the pool
+     */
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    /**
+     * Supplies the uncompressed content of an entry, invoked on a pool thread
+     */
+    public interface Content {
+
+        /**
+         * Reads the content
+         * @return uncompressed content
+         * @throws IOException - thrown if the content can't be read
+         */
+        byte[] read() throws IOException;
+    }
+
+    /**
+     * Entry compressed by a pool thread, waiting to be written
+     * @param name - entry name
+     * @param data - compressed data, or the content if stored
+     * @param length - number of valid bytes in data
+     * @param method - STORED or DEFLATED
+     * @param crc - crc of the content
+     * @param size - uncompressed size
+     * @param time - modification time
+     * @param pooled - true if data is a pooled buffer
+     * @param inputSize - size in the source archive or -1 for a new entry
+     * @param inflateNanos - time spent reading the content
+     * @param deflateNanos - time spent deflating
+     */
+    private record Compressed(String name, byte[] data, int length, int method, long crc, long size, long time, boolean pooled,
+                              long inputSize, long inflateNanos, long deflateNanos) {
+    }
+
+    /**
+     * Entry waiting its turn to be written, either a compression in flight or a raw copy
+     * @param future - compression, null for a raw copy
+     * @param archive - source archive of a raw copy
+     * @param record - entry of a raw copy
+     */
+    private record Pending(Future<Compressed> future, ZipArchive archive, ZipEntryRecord record) {
+    }
+
+    /**
+     * Writer receiving the entries
+     */
+    private final ZipArchiveWriter writer;
+
+    /**
+     * Policy choosing the level of each entry
+     */
+    private final CompressionPolicy policy;
+
+    /**
+     * Pool compressing entries
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of entries in flight
+     */
+    private final int maxPending;
+
+    /**
+     * Entries in submission order
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * Idle deflaters
+     */
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Idle output buffers
+     */
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Report receiving the trade-offs, may be null
+     */
+    private final CompressionReport report;
+
+    /**
+     * Creates a new parallel deflater
+     * @param writer - writer receiving the entries
+     * @param policy - policy choosing the level of each entry
+     * @param threads - number of compression threads
+     */
+    public ParallelDeflater(ZipArchiveWriter writer, CompressionPolicy policy, int threads) {
+        this(writer, policy, threads, null);
+    }
+
+    /**
+     * Creates a new parallel deflater
+     * @param writer - writer receiving the entries
+     * @param policy - policy choosing the level of each entry
+     * @param threads - number of compression threads
+     * @param report - report receiving the size and time of every entry written, may be null
+     */
+    public ParallelDeflater(ZipArchiveWriter writer, CompressionPolicy policy, int threads, CompressionReport report) {
+        this.writer = writer;
+        this.policy = policy;
+        this.report = report;
+        int poolSize = Math.max(1, threads);
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "deflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = poolSize * 4;
+    }
+
+    /**
+     * Queues an entry for compression
+     * @param name - entry name
+     * @param content - supplies the uncompressed content
+     * @param time - modification time in milliseconds
+     * @throws IOException - thrown if an earlier entry fails to be written
+     */
+    public void submit(String name, Content content, long time) throws IOException {
+        submit(name, content, time, -1);
+    }
+
+    /**
+     * Queues an entry for compression
+     * @param name - entry name
+     * @param content - supplies the uncompressed content
+     * @param time - modification time in milliseconds
+     * @param inputSize - size of the entry in its source archive or -1 for a new entry
+     * @throws IOException - thrown if an earlier entry fails to be written
+     */
+    private void submit(String name, Content content, long time, long inputSize) throws IOException {
+        enqueue(new Pending(executor.submit(() -> compress(name, content, time, inputSize)), null, null));
+    }
+
+    /**
+     * Queues an entry of another archive to be inflated and compressed again according to the policy
+     * @param archive - source archive
+     * @param record - entry in the source archive
+     * @throws IOException - thrown if an earlier entry fails to be written
+     */
+    public void recompress(ZipArchive archive, ZipEntryRecord record) throws IOException {
+        submit(record.getName(), () -> archive.readContent(record), record.getTime(), record.getCompressedSize());
+    }
+
+    /**
+     * Queues an entry of another archive to be copied without inflating it
+     * @param archive - source archive
+     * @param record - entry in the source archive
+     * @throws IOException - thrown if an earlier entry fails to be written
+     */
+    public void copyRaw(ZipArchive archive, ZipEntryRecord record) throws IOException {
+        enqueue(new Pending(null, archive, record));
+    }
+
+    /**
+     * Writes every queued entry
+     * @throws IOException - thrown if an entry can't be compressed or written
+     */
+    public void flush() throws IOException {
+        while(!pending.isEmpty()) {
+            write(pending.poll());
+        }
+    }
+
+    /**
+     * Adds an entry to the queue, writing entries at the head while too many are in flight
+     * @param entry - entry
+     * @throws IOException - thrown if an entry can't be compressed or written
+     */
+    private void enqueue(Pending entry) throws IOException {
+        pending.add(entry);
+        while(pending.size() > maxPending || (!pending.isEmpty() && isReady(pending.peek()))) {
+            write(pending.poll());
+        }
+    }
+
+    /**
+     * Returns true if an entry can be written without waiting
+     * @param entry - entry
+     * @return true if ready
+     */
+    private static boolean isReady(Pending entry) {
+        return entry.future() == null || entry.future().isDone();
+    }
+
+    /**
+     * Writes an entry, waiting for its compression to complete
+     * @param entry - entry
+     * @throws IOException - thrown if the entry can't be compressed or written
+     */
+    private void write(Pending entry) throws IOException {
+        if(entry.future() == null) {
+            writer.copyRaw(entry.archive(), entry.record());
+            if(report != null) {
+                report.recordCopied(entry.record());
+            }
+            return;
+        }
+        Compressed compressed;
+        try {
+            compressed = entry.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException(e.getCause());
+        }
+        writer.writeCompressed(compressed.name(), compressed.data(), compressed.length(), compressed.method(),
+                compressed.crc(), compressed.size(), compressed.time());
+        if(report != null) {
+            report.recordCompressed(compressed.name(), compressed.method(), compressed.size(), compressed.inputSize(),
+                    compressed.length(), compressed.inflateNanos(), compressed.deflateNanos());
+        }
+        if(compressed.pooled() && compressed.data().length <= MAX_POOLED_BUFFER) {
+            buffers.add(compressed.data());
+        }
+    }
+
+    /**
+     * Compresses an entry, runs on a pool thread. The entry is stored if the policy says so or if it doesn't
+     * compress well enough.
+     * @param name - entry name
+     * @param content - supplies the content
+     * @param time - modification time
+     * @param inputSize - size in the source archive or -1
+     * @return compressed entry
+     * @throws IOException - thrown if the content can't be read
+     */
+    private Compressed compress(String name, Content content, long time, long inputSize) throws IOException {
+        long start = System.nanoTime();
+        byte[] data = content.read();
+        long inflateNanos = inputSize < 0 ? 0 : System.nanoTime() - start;
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        int level = policy.getLevel(name, data.length);
+        if(level == CompressionPolicy.STORE) {
+            return stored(name, data, crc.getValue(), time, inputSize, inflateNanos, 0);
+        }
+        start = System.nanoTime();
+        Deflater deflater = deflaters.poll();
+        if(deflater == null) {
+            deflater = new Deflater(level, true);
+        } else {
+            deflater.setLevel(level);
+        }
+        byte[] buffer = buffers.poll();
+        if(buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        int length = 0;
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            while(!deflater.finished()) {
+                if(length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+        } finally {
+            deflater.reset();
+            deflaters.add(deflater);
+        }
+        long deflateNanos = System.nanoTime() - start;
+        if(!policy.keepDeflated(data.length, length)) {
+            if(buffer.length <= MAX_POOLED_BUFFER) {
+                buffers.add(buffer);
+            }
+            return stored(name, data, crc.getValue(), time, inputSize, inflateNanos, deflateNanos);
+        }
+        return new Compressed(name, buffer, length, ZipEntryRecord.DEFLATED, crc.getValue(), data.length, time, true,
+                inputSize, inflateNanos, deflateNanos);
+    }
+
+    /**
+     * Creates a stored entry
+     * @param name - entry name
+     * @param data - content
+     * @param crc - crc of the content
+     * @param time - modification time
+     * @param inputSize - size in the source archive or -1
+     * @param inflateNanos - time spent reading the content
+     * @param deflateNanos - time spent on a deflate attempt that was discarded
+     * @return stored entry
+     */
+    private static Compressed stored(String name, byte[] data, long crc, long time, long inputSize, long inflateNanos, long deflateNanos) {
+        return new Compressed(name, data, data.length, ZipEntryRecord.STORED, crc, data.length, time, false,
+                inputSize, inflateNanos, deflateNanos);
+    }
+
+    /**
+     * Stops the pool and releases the deflaters, entries that weren't flushed are discarded
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Deflater deflater;
+        while((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        buffers.clear();
+    }
+}
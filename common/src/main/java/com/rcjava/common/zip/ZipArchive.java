@@ -0,0 +1,346 @@
+package com.rcjava.common.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only view of a zip/jar file built from the central directory alone. Opening an archive does not
+ * read or inflate any entry data, so listing a large jar costs a single read of the directory. Entry data
+ * can be read inflated or transferred verbatim (still compressed) into a {@link ZipArchiveWriter}.
+ * ZIP64 archives are not supported.
+ * @author Ryan Cuprak
+ */
+public class ZipArchive implements Closeable {
+
+    /**
+     * File that was opened
+     */
+    private final File file;
+
+    /**
+     * Channel used for all reads
+     */
+    private final FileChannel channel;
+
+    /**
+     * Whole file mapped read only, null when reads go through the channel
+     */
+    private final ByteBuffer mapped;
+
+    /**
+     * Entries in central directory order
+     */
+    private final List<ZipEntryRecord> entries;
+
+    /**
+     * Entries keyed by name, first occurrence wins (same as java.util.zip)
+     */
+    private final Map<String,ZipEntryRecord> byName;
+
+    /**
+     * Offset of the central directory, also the end of the last entry's data
+     */
+    private final long centralDirectoryOffset;
+
+    /**
+     * Archive comment
+     */
+    private final byte[] comment;
+
+    /**
+     * Opens the archive and reads the central directory
+     * @param file - zip or jar file
+     * @throws IOException - thrown if the file is not a zip file or can't be read
+     */
+    public ZipArchive(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Opens the archive and reads the central directory
+     * @param file - zip or jar file
+     * @param map - true to memory map the file so reads are served from the page cache without a system call,
+     *            files of 2GB or more are always read through the channel
+     * @throws IOException - thrown if the file is not a zip file or can't be read
+     */
+    public ZipArchive(File file, boolean map) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            mapped = map && size < Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            int tailSize = (int) Math.min(size, ZipConstants.END_SIZE + ZipConstants.MAX_COMMENT);
+            ByteBuffer tail = read(size - tailSize, tailSize);
+            int end = -1;
+            for(int i = tailSize - ZipConstants.END_SIZE; i >= 0; i--) {
+                if(tail.getInt(i) == ZipConstants.END_SIG) {
+                    end = i;
+                    break;
+                }
+            }
+            if(end < 0) {
+                throw new IOException("zip END header not found");
+            }
+            int total = tail.getShort(end + 10) & 0xFFFF;
+            long cdSize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            long cdOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+            int commentLength = tail.getShort(end + 20) & 0xFFFF;
+            if(total == ZipConstants.ZIP64_MAGIC_COUNT || cdOffset == ZipConstants.ZIP64_MAGIC || cdSize == ZipConstants.ZIP64_MAGIC) {
+                throw new IOException("ZIP64 archives are not supported: " + file.getAbsolutePath());
+            }
+            comment = new byte[Math.min(commentLength, tailSize - end - ZipConstants.END_SIZE)];
+            tail.get(end + ZipConstants.END_SIZE, comment);
+            centralDirectoryOffset = cdOffset;
+            entries = new ArrayList<>(total);
+            byName = new HashMap<>(total * 2);
+            ByteBuffer cd = read(cdOffset, (int) cdSize);
+            int pos = 0;
+            for(int i = 0; i < total; i++) {
+                if(cd.getInt(pos) != ZipConstants.CENTRAL_HEADER_SIG) {
+                    throw new IOException("Invalid central directory header in " + file.getAbsolutePath());
+                }
+                int flags = cd.getShort(pos + 8) & 0xFFFF;
+                int method = cd.getShort(pos + 10) & 0xFFFF;
+                long dosTime = cd.getInt(pos + 12) & 0xFFFFFFFFL;
+                long crc = cd.getInt(pos + 16) & 0xFFFFFFFFL;
+                long compressedSize = cd.getInt(pos + 20) & 0xFFFFFFFFL;
+                long uncompressedSize = cd.getInt(pos + 24) & 0xFFFFFFFFL;
+                int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+                int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+                int entryCommentLength = cd.getShort(pos + 32) & 0xFFFF;
+                long externalAttributes = cd.getInt(pos + 38) & 0xFFFFFFFFL;
+                long localOffset = cd.getInt(pos + 42) & 0xFFFFFFFFL;
+                if(compressedSize == ZipConstants.ZIP64_MAGIC || uncompressedSize == ZipConstants.ZIP64_MAGIC || localOffset == ZipConstants.ZIP64_MAGIC) {
+                    throw new IOException("ZIP64 archives are not supported: " + file.getAbsolutePath());
+                }
+                pos += ZipConstants.CENTRAL_HEADER_SIZE;
+                byte[] nameBytes = new byte[nameLength];
+                cd.get(pos, nameBytes);
+                pos += nameLength;
+                byte[] extra = new byte[extraLength];
+                cd.get(pos, extra);
+                pos += extraLength;
+                byte[] entryComment = new byte[entryCommentLength];
+                cd.get(pos, entryComment);
+                pos += entryCommentLength;
+                ZipEntryRecord record = new ZipEntryRecord(new String(nameBytes, StandardCharsets.UTF_8), flags, method,
+                        dosTime, crc, compressedSize, uncompressedSize, localOffset, extra, entryComment, externalAttributes);
+                entries.add(record);
+                byName.putIfAbsent(record.getName(), record);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a region of the file
+     * @param position - position in the file
+     * @param length - number of bytes
+     * @return little endian buffer holding the region
+     * @throws IOException - thrown if the region can't be read
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        if(mapped != null) {
+            if(position < 0 || position + length > mapped.capacity()) {
+                throw new IOException("Unexpected end of file: " + file.getAbsolutePath());
+            }
+            mapped.get((int) position, buffer.array(), 0, length);
+            return buffer;
+        }
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file: " + file.getAbsolutePath());
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Returns the file backing this archive
+     * @return file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the entries in central directory order
+     * @return entries
+     */
+    public List<ZipEntryRecord> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the entry with the given name
+     * @param name - entry name
+     * @return entry or null if not present
+     */
+    public ZipEntryRecord getEntry(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Returns the manifest entry, the name is matched case-insensitively like JarFile does
+     * @return manifest entry or null if there is none
+     */
+    public ZipEntryRecord getManifestEntry() {
+        ZipEntryRecord manifest = byName.get("META-INF/MANIFEST.MF");
+        if(manifest == null) {
+            for(ZipEntryRecord record : entries) {
+                if(record.getName().toUpperCase(Locale.ENGLISH).equals("META-INF/MANIFEST.MF")) {
+                    return record;
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the offset of the central directory
+     * @return offset
+     */
+    public long getCentralDirectoryOffset() {
+        return centralDirectoryOffset;
+    }
+
+    /**
+     * Returns the archive comment
+     * @return comment
+     */
+    public byte[] getComment() {
+        return comment;
+    }
+
+    /**
+     * Returns the offset of the entry's data (just past the local header)
+     * @param record - entry
+     * @return data offset
+     * @throws IOException - thrown if the local header is invalid
+     */
+    public long getDataOffset(ZipEntryRecord record) throws IOException {
+        ByteBuffer header = read(record.getLocalHeaderOffset(), ZipConstants.LOCAL_HEADER_SIZE);
+        if(header.getInt(0) != ZipConstants.LOCAL_HEADER_SIG) {
+            throw new IOException("Invalid local header for " + record.getName() + " in " + file.getAbsolutePath());
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        return record.getLocalHeaderOffset() + ZipConstants.LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    /**
+     * Reads the raw (still compressed) data of an entry
+     * @param record - entry
+     * @return compressed bytes
+     * @throws IOException - thrown if there is an error reading
+     */
+    public byte[] readRaw(ZipEntryRecord record) throws IOException {
+        ByteBuffer buffer = read(getDataOffset(record), Math.toIntExact(record.getCompressedSize()));
+        return buffer.array();
+    }
+
+    /**
+     * Reads and inflates an entry
+     * @param record - entry
+     * @return uncompressed bytes
+     * @throws IOException - thrown if there is an error reading or the method isn't supported
+     */
+    public byte[] readContent(ZipEntryRecord record) throws IOException {
+        byte[] raw = readRaw(record);
+        if(record.getMethod() == ZipEntryRecord.STORED) {
+            return raw;
+        } else if(record.getMethod() == ZipEntryRecord.DEFLATED) {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(raw);
+                byte[] content = new byte[Math.toIntExact(record.getSize())];
+                int read = 0;
+                while(read < content.length && !inflater.finished()) {
+                    int count = inflater.inflate(content, read, content.length - read);
+                    if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += count;
+                }
+                if(read != content.length) {
+                    throw new IOException("Truncated entry " + record.getName() + " in " + file.getAbsolutePath());
+                }
+                return content;
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid compressed data for " + record.getName(), e);
+            } finally {
+                inflater.end();
+            }
+        }
+        throw new IOException("Unsupported compression method " + record.getMethod() + " for " + record.getName());
+    }
+
+    /**
+     * Returns a stream over the inflated content of an entry
+     * @param record - entry
+     * @return input stream
+     * @throws IOException - thrown if there is an error reading
+     */
+    public InputStream getInputStream(ZipEntryRecord record) throws IOException {
+        InputStream raw = new ByteArrayInputStream(readRaw(record));
+        if(record.getMethod() == ZipEntryRecord.DEFLATED) {
+            return new InflaterInputStream(raw, new Inflater(true)) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inf.end();
+                }
+            };
+        }
+        return raw;
+    }
+
+    /**
+     * Copies the compressed data of an entry to a channel without inflating it
+     * @param record - entry
+     * @param target - target channel
+     * @throws IOException - thrown if there is an error copying
+     */
+    public void transferRaw(ZipEntryRecord record, WritableByteChannel target) throws IOException {
+        long position = getDataOffset(record);
+        long remaining = record.getCompressedSize();
+        while(remaining > 0) {
+            long count = channel.transferTo(position, remaining, target);
+            if(count <= 0) {
+                throw new IOException("Unexpected end of file: " + file.getAbsolutePath());
+            }
+            position += count;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Closes the underlying channel
+     * @throws IOException - thrown if there is an error closing
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
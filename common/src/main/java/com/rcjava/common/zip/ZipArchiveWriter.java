@@ -0,0 +1,450 @@
+package com.rcjava.common.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip/jar file entry by entry. Entries from another archive are copied verbatim (the compressed
+ * bytes are transferred without being inflated), new entries are compressed as they are written. The
+ * central directory and end record are written by {@link #finish()}.
+ * @author Ryan Cuprak
+ */
+public class ZipArchiveWriter implements Closeable {
+
+    /**
+     * Size of the staging buffer used for headers and small entries
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Version needed to extract a stored entry
+     */
+    private static final int VERSION_STORED = 10;
+
+    /**
+     * Version needed to extract a deflated entry
+     */
+    private static final int VERSION_DEFLATED = 20;
+
+    /**
+     * Target file
+     */
+    private final File file;
+
+    /**
+     * Channel for the target
+     */
+    private final FileChannel channel;
+
+    /**
+     * Staging buffer
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Central directory records written so far
+     */
+    private final List<ZipEntryRecord> central = new ArrayList<>();
+
+    /**
+     * Names written so far
+     */
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * Archive comment
+     */
+    private byte[] comment = new byte[0];
+
+    /**
+     * Positions of entry names in the central directory, null to list entries in the order they were written
+     */
+    private Map<String,Integer> centralOrder;
+
+    /**
+     * Position of the next byte to be written (includes staged bytes)
+     */
+    private long position;
+
+    /**
+     * Flag indicating the central directory has been written
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new archive, truncating the target if it exists
+     * @param file - target file
+     * @throws IOException - thrown if the file can't be opened
+     */
+    public ZipArchiveWriter(File file) throws IOException {
+        this(file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), 0);
+    }
+
+    /**
+     * Constructs a writer on an open channel
+     * @param file - target file
+     * @param channel - channel
+     * @param position - position where writing starts
+     */
+    private ZipArchiveWriter(File file, FileChannel channel, long position) {
+        this.file = file;
+        this.channel = channel;
+        this.position = position;
+    }
+
+    /**
+     * Opens an existing archive for appending. New entries are written where the central directory starts,
+     * the existing entries are left untouched and are carried over into the new central directory.
+     * The archive is not crash safe while it is being appended to.
+     * @param file - existing archive
+     * @return writer positioned after the last entry
+     * @throws IOException - thrown if the archive can't be read
+     */
+    public static ZipArchiveWriter append(File file) throws IOException {
+        List<ZipEntryRecord> existing;
+        long cdOffset;
+        byte[] comment;
+        try(ZipArchive archive = new ZipArchive(file)) {
+            existing = archive.getEntries();
+            cdOffset = archive.getCentralDirectoryOffset();
+            comment = archive.getComment();
+        }
+        ZipArchiveWriter writer = new ZipArchiveWriter(file, FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE), cdOffset);
+        for(ZipEntryRecord record : existing) {
+            writer.central.add(record);
+            writer.names.add(record.getName());
+        }
+        writer.comment = comment;
+        return writer;
+    }
+
+    /**
+     * Returns true if an entry with this name has been written
+     * @param name - entry name
+     * @return true if present
+     */
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    /**
+     * Returns the records written so far
+     * @return records
+     */
+    public List<ZipEntryRecord> getEntries() {
+        return Collections.unmodifiableList(central);
+    }
+
+    /**
+     * Returns the number of bytes written so far
+     * @return position
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Sets the archive comment
+     * @param comment - comment
+     */
+    public void setComment(byte[] comment) {
+        this.comment = comment;
+    }
+
+    /**
+     * Sets the order of the central directory independently of the order the data is written in. Entries
+     * that aren't listed follow the listed ones in the order they were written.
+     * @param names - entry names in central directory order
+     */
+    public void setCentralDirectoryOrder(List<String> names) {
+        centralOrder = new HashMap<>(names.size() * 2);
+        for(String name : names) {
+            centralOrder.putIfAbsent(name, centralOrder.size());
+        }
+    }
+
+    /**
+     * Copies an entry from another archive without inflating it
+     * @param source - source archive
+     * @param record - entry in the source archive
+     * @throws IOException - thrown if there is an error copying or the entry is a duplicate
+     */
+    public void copyRaw(ZipArchive source, ZipEntryRecord record) throws IOException {
+        ZipEntryRecord relocated = record.relocate(position);
+        writeLocalHeader(relocated);
+        flush();
+        source.transferRaw(record, channel);
+        position += record.getCompressedSize();
+        central.add(relocated);
+    }
+
+    /**
+     * Writes a directory entry
+     * @param name - name, a trailing slash is added if missing
+     * @param time - modification time in milliseconds
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void writeDirectory(String name, long time) throws IOException {
+        if(!name.endsWith("/")) {
+            name += "/";
+        }
+        writeCompressed(name, new byte[0], 0, ZipEntryRecord.STORED, 0, 0, time);
+    }
+
+    /**
+     * Writes a new entry, compressing it at the default level if the method is DEFLATED
+     * @param name - entry name
+     * @param data - uncompressed data
+     * @param method - STORED or DEFLATED
+     * @param time - modification time in milliseconds
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void writeEntry(String name, byte[] data, int method, long time) throws IOException {
+        writeEntry(name, data, method, Deflater.DEFAULT_COMPRESSION, time);
+    }
+
+    /**
+     * Writes a new entry
+     * @param name - entry name
+     * @param data - uncompressed data
+     * @param method - STORED or DEFLATED
+     * @param level - deflate level
+     * @param time - modification time in milliseconds
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void writeEntry(String name, byte[] data, int method, int level, long time) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if(method == ZipEntryRecord.STORED) {
+            writeCompressed(name, data, data.length, method, crc.getValue(), data.length, time);
+        } else {
+            byte[] compressed = deflate(data, level);
+            writeCompressed(name, compressed, compressed.length, method, crc.getValue(), data.length, time);
+        }
+    }
+
+    /**
+     * Writes an entry whose data has already been compressed
+     * @param name - entry name
+     * @param compressed - compressed data
+     * @param length - number of valid bytes in compressed
+     * @param method - method used to compress the data
+     * @param crc - crc of the uncompressed data
+     * @param size - uncompressed size
+     * @param time - modification time in milliseconds
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void writeCompressed(String name, byte[] compressed, int length, int method, long crc, long size, long time) throws IOException {
+        ZipEntryRecord record = new ZipEntryRecord(name, ZipConstants.FLAG_UTF8, method, ZipEntryRecord.javaToDosTime(time),
+                crc, length, size, position, new byte[0], new byte[0], 0);
+        writeLocalHeader(record);
+        write(compressed, 0, length);
+        central.add(record);
+    }
+
+    /**
+     * Deflates a block of data
+     * @param data - data
+     * @param level - compression level
+     * @return compressed data
+     */
+    public static byte[] deflate(byte[] data, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] chunk = new byte[8192];
+            while(!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                bos.write(chunk, 0, count);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes the local header for a record
+     * @param record - record
+     * @throws IOException - thrown if there is an error or the name is a duplicate
+     */
+    private void writeLocalHeader(ZipEntryRecord record) throws IOException {
+        if(finished) {
+            throw new IOException("Archive already finished: " + file.getAbsolutePath());
+        }
+        if(!names.add(record.getName())) {
+            throw new ZipException("duplicate entry: " + record.getName());
+        }
+        if(position > ZipConstants.ZIP64_MAGIC - 1 || record.getCompressedSize() >= ZipConstants.ZIP64_MAGIC) {
+            throw new IOException("ZIP64 archives are not supported: " + file.getAbsolutePath());
+        }
+        byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] extra = record.getExtra();
+        ensure(ZipConstants.LOCAL_HEADER_SIZE + name.length + extra.length);
+        buffer.putInt(ZipConstants.LOCAL_HEADER_SIG);
+        buffer.putShort((short) versionNeeded(record));
+        buffer.putShort((short) record.getFlags());
+        buffer.putShort((short) record.getMethod());
+        buffer.putInt((int) record.getDosTime());
+        buffer.putInt((int) record.getCrc());
+        buffer.putInt((int) record.getCompressedSize());
+        buffer.putInt((int) record.getSize());
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) extra.length);
+        buffer.put(name);
+        buffer.put(extra);
+        position += ZipConstants.LOCAL_HEADER_SIZE + name.length + extra.length;
+    }
+
+    /**
+     * Returns the version needed to extract an entry
+     * @param record - entry
+     * @return version
+     */
+    private static int versionNeeded(ZipEntryRecord record) {
+        return record.getMethod() == ZipEntryRecord.STORED ? VERSION_STORED : VERSION_DEFLATED;
+    }
+
+    /**
+     * Writes the central directory and end record, then truncates anything beyond them
+     * @throws IOException - thrown if there is an error writing
+     */
+    public void finish() throws IOException {
+        if(finished) {
+            return;
+        }
+        if(central.size() >= ZipConstants.ZIP64_MAGIC_COUNT) {
+            throw new IOException("ZIP64 archives are not supported: " + file.getAbsolutePath());
+        }
+        long cdOffset = position;
+        if(centralOrder != null) {
+            central.sort(Comparator.comparingInt(record -> centralOrder.getOrDefault(record.getName(), Integer.MAX_VALUE)));
+        }
+        for(ZipEntryRecord record : central) {
+            byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] extra = record.getExtra();
+            byte[] entryComment = record.getComment();
+            ensure(ZipConstants.CENTRAL_HEADER_SIZE + name.length + extra.length + entryComment.length);
+            buffer.putInt(ZipConstants.CENTRAL_HEADER_SIG);
+            buffer.putShort((short) VERSION_DEFLATED);
+            buffer.putShort((short) versionNeeded(record));
+            buffer.putShort((short) record.getFlags());
+            buffer.putShort((short) record.getMethod());
+            buffer.putInt((int) record.getDosTime());
+            buffer.putInt((int) record.getCrc());
+            buffer.putInt((int) record.getCompressedSize());
+            buffer.putInt((int) record.getSize());
+            buffer.putShort((short) name.length);
+            buffer.putShort((short) extra.length);
+            buffer.putShort((short) entryComment.length);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putInt((int) record.getExternalAttributes());
+            buffer.putInt((int) record.getLocalHeaderOffset());
+            buffer.put(name);
+            buffer.put(extra);
+            buffer.put(entryComment);
+            position += ZipConstants.CENTRAL_HEADER_SIZE + name.length + extra.length + entryComment.length;
+        }
+        long cdSize = position - cdOffset;
+        if(position > ZipConstants.ZIP64_MAGIC - 1) {
+            throw new IOException("ZIP64 archives are not supported: " + file.getAbsolutePath());
+        }
+        ensure(ZipConstants.END_SIZE + comment.length);
+        buffer.putInt(ZipConstants.END_SIG);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) central.size());
+        buffer.putShort((short) central.size());
+        buffer.putInt((int) cdSize);
+        buffer.putInt((int) cdOffset);
+        buffer.putShort((short) comment.length);
+        buffer.put(comment);
+        position += ZipConstants.END_SIZE + comment.length;
+        flush();
+        channel.truncate(position);
+        finished = true;
+    }
+
+    /**
+     * Writes bytes through the staging buffer
+     * @param data - data
+     * @param offset - offset
+     * @param length - length
+     * @throws IOException - thrown if there is an error writing
+     */
+    private void write(byte[] data, int offset, int length) throws IOException {
+        if(length > buffer.remaining()) {
+            flush();
+        }
+        if(length > buffer.capacity()) {
+            ByteBuffer direct = ByteBuffer.wrap(data, offset, length);
+            while(direct.hasRemaining()) {
+                channel.write(direct, position + (direct.position() - offset));
+            }
+        } else {
+            buffer.put(data, offset, length);
+        }
+        position += length;
+    }
+
+    /**
+     * Makes sure there is room in the staging buffer, growing beyond it is never needed for headers
+     * @param length - bytes needed
+     * @throws IOException - thrown if there is an error flushing
+     */
+    private void ensure(int length) throws IOException {
+        if(length > buffer.remaining()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the staged bytes to the channel
+     * @throws IOException - thrown if there is an error writing
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        long start = position - buffer.remaining();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer, start + buffer.position());
+        }
+        buffer.clear();
+        channel.position(position);
+    }
+
+    /**
+     * Finishes the archive and closes the channel
+     * @throws IOException - thrown if there is an error
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rcjava.common.zip;
+
+/**
+ * Signatures and sizes from the zip file format specification
+ * @author Ryan Cuprak
+ */
+final class ZipConstants {
+
+    /**
+     * Local file header signature
+     */
+    static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    /**
+     * Central directory header signature
+     */
+    static final int CENTRAL_HEADER_SIG = 0x02014b50;
+
+    /**
+     * End of central directory signature
+     */
+    static final int END_SIG = 0x06054b50;
+
+    /**
+     * Size of the fixed portion of the local header
+     */
+    static final int LOCAL_HEADER_SIZE = 30;
+
+    /**
+     * Size of the fixed portion of the central directory header
+     */
+    static final int CENTRAL_HEADER_SIZE = 46;
+
+    /**
+     * Size of the fixed portion of the end of central directory record
+     */
+    static final int END_SIZE = 22;
+
+    /**
+     * Maximum size of the archive comment
+     */
+    static final int MAX_COMMENT = 0xFFFF;
+
+    /**
+     * Flag indicating the sizes and crc follow the data in a data descriptor
+     */
+    static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    /**
+     * Flag indicating the name is UTF-8 encoded
+     */
+    static final int FLAG_UTF8 = 0x800;
+
+    /**
+     * Marker used by ZIP64 archives in 16-bit fields
+     */
+    static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    /**
+     * Marker used by ZIP64 archives in 32-bit fields
+     */
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * Prevents instantiation
+     */
+    private ZipConstants() {}
+}
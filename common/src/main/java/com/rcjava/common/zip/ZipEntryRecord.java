@@ -0,0 +1,261 @@
+package com.rcjava.common.zip;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Central directory record of a single entry in a zip/jar file. The record carries everything needed to
+ * copy the entry's compressed data verbatim into another archive.
+ * @author Ryan Cuprak
+ */
+public class ZipEntryRecord {
+
+    /**
+     * Compression method - stored
+     */
+    public static final int STORED = 0;
+
+    /**
+     * Compression method - deflated
+     */
+    public static final int DEFLATED = 8;
+
+    /**
+     * Name of the entry (path within the archive)
+     */
+    private final String name;
+
+    /**
+     * General purpose bit flags
+     */
+    private final int flags;
+
+    /**
+     * Compression method
+     */
+    private final int method;
+
+    /**
+     * Modification time in MS-DOS format (date in the high 16 bits)
+     */
+    private final long dosTime;
+
+    /**
+     * CRC-32 of the uncompressed data
+     */
+    private final long crc;
+
+    /**
+     * Size of the compressed data
+     */
+    private final long compressedSize;
+
+    /**
+     * Size of the uncompressed data
+     */
+    private final long size;
+
+    /**
+     * Offset of the local file header
+     */
+    private final long localHeaderOffset;
+
+    /**
+     * Extra field from the central directory
+     */
+    private final byte[] extra;
+
+    /**
+     * Entry comment
+     */
+    private final byte[] comment;
+
+    /**
+     * External file attributes
+     */
+    private final long externalAttributes;
+
+    /**
+     * Constructs a new record
+     * @param name - entry name
+     * @param flags - general purpose flags
+     * @param method - compression method
+     * @param dosTime - MS-DOS time
+     * @param crc - crc of the uncompressed data
+     * @param compressedSize - compressed size
+     * @param size - uncompressed size
+     * @param localHeaderOffset - offset of the local header
+     * @param extra - extra field
+     * @param comment - comment
+     * @param externalAttributes - external attributes
+     */
+    public ZipEntryRecord(String name, int flags, int method, long dosTime, long crc, long compressedSize, long size,
+                          long localHeaderOffset, byte[] extra, byte[] comment, long externalAttributes) {
+        this.name = name;
+        this.flags = flags;
+        this.method = method;
+        this.dosTime = dosTime;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.localHeaderOffset = localHeaderOffset;
+        this.extra = extra;
+        this.comment = comment;
+        this.externalAttributes = externalAttributes;
+    }
+
+    /**
+     * Returns a copy of this record located at a new offset
+     * @param offset - new local header offset
+     * @return relocated record
+     */
+    ZipEntryRecord relocate(long offset) {
+        return new ZipEntryRecord(name, flags & ~ZipConstants.FLAG_DATA_DESCRIPTOR, method, dosTime, crc,
+                compressedSize, size, offset, extra, comment, externalAttributes);
+    }
+
+    /**
+     * Returns the name of the entry
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the general purpose flags
+     * @return flags
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Returns the compression method
+     * @return method
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the modification time in MS-DOS format
+     * @return dos time
+     */
+    public long getDosTime() {
+        return dosTime;
+    }
+
+    /**
+     * Returns the modification time in milliseconds
+     * @return time
+     */
+    public long getTime() {
+        return dosToJavaTime(dosTime);
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed data
+     * @return crc
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Returns the compressed size
+     * @return compressed size
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Returns the uncompressed size
+     * @return size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the local header
+     * @return offset
+     */
+    public long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * Returns the extra field
+     * @return extra field
+     */
+    public byte[] getExtra() {
+        return extra;
+    }
+
+    /**
+     * Returns the comment
+     * @return comment
+     */
+    public byte[] getComment() {
+        return comment;
+    }
+
+    /**
+     * Returns the external attributes
+     * @return external attributes
+     */
+    public long getExternalAttributes() {
+        return externalAttributes;
+    }
+
+    /**
+     * Returns true if this entry is a directory
+     * @return true if directory
+     */
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    /**
+     * Returns the name of the entry
+     * @return name
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Converts milliseconds to MS-DOS time
+     * @param time - time in milliseconds
+     * @return dos time
+     */
+    public static long javaToDosTime(long time) {
+        LocalDateTime ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        int year = ldt.getYear();
+        if(year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long)(year - 1980) << 25) | ((long)ldt.getMonthValue() << 21) | ((long)ldt.getDayOfMonth() << 16)
+                | ((long)ldt.getHour() << 11) | ((long)ldt.getMinute() << 5) | (ldt.getSecond() >> 1);
+    }
+
+    /**
+     * Converts MS-DOS time to milliseconds
+     * @param dosTime - dos time
+     * @return time in milliseconds
+     */
+    public static long dosToJavaTime(long dosTime) {
+        // lenient in the same way as java.util.zip, out of range days roll into the next month
+        LocalDateTime ldt = LocalDateTime.of((int)(((dosTime >> 25) & 0x7f) + 1980), 1, 1, 0, 0)
+                .plusMonths(((dosTime >> 21) & 0x0f) - 1)
+                .plusDays(((dosTime >> 16) & 0x1f) - 1)
+                .plusHours((dosTime >> 11) & 0x1f)
+                .plusMinutes((dosTime >> 5) & 0x3f)
+                .plusSeconds((dosTime << 1) & 0x3e);
+        return ldt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
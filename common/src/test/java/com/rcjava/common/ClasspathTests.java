@@ -1,9 +1,18 @@
 package com.rcjava.common;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Tests the classpath logic
  * @author Ryan Cuprak
@@ -11,18 +20,29 @@ import org.junit.jupiter.api.Test;
 public class ClasspathTests {
 
     /**
-     * Sets everything up
+     * Directory containing the jars
+     */
+    private static Path dir;
+
+    /**
+     * Sets everything up: a.jar references lib/b.jar and c.jar, b.jar references c.jar, a.jar (a cycle)
+     * and a jar that doesn't exist.
      */
     @BeforeAll
-    public static void beforeAll() {
+    public static void beforeAll() throws IOException {
+        dir = Files.createTempDirectory("classpath");
+        Files.createDirectories(dir.resolve("lib"));
+        TestUtils.createJar(dir.resolve("a.jar"), "lib/b.jar c.jar", Map.of());
+        TestUtils.createJar(dir.resolve("lib/b.jar"), "../c.jar ../a.jar missing.jar", Map.of());
+        TestUtils.createJar(dir.resolve("c.jar"), null, Map.of());
     }
 
     /**
      * Cleans up the mess
      */
     @AfterAll
-    public static void afterAll() {
-
+    public static void afterAll() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
     }
 
     /**
@@ -33,4 +53,79 @@ public class ClasspathTests {
        // Classpath classpath = new Classpath();
 
     }
+
+    /**
+     * Resolving with scanning loads every jar scanned, a loaded but unscanned root included
+     */
+    @Test
+    public void testAnalyzeScanned() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        JarEditor root = new JarEditor(dir.resolve("a.jar").toFile()).load();
+        classpath.addJar(root);
+        List<JarEditor> jars = classpath.analyze(2, true).getJars();
+        Assertions.assertEquals(3, jars.size());
+        for(JarEditor jar : jars) {
+            Assertions.assertTrue(jar.isScanned(), jar.getJarName());
+        }
+        Assertions.assertNotSame(root, jars.get(0));
+        Assertions.assertSame(root, classpath.analyze(2).getJars().get(0));
+    }
+
+    /**
+     * Tests transitive resolution of the manifest classpath
+     */
+    @Test
+    public void testAnalyze() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()).load());
+        ClasspathResolution resolution = classpath.analyze(2);
+        List<File> files = resolution.getClasspath();
+        Assertions.assertEquals(3, files.size());
+        Assertions.assertEquals("a.jar", files.get(0).getName());
+        Assertions.assertEquals("b.jar", files.get(1).getName());
+        Assertions.assertEquals("c.jar", files.get(2).getName());
+        Assertions.assertEquals(3, resolution.getJars().size());
+        Assertions.assertEquals(1, resolution.getMissing().size());
+        Assertions.assertEquals("missing.jar", resolution.getMissing().get(0).getValue());
+        Assertions.assertEquals(1, resolution.getCycles().size());
+        Assertions.assertEquals(3, resolution.getCycles().get(0).size());
+    }
+
+    /**
+     * Tests that a jar listed explicitly is searched in its explicit position
+     */
+    @Test
+    public void testAnalyzeExplicitOrder() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("c.jar").toFile()));
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        List<File> files = classpath.analyze().getClasspath();
+        Assertions.assertEquals(3, files.size());
+        Assertions.assertEquals("c.jar", files.get(0).getName());
+        Assertions.assertEquals("a.jar", files.get(1).getName());
+        Assertions.assertEquals("b.jar", files.get(2).getName());
+    }
+
+    /**
+     * A referenced jar that can't be loaded is reported against the jar referencing it, an unloadable root fails
+     */
+    @Test
+    public void testUnloadable() throws Exception {
+        Path broken = Files.createTempDirectory("broken");
+        try {
+            TestUtils.createJar(broken.resolve("root.jar"), "bad.jar", Map.of());
+            Files.writeString(broken.resolve("bad.jar"), "not a jar");
+            Classpath classpath = new Classpath(broken.toFile());
+            classpath.addJar(new JarEditor(broken.resolve("root.jar").toFile()));
+            ClasspathResolution resolution = classpath.analyze(2);
+            Assertions.assertEquals(1, resolution.getMissing().size());
+            Assertions.assertEquals("root.jar", resolution.getMissing().get(0).getReferencedBy().getName());
+            Assertions.assertEquals("bad.jar", resolution.getMissing().get(0).getValue());
+            Classpath badRoot = new Classpath(broken.toFile());
+            badRoot.addJar(new JarEditor(broken.resolve("bad.jar").toFile()));
+            Assertions.assertThrows(IOException.class, () -> badRoot.analyze(2));
+        } finally {
+            FileUtils.deleteDirectory(broken.toFile());
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package com.rcjava.common;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests watching a lib directory
+ * @author Ryan Cuprak
+ */
+public class ClasspathWatcherTests {
+
+    /**
+     * Watched directory
+     */
+    private Path dir;
+
+    /**
+     * Directory jars are written to before being moved into the watched directory
+     */
+    private Path staging;
+
+    /**
+     * Creates the directories
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("watched");
+        staging = Files.createTempDirectory("staging");
+    }
+
+    /**
+     * Removes the directories
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+        FileUtils.deleteDirectory(staging.toFile());
+    }
+
+    /**
+     * Writes a jar containing classes
+     * @param target - jar
+     * @param classes - class names
+     * @return jar
+     */
+    private static Path jar(Path target, String... classes) throws Exception {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        for(String name : classes) {
+            entries.put(name.replace('.', '/') + ".class", TestUtils.generateClass(name));
+        }
+        return TestUtils.createJar(target, null, entries);
+    }
+
+    /**
+     * Adding, replacing and removing jars patches the class index and the duplicates
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        Path a = jar(dir.resolve("a.jar"), "p.A", "p.B");
+        Path b = jar(dir.resolve("b.jar"), "p.B");
+        try(ClasspathWatcher watcher = new ClasspathWatcher(dir.toFile(), Duration.ofMinutes(1), 2).start()) {
+            Assertions.assertEquals(2, watcher.getJars().size());
+            Assertions.assertEquals(b.toFile(), watcher.findClass("p/B.class").get(1).getJarFile());
+            Assertions.assertEquals(Set.of("p/B.class"), watcher.getDuplicates().keySet());
+            Assertions.assertEquals(1, watcher.getVersions().size());
+            jar(b, "p.C");
+            ClasspathWatcher.Update update = watcher.update(List.of(b));
+            Assertions.assertEquals(List.of(b.toFile()), update.modified());
+            Assertions.assertTrue(watcher.getDuplicates().isEmpty());
+            Assertions.assertEquals(1, watcher.findClass("p/C.class").size());
+            Files.delete(a);
+            update = watcher.update(List.of(a));
+            Assertions.assertEquals(List.of(a.toFile()), update.removed());
+            Assertions.assertTrue(watcher.findClass("p/A.class").isEmpty());
+            Assertions.assertEquals(1, watcher.toClasspath().getJars().size());
+        }
+    }
+
+    /**
+     * A burst of new jars, one in a new directory, is applied in fewer batches than jars
+     */
+    @Test
+    public void testWatch() throws Exception {
+        BlockingQueue<ClasspathWatcher.Update> updates = new LinkedBlockingQueue<>();
+        try(ClasspathWatcher watcher = new Classpath(dir.toFile()).watch(Duration.ofMillis(300)).addListener(updates::add)) {
+            Files.createDirectory(dir.resolve("ext"));
+            for(int i = 0; i < 5; i++) {
+                Path target = i == 4 ? dir.resolve("ext").resolve("lib4.jar") : dir.resolve("lib" + i + ".jar");
+                Files.move(jar(staging.resolve("lib" + i + ".jar"), "p" + i + ".C"), target);
+            }
+            Set<File> added = new HashSet<>();
+            int batches = 0;
+            while(added.size() < 5) {
+                ClasspathWatcher.Update update = updates.poll(10, TimeUnit.SECONDS);
+                Assertions.assertNotNull(update, "only " + added + " added");
+                added.addAll(update.added());
+                batches++;
+            }
+            Assertions.assertTrue(batches < 5, batches + " batches");
+            Assertions.assertEquals(1, watcher.findClass("p4/C.class").size());
+        }
+    }
+
+    /**
+     * Directories removed before they are registered don't stop the watcher
+     */
+    @Test
+    public void testVanishingDirectories() throws Exception {
+        BlockingQueue<ClasspathWatcher.Update> updates = new LinkedBlockingQueue<>();
+        try(ClasspathWatcher watcher = new Classpath(dir.toFile()).watch(Duration.ofMillis(100)).addListener(updates::add)) {
+            for(int i = 0; i < 50; i++) {
+                Path nested = Files.createDirectories(dir.resolve("tmp" + i).resolve("a").resolve("b"));
+                FileUtils.deleteDirectory(nested.getParent().getParent().toFile());
+            }
+            Files.move(jar(staging.resolve("late.jar"), "p.Late"), dir.resolve("late.jar"));
+            Set<File> added = new HashSet<>();
+            while(added.isEmpty()) {
+                ClasspathWatcher.Update update = updates.poll(10, TimeUnit.SECONDS);
+                Assertions.assertNotNull(update, "late.jar not added");
+                added.addAll(update.added());
+            }
+            Assertions.assertEquals(1, watcher.findClass("p/Late.class").size());
+        }
+    }
+}
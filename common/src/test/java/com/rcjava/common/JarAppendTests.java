@@ -0,0 +1,90 @@
+package com.rcjava.common;
+
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests appending files to a jar in place
+ * @author Ryan Cuprak
+ */
+public class JarAppendTests {
+
+    /**
+     * Jar being appended to
+     */
+    private Path jar;
+
+    /**
+     * File that is appended
+     */
+    private Path file;
+
+    /**
+     * Creates the jar and the file
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        entries.put("com/rcjava/scratch/a.txt", "first entry".getBytes(StandardCharsets.UTF_8));
+        entries.put("com/rcjava/scratch/b.txt", "second entry".getBytes(StandardCharsets.UTF_8));
+        jar = TestUtils.createJar(null, entries);
+        file = Files.createTempFile("append", ".txt");
+        Files.writeString(file, "appended");
+    }
+
+    /**
+     * Deletes the temp files
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(jar);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Verifies the existing entries stay where they are and the new entry can be read
+     */
+    @Test
+    public void testAppend() throws IOException {
+        long before;
+        try(ZipArchive archive = new ZipArchive(jar.toFile())) {
+            before = archive.getEntry("com/rcjava/scratch/b.txt").getLocalHeaderOffset();
+        }
+        JarEditor jarEditor = new JarEditor(jar.toFile());
+        jarEditor.addFile("com/rcjava/scratch", file.toFile());
+        jarEditor.append();
+        try(ZipArchive archive = new ZipArchive(jar.toFile())) {
+            Assertions.assertEquals(before, archive.getEntry("com/rcjava/scratch/b.txt").getLocalHeaderOffset());
+            ZipEntryRecord added = archive.getEntry("com/rcjava/scratch/" + file.getFileName());
+            Assertions.assertEquals("appended", new String(archive.readContent(added), StandardCharsets.UTF_8));
+        }
+        JarEditor reloaded = new JarEditor(jar.toFile()).load();
+        Assertions.assertTrue(reloaded.hasResource("com/rcjava/scratch/" + file.getFileName()));
+        Assertions.assertTrue(reloaded.hasResource("com/rcjava/scratch/a.txt"));
+    }
+
+    /**
+     * Verifies an existing entry can't be appended again
+     */
+    @Test
+    public void testAppendExisting() throws IOException {
+        JarEditor jarEditor = new JarEditor(jar.toFile());
+        jarEditor.addFile("com/rcjava/scratch", file.toFile());
+        jarEditor.append();
+        JarEditor again = new JarEditor(jar.toFile());
+        again.addFile("com/rcjava/scratch/", file.toFile());
+        IOException thrown = Assertions.assertThrows(IOException.class, again::append);
+        Assertions.assertTrue(thrown.getMessage().endsWith("already exists."));
+    }
+}
@@ -0,0 +1,116 @@
+package com.rcjava.common;
+
+import com.rcjava.common.zip.ZipArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Manifest;
+
+/**
+ * Tests edit sessions
+ * @author Ryan Cuprak
+ */
+public class JarEditSessionTests {
+
+    /**
+     * Jar being edited
+     */
+    private Path jar;
+
+    /**
+     * Content of the class entries, a real class file so the jar can be loaded
+     */
+    private byte[] classBytes;
+
+    /**
+     * Creates the jar
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        try(InputStream is = JarEditSessionTests.class.getResourceAsStream("JarEditSessionTests.class")) {
+            classBytes = is.readAllBytes();
+        }
+        entries.put("com/rcjava/scratch/A.class", classBytes);
+        entries.put("com/rcjava/scratch/B.class", classBytes);
+        entries.put("config.properties", "a=b".getBytes(StandardCharsets.UTF_8));
+        jar = TestUtils.createJar("lib/a.jar", entries);
+    }
+
+    /**
+     * Deletes the jar
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(jar);
+    }
+
+    /**
+     * Applies removals, insertions and manifest edits in one commit
+     */
+    @Test
+    public void testCommit() throws Exception {
+        JarEditSession session = new JarEditor(jar.toFile()).openSession();
+        session.addCommands(List.of(
+                "# script",
+                "remove-class com.rcjava.scratch.A",
+                "remove-entry config.properties",
+                "manifest add lib/b.jar",
+                "manifest set Implementation-Version=1.2"));
+        session.addEntry("config.properties", "c=d".getBytes(StandardCharsets.UTF_8));
+        session.addEntry("com/rcjava/scratch/C.class", new byte[] {7});
+        session.commit();
+        Assertions.assertTrue(session.isEmpty());
+        try(ZipArchive archive = new ZipArchive(jar.toFile())) {
+            Assertions.assertNull(archive.getEntry("com/rcjava/scratch/A.class"));
+            Assertions.assertArrayEquals(classBytes, archive.readContent(archive.getEntry("com/rcjava/scratch/B.class")));
+            Assertions.assertArrayEquals(new byte[] {7}, archive.readContent(archive.getEntry("com/rcjava/scratch/C.class")));
+            Assertions.assertEquals("c=d", new String(archive.readContent(archive.getEntry("config.properties")), StandardCharsets.UTF_8));
+            Manifest manifest = new Manifest(new ByteArrayInputStream(archive.readContent(archive.getManifestEntry())));
+            Assertions.assertEquals("lib/a.jar lib/b.jar", manifest.getMainAttributes().getValue("Class-Path"));
+            Assertions.assertEquals("1.2", manifest.getMainAttributes().getValue("Implementation-Version"));
+        }
+    }
+
+    /**
+     * An invalid edit must leave the jar untouched
+     */
+    @Test
+    public void testInvalidEdit() throws Exception {
+        byte[] before = Files.readAllBytes(jar);
+        JarEditSession session = new JarEditor(jar.toFile()).openSession()
+                .removeClass("com.rcjava.scratch.A")
+                .removeEntry("missing.txt");
+        session.addEntry("com/rcjava/scratch/B.class", new byte[] {0});
+        IOException thrown = Assertions.assertThrows(IOException.class, session::commit);
+        Assertions.assertTrue(thrown.getMessage().contains("missing.txt not found."));
+        Assertions.assertTrue(thrown.getMessage().contains("com/rcjava/scratch/B.class already exists."));
+        Assertions.assertArrayEquals(before, Files.readAllBytes(jar));
+        Assertions.assertThrows(IOException.class, () -> session.addCommand("rename a b"));
+    }
+
+    /**
+     * Regenerate goes through the session and drops removed classes
+     */
+    @Test
+    public void testRegenerate() throws Exception {
+        JarEditor jarEditor = new JarEditor(jar.toFile()).load();
+        jarEditor.removeClass("com/rcjava/scratch/B.class");
+        jarEditor.regenerate(jar.toFile());
+        JarEditor reloaded = new JarEditor(jar.toFile()).load();
+        Assertions.assertTrue(reloaded.hasClass("com/rcjava/scratch/A.class"));
+        Assertions.assertFalse(reloaded.hasClass("com/rcjava/scratch/B.class"));
+        Assertions.assertTrue(reloaded.hasResource("config.properties"));
+    }
+}
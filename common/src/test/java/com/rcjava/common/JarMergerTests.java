@@ -0,0 +1,151 @@
+package com.rcjava.common;
+
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.ZipArchive;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Manifest;
+
+/**
+ * Tests merging jars
+ * @author Ryan Cuprak
+ */
+public class JarMergerTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * a.jar references b.jar, both contain a service file, an identical class and a conflicting resource
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("merge");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("com/rcjava/a/A.class", TestUtils.classBytes(JarMergerTests.class));
+        a.put("com/rcjava/shared/S.class", TestUtils.classBytes(TestUtils.class));
+        a.put("META-INF/services/com.rcjava.Spi", bytes("com.rcjava.a.A"));
+        a.put("config.properties", bytes("from=a"));
+        TestUtils.createJar(dir.resolve("a.jar"), "b.jar", a);
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put("com/rcjava/b/B.class", TestUtils.classBytes(ClasspathTests.class));
+        b.put("com/rcjava/shared/S.class", TestUtils.classBytes(TestUtils.class));
+        b.put("META-INF/services/com.rcjava.Spi", bytes("com.rcjava.b.B\n"));
+        b.put("config.properties", bytes("from=b"));
+        b.put("META-INF/B.SF", bytes("Signature-Version: 1.0"));
+        TestUtils.createJar(dir.resolve("b.jar"), null, b);
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a string
+     * @param value - string
+     * @return bytes
+     */
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Merges a classpath with first wins
+     */
+    @Test
+    public void testMerge() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        File target = dir.resolve("merged.jar").toFile();
+        MergeResult result = JarMerger.forClasspath(classpath).setMainClass("com.rcjava.a.A").merge(target);
+        Assertions.assertEquals(2, result.getJars().size());
+        Assertions.assertEquals(1, result.getDuplicates());
+        Assertions.assertEquals(1, result.getSignatureFiles());
+        Assertions.assertEquals(2, result.getConflicts().size());
+        try(ZipArchive archive = new ZipArchive(target)) {
+            Assertions.assertNotNull(archive.getEntry("com/rcjava/a/A.class"));
+            Assertions.assertNotNull(archive.getEntry("com/rcjava/b/B.class"));
+            Assertions.assertNull(archive.getEntry("META-INF/B.SF"));
+            Assertions.assertEquals("from=a", new String(archive.readContent(archive.getEntry("config.properties")), StandardCharsets.UTF_8));
+            Assertions.assertEquals("com.rcjava.a.A\ncom.rcjava.b.B\n",
+                    new String(archive.readContent(archive.getEntry("META-INF/services/com.rcjava.Spi")), StandardCharsets.UTF_8));
+            Manifest manifest = new Manifest(new ByteArrayInputStream(archive.readContent(archive.getManifestEntry())));
+            Assertions.assertNull(manifest.getMainAttributes().getValue("Class-Path"));
+            Assertions.assertEquals("com.rcjava.a.A", manifest.getMainAttributes().getValue("Main-Class"));
+            Assertions.assertEquals(archive.getManifestEntry(), archive.getEntries().get(0));
+        }
+    }
+
+    /**
+     * The fail strategy must stop the merge before anything is written
+     */
+    @Test
+    public void testFail() {
+        File target = dir.resolve("merged.jar").toFile();
+        JarMerger merger = new JarMerger(List.of(dir.resolve("a.jar").toFile(), dir.resolve("b.jar").toFile()))
+                .setDefaultStrategy(JarMerger.Strategy.FAIL);
+        IOException thrown = Assertions.assertThrows(IOException.class, () -> merger.merge(target));
+        Assertions.assertTrue(thrown.getMessage().contains("config.properties"));
+        Assertions.assertFalse(thrown.getMessage().contains("com.rcjava.Spi"));
+        Assertions.assertFalse(target.exists());
+        Assertions.assertEquals(JarMerger.Strategy.MERGE, merger.getStrategy("META-INF/services/x"));
+    }
+
+    /**
+     * A directory referenced by a manifest Class-Path is skipped
+     */
+    @Test
+    public void testDirectoryOnClasspath() throws Exception {
+        Files.createDirectories(dir.resolve("conf"));
+        TestUtils.createJar(dir.resolve("root.jar"), "conf/ a.jar", Map.of("root.txt", bytes("root")));
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("root.jar").toFile()));
+        MergeResult result = JarMerger.forClasspath(classpath).merge(dir.resolve("merged.jar").toFile());
+        Assertions.assertEquals(3, result.getJars().size());
+    }
+
+    /**
+     * Merging more jars than may be open at once closes and reopens sources as needed
+     */
+    @Test
+    public void testManyJars() throws Exception {
+        List<File> jars = new ArrayList<>();
+        StringBuilder services = new StringBuilder();
+        for(int i = 0; i < JarMerger.MAX_OPEN_ARCHIVES * 2 + 1; i++) {
+            Map<String,byte[]> entries = new LinkedHashMap<>();
+            entries.put("p" + i + "/C.class", TestUtils.generateClass("p" + i + ".C"));
+            entries.put("META-INF/services/com.rcjava.Spi", bytes("p" + i + ".C\n"));
+            jars.add(TestUtils.createJar(dir.resolve("many" + i + ".jar"), null, entries).toFile());
+            services.append("p").append(i).append(".C\n");
+        }
+        File target = dir.resolve("merged.jar").toFile();
+        MergeResult result = new JarMerger(jars).setCompressionPolicy(new CompressionPolicy()).merge(target);
+        Assertions.assertEquals(jars.size(), result.getJars().size());
+        try(ZipArchive archive = new ZipArchive(target)) {
+            Assertions.assertNotNull(archive.getEntry("p0/C.class"));
+            Assertions.assertNotNull(archive.getEntry("p" + (jars.size() - 1) + "/C.class"));
+            Assertions.assertEquals(services.toString(),
+                    new String(archive.readContent(archive.getEntry("META-INF/services/com.rcjava.Spi")), StandardCharsets.UTF_8));
+        }
+    }
+}
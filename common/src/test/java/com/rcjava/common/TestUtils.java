@@ -1,11 +1,21 @@
 package com.rcjava.common;
 
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
 import org.apache.commons.io.FileUtils;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 public class TestUtils {
 
@@ -37,4 +47,80 @@ public class TestUtils {
         return file;
     }
 
+    /**
+     * Creates a jar file in a temp location
+     * @param classpath - Class-Path attribute of the manifest, null for none
+     * @param entries - entries keyed by name, written in iteration order
+     * @return Path to the jar
+     * @throws IOException - thrown if there are any errors
+     */
+    public static Path createJar(String classpath, Map<String,byte[]> entries) throws IOException {
+        return createJar(Files.createTempFile("tst", ".jar"), classpath, entries);
+    }
+
+    /**
+     * Creates a jar file
+     * @param jar - jar to be written
+     * @param classpath - Class-Path attribute of the manifest, null for none
+     * @param entries - entries keyed by name, written in iteration order
+     * @return Path to the jar
+     * @throws IOException - thrown if there are any errors
+     */
+    public static Path createJar(Path jar, String classpath, Map<String,byte[]> entries) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if(classpath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classpath);
+        }
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar.toFile()), manifest)) {
+            for(Map.Entry<String,byte[]> entry : entries.entrySet()) {
+                jos.putNextEntry(new JarEntry(entry.getKey()));
+                jos.write(entry.getValue());
+                jos.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+
+    /**
+     * Returns the class file of a class on the test classpath, used where a jar must contain real classes
+     * @param clazz - class
+     * @return class file bytes
+     */
+    public static byte[] classBytes(Class<?> clazz) throws IOException {
+        try(InputStream is = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class")) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * Creates a jar of classes on the test classpath and loads it with scanning enabled
+     * @param jar - jar to be created
+     * @param classes - classes in the jar
+     * @return scanned jar
+     */
+    public static JarEditor createScannedJar(Path jar, Class<?>... classes) throws IOException {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        for(Class<?> clazz : classes) {
+            entries.put(clazz.getName().replace('.', '/') + ".class", classBytes(clazz));
+        }
+        return new JarEditor(createJar(jar, null, entries).toFile(), true).load();
+    }
+
+    /**
+     * Generates an empty public class, used where a test needs many distinct classes
+     * @param name - class name (java.lang.String)
+     * @return class file bytes
+     */
+    public static byte[] generateClass(String name) throws IOException {
+        CtClass clazz = ClassPool.getDefault().makeClass(name);
+        try {
+            return clazz.toBytecode();
+        } catch (CannotCompileException e) {
+            throw new IOException(e);
+        } finally {
+            clazz.detach();
+        }
+    }
 }
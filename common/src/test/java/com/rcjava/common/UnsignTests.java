@@ -0,0 +1,108 @@
+package com.rcjava.common;
+
+import com.rcjava.common.zip.ZipArchive;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.Manifest;
+
+/**
+ * Tests unsigning jars, including many jars at once
+ * @author Ryan Cuprak
+ */
+public class UnsignTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Entries of the signed jars
+     */
+    private final Map<String,byte[]> entries = new LinkedHashMap<>();
+
+    /**
+     * Creates several jars with signature files (content isn't a real signature, only the names matter)
+     * plus one unsigned jar
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("unsign");
+        Random random = new Random(42);
+        for(int i = 0; i < 10; i++) {
+            byte[] data = new byte[20000];
+            random.nextBytes(data);
+            entries.put("com/rcjava/data" + i + ".bin", data);
+        }
+        entries.put("META-INF/TEST.SF", "Signature-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/TEST.RSA", new byte[] {1, 2, 3});
+        for(int i = 0; i < 8; i++) {
+            TestUtils.createJar(dir.resolve("signed" + i + ".jar"), null, entries);
+        }
+        TestUtils.createJar(dir.resolve("plain.jar"), null, Map.of("a.txt", new byte[] {1}));
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws Exception {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Tests the central directory check
+     */
+    @Test
+    public void testHasSignatureFiles() throws Exception {
+        Assertions.assertTrue(JarUtil.hasSignatureFiles(dir.resolve("signed0.jar").toFile()));
+        Assertions.assertFalse(JarUtil.hasSignatureFiles(dir.resolve("plain.jar").toFile()));
+    }
+
+    /**
+     * Tests unsigning a directory concurrently, every output must match the original minus the signature
+     */
+    @Test
+    public void testUnsignDirectory() throws Exception {
+        Map<Path,Path> unsigned = JarUtil.unsignJars(dir, false, 4);
+        Assertions.assertEquals(8, unsigned.size());
+        Assertions.assertFalse(unsigned.containsKey(dir.resolve("plain.jar").toAbsolutePath()));
+        for(Path jar : unsigned.values()) {
+            Assertions.assertTrue(jar.getFileName().toString().endsWith("_unsigned.jar"));
+            Assertions.assertFalse(JarUtil.hasSignatureFiles(jar.toFile()));
+            try(ZipArchive archive = new ZipArchive(jar.toFile())) {
+                for(Map.Entry<String,byte[]> entry : entries.entrySet()) {
+                    if(entry.getKey().startsWith("META-INF")) {
+                        Assertions.assertNull(archive.getEntry(entry.getKey()));
+                    } else {
+                        Assertions.assertArrayEquals(entry.getValue(), archive.readContent(archive.getEntry(entry.getKey())));
+                    }
+                }
+                Manifest manifest = new Manifest(new ByteArrayInputStream(archive.readContent(archive.getManifestEntry())));
+                Assertions.assertEquals("1.0", manifest.getMainAttributes().getValue("Manifest-Version"));
+            }
+        }
+    }
+
+    /**
+     * Tests overwriting the jar
+     */
+    @Test
+    public void testUnsignOverwrite() throws Exception {
+        Path jar = dir.resolve("signed0.jar");
+        Assertions.assertEquals(jar.toAbsolutePath(), JarUtil.unsignJar(jar, true));
+        Assertions.assertFalse(JarUtil.hasSignatureFiles(jar.toFile()));
+        Assertions.assertFalse(JarUtil.checkSigned(jar.toFile()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.rcjava.common.cds;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import com.rcjava.common.trace.ClassLoadTrace;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests generating CDS class lists
+ * @author Ryan Cuprak
+ */
+public class ClassListGeneratorTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * a.jar (p.A, p.B), b.jar (p.B, p.C) and the signed s.jar (p.S)
+     */
+    private List<JarEditor> jars;
+
+    /**
+     * Creates the jars
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("cds");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("p/A.class", TestUtils.generateClass("p.A"));
+        a.put("p/B.class", TestUtils.generateClass("p.B"));
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put("p/B.class", TestUtils.generateClass("p.B"));
+        b.put("p/C.class", TestUtils.generateClass("p.C"));
+        Map<String,byte[]> s = new LinkedHashMap<>();
+        s.put("META-INF/SIGNER.SF", "Signature-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+        s.put("p/S.class", TestUtils.generateClass("p.S"));
+        jars = List.of(new JarEditor(TestUtils.createJar(dir.resolve("a.jar"), null, a).toFile()).load(),
+                new JarEditor(TestUtils.createJar(dir.resolve("b.jar"), null, b).toFile()).load(),
+                new JarEditor(TestUtils.createJar(dir.resolve("s.jar"), null, s).toFile()).load());
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Without a trace every class is listed except shadowed classes and classes of signed jars
+     */
+    @Test
+    public void testClasspath() throws IOException {
+        ClassList classList = new ClassListGenerator(jars).generate();
+        Assertions.assertEquals(List.of("p/A", "p/C"), classList.getClasses());
+        Assertions.assertEquals(Map.of("p/B", ClassList.Exclusion.SHADOWED, "p/S", ClassList.Exclusion.SIGNED), classList.getExcluded());
+        File listFile = dir.resolve("app.classlist").toFile();
+        classList.write(listFile);
+        Assertions.assertEquals(List.of("p/A", "p/C"), Files.readAllLines(listFile.toPath()).subList(1, 3));
+        File archive = dir.resolve("app.jsa").toFile();
+        List<String> options = classList.getDumpOptions(listFile, archive);
+        Assertions.assertEquals("-XX:SharedClassListFile=" + listFile.getAbsolutePath(), options.get(1));
+        Assertions.assertEquals(String.join(File.pathSeparator, dir.resolve("a.jar").toString(),
+                dir.resolve("b.jar").toString(), dir.resolve("s.jar").toString()), options.get(4));
+    }
+
+    /**
+     * With a trace the loaded classes are listed in load order, JDK classes included and hidden classes left out
+     */
+    @Test
+    public void testTrace() throws IOException {
+        Path trace = dir.resolve("verbose.log");
+        Files.writeString(trace, String.join("\n",
+                "[0.01s][info][class,load] java.lang.Object source: shared objects file",
+                "[0.02s][info][class,load] p.C source: file:" + dir.resolve("b.jar"),
+                "[0.03s][info][class,load] p.B source: file:" + dir.resolve("a.jar"),
+                "[0.04s][info][class,load] p.S source: file:" + dir.resolve("s.jar"),
+                "[0.05s][info][class,load] p.A$$Lambda/0x0000000800c01200 source: p.A",
+                "[0.06s][info][class,load] q.Q source: file:/elsewhere/q.jar",
+                "[0.07s][info][class,load] p.A source: file:" + dir.resolve("a.jar")), StandardCharsets.UTF_8);
+        ClassList classList = new ClassListGenerator(jars).setTrace(ClassLoadTrace.read(trace.toFile())).generate();
+        Assertions.assertEquals(List.of("java/lang/Object", "p/C", "p/A"), classList.getClasses());
+        Assertions.assertEquals(1, classList.getOutsideClasspath());
+    }
+}
@@ -0,0 +1,115 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Tests finding classes defined by more than one jar
+ * @author Ryan Cuprak
+ */
+public class ConflictAnalyzerTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Creates the directory
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("conflicts");
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Identical and divergent copies are told apart and the first jar wins
+     */
+    @Test
+    public void testConflicts() throws Exception {
+        byte[] b = TestUtils.generateClass("p.B");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("p/A.class", TestUtils.generateClass("p.A"));
+        a.put("p/B.class", b);
+        a.put("module-info.class", TestUtils.generateClass("module-info"));
+        Map<String,byte[]> c = new LinkedHashMap<>();
+        c.put("p/A.class", TestUtils.generateClass("p.A"));
+        c.put("p/B.class", Arrays.copyOf(b, b.length + 1));
+        c.put("module-info.class", TestUtils.generateClass("module-info"));
+        Map<String,byte[]> d = new LinkedHashMap<>();
+        d.put("p/B.class", b);
+        JarEditor jarA = new JarEditor(TestUtils.createJar(dir.resolve("a.jar"), null, a).toFile()).load();
+        JarEditor jarC = new JarEditor(TestUtils.createJar(dir.resolve("c.jar"), null, c).toFile()).load();
+        JarEditor jarD = new JarEditor(TestUtils.createJar(dir.resolve("d.jar"), null, d).toFile()).load();
+        ConflictReport report = new ConflictAnalyzer(List.of(jarA, jarC, jarD)).setThreads(3).analyze();
+        Assertions.assertEquals(5, report.getClassCount());
+        Assertions.assertEquals(2, report.getConflicts().size());
+        ClassConflict identical = report.getIdentical().get(0);
+        Assertions.assertEquals("p.A", identical.getClassName());
+        Assertions.assertSame(jarA, identical.getWinner());
+        ClassConflict divergent = report.getDivergent().get(0);
+        Assertions.assertEquals("p/B.class", divergent.getName());
+        Assertions.assertEquals(List.of(jarA, jarC, jarD), divergent.getJars());
+        Assertions.assertEquals(List.of(jarC), divergent.getDivergent());
+        Assertions.assertEquals("p.B: a.jar wins, differs in c.jar, same in d.jar", divergent.toString());
+        Assertions.assertEquals(1, report.getConflicts(jarD).size());
+        Assertions.assertEquals(Set.of("p/A.class", "p/B.class", "module-info.class"), jarA.getOverlaps(jarC));
+    }
+
+    /**
+     * 400,000 classes across 1,500 jars, one in ten shared by a pair of jars, are searched well within the time limit
+     */
+    @Test
+    public void testScale() {
+        int jarCount = 1500;
+        int perJar = 400_000 / jarCount;
+        List<JarEditor> jars = new ArrayList<>(jarCount);
+        List<Callable<ConflictAnalyzer.Classes>> extractors = new ArrayList<>(jarCount);
+        for(int jar = 0; jar < jarCount; jar++) {
+            jars.add(new JarEditor(new File("lib" + jar + ".jar")));
+            String[] jarNames = new String[perJar];
+            String[] jarChecksums = new String[perJar];
+            for(int i = 0; i < perJar; i++) {
+                jarNames[i] = i % 10 == 0 ? "com/example/shared" + jar / 2 + "/Class" + i + ".class"
+                        : "com/example/lib" + jar + "/Class" + i + ".class";
+                jarChecksums[i] = i % 20 == 0 ? "DIFFERENT" + jar : "SAME";
+            }
+            extractors.add(() -> new ConflictAnalyzer.Classes(jarNames, jarChecksums));
+        }
+        ConflictReport report = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> ConflictAnalyzer.find(jars, extractors, 4));
+        Assertions.assertEquals(jarCount * perJar, report.getClassCount());
+        List<ClassConflict> conflicts = report.getConflicts();
+        Assertions.assertEquals(jarCount / 2 * ((perJar + 9) / 10), conflicts.size());
+        ClassConflict first = conflicts.get(0);
+        Assertions.assertEquals("com/example/shared0/Class0.class", first.getName());
+        Assertions.assertEquals(List.of(jars.get(0), jars.get(1)), first.getJars());
+        Assertions.assertEquals(List.of(jars.get(1)), first.getDivergent());
+    }
+}
@@ -0,0 +1,89 @@
+package com.rcjava.common.conflict;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests finding split packages and planning their removal
+ * @author Ryan Cuprak
+ */
+public class SplitPackageAnalyzerTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Creates the directory
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("split");
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Writes and loads a jar containing classes
+     * @param name - jar name
+     * @param classes - class names
+     * @return loaded jar
+     */
+    private JarEditor jar(String name, String... classes) throws Exception {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        for(String className : classes) {
+            entries.put(className.replace('.', '/') + ".class", TestUtils.generateClass(className));
+        }
+        return new JarEditor(TestUtils.createJar(dir.resolve(name), null, entries).toFile()).load();
+    }
+
+    /**
+     * p is split over a, b and c with b only holding copies, r is split over c and d
+     */
+    @Test
+    public void testSplitPackages() throws Exception {
+        JarEditor a = jar("a.jar", "p.A", "p.B", "q.Q", "Root");
+        JarEditor b = jar("b.jar", "p.B");
+        JarEditor c = jar("c.jar", "p.C", "r.R");
+        JarEditor d = jar("d.jar", "r.S");
+        SplitPackageReport report = new SplitPackageAnalyzer(List.of(a, b, c, d)).setThreads(2).analyze();
+        Assertions.assertEquals(2, report.getSplitPackages().size());
+        SplitPackage p = report.getSplitPackages().get(0);
+        Assertions.assertEquals("p", p.getName());
+        Assertions.assertEquals(List.of(a, b, c), p.getJars());
+        Assertions.assertEquals(List.of(2, 1, 1), p.getClassCounts());
+        Assertions.assertSame(a, p.getOwner());
+        Assertions.assertEquals("p: a.jar [no Automatic-Module-Name] 2 classes, b.jar [no Automatic-Module-Name] 1 class, "
+                + "c.jar [no Automatic-Module-Name] 1 class", p.toString());
+        Assertions.assertEquals(List.of(a), report.getUnnamedPackageJars());
+        List<SplitPackageReport.Suggestion> suggestions = report.getSuggestions();
+        Assertions.assertEquals(3, suggestions.size());
+        Assertions.assertEquals(SplitPackageReport.Action.DROP, suggestions.get(0).action());
+        Assertions.assertSame(b, suggestions.get(0).jar());
+        Assertions.assertEquals(SplitPackageReport.Action.RELOCATE, suggestions.get(1).action());
+        Assertions.assertSame(c, suggestions.get(1).jar());
+        Assertions.assertSame(d, suggestions.get(2).jar());
+        Assertions.assertSame(c, suggestions.get(2).owner());
+        Assertions.assertEquals(List.of(List.of(a, c, d)), report.getMergeGroups());
+        Assertions.assertTrue(report.getPlan().contains("delete p from b.jar, its 1 class is identical in a.jar"));
+    }
+}
@@ -0,0 +1,187 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests the class dependency graph
+ * @author Ryan Cuprak
+ */
+public class ClassGraphTests {
+
+    /**
+     * References B and D
+     */
+    public static class A {
+        /**
+         * Reference to B
+         */
+        private B b;
+        /**
+         * Reference to D
+         */
+        private D d;
+    }
+
+    /**
+     * References C
+     */
+    public static class B {
+        /**
+         * Reference to C
+         */
+        private C c;
+    }
+
+    /**
+     * References A, closing the cycle A, B, C
+     */
+    public static class C {
+        /**
+         * Reference to A
+         */
+        private A a;
+    }
+
+    /**
+     * References nothing
+     */
+    public static class D {
+    }
+
+    /**
+     * References A from the second jar, making the jars depend on each other
+     */
+    public static class E {
+        /**
+         * Reference to A
+         */
+        private A a;
+    }
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Graph of app.jar (A, B, C) and lib.jar (D, E)
+     */
+    private ClassGraph graph;
+
+    /**
+     * Creates the jars and builds the graph
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("graph");
+        graph = ClassGraph.build(List.of(TestUtils.createScannedJar(dir.resolve("app.jar"), A.class, B.class, C.class),
+                TestUtils.createScannedJar(dir.resolve("lib.jar"), D.class, E.class)));
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+
+    /**
+     * Forward and reverse queries
+     */
+    @Test
+    public void testDependencies() {
+        Assertions.assertEquals(5, graph.size());
+        Assertions.assertEquals(5, graph.getEdgeCount());
+        Assertions.assertEquals(Set.of(B.class.getName(), C.class.getName(), D.class.getName()),
+                graph.getTransitiveDependencies(A.class.getName()));
+        Assertions.assertEquals(Set.of(), graph.getTransitiveDependencies(D.class.getName()));
+        Assertions.assertEquals(Set.of(A.class.getName(), B.class.getName(), C.class.getName(), E.class.getName()),
+                graph.getTransitiveDependents(D.class.getName()));
+        Assertions.assertEquals(2, graph.getDependents(graph.getId(A.class.getName())).length);
+    }
+
+    /**
+     * Jar dependencies and cycles at both levels
+     */
+    @Test
+    public void testCycles() {
+        List<JarEditor> jars = graph.getJars();
+        Map<JarEditor,Set<JarEditor>> dependencies = graph.getJarDependencies();
+        Assertions.assertEquals(Set.of(jars.get(1)), dependencies.get(jars.get(0)));
+        Assertions.assertEquals(Set.of(jars.get(0)), dependencies.get(jars.get(1)));
+        Assertions.assertEquals(List.of(jars), graph.getJarCycles());
+        Assertions.assertEquals(List.of(List.of(A.class.getName(), B.class.getName(), C.class.getName())), graph.getCycles());
+    }
+
+    /**
+     * lib.jar is referenced, spi.jar provides a JDK service and extra.jar is never used
+     */
+    @Test
+    public void testUnusedJars() throws Exception {
+        JarEditor app = TestUtils.createScannedJar(dir.resolve("app2.jar"), A.class, B.class, C.class);
+        JarEditor lib = TestUtils.createScannedJar(dir.resolve("lib2.jar"), D.class);
+        JarEditor extra = TestUtils.createScannedJar(dir.resolve("extra.jar"), E.class);
+        Map<String,byte[]> spiEntries = new LinkedHashMap<>();
+        spiEntries.put("META-INF/services/java.sql.Driver", "com.example.Driver\n".getBytes(StandardCharsets.UTF_8));
+        JarEditor spi = new JarEditor(TestUtils.createJar(dir.resolve("spi.jar"), null, spiEntries).toFile(), true).load();
+        JarUsageReport report = new JarUsageAnalyzer(ClassGraph.build(List.of(app, lib, extra, spi)))
+                .addApplicationJar("app2.jar").analyze();
+        Assertions.assertEquals(List.of(extra), report.getUnused());
+        Assertions.assertEquals(List.of(app, lib, spi), report.getUsed());
+        Assertions.assertEquals(List.of("app2.jar is an application jar", "app2.jar: " + A.class.getName() + " -> lib2.jar: " + D.class.getName()),
+                report.getEvidence(lib));
+        Assertions.assertEquals(List.of(), report.getEvidence(extra));
+    }
+
+    /**
+     * A directory named by a manifest Class-Path is not loaded as a jar
+     */
+    @Test
+    public void testDirectoryOnClasspath() throws Exception {
+        Files.createDirectories(dir.resolve("conf"));
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        entries.put(A.class.getName().replace('.', '/') + ".class", TestUtils.classBytes(A.class));
+        TestUtils.createJar(dir.resolve("root.jar"), "conf/ lib.jar", entries);
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("root.jar").toFile()));
+        ClassGraph rooted = ClassGraph.forClasspath(classpath, 2);
+        Assertions.assertEquals(2, rooted.getJars().size());
+        Assertions.assertEquals(Set.of(D.class.getName()), rooted.getTransitiveDependencies(A.class.getName()));
+    }
+
+    /**
+     * A single cycle through a million nodes must not overflow the stack
+     */
+    @Test
+    public void testDeepComponents() {
+        int size = 1_000_000;
+        int[] offsets = new int[size + 1];
+        int[] edges = new int[size];
+        for(int i = 0; i < size; i++) {
+            offsets[i + 1] = i + 1;
+            edges[i] = (i + 1) % size;
+        }
+        int[] component = ClassGraph.components(size, offsets, edges);
+        for(int c : component) {
+            Assertions.assertEquals(component[0], c);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import com.rcjava.common.zip.ZipArchive;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests class reachability and shrinking
+ * @author Ryan Cuprak
+ */
+public class ReachabilityTests {
+
+    /**
+     * Entry point, references Used
+     */
+    public static class Root {
+        /**
+         * Referenced class
+         */
+        private final Used used = new Used();
+    }
+
+    /**
+     * Referenced from Root
+     */
+    public static class Used {
+    }
+
+    /**
+     * Not referenced by anything
+     */
+    public static class Unused {
+    }
+
+    /**
+     * Service provider
+     */
+    public static class Provider {
+    }
+
+    /**
+     * Annotated root
+     */
+    @Deprecated
+    public static class Legacy {
+    }
+
+    /**
+     * Release specific copy of Used, references OnlyFromJava11
+     */
+    public static class Java11Used {
+        /**
+         * Class referenced only by the release specific copy
+         */
+        private final OnlyFromJava11 helper = new OnlyFromJava11();
+    }
+
+    /**
+     * Referenced from the release specific copy of Used only
+     */
+    public static class OnlyFromJava11 {
+    }
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * app.jar references lib.jar, lib.jar holds a shadowed copy of Used
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("reach");
+        Map<String,byte[]> app = new LinkedHashMap<>();
+        for(Class<?> clazz : List.of(Root.class, Used.class, Unused.class)) {
+            app.put(entry(clazz), TestUtils.classBytes(clazz));
+        }
+        TestUtils.createJar(dir.resolve("app.jar"), "lib.jar", app);
+        Map<String,byte[]> lib = new LinkedHashMap<>();
+        for(Class<?> clazz : List.of(Used.class, Provider.class, Legacy.class)) {
+            lib.put(entry(clazz), TestUtils.classBytes(clazz));
+        }
+        lib.put("META-INF/services/com.rcjava.Spi", ("# provider\n" + Provider.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("lib.jar"), null, lib);
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Returns the entry name of a class
+     * @param clazz - class
+     * @return entry name
+     */
+    private static String entry(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    /**
+     * Analyzes the classpath from an explicit root, a service provider and an annotation
+     * @return result
+     */
+    private ReachabilityResult analyze() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("app.jar").toFile()).load());
+        return ReachabilityAnalyzer.forClasspath(classpath, 2)
+                .addRoot(Root.class.getName())
+                .addRoot("com.missing.*")
+                .addRootAnnotation("java.lang.Deprecated")
+                .analyze();
+    }
+
+    /**
+     * Checks the reachable classes and the removable entries of each jar
+     */
+    @Test
+    public void testAnalyze() throws Exception {
+        ReachabilityResult result = analyze();
+        Assertions.assertEquals(5, result.getGraph().size());
+        Assertions.assertTrue(result.isReachable(Root.class.getName()));
+        Assertions.assertTrue(result.isReachable(Used.class.getName()));
+        Assertions.assertTrue(result.isReachable(Provider.class.getName()));
+        Assertions.assertTrue(result.isReachable(Legacy.class.getName()));
+        Assertions.assertFalse(result.isReachable(Unused.class.getName()));
+        Assertions.assertEquals(List.of("com.missing.*"), result.getUnresolvedRoots());
+        Assertions.assertEquals(List.of(entry(Unused.class)), result.getRemovable(0));
+        Assertions.assertEquals(List.of(entry(Used.class)), result.getRemovable(1));
+    }
+
+    /**
+     * Shrunk jars must lose only their removable classes
+     */
+    @Test
+    public void testShrink() throws Exception {
+        File out = dir.resolve("out").toFile();
+        Map<File,File> shrunk = analyze().shrink(out);
+        Assertions.assertEquals(2, shrunk.size());
+        try(ZipArchive archive = new ZipArchive(new File(out, "app.jar"))) {
+            Assertions.assertNotNull(archive.getEntry(entry(Root.class)));
+            Assertions.assertNull(archive.getEntry(entry(Unused.class)));
+            Assertions.assertNotNull(archive.getManifestEntry());
+        }
+        try(ZipArchive archive = new ZipArchive(new File(out, "lib.jar"))) {
+            Assertions.assertNull(archive.getEntry(entry(Used.class)));
+            Assertions.assertNotNull(archive.getEntry("META-INF/services/com.rcjava.Spi"));
+        }
+    }
+
+    /**
+     * Release specific copies follow their base class, module-info and package-info are kept
+     */
+    @Test
+    public void testMultiRelease() throws Exception {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        for(Class<?> clazz : List.of(Root.class, Used.class, Unused.class, OnlyFromJava11.class)) {
+            entries.put(entry(clazz), TestUtils.classBytes(clazz));
+        }
+        entries.put("META-INF/versions/11/" + entry(Used.class), TestUtils.classBytes(Java11Used.class));
+        entries.put("META-INF/versions/11/" + entry(Unused.class), TestUtils.classBytes(Unused.class));
+        entries.put("com/rcjava/common/graph/package-info.class", TestUtils.generateClass("com.rcjava.common.graph.package-info"));
+        entries.put("module-info.class", TestUtils.generateClass("module-info"));
+        JarEditor jar = new JarEditor(TestUtils.createJar(dir.resolve("mr.jar"), null, entries).toFile(), true).load();
+        ReachabilityResult result = new ReachabilityAnalyzer(List.of(jar)).addRoot(Root.class.getName()).analyze();
+        Assertions.assertTrue(result.isReachable(OnlyFromJava11.class.getName()));
+        Assertions.assertEquals(List.of("META-INF/versions/11/" + entry(Unused.class), entry(Unused.class)), result.getRemovable(0));
+        File out = dir.resolve("out").toFile();
+        result.shrink(out);
+        try(ZipArchive archive = new ZipArchive(new File(out, "mr.jar"))) {
+            Assertions.assertNotNull(archive.getEntry("META-INF/versions/11/" + entry(Used.class)));
+            Assertions.assertNotNull(archive.getEntry("com/rcjava/common/graph/package-info.class"));
+            Assertions.assertNull(archive.getEntry("META-INF/versions/11/" + entry(Unused.class)));
+        }
+    }
+}
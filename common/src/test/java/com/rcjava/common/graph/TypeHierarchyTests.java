@@ -0,0 +1,120 @@
+package com.rcjava.common.graph;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the type hierarchy
+ * @author Ryan Cuprak
+ */
+public class TypeHierarchyTests {
+
+    /**
+     * Interface extending a JDK interface
+     */
+    public interface Task extends Runnable {
+    }
+
+    /**
+     * Base implementation
+     */
+    public abstract static class Base implements Task {
+    }
+
+    /**
+     * Concrete implementation in the second jar
+     */
+    public static class Impl extends Base implements Comparable<Impl> {
+        /**
+         * Does nothing
+         */
+        @Override
+        public void run() {
+        }
+
+        /**
+         * Orders nothing
+         * @param other - other instance
+         * @return 0
+         */
+        @Override
+        public int compareTo(Impl other) {
+            return 0;
+        }
+    }
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Hierarchy of api.jar (Task, Base) and impl.jar (Impl)
+     */
+    private TypeHierarchy hierarchy;
+
+    /**
+     * Creates the jars and builds the hierarchy
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("hierarchy");
+        hierarchy = TypeHierarchy.build(List.of(TestUtils.createScannedJar(dir.resolve("api.jar"), Task.class, Base.class),
+                TestUtils.createScannedJar(dir.resolve("impl.jar"), Impl.class)));
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+
+    /**
+     * Supertypes are recorded when scanning
+     */
+    @Test
+    public void testClassInfo() throws IOException {
+        JarEditor jar = TestUtils.createScannedJar(dir.resolve("check.jar"), Impl.class);
+        String entry = Impl.class.getName().replace('.', '/') + ".class";
+        Assertions.assertEquals(Base.class.getName(), jar.getClassInfo(entry).getSuperclass());
+        Assertions.assertEquals(List.of(Comparable.class.getName()), jar.getClassInfo(entry).getInterfaces());
+        Assertions.assertNull(new JarEditor(jar.getJarFile()).load().getClassInfo(entry).getInterfaces());
+    }
+
+    /**
+     * Transitive queries in both directions, JDK supertypes included
+     */
+    @Test
+    public void testQueries() {
+        Assertions.assertEquals(3 + 3, hierarchy.size());
+        Assertions.assertEquals(Set.of(Task.class.getName(), Base.class.getName(), Impl.class.getName()),
+                hierarchy.getTransitiveSubtypes(Runnable.class.getName()));
+        Assertions.assertEquals(Set.of(Base.class.getName(), Impl.class.getName()), hierarchy.getTransitiveSubtypes(Task.class.getName()));
+        Assertions.assertEquals(Set.of(Base.class.getName(), Task.class.getName(), Runnable.class.getName(),
+                Object.class.getName(), Comparable.class.getName()), hierarchy.getTransitiveSupertypes(Impl.class.getName()));
+        int impl = hierarchy.getId(Impl.class.getName());
+        int runnable = hierarchy.getId(Runnable.class.getName());
+        Assertions.assertTrue(hierarchy.isSubtype(impl, runnable));
+        Assertions.assertFalse(hierarchy.isSubtype(runnable, impl));
+        Assertions.assertFalse(hierarchy.isOnClasspath(runnable));
+        Assertions.assertEquals("impl.jar", hierarchy.getJar(impl).getJarName());
+        Assertions.assertArrayEquals(new int[] {hierarchy.getId(Base.class.getName()), hierarchy.getId(Comparable.class.getName())},
+                hierarchy.getSupertypes(impl));
+        Assertions.assertEquals(2, hierarchy.getSubtypes(hierarchy.getId(Object.class.getName())).length);
+        Assertions.assertEquals(Set.of(), hierarchy.getTransitiveSubtypes("p.Unknown"));
+    }
+}
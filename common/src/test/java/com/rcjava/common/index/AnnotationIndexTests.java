@@ -0,0 +1,175 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.JarMerger;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests the annotation index
+ * @author Ryan Cuprak
+ */
+public class AnnotationIndexTests {
+
+    /**
+     * Annotation with class file retention
+     */
+    @interface Marker {
+    }
+
+    /**
+     * Class annotated at every level
+     */
+    @Deprecated
+    public static class Annotated {
+
+        /**
+         * Annotated field
+         */
+        @Deprecated
+        public int count;
+
+        /**
+         * Annotated method
+         */
+        @Marker
+        public void run() {
+        }
+    }
+
+    /**
+     * Class whose method only is annotated
+     */
+    public static class Plain {
+
+        /**
+         * Annotated method
+         */
+        @Deprecated
+        public void run() {
+        }
+    }
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * a.jar references b.jar, a.jar holds Annotated, b.jar holds Plain
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("annotations");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put(entry(Annotated.class), TestUtils.classBytes(Annotated.class));
+        TestUtils.createJar(dir.resolve("a.jar"), "b.jar", a);
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put(entry(Plain.class), TestUtils.classBytes(Plain.class));
+        TestUtils.createJar(dir.resolve("b.jar"), null, b);
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Returns the entry name of a class
+     * @param clazz - class
+     * @return entry name
+     */
+    private static String entry(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    /**
+     * Class, method and field annotations are recorded only when indexing is on
+     */
+    @Test
+    public void testLoad() throws IOException {
+        Assertions.assertNull(new JarEditor(dir.resolve("a.jar").toFile()).load().getAnnotationIndex());
+        AnnotationIndex index = new JarEditor(dir.resolve("a.jar").toFile()).setAnnotationIndexing(true).load().getAnnotationIndex();
+        Assertions.assertEquals(List.of("a.jar"), index.getJars());
+        Assertions.assertEquals(Set.of(Deprecated.class.getName(), Marker.class.getName()), index.getAnnotations());
+        Assertions.assertEquals(Set.of(Annotated.class.getName()), index.getAnnotatedClasses(Deprecated.class.getName()));
+        Assertions.assertEquals(List.of(new AnnotationIndex.Target(Marker.class.getName(), AnnotationIndex.Kind.METHOD,
+                Annotated.class.getName(), "run()V", 0)), index.getTargets(Marker.class.getName()));
+        Assertions.assertEquals(Set.of(Annotated.class.getName()),
+                index.getDeclaringClasses(Deprecated.class.getName(), AnnotationIndex.Kind.FIELD));
+        Assertions.assertEquals(3, index.size());
+    }
+
+    /**
+     * The index survives serialization and garbage is rejected
+     */
+    @Test
+    public void testBytes() throws IOException {
+        AnnotationIndex index = new JarEditor(dir.resolve("a.jar").toFile()).setAnnotationIndexing(true).load().getAnnotationIndex();
+        AnnotationIndex read = AnnotationIndex.fromByteArray(index.toByteArray());
+        Assertions.assertEquals(index.getJars(), read.getJars());
+        Assertions.assertEquals(index.getTargets(), read.getTargets());
+        Assertions.assertThrows(IOException.class, () -> AnnotationIndex.fromByteArray(new byte[8]));
+        byte[] bytes = index.toByteArray();
+        Assertions.assertThrows(IOException.class, () -> AnnotationIndex.fromByteArray(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    /**
+     * A shipped index is used for the classpath and merged in classpath order
+     */
+    @Test
+    public void testClasspath() throws Exception {
+        JarEditor b = new JarEditor(dir.resolve("b.jar").toFile()).setAnnotationIndexing(true).load();
+        AnnotationIndex.write(b, b.getJarFile());
+        Assertions.assertEquals(b.getAnnotationIndex().getTargets(), AnnotationIndex.read(b.getJarFile()).getTargets());
+        Assertions.assertNull(AnnotationIndex.read(dir.resolve("a.jar").toFile()));
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        AnnotationIndex index = classpath.getAnnotationIndex();
+        Assertions.assertEquals(List.of("a.jar", "b.jar"), index.getJars());
+        List<AnnotationIndex.Target> targets = index.getTargets(Deprecated.class.getName());
+        Assertions.assertEquals(3, targets.size());
+        Assertions.assertEquals(List.of(0, 0, 1), targets.stream().map(AnnotationIndex.Target::jar).toList());
+        Assertions.assertEquals(Set.of(Plain.class.getName()), index.getDeclaringClasses(Deprecated.class.getName(), AnnotationIndex.Kind.METHOD));
+    }
+
+    /**
+     * A shipped index no longer matching the classes of its jar is ignored and the jar is scanned again
+     */
+    @Test
+    public void testStale() throws Exception {
+        JarEditor a = new JarEditor(dir.resolve("a.jar").toFile()).setAnnotationIndexing(true).load();
+        AnnotationIndex.write(a, a.getJarFile());
+        JarEditor b = new JarEditor(dir.resolve("b.jar").toFile()).setAnnotationIndexing(true).load();
+        AnnotationIndex.write(b, b.getJarFile());
+        File merged = dir.resolve("merged.jar").toFile();
+        new JarMerger(List.of(a.getJarFile(), b.getJarFile())).merge(merged);
+        Assertions.assertNull(AnnotationIndex.read(merged));
+        File copied = dir.resolve("copied.jar").toFile();
+        new JarEditor(b.getJarFile()).load().openSession().putEntry(AnnotationIndex.ENTRY, a.getAnnotationIndex().toByteArray()).commit(copied);
+        Assertions.assertNull(AnnotationIndex.read(copied));
+        AnnotationIndex index = AnnotationIndex.forClasspath(List.of(new JarEditor(merged).load(), new JarEditor(copied).load()), 2);
+        Assertions.assertEquals(Set.of(Annotated.class.getName()), index.getAnnotatedClasses(Deprecated.class.getName()));
+        Assertions.assertEquals(Set.of(Plain.class.getName()), index.getDeclaringClasses(Deprecated.class.getName(), AnnotationIndex.Kind.METHOD));
+        Assertions.assertEquals(List.of(0, 0, 0, 1), index.getTargets(Deprecated.class.getName()).stream().map(AnnotationIndex.Target::jar).toList());
+        Assertions.assertEquals(2, index.getFingerprints().size());
+    }
+}
@@ -0,0 +1,42 @@
+package com.rcjava.common.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the name filter
+ * @author Ryan Cuprak
+ */
+public class BloomFilterTests {
+
+    /**
+     * Added names are always found, few other names are and the filter survives serialization and in place probing
+     */
+    @Test
+    public void testFilter() {
+        List<String> names = new ArrayList<>();
+        for(int i = 0; i < 20000; i++) {
+            names.add("com/example/p" + (i % 97) + "/Class" + i + ".class");
+        }
+        BloomFilter filter = BloomFilter.of(names);
+        BloomFilter restored = BloomFilter.fromByteArray(filter.toByteArray());
+        ByteBuffer mapped = ByteBuffer.allocate(8 + filter.toByteArray().length).position(8).put(filter.toByteArray());
+        int falsePositives = 0;
+        for(int i = 0; i < names.size(); i++) {
+            String missing = "com/example/p" + (i % 97) + "/Missing" + i + ".class";
+            Assertions.assertTrue(filter.mightContain(names.get(i)));
+            Assertions.assertTrue(restored.mightContain(names.get(i)));
+            Assertions.assertTrue(BloomFilter.mightContain(mapped, 8, BloomFilter.hash(names.get(i))));
+            Assertions.assertEquals(filter.mightContain(missing), BloomFilter.mightContain(mapped, 8, BloomFilter.hash(missing)));
+            if(filter.mightContain(missing)) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertTrue(falsePositives < names.size() * 3 / 100, falsePositives + " false positives");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BloomFilter.fromByteArray(new byte[5]));
+    }
+}
@@ -0,0 +1,113 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the classpath index
+ * @author Ryan Cuprak
+ */
+public class ClasspathIndexTests {
+
+    /**
+     * Directory holding the jars and the index
+     */
+    private Path dir;
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private List<JarEditor> jars;
+
+    /**
+     * Index file
+     */
+    private File indexFile;
+
+    /**
+     * a.jar references b.jar, both define p2.B and contain resources whose names sort differently as UTF-16 and UTF-8
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("cpindex");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("p1/A.class", TestUtils.generateClass("p1.A"));
+        a.put("p2/B.class", TestUtils.generateClass("p2.B"));
+        a.put("p1/Ａ.txt", "a".getBytes(StandardCharsets.UTF_8));
+        a.put("p1/😀.txt", "a".getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("a.jar"), "b.jar", a);
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put("p2/B.class", TestUtils.generateClass("p2.B"));
+        b.put("p2/C.class", TestUtils.generateClass("p2.C"));
+        TestUtils.createJar(dir.resolve("b.jar"), null, b);
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        jars = classpath.analyze().getJars();
+        indexFile = dir.resolve("classpath.cpi").toFile();
+        classpath.writeIndex(indexFile);
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Lookups answer what the loaded jars answer
+     */
+    @Test
+    public void testLookups() throws IOException {
+        ClasspathIndex index = ClasspathIndex.open(indexFile);
+        Assertions.assertEquals(2, index.getJarCount());
+        Assertions.assertEquals(List.of(dir.resolve("a.jar").toFile().getAbsoluteFile(), dir.resolve("b.jar").toFile().getAbsoluteFile()),
+                index.getJars());
+        Assertions.assertEquals(index.getJars(), index.findClass("p2.B"));
+        Assertions.assertArrayEquals(new int[] {1}, index.findEntry("p2/C.class"));
+        Assertions.assertArrayEquals(new int[] {0}, index.findEntry("p1/😀.txt"));
+        Assertions.assertArrayEquals(new int[] {0}, index.findEntry("p1/Ａ.txt"));
+        Assertions.assertArrayEquals(new int[0], index.findEntry("p1/Missing.class"));
+        for(int i = 0; i < 1000; i++) {
+            Assertions.assertArrayEquals(new int[0], index.findEntry("p" + i + "/Missing.class"));
+        }
+        Assertions.assertEquals(jars.get(1).getClassInfo("p2/C.class").getChecksum(), index.getChecksum("p2/C.class", 1));
+        Assertions.assertEquals(jars.get(0).getResourceChecksum("p1/Ａ.txt"), index.getChecksum("p1/Ａ.txt", 0));
+        Assertions.assertNull(index.getChecksum("p2/C.class", 0));
+        Assertions.assertArrayEquals(new int[] {0, 1}, index.getPackageJars("p2"));
+        Assertions.assertEquals(jars.get(0).getVersion(), index.getVersion(0));
+        Assertions.assertEquals(jars.get(1).fingerPrint(), index.getFingerprint(1));
+        Assertions.assertNull(index.getAutomaticModuleName(0));
+        Assertions.assertFalse(index.isSigned(0));
+        Assertions.assertTrue(index.getNameFilter().mightContain("p2/C.class"));
+        Assertions.assertTrue(index.getNameFilter().mightContain("p1/Ａ.txt"));
+        Assertions.assertFalse(index.isStale(1));
+        Assertions.assertTrue(dir.resolve("b.jar").toFile().setLastModified(0));
+        Assertions.assertTrue(index.isStale(1));
+    }
+
+    /**
+     * A file that isn't an index is rejected
+     */
+    @Test
+    public void testNotAnIndex() throws IOException {
+        Files.write(indexFile.toPath(), new byte[64]);
+        Assertions.assertThrows(IOException.class, () -> ClasspathIndex.open(indexFile));
+    }
+}
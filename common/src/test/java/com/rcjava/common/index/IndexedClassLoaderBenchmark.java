@@ -0,0 +1,84 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares class loading through IndexedClassLoader with URLClassLoader on a generated classpath. Not run by
+ * the build, run it with the test classpath:
+ * java -cp ... com.rcjava.common.index.IndexedClassLoaderBenchmark [jars] [classes per jar]
+ * @author Ryan Cuprak
+ */
+public class IndexedClassLoaderBenchmark {
+
+    /**
+     * Generates the classpath and times both class loaders
+     * @param args - number of jars (1500) and classes per jar (4)
+     */
+    public static void main(String[] args) throws Exception {
+        int jarCount = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+        int classCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Path dir = Files.createTempDirectory("benchmark");
+        try {
+            List<JarEditor> jars = new ArrayList<>(jarCount);
+            List<String> classes = new ArrayList<>(jarCount * classCount);
+            URL[] urls = new URL[jarCount];
+            for(int i = 0; i < jarCount; i++) {
+                Map<String,byte[]> entries = new LinkedHashMap<>();
+                for(int j = 0; j < classCount; j++) {
+                    String name = "bench.p" + i + ".C" + j;
+                    entries.put(name.replace('.', '/') + ".class", TestUtils.generateClass(name));
+                    classes.add(name);
+                }
+                File jar = TestUtils.createJar(dir.resolve("lib" + i + ".jar"), null, entries).toFile();
+                jars.add(new JarEditor(jar).load());
+                urls[i] = jar.toURI().toURL();
+            }
+            File indexFile = dir.resolve("classpath.idx").toFile();
+            long start = System.nanoTime();
+            PackageIndex.write(jars, indexFile);
+            System.out.printf("index written in %d ms, %d bytes%n", (System.nanoTime() - start) / 1_000_000, indexFile.length());
+            for(int round = 1; round <= 3; round++) {
+                start = System.nanoTime();
+                try(URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+                    loadAll(loader, classes);
+                }
+                long url = System.nanoTime() - start;
+                start = System.nanoTime();
+                try(IndexedClassLoader loader = new IndexedClassLoader(PackageIndex.open(indexFile), ClassLoader.getPlatformClassLoader())) {
+                    loadAll(loader, classes);
+                }
+                long indexed = System.nanoTime() - start;
+                System.out.printf("round %d: %d classes from %d jars, URLClassLoader %d ms, IndexedClassLoader %d ms%n",
+                        round, classes.size(), jarCount, url / 1_000_000, indexed / 1_000_000);
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    /**
+     * Loads every class followed by a missing resource per class, misses are the common case
+     * @param loader - class loader
+     * @param classes - class names
+     */
+    private static void loadAll(ClassLoader loader, List<String> classes) throws ClassNotFoundException {
+        for(String name : classes) {
+            loader.loadClass(name);
+            if(loader.getResource(name.replace('.', '/') + ".properties") != null) {
+                throw new IllegalStateException(name);
+            }
+        }
+    }
+}
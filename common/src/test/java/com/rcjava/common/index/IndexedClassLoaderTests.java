@@ -0,0 +1,121 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import com.rcjava.common.zip.ZipArchive;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the package index and the class loader using it
+ * @author Ryan Cuprak
+ */
+public class IndexedClassLoaderTests {
+
+    /**
+     * Directory holding the jars and the index
+     */
+    private Path dir;
+
+    /**
+     * Index file
+     */
+    private File indexFile;
+
+    /**
+     * a.jar references b.jar, package p2 is split across both and both contain p1/r.txt
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("index");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("p1/A.class", TestUtils.generateClass("p1.A"));
+        a.put("p2/B.class", TestUtils.generateClass("p2.B"));
+        a.put("p1/r.txt", "a".getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("a.jar"), "b.jar", a);
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put("p2/C.class", TestUtils.generateClass("p2.C"));
+        b.put("p1/r.txt", "b".getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("b.jar"), null, b);
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        indexFile = dir.resolve("classpath.idx").toFile();
+        classpath.writePackageIndex(indexFile);
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Package lookups return the jars in classpath order
+     */
+    @Test
+    public void testIndex() throws IOException {
+        PackageIndex index = PackageIndex.open(indexFile);
+        Assertions.assertEquals(2, index.getJars().size());
+        Assertions.assertArrayEquals(new int[] {0, 1}, index.getJarIndexes("p2"));
+        Assertions.assertArrayEquals(new int[] {0, 1}, index.getJarIndexes("p1"));
+        Assertions.assertEquals(List.of(dir.resolve("b.jar").toFile().getAbsoluteFile()), index.getJars("META-INF").subList(1, 2));
+        Assertions.assertArrayEquals(new int[0], index.getJarIndexes("p3"));
+    }
+
+    /**
+     * The JDK jar index written into the root jar lists both jars, and editing again replaces it
+     */
+    @Test
+    public void testIndexList() throws Exception {
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        List<JarEditor> jars = classpath.analyze().getJars();
+        File root = jars.get(0).getJarFile();
+        JarIndexList.write(jars.get(0), jars, root);
+        JarIndexList.write(new JarEditor(root).load(), jars, root);
+        try(ZipArchive archive = new ZipArchive(root)) {
+            Assertions.assertEquals("JarIndex-Version: 1.0\n\na.jar\np1\np2\n\nb.jar\np1\np2\n\n",
+                    new String(archive.readContent(archive.getEntry(JarIndexList.NAME)), StandardCharsets.UTF_8));
+            Assertions.assertEquals(1, archive.getEntries().stream().filter(e -> e.getName().equals(JarIndexList.NAME)).count());
+        }
+    }
+
+    /**
+     * Classes and resources are found in the right jar, split packages included
+     */
+    @Test
+    public void testLoad() throws Exception {
+        try(IndexedClassLoader loader = new IndexedClassLoader(PackageIndex.open(indexFile), ClassLoader.getPlatformClassLoader())) {
+            Class<?> c = loader.loadClass("p2.C");
+            Assertions.assertSame(loader, c.getClassLoader());
+            Assertions.assertSame(c, loader.loadClass("p2.C"));
+            Assertions.assertEquals("p2", c.getPackageName());
+            Assertions.assertTrue(c.getProtectionDomain().getCodeSource().getLocation().toString().endsWith("b.jar"));
+            Assertions.assertNotNull(loader.loadClass("p1.A").getConstructor().newInstance());
+            Assertions.assertThrows(ClassNotFoundException.class, () -> loader.loadClass("p1.Missing"));
+            URL resource = loader.getResource("p1/r.txt");
+            try(InputStream is = resource.openStream()) {
+                Assertions.assertEquals("a", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Assertions.assertEquals(2, Collections.list(loader.getResources("p1/r.txt")).size());
+        }
+    }
+}
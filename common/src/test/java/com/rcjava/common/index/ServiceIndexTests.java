@@ -0,0 +1,104 @@
+package com.rcjava.common.index;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the service provider index
+ * @author Ryan Cuprak
+ */
+public class ServiceIndexTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Loaded jars in classpath order
+     */
+    private List<JarEditor> jars;
+
+    /**
+     * a.jar references b.jar, both provide p.Spi, b.jar names a provider it doesn't contain and a JDK class
+     */
+    @BeforeEach
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("services");
+        Map<String,byte[]> a = new LinkedHashMap<>();
+        a.put("p/A.class", TestUtils.generateClass("p.A"));
+        a.put("META-INF/services/p.Spi", "# providers\np.A\n\np.B # second\n".getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("a.jar"), "b.jar", a);
+        Map<String,byte[]> b = new LinkedHashMap<>();
+        b.put("p/B.class", TestUtils.generateClass("p.B"));
+        b.put("META-INF/services/p.Spi", "p.Missing\np.A\n".getBytes(StandardCharsets.UTF_8));
+        b.put("META-INF/services/java.nio.file.spi.FileSystemProvider", "jdk.nio.zipfs.ZipFileSystemProvider\n".getBytes(StandardCharsets.UTF_8));
+        TestUtils.createJar(dir.resolve("b.jar"), null, b);
+        Classpath classpath = new Classpath(dir.toFile());
+        classpath.addJar(new JarEditor(dir.resolve("a.jar").toFile()));
+        jars = classpath.analyze().getJars();
+    }
+
+    /**
+     * Removes the jars
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Service files are parsed without comments and blank lines
+     */
+    @Test
+    public void testRead() throws IOException {
+        Assertions.assertEquals(Map.of("p.Spi", List.of("p.A", "p.B")), ServiceIndex.read(jars.get(0).getJarFile()));
+    }
+
+    /**
+     * Providers come in classpath order, each once, and the missing one is flagged
+     */
+    @Test
+    public void testBuild() throws Exception {
+        ServiceIndex index = ServiceIndex.build(jars, 2);
+        Assertions.assertEquals(List.of("java.nio.file.spi.FileSystemProvider", "p.Spi"), List.copyOf(index.getServices()));
+        Assertions.assertEquals(List.of("p.A", "p.B", "p.Missing"), index.getProviders("p.Spi"));
+        Assertions.assertEquals(4, index.getDeclarations("p.Spi").size());
+        Assertions.assertEquals(List.of(), index.getProviders("p.Other"));
+        Assertions.assertEquals(1, index.getMissing().size());
+        ServiceIndex.Provider missing = index.getMissing().get(0);
+        Assertions.assertEquals("p.Missing", missing.className());
+        Assertions.assertSame(jars.get(1), missing.jar());
+        Assertions.assertTrue(index.toString().contains("Missing provider: p.Missing of p.Spi declared in b.jar"));
+    }
+
+    /**
+     * The classpath index answers the same provider lookups
+     */
+    @Test
+    public void testClasspathIndex() throws Exception {
+        Path indexFile = dir.resolve("classpath.cpi");
+        ClasspathIndex.write(jars, ServiceIndex.build(jars, 1), indexFile.toFile());
+        ClasspathIndex index = ClasspathIndex.open(indexFile.toFile());
+        Assertions.assertEquals(2, index.getServiceCount());
+        Assertions.assertEquals(List.of("java.nio.file.spi.FileSystemProvider", "p.Spi"), index.getServices());
+        Assertions.assertEquals(List.of("p.A", "p.B", "p.Missing"), index.getServiceProviders("p.Spi"));
+        Assertions.assertEquals(List.of("p.Missing"), index.getMissingProviders("p.Spi"));
+        Assertions.assertEquals(List.of(), index.getMissingProviders("java.nio.file.spi.FileSystemProvider"));
+        Assertions.assertEquals(List.of(), index.getServiceProviders("p.Other"));
+    }
+}
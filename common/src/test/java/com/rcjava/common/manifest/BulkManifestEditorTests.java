@@ -0,0 +1,99 @@
+package com.rcjava.common.manifest;
+
+import com.rcjava.common.ManifestEditor;
+import com.rcjava.common.TestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests editing many manifests at once
+ * @author Ryan Cuprak
+ */
+public class BulkManifestEditorTests {
+
+    /**
+     * Directory holding the jars
+     */
+    private Path dir;
+
+    /**
+     * Creates a directory with jars, only some of which reference old.jar
+     * @throws IOException - thrown for errors
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bulk");
+        Files.createDirectories(dir.resolve("nested"));
+        TestUtils.createJar(dir.resolve("a.jar"), "old.jar keep.jar", Map.of());
+        TestUtils.createJar(dir.resolve("b.jar"), "keep.jar", Map.of());
+        TestUtils.createJar(dir.resolve("nested/c.jar"), "old.jar", Map.of());
+        Files.writeString(dir.resolve("nested/not-a-jar.txt"), "text");
+    }
+
+    /**
+     * Removes the jars
+     * @throws IOException - thrown for errors
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Verifies only jars that reference the removed jar are changed
+     * @throws Exception - thrown for errors
+     */
+    @Test
+    public void testReplace() throws Exception {
+        List<File> jars = BulkManifestEditor.collectJars(List.of(dir.toFile()));
+        Assertions.assertEquals(3, jars.size());
+        ManifestEditScript script = ManifestEditScript.parse(List.of("# swap old for new", "remove old.jar", "add new.jar"));
+        BulkManifestResult result = new BulkManifestEditor(script, 2).apply(jars);
+        Assertions.assertFalse(result.hasFailures());
+        Assertions.assertEquals(3, result.getChanged().size());
+        ManifestEditor reloaded = ManifestEditor.createManifestOnlyEditor(dir.resolve("a.jar").toFile());
+        Assertions.assertEquals("keep.jar", reloaded.getClasspathEntries().get(0).getJarName());
+        Assertions.assertEquals("new.jar", reloaded.getClasspathEntries().get(1).getJarName());
+    }
+
+    /**
+     * Verifies unchanged jars are not rewritten and failures are reported
+     * @throws Exception - thrown for errors
+     */
+    @Test
+    public void testUnchangedAndFailed() throws Exception {
+        Path bogus = dir.resolve("bogus.jar");
+        Files.writeString(bogus, "not a jar");
+        long modified = dir.resolve("b.jar").toFile().lastModified();
+        ManifestEditScript script = new ManifestEditScript().removeJars(List.of("old.jar"));
+        BulkManifestResult result = new BulkManifestEditor(script, 4).apply(BulkManifestEditor.collectJars(List.of(dir.toFile())));
+        Assertions.assertEquals(2, result.getChanged().size());
+        Assertions.assertEquals(List.of(dir.resolve("b.jar").toFile()), result.getUnchanged());
+        Assertions.assertEquals(modified, dir.resolve("b.jar").toFile().lastModified());
+        Assertions.assertTrue(result.getFailed().containsKey(bogus.toFile()));
+    }
+
+    /**
+     * Verifies attributes can be set
+     * @throws Exception - thrown for errors
+     */
+    @Test
+    public void testSetAttribute() throws Exception {
+        ManifestEditScript script = ManifestEditScript.parse(List.of("set Implementation-Version=2.0", "clear"));
+        BulkManifestResult result = new BulkManifestEditor(script, 1).apply(List.of(dir.resolve("b.jar").toFile()));
+        Assertions.assertEquals(1, result.getChanged().size());
+        ManifestEditor reloaded = ManifestEditor.createManifestOnlyEditor(dir.resolve("b.jar").toFile());
+        Assertions.assertEquals("2.0", reloaded.getEntries().getValue("Implementation-Version"));
+        Assertions.assertTrue(reloaded.getClasspathEntries().isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.rcjava.common.manifest;
+
+import com.rcjava.common.JarUtil;
+import com.rcjava.common.ManifestEditor;
+import com.rcjava.common.TestUtils;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests the manifest-only editing path
+ * @author Ryan Cuprak
+ */
+public class ManifestOnlyEditorTests {
+
+    /**
+     * Jar file used in the test
+     */
+    private Path jarFile;
+
+    /**
+     * Creates a jar with a classpath, a resource and a license in META-INF
+     * @throws IOException - thrown for errors
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        entries.put("META-INF/LICENSE.md", "License".getBytes(StandardCharsets.UTF_8));
+        entries.put("com/rcjava/scratch/data.txt", "some data some data some data".getBytes(StandardCharsets.UTF_8));
+        jarFile = TestUtils.createJar("A.jar lib/B.jar", entries);
+    }
+
+    /**
+     * Deletes the temp files
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(jarFile);
+    }
+
+    /**
+     * Verifies the manifest and META-INF listing are read
+     * @throws IOException - thrown for errors
+     */
+    @Test
+    public void verifyDump() throws IOException {
+        ManifestEditor me = ManifestEditor.createManifestOnlyEditor(jarFile.toFile());
+        Assertions.assertEquals(2, me.getClasspathEntries().size());
+        Assertions.assertEquals("B.jar", me.getClasspathEntries().get(1).getJarName());
+        Assertions.assertEquals(2, me.getResources().size());
+        for(MetaInfResource resource : me.getResources()) {
+            if(resource.getName().equals("LICENSE.md")) {
+                Assertions.assertEquals("License", resource.getContent(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    /**
+     * Verifies that an unchanged manifest regenerates to the same content and that other entries are raw copied
+     * @throws IOException - thrown for errors
+     */
+    @Test
+    public void verifyRegenerate() throws IOException {
+        Path copy = Files.createTempFile("copy", "jar");
+        try {
+            ManifestEditor.createManifestOnlyEditor(jarFile.toFile()).regenerate(copy.toFile());
+            Assertions.assertTrue(JarUtil.compare(jarFile.toFile(), copy.toFile()));
+            try (ZipArchive original = new ZipArchive(jarFile.toFile());
+                 ZipArchive rewritten = new ZipArchive(copy.toFile())) {
+                ZipEntryRecord before = original.getEntry("com/rcjava/scratch/data.txt");
+                ZipEntryRecord after = rewritten.getEntry("com/rcjava/scratch/data.txt");
+                Assertions.assertArrayEquals(original.readRaw(before), rewritten.readRaw(after));
+            }
+        } finally {
+            Files.delete(copy);
+        }
+    }
+
+    /**
+     * Verifies editing the classpath in place
+     * @throws Exception - thrown for errors
+     */
+    @Test
+    public void verifyOverwrite() throws Exception {
+        ManifestEditor me = ManifestEditor.createManifestOnlyEditor(jarFile.toFile());
+        me.removeJar("A.jar");
+        me.addJar("C.jar");
+        me.regenerate(jarFile.toFile());
+        ManifestEditor reloaded = ManifestEditor.createEditor(jarFile.toFile());
+        Assertions.assertEquals(2, reloaded.getClasspathEntries().size());
+        Assertions.assertEquals("lib/B.jar", reloaded.getClasspathEntries().get(0).getFullPath());
+        Assertions.assertEquals("C.jar", reloaded.getClasspathEntries().get(1).getJarName());
+    }
+
+    /**
+     * Verifies clearing the classpath removes the attribute
+     * @throws IOException - thrown for errors
+     */
+    @Test
+    public void verifyClear() throws IOException {
+        ManifestEditor me = ManifestEditor.createManifestOnlyEditor(jarFile.toFile());
+        me.clearClasspath();
+        me.regenerate(jarFile.toFile());
+        ManifestEditor reloaded = ManifestEditor.createManifestOnlyEditor(jarFile.toFile());
+        Assertions.assertEquals(0, reloaded.getClasspathEntries().size());
+        Assertions.assertNull(reloaded.getEntries().getValue("Class-Path"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.rcjava.common.trace;
+
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.TestUtils;
+import com.rcjava.common.zip.ZipArchive;
+import com.rcjava.common.zip.ZipEntryRecord;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarFile;
+
+/**
+ * Tests reading class load traces and correlating them with jars
+ * @author Ryan Cuprak
+ */
+public class TraceCorrelationTests {
+
+    /**
+     * Directory holding the jars and the trace
+     */
+    private Path dir;
+
+    /**
+     * Jar containing TestUtils and this class
+     */
+    private JarEditor jar;
+
+    /**
+     * Creates the jar
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("trace");
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        entries.put("com/rcjava/common/TestUtils.class", TestUtils.classBytes(TestUtils.class));
+        entries.put("com/rcjava/common/trace/TraceCorrelationTests.class", TestUtils.classBytes(TraceCorrelationTests.class));
+        jar = new JarEditor(TestUtils.createJar(dir.resolve("app.jar"), null, entries).toFile()).load();
+    }
+
+    /**
+     * Removes the jar and trace
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Writes a trace
+     * @param lines - trace lines
+     * @return trace file
+     */
+    private File trace(String... lines) throws IOException {
+        Path trace = dir.resolve("classes.trace");
+        Files.writeString(trace, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return trace.toFile();
+    }
+
+    /**
+     * Classes are matched to the jar by location, JDK classes and other locations are kept apart
+     */
+    @Test
+    public void testCorrelate() throws IOException {
+        File trace = trace("# rcjava class trace 1",
+                "C - java.lang.String",
+                "L 0 " + dir.resolve("app.jar").toUri(),
+                "L 1 file:/elsewhere/other.jar",
+                "C 1 com.other.Other",
+                "C 0 com.rcjava.common.TestUtils");
+        ClassLoadTrace classLoadTrace = ClassLoadTrace.read(trace);
+        Assertions.assertEquals(3, classLoadTrace.size());
+        Assertions.assertNull(classLoadTrace.getEntries().get(0).getFile());
+        TraceCorrelation correlation = TraceCorrelation.correlate(classLoadTrace, List.of(jar));
+        Assertions.assertEquals(List.of("com.rcjava.common.TestUtils"), correlation.getLoaded(jar));
+        Assertions.assertEquals(List.of("com.rcjava.common.trace.TraceCorrelationTests"), correlation.getNeverLoaded(jar));
+        Assertions.assertEquals(2, correlation.getFirstLoad(jar));
+        Assertions.assertEquals(1, correlation.getOutsideClasspath());
+    }
+
+    /**
+     * A class referring to an undefined location is rejected
+     */
+    @Test
+    public void testMalformed() throws IOException {
+        File trace = trace("C 3 com.rcjava.common.TestUtils");
+        IOException thrown = Assertions.assertThrows(IOException.class, () -> ClassLoadTrace.read(trace));
+        Assertions.assertTrue(thrown.getMessage().contains(":1 "));
+    }
+
+    /**
+     * Class loads are read from -verbose:class output of both formats, other output is skipped
+     */
+    @Test
+    public void testReadVerbose() throws IOException {
+        File trace = trace("[0.010s][info][class,load] java.lang.Object source: shared objects file",
+                "starting application",
+                "[0.052s][info][class,load] com.rcjava.common.TestUtils source: file:" + dir.resolve("app.jar"),
+                "[0.053s][info][class,load] com.other.Other source: jar:file:/elsewhere/other.jar!/",
+                "[Loaded com.legacy.Legacy from /elsewhere/legacy.jar]");
+        List<ClassLoadTrace.Entry> entries = ClassLoadTrace.read(trace).getEntries();
+        Assertions.assertEquals(4, entries.size());
+        Assertions.assertNull(entries.get(0).getFile());
+        Assertions.assertEquals(dir.resolve("app.jar").toFile(), entries.get(1).getFile());
+        Assertions.assertEquals(new File("/elsewhere/other.jar"), entries.get(2).getFile());
+        Assertions.assertEquals("com.legacy.Legacy", entries.get(3).className());
+        Assertions.assertEquals(new File("/elsewhere/legacy.jar"), entries.get(3).getFile());
+    }
+
+    /**
+     * Traced classes follow the manifest in load order, the central directory is unchanged and the classes
+     * occupy fewer pages
+     */
+    @Test
+    public void testReorder() throws Exception {
+        Map<String,byte[]> entries = new LinkedHashMap<>();
+        Random random = new Random(1);
+        for(int i = 0; i < 20; i++) {
+            entries.put("p/C" + i + ".class", TestUtils.generateClass("p.C" + i));
+            byte[] padding = new byte[6000];
+            random.nextBytes(padding);
+            entries.put("p/r" + i + ".bin", padding);
+        }
+        File file = TestUtils.createJar(dir.resolve("large.jar"), null, entries).toFile();
+        List<String> original;
+        try(ZipArchive archive = new ZipArchive(file)) {
+            original = names(archive.getEntries());
+        }
+        File trace = trace("[0.1s][info][class,load] p.C15 source: file:/other/large.jar",
+                "[0.1s][info][class,load] java.lang.String source: jrt:/java.base",
+                "[0.2s][info][class,load] p.C3 source: file:/other/large.jar",
+                "[0.3s][info][class,load] p.C9 source: file:/other/large.jar",
+                "[0.4s][info][class,load] p.C15 source: file:/other/large.jar");
+        File reordered = dir.resolve("reordered.jar").toFile();
+        ReorderReport report = new JarEditor(file).load().regenerate(reordered, ClassLoadTrace.read(trace));
+        List<String> startup = List.of("p/C15.class", "p/C3.class", "p/C9.class");
+        Assertions.assertEquals(startup, report.getStartupEntries());
+        Assertions.assertEquals(3, report.getPagesBefore());
+        Assertions.assertEquals(1, report.getPagesAfter());
+        try(ZipArchive archive = new ZipArchive(reordered)) {
+            Assertions.assertEquals(original, names(archive.getEntries()));
+            List<ZipEntryRecord> byOffset = new ArrayList<>(archive.getEntries());
+            byOffset.sort(Comparator.comparingLong(ZipEntryRecord::getLocalHeaderOffset));
+            List<String> written = names(byOffset);
+            Assertions.assertEquals(JarFile.MANIFEST_NAME, written.get(0));
+            Assertions.assertEquals(startup, written.subList(1, 4));
+            Assertions.assertArrayEquals(entries.get("p/r3.bin"), archive.readContent(archive.getEntry("p/r3.bin")));
+        }
+    }
+
+    /**
+     * Returns the names of entries
+     * @param records - entries
+     * @return names in the same order
+     */
+    private static List<String> names(List<ZipEntryRecord> records) {
+        List<String> names = new ArrayList<>();
+        for(ZipEntryRecord record : records) {
+            names.add(record.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,129 @@
+package com.rcjava.common.zip;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipFile;
+
+/**
+ * Tests compressing entries in parallel
+ * @author Ryan Cuprak
+ */
+public class ParallelDeflaterTests {
+
+    /**
+     * Archive being written
+     */
+    private Path zip;
+
+    /**
+     * Creates the file
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        zip = Files.createTempFile("parallel", ".zip");
+    }
+
+    /**
+     * Deletes the file
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(zip);
+    }
+
+    /**
+     * Entries of different sizes and types must come out in submission order with the method chosen by the policy
+     */
+    @Test
+    public void testOrderAndPolicy() throws Exception {
+        CompressionPolicy policy = CompressionPolicy.parse("class=store,*=9");
+        Random random = new Random(7);
+        byte[][] contents = new byte[200][];
+        try(ZipArchiveWriter writer = new ZipArchiveWriter(zip.toFile());
+            ParallelDeflater deflater = new ParallelDeflater(writer, policy, 4)) {
+            for(int i = 0; i < contents.length; i++) {
+                byte[] data = new byte[random.nextInt(i % 10 == 0 ? 300000 : 2000) + 1];
+                for(int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + random.nextInt(4));
+                }
+                contents[i] = data;
+                deflater.submit("entry" + i + (i % 2 == 0 ? ".class" : ".txt"), () -> data, 0);
+            }
+            deflater.flush();
+        }
+        try(ZipArchive archive = new ZipArchive(zip.toFile())) {
+            List<ZipEntryRecord> entries = archive.getEntries();
+            Assertions.assertEquals(contents.length, entries.size());
+            for(int i = 0; i < contents.length; i++) {
+                ZipEntryRecord record = entries.get(i);
+                Assertions.assertTrue(record.getName().startsWith("entry" + i + "."));
+                Assertions.assertEquals(i % 2 == 0 ? ZipEntryRecord.STORED : ZipEntryRecord.DEFLATED, record.getMethod());
+                Assertions.assertArrayEquals(contents[i], archive.readContent(record));
+            }
+        }
+        try(ZipFile zipFile = new ZipFile(zip.toFile())) {
+            Assertions.assertEquals(contents.length, zipFile.size());
+        }
+    }
+
+    /**
+     * Incompressible entries must be stored, tiny entries are stored by the startup preset, the report adds up
+     */
+    @Test
+    public void testStartupPolicyAndReport() throws Exception {
+        byte[] random = new byte[50000];
+        new Random(3).nextBytes(random);
+        byte[] text = "the quick brown fox ".repeat(500).getBytes();
+        CompressionReport report = new CompressionReport();
+        try(ZipArchiveWriter writer = new ZipArchiveWriter(zip.toFile());
+            ParallelDeflater deflater = new ParallelDeflater(writer, CompressionPolicy.startupOptimized(), 2, report)) {
+            deflater.submit("a/Foo.class", () -> text, 0);
+            deflater.submit("a/random.bin", () -> random, 0);
+            deflater.submit("a/text.txt", () -> text, 0);
+            deflater.submit("a/tiny.txt", () -> new byte[] {1, 2}, 0);
+            deflater.flush();
+        }
+        try(ZipArchive archive = new ZipArchive(zip.toFile())) {
+            Assertions.assertEquals(ZipEntryRecord.STORED, archive.getEntry("a/Foo.class").getMethod());
+            Assertions.assertEquals(ZipEntryRecord.STORED, archive.getEntry("a/random.bin").getMethod());
+            Assertions.assertEquals(ZipEntryRecord.DEFLATED, archive.getEntry("a/text.txt").getMethod());
+            Assertions.assertEquals(ZipEntryRecord.STORED, archive.getEntry("a/tiny.txt").getMethod());
+            Assertions.assertArrayEquals(random, archive.readContent(archive.getEntry("a/random.bin")));
+            long output = 0;
+            for(ZipEntryRecord record : archive.getEntries()) {
+                output += record.getCompressedSize();
+            }
+            Assertions.assertEquals(output, report.getTotals().getOutputSize());
+        }
+        Assertions.assertEquals(4, report.getTotals().getEntries());
+        Assertions.assertEquals(3, report.getTotals().getStored());
+        Assertions.assertEquals(2, report.getTotalsByExtension().get("txt").getEntries());
+    }
+
+    /**
+     * Tests parsing a policy
+     */
+    @Test
+    public void testParse() throws Exception {
+        CompressionPolicy policy = CompressionPolicy.parse("png=store, .jar=0, *=default");
+        Assertions.assertEquals(CompressionPolicy.STORE, policy.getLevel("img/a.PNG", 10));
+        Assertions.assertEquals(0, policy.getLevel("lib/a.jar", 10));
+        Assertions.assertEquals(-1, policy.getLevel("a.txt", 10));
+        Assertions.assertEquals(CompressionPolicy.STORE, policy.getLevel("com/", 0));
+        Assertions.assertThrows(IOException.class, () -> CompressionPolicy.parse("class=11"));
+        Assertions.assertThrows(IOException.class, () -> CompressionPolicy.parse("class"));
+        Assertions.assertEquals("", CompressionPolicy.extension("a.b/c"));
+        CompressionPolicy startup = CompressionPolicy.parse("startup,class=9");
+        Assertions.assertEquals(9, startup.getLevel("Foo.class", 1000));
+        Assertions.assertEquals(CompressionPolicy.STORE, startup.getLevel("a.png", 1000));
+        Assertions.assertEquals(CompressionPolicy.STORE, startup.getLevel("a.txt", 100));
+    }
+}
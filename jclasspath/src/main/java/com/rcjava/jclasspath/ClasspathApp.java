@@ -0,0 +1,448 @@
+package com.rcjava.jclasspath;
+
+import com.rcjava.common.Classpath;
+import com.rcjava.common.ClasspathResolution;
+import com.rcjava.common.ClasspathWatcher;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.JarMerger;
+import com.rcjava.common.JarUtil;
+import com.rcjava.common.MergeResult;
+import com.rcjava.common.cds.ClassList;
+import com.rcjava.common.cds.ClassListGenerator;
+import com.rcjava.common.conflict.ConflictAnalyzer;
+import com.rcjava.common.conflict.SplitPackageAnalyzer;
+import com.rcjava.common.conflict.SplitPackageReport;
+import com.rcjava.common.graph.ClassGraph;
+import com.rcjava.common.graph.JarUsageAnalyzer;
+import com.rcjava.common.graph.ReachabilityAnalyzer;
+import com.rcjava.common.graph.ReachabilityResult;
+import com.rcjava.common.graph.TypeHierarchy;
+import com.rcjava.common.index.AnnotationIndex;
+import com.rcjava.common.index.ClasspathIndex;
+import com.rcjava.common.index.JarIndexList;
+import com.rcjava.common.index.PackageIndex;
+import com.rcjava.common.index.ServiceIndex;
+import com.rcjava.common.trace.ClassLoadTrace;
+import com.rcjava.common.trace.TraceCorrelation;
+import com.rcjava.common.zip.CompressionPolicy;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Resolves and analyzes a classpath
+ * @author Ryan Cuprak
+ */
+@CommandLine.Command(description = "Resolves and analyzes a classpath made up of many JAR files.",
+        name = "jclasspath", mixinStandardHelpOptions = true, version = "jclasspath 0.1")
+public class ClasspathApp implements Callable<Integer> {
+
+    /**
+     * Number of jars loaded concurrently
+     */
+    @CommandLine.Option(names = {"-t", "--threads"}, description = "Number of jars loaded concurrently")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Prints the classpath as a single path string
+     */
+    @CommandLine.Option(names = {"-p", "--path"}, description = "Prints the effective classpath as a path string")
+    private boolean pathString;
+
+    /**
+     * Merged jar to be written
+     */
+    @CommandLine.Option(names = {"-m", "--merge"}, description = "Merges every jar on the classpath into this jar")
+    private File mergeTarget;
+
+    /**
+     * Strategy for conflicting entries when merging
+     */
+    @CommandLine.Option(names = {"--conflicts"}, description = "How conflicting entries are merged: ${COMPLETION-CANDIDATES}. META-INF/services files are always concatenated.")
+    private JarMerger.Strategy conflicts = JarMerger.Strategy.FIRST_WINS;
+
+    /**
+     * Main class of the merged jar
+     */
+    @CommandLine.Option(names = {"--main-class"}, description = "Main-Class of the merged jar")
+    private String mainClass;
+
+    /**
+     * Compression policy of the merged jar
+     */
+    @CommandLine.Option(names = {"-c", "--compression"}, description = "Recompresses the merged jar: a preset (startup, smallest) and/or extension=level pairs")
+    private String compression;
+
+    /**
+     * Reports the classes defined by more than one jar
+     */
+    @CommandLine.Option(names = {"-d", "--duplicates"}, description = "Reports the classes defined by more than one jar, which copy wins and which copies differ")
+    private boolean duplicates;
+
+    /**
+     * Reports the packages spread over several jars
+     */
+    @CommandLine.Option(names = {"--split-packages"}, description = "Reports the packages spread over several jars, which keep the jars off the module path")
+    private boolean splitPackages;
+
+    /**
+     * Prints a plan removing the split packages
+     */
+    @CommandLine.Option(names = {"--split-plan"}, description = "With --split-packages, suggests which copies to delete and which jars to relocate or merge")
+    private boolean splitPlan;
+
+    /**
+     * Reports the service providers declared in META-INF/services
+     */
+    @CommandLine.Option(names = {"--services"}, description = "Reports the providers of each service in ServiceLoader order and the providers whose class is missing")
+    private boolean services;
+
+    /**
+     * Annotations whose classes, methods and fields are listed
+     */
+    @CommandLine.Option(names = {"--annotated"}, split = ",", description = "Lists the classes, methods and fields carrying these annotations")
+    private List<String> annotated = List.of();
+
+    /**
+     * Reports the classes that can't be reached from the entry points
+     */
+    @CommandLine.Option(names = {"-r", "--reachability"}, description = "Reports the classes unreachable from the main classes, service providers and roots")
+    private boolean reachability;
+
+    /**
+     * Additional roots for the reachability analysis
+     */
+    @CommandLine.Option(names = {"--root"}, split = ",", description = "Additional entry points: class names, package.* or package.**")
+    private List<String> roots = List.of();
+
+    /**
+     * Annotations marking roots for the reachability analysis
+     */
+    @CommandLine.Option(names = {"--root-annotation"}, split = ",", description = "Annotations whose classes are entry points")
+    private List<String> rootAnnotations = List.of();
+
+    /**
+     * Directory receiving the shrunk jars
+     */
+    @CommandLine.Option(names = {"-s", "--shrink"}, description = "Writes copies of the jars without unreachable classes to this directory")
+    private File shrinkDir;
+
+    /**
+     * Prints the dependencies between jars and the cycles among them
+     */
+    @CommandLine.Option(names = {"-g", "--jar-graph"}, description = "Prints which jars need which jars, from the references between their classes")
+    private boolean jarGraph;
+
+    /**
+     * Classes whose transitive dependencies are printed
+     */
+    @CommandLine.Option(names = {"--dependencies"}, split = ",", description = "Prints every class these classes need")
+    private List<String> dependencies = List.of();
+
+    /**
+     * Classes whose transitive dependents are printed
+     */
+    @CommandLine.Option(names = {"--dependents"}, split = ",", description = "Prints every class that needs these classes")
+    private List<String> dependents = List.of();
+
+    /**
+     * Types whose transitive subtypes are printed
+     */
+    @CommandLine.Option(names = {"--subtypes"}, split = ",", description = "Prints every class extending or implementing these types")
+    private List<String> subtypes = List.of();
+
+    /**
+     * Classes whose transitive supertypes are printed
+     */
+    @CommandLine.Option(names = {"--supertypes"}, split = ",", description = "Prints every class and interface these classes extend or implement")
+    private List<String> supertypes = List.of();
+
+    /**
+     * Reports the jars the application never uses
+     */
+    @CommandLine.Option(names = {"-u", "--unused-jars"}, description = "Reports the jars never referenced from the application jars, with the evidence for the others")
+    private boolean unusedJars;
+
+    /**
+     * The application's own jars
+     */
+    @CommandLine.Option(names = {"--app"}, split = ",", description = "Application jars (name or path), defaults to the first jar on the classpath")
+    private List<String> applicationJars = List.of();
+
+    /**
+     * Class load trace recorded by the jtrace agent
+     */
+    @CommandLine.Option(names = {"--trace"}, description = "Trace recorded by the jtrace agent, reports the classes of each jar that were loaded")
+    private File trace;
+
+    /**
+     * Lists the classes never loaded
+     */
+    @CommandLine.Option(names = {"--never-loaded"}, description = "With --trace, lists the classes of each jar that were never loaded")
+    private boolean neverLoaded;
+
+    /**
+     * Package index to be written
+     */
+    @CommandLine.Option(names = {"--package-index"}, description = "Writes the package to jar index used by IndexedClassLoader")
+    private File packageIndex;
+
+    /**
+     * Classpath index to be written
+     */
+    @CommandLine.Option(names = {"--classpath-index"}, description = "Writes the memory mapped index of the classes, resources, packages and jars of the classpath")
+    private File classpathIndex;
+
+    /**
+     * Jar receiving META-INF/INDEX.LIST
+     */
+    @CommandLine.Option(names = {"--index-list"}, description = "Writes META-INF/INDEX.LIST for the whole classpath into this jar (name or path)")
+    private String indexListRoot;
+
+    /**
+     * Class list to be written for a CDS archive
+     */
+    @CommandLine.Option(names = {"--cds-list"}, description = "Writes the class list for a CDS archive, limited to the classes loaded by --trace if given, and prints the dump and run options")
+    private File cdsList;
+
+    /**
+     * CDS archive named in the printed options
+     */
+    @CommandLine.Option(names = {"--cds-archive"}, description = "CDS archive named in the printed options, defaults to the class list with a .jsa extension")
+    private File cdsArchive;
+
+    /**
+     * Keeps watching the directory after the analysis
+     */
+    @CommandLine.Option(names = {"-w", "--watch"}, description = "Watches the first directory and reports jars being added, replaced or removed until interrupted")
+    private boolean watch;
+
+    /**
+     * Time the directory must be quiet before changes are reported
+     */
+    @CommandLine.Option(names = {"--debounce"}, description = "Milliseconds the watched directory must be quiet before changes are applied")
+    private long debounce = 500;
+
+    /**
+     * JAR files or directories, in classpath order
+     */
+    @CommandLine.Parameters(arity="1..*",description = "JAR files or directories containing JAR files, in classpath order")
+    private List<File> files;
+
+    /**
+     * Main entry point
+     * @param args - command line arguments
+     */
+    public static void main(String[] args)  {
+        int exitCode = new CommandLine(new ClasspathApp()).execute(args);
+        System.exit(exitCode);
+    }
+
+    /**
+     * Invokes the utility
+     * @return status code
+     */
+    public Integer call() {
+        try {
+            Classpath classpath = new Classpath(files.get(0));
+            for(File jar : JarUtil.findJars(files)) {
+                classpath.addJar(new JarEditor(jar));
+            }
+            boolean graphs = jarGraph || unusedJars || !dependencies.isEmpty() || !dependents.isEmpty()
+                    || !subtypes.isEmpty() || !supertypes.isEmpty() || reachability || shrinkDir != null;
+            ClasspathResolution resolution = classpath.analyze(threads, graphs);
+            if(pathString) {
+                System.out.println(resolution.toClasspathString());
+            } else {
+                System.out.println("Classpath: ");
+                for(File file : resolution.getClasspath()) {
+                    System.out.println(file);
+                }
+            }
+            if(!resolution.getMissing().isEmpty()) {
+                System.out.println("Missing: ");
+                for(ClasspathResolution.MissingEntry missing : resolution.getMissing()) {
+                    System.out.println(missing);
+                }
+            }
+            if(duplicates) {
+                System.out.print(new ConflictAnalyzer(resolution.getJars()).setThreads(threads).analyze());
+            }
+            if(splitPackages) {
+                SplitPackageReport report = new SplitPackageAnalyzer(resolution.getJars()).setThreads(threads).analyze();
+                System.out.print(report);
+                if(splitPlan) {
+                    System.out.print(report.getPlan());
+                }
+            }
+            ServiceIndex serviceIndex = null;
+            if(services || classpathIndex != null) {
+                serviceIndex = ServiceIndex.build(resolution.getJars(), threads);
+            }
+            if(services) {
+                System.out.print(serviceIndex);
+            }
+            if(!annotated.isEmpty()) {
+                AnnotationIndex annotationIndex = AnnotationIndex.forClasspath(resolution.getJars(), threads);
+                for(String annotation : annotated) {
+                    for(AnnotationIndex.Target target : annotationIndex.getTargets(annotation)) {
+                        System.out.println("@" + annotation + " " + target.className()
+                                + (target.member() != null ? "." + target.member() : "")
+                                + " (" + annotationIndex.getJars().get(target.jar()) + ")");
+                    }
+                }
+            }
+            if(mergeTarget != null) {
+                JarMerger merger = new JarMerger(resolution.getClasspath()).setDefaultStrategy(conflicts)
+                        .setMainClass(mainClass).setThreads(threads);
+                if(compression != null) {
+                    merger.setCompressionPolicy(CompressionPolicy.parse(compression));
+                }
+                MergeResult result = merger.merge(mergeTarget);
+                for(MergeResult.Conflict conflict : result.getConflicts()) {
+                    System.out.println("Conflict: " + conflict);
+                }
+                System.out.println(result);
+            }
+            if(packageIndex != null) {
+                PackageIndex.write(resolution.getJars(), packageIndex);
+            }
+            if(classpathIndex != null) {
+                ClasspathIndex.write(resolution.getJars(), serviceIndex, classpathIndex);
+            }
+            if(indexListRoot != null) {
+                JarEditor root = null;
+                for(JarEditor jar : resolution.getJars()) {
+                    if(root == null && (jar.getJarName().equals(indexListRoot) || jar.getJarFile().getPath().equals(indexListRoot))) {
+                        root = jar;
+                    }
+                }
+                if(root == null) {
+                    throw new IOException(indexListRoot + " is not on the classpath.");
+                }
+                JarIndexList.write(root, resolution.getJars(), root.getJarFile());
+            }
+            if(trace != null) {
+                TraceCorrelation correlation = TraceCorrelation.correlate(ClassLoadTrace.read(trace), resolution.getJars());
+                System.out.print(correlation);
+                if(neverLoaded) {
+                    for(JarEditor jar : correlation.getJars()) {
+                        for(String name : correlation.getNeverLoaded(jar)) {
+                            System.out.println(jar.getJarName() + ": " + name);
+                        }
+                    }
+                }
+            }
+            if(cdsList != null) {
+                ClassList classList = new ClassListGenerator(resolution.getJars())
+                        .setTrace(trace != null ? ClassLoadTrace.read(trace) : null).generate();
+                classList.write(cdsList);
+                File archive = cdsArchive != null ? cdsArchive : new File(cdsList.getPath().replaceFirst("(\\.[^./\\\\]*)?$", ".jsa"));
+                System.out.print(classList);
+                System.out.println("Dump: java " + String.join(" ", classList.getDumpOptions(cdsList, archive)));
+                System.out.println("Run: java " + String.join(" ", classList.getRuntimeOptions(archive)) + " ...");
+            }
+            if(jarGraph || unusedJars || !dependencies.isEmpty() || !dependents.isEmpty()) {
+                ClassGraph graph = ClassGraph.build(resolution.getJars());
+                if(jarGraph) {
+                    for(Map.Entry<JarEditor,Set<JarEditor>> entry : graph.getJarDependencies().entrySet()) {
+                        System.out.println(entry.getKey().getJarName() + " -> " + names(entry.getValue()));
+                    }
+                    for(List<JarEditor> cycle : graph.getJarCycles()) {
+                        System.out.println("Jar cycle: " + names(cycle));
+                    }
+                }
+                if(unusedJars) {
+                    JarUsageAnalyzer analyzer = new JarUsageAnalyzer(graph);
+                    applicationJars.forEach(analyzer::addApplicationJar);
+                    System.out.print(analyzer.analyze());
+                }
+                for(String name : dependencies) {
+                    System.out.println(name + " needs: " + graph.getTransitiveDependencies(name));
+                }
+                for(String name : dependents) {
+                    System.out.println(name + " is needed by: " + graph.getTransitiveDependents(name));
+                }
+            }
+            if(!subtypes.isEmpty() || !supertypes.isEmpty()) {
+                TypeHierarchy hierarchy = TypeHierarchy.build(resolution.getJars());
+                for(String name : subtypes) {
+                    System.out.println(name + " is extended by: " + hierarchy.getTransitiveSubtypes(name));
+                }
+                for(String name : supertypes) {
+                    System.out.println(name + " extends: " + hierarchy.getTransitiveSupertypes(name));
+                }
+            }
+            if(reachability || shrinkDir != null) {
+                ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(resolution.getJars());
+                roots.forEach(analyzer::addRoot);
+                rootAnnotations.forEach(analyzer::addRootAnnotation);
+                ReachabilityResult result = analyzer.analyze();
+                System.out.print(result);
+                if(shrinkDir != null) {
+                    result.shrink(shrinkDir);
+                }
+            }
+            if(!resolution.getCycles().isEmpty()) {
+                System.out.println("Cycles: ");
+                for(List<File> cycle : resolution.getCycles()) {
+                    StringBuilder builder = new StringBuilder();
+                    for(File file : cycle) {
+                        if(builder.length() > 0) {
+                            builder.append(" -> ");
+                        }
+                        builder.append(file.getName());
+                    }
+                    System.out.println(builder);
+                }
+            }
+            if(watch) {
+                try(ClasspathWatcher watcher = new ClasspathWatcher(files.get(0), Duration.ofMillis(debounce), threads)) {
+                    watcher.addListener(update -> report(watcher, update)).start();
+                    System.out.println("Watching " + files.get(0) + ", " + watcher.getJars().size() + " jars");
+                    Thread.currentThread().join();
+                }
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Prints a batch of changes to the watched directory
+     * @param watcher - watcher
+     * @param update - applied changes
+     */
+    private static void report(ClasspathWatcher watcher, ClasspathWatcher.Update update) {
+        update.added().forEach(file -> System.out.println("Added: " + file));
+        update.modified().forEach(file -> System.out.println("Reloaded: " + file));
+        update.removed().forEach(file -> System.out.println("Removed: " + file));
+        update.failed().forEach((file, e) -> System.out.println("Unreadable: " + file + ": " + e.getMessage()));
+        System.out.println(watcher.getJars().size() + " jars, " + watcher.getDuplicates().size()
+                + " duplicate classes, versions " + watcher.getVersions());
+    }
+
+    /**
+     * Joins the names of jars
+     * @param jars - jars
+     * @return comma separated jar names
+     */
+    private static String names(Iterable<JarEditor> jars) {
+        StringBuilder builder = new StringBuilder();
+        for(JarEditor jar : jars) {
+            if(builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(jar.getJarName());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.rcjava.jedit;
+
+import com.rcjava.common.JarEditSession;
+import com.rcjava.common.JarEditor;
+import com.rcjava.common.index.AnnotationIndex;
+import com.rcjava.common.trace.ClassLoadTrace;
+import com.rcjava.common.trace.ReorderReport;
+import com.rcjava.common.trace.StartupLayout;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
+import com.rcjava.common.zip.ZipArchive;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Applies a script of edits to a jar file in a single pass
+ * @author Ryan Cuprak
+ */
+@CommandLine.Command(description = "Removes classes and entries, inserts files and edits the manifest of a JAR file in a single pass. " +
+        "Commands: remove-class <class>, remove-entry <entry>, add-file <path> <file>, manifest clear|add|remove|set ...",
+        name = "jedit", mixinStandardHelpOptions = true, version = "jedit 0.1")
+public class EditApp implements Callable<Integer> {
+
+    /**
+     * Script file, one command per line
+     */
+    @CommandLine.Option(names = {"-s", "--script"}, description = "Script file with one command per line.")
+    private File script;
+
+    /**
+     * Commands given on the command line, applied after the script
+     */
+    @CommandLine.Option(names = {"-e", "--edit"}, description = "Command to apply, may be repeated.")
+    private List<String> commands = new ArrayList<>();
+
+    /**
+     * Output jar, the jar is edited in place if not set
+     */
+    @CommandLine.Option(names = {"-o", "--output"}, description = "Writes the edited JAR to this file instead of replacing the original.")
+    private File output;
+
+    /**
+     * Compression policy, when set every entry is compressed again
+     */
+    @CommandLine.Option(names = {"-c", "--compression"}, description = "Recompresses every entry: a preset (startup, smallest) and/or extension=level pairs such as class=store,*=9, min-size=bytes, max-ratio=ratio.")
+    private String compression;
+
+    /**
+     * Flag indicating the compression report should be printed
+     */
+    @CommandLine.Option(names = {"-r", "--report"}, description = "Prints the size and time trade-offs of the compression.")
+    private boolean report;
+
+    /**
+     * Number of threads compressing entries
+     */
+    @CommandLine.Option(names = {"-t", "--threads"}, description = "Number of threads compressing entries.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Class-load trace, when set the classes it loads are moved to the front of the jar
+     */
+    @CommandLine.Option(names = {"--reorder"}, description = "Moves the classes loaded by a trace (jtrace or -verbose:class output) to the front of the JAR in load order.")
+    private File reorder;
+
+    /**
+     * Ships an annotation index inside the edited jar
+     */
+    @CommandLine.Option(names = {"--index-annotations"}, description = "Writes an index of the class, method and field annotations into the JAR.")
+    private boolean indexAnnotations;
+
+    /**
+     * JAR file to be edited
+     */
+    @CommandLine.Parameters(index="0",description = "JAR to be manipulated.")
+    private File jarFile;
+
+    /**
+     * Main entry point
+     * @param args - command line arguments
+     */
+    public static void main(String[] args)  {
+        int exitCode = new CommandLine(new EditApp()).execute(args);
+        System.exit(exitCode);
+    }
+
+    /**
+     * Invokes the utility
+     * @return status code
+     */
+    public Integer call() {
+        try {
+            CompressionReport compressionReport = new CompressionReport();
+            JarEditSession session = new JarEditor(jarFile).openSession().setThreads(threads).setCompressionReport(compressionReport);
+            if(compression != null) {
+                session.setCompressionPolicy(CompressionPolicy.parse(compression));
+            }
+            if(script != null) {
+                session.addCommands(Files.readAllLines(script.toPath()));
+            }
+            session.addCommands(commands);
+            List<String> startup = null;
+            int pagesBefore = 0;
+            if(reorder != null) {
+                try(ZipArchive archive = new ZipArchive(jarFile)) {
+                    startup = StartupLayout.getStartupEntries(ClassLoadTrace.read(reorder), archive);
+                    pagesBefore = StartupLayout.countPages(archive, startup);
+                }
+                session.setEntryOrder(startup);
+            }
+            if(session.isEmpty() && !indexAnnotations) {
+                System.err.println("Nothing to do.");
+                return 1;
+            }
+            File target = output != null ? output : jarFile;
+            File indexed = jarFile;
+            if(!session.isEmpty()) {
+                session.commit(target);
+                indexed = target;
+            }
+            if(indexAnnotations) {
+                AnnotationIndex.write(new JarEditor(indexed).setAnnotationIndexing(true).load(), target);
+            }
+            if(report) {
+                System.out.print(compressionReport);
+            }
+            if(startup != null) {
+                try(ZipArchive archive = new ZipArchive(target)) {
+                    startup.removeIf(name -> archive.getEntry(name) == null);
+                    System.out.println(new ReorderReport(startup, pagesBefore, StartupLayout.countPages(archive, startup)));
+                }
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -78,7 +78,7 @@ public class JarInfoApp implements Callable<Integer> {
      */
     public Integer call() {
         try {
-            JarEditor jarInfo = new JarEditor(jarFile).load();
+            JarEditor jarInfo = new JarEditor(jarFile, imports).load();
             if(count) {
                 System.out.println("Class count: " + jarInfo.getClassCount());
             }
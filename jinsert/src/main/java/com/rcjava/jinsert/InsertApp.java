@@ -17,21 +17,27 @@ public class InsertApp implements Callable<Integer> {
     /**
      * JAR file we want to extract a class from
      */
-    @CommandLine.Parameters(arity="1",description = "Package/directory in the JAR file.")
+    @CommandLine.Parameters(index="0",description = "Package/directory in the JAR file.")
     private String path;
 
     /**
      * JAR file we want to extract a class from
      */
-    @CommandLine.Parameters(arity="2",description = "JAR to be manipulated.")
+    @CommandLine.Parameters(index="1",description = "JAR to be manipulated.")
     private File jarFile;
 
     /**
      * Directory where file is to be extracted
      */
-    @CommandLine.Parameters(arity="3",description = "File to be inserted into the JAR")
+    @CommandLine.Parameters(index="2",description = "File to be inserted into the JAR")
     private File file;
 
+    /**
+     * Flag indicating the file should be appended in place instead of regenerating the jar
+     */
+    @CommandLine.Option(names = {"-a", "--append"}, description = "Appends the file in place without rewriting the existing entries.")
+    private boolean append;
+
     /**
      * Main entry point
      * @param args - command line arguments
@@ -47,8 +53,13 @@ public class InsertApp implements Callable<Integer> {
      */
     public Integer call() {
         try {
-            JarEditor jarInfo = new JarEditor(jarFile).load();
-            jarInfo.addFile(path,file);
+            if(append) {
+                JarEditor jarInfo = new JarEditor(jarFile);
+                jarInfo.addFile(path,file);
+                jarInfo.append();
+            } else {
+                new JarEditor(jarFile).openSession().addFile(path,file).commit();
+            }
             return 0;
         } catch (Exception e) {
             System.err.println(e.getMessage());
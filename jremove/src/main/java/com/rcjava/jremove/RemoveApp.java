@@ -17,13 +17,13 @@ public class RemoveApp implements Callable<Integer> {
     /**
      * JAR file we want to extract a class from
      */
-    @CommandLine.Parameters(arity="1",description = "Package/directory in the JAR file.")
+    @CommandLine.Parameters(index="0",description = "Class (com.rcjava.Foo or com/rcjava/Foo.class) to be removed.")
     private String path;
 
     /**
      * JAR file we want to extract a class from
      */
-    @CommandLine.Parameters(arity="2",description = "JAR to be manipulated.")
+    @CommandLine.Parameters(index="1",description = "JAR to be manipulated.")
     private File jarFile;
 
     /**
@@ -41,8 +41,7 @@ public class RemoveApp implements Callable<Integer> {
      */
     public Integer call() {
         try {
-            JarEditor jarInfo = new JarEditor(jarFile).load();
-            jarInfo.removeClass(path);
+            new JarEditor(jarFile).openSession().removeClass(path).commit();
             return 0;
         } catch (Exception e) {
             System.err.println(e.getMessage());
@@ -0,0 +1,114 @@
+package com.rcjava.jtrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+
+/**
+ * Java agent recording every class loaded along with the location it was loaded from. Classes are never
+ * transformed, the transformer only observes definitions. Usage:
+ * -javaagent:jtrace.jar=file=classes.trace,interval=100
+ * @author Ryan Cuprak
+ */
+public class TraceAgent implements ClassFileTransformer {
+
+    /**
+     * Recorder receiving the loaded classes
+     */
+    private final TraceRecorder recorder;
+
+    /**
+     * Creates the transformer
+     * @param recorder - recorder
+     */
+    TraceAgent(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Agent options
+     * @param file - trace file
+     * @param interval - time between batches in milliseconds
+     */
+    record Options(File file, long interval) {
+
+        /**
+         * Parses the agent arguments, a value without a key is the trace file
+         * @param args - file=path and interval=milliseconds separated by commas, may be null
+         * @return options
+         * @throws IllegalArgumentException - thrown if an option is unknown or the interval isn't a number
+         */
+        static Options parse(String args) {
+            File file = new File("classes.trace");
+            long interval = 100;
+            if(args != null && !args.isBlank()) {
+                for(String arg : args.split(",")) {
+                    int index = arg.indexOf('=');
+                    String key = index > 0 ? arg.substring(0, index).trim() : "file";
+                    String value = arg.substring(index + 1).trim();
+                    if(key.equals("file")) {
+                        file = new File(value);
+                    } else if(key.equals("interval")) {
+                        interval = Long.parseLong(value);
+                    } else {
+                        throw new IllegalArgumentException("Unknown jtrace option: " + key);
+                    }
+                }
+            }
+            return new Options(file, interval);
+        }
+    }
+
+    /**
+     * Entry point when started with -javaagent. The transformer is registered before the loaded classes are
+     * listed so no class falls between the two, a class seen by both is written once.
+     * @param args - agent arguments: file=path and interval=milliseconds separated by commas
+     * @param instrumentation - instrumentation
+     * @throws IOException - thrown if the trace file can't be created
+     */
+    public static void premain(String args, Instrumentation instrumentation) throws IOException {
+        Options options = Options.parse(args);
+        TraceRecorder recorder = new TraceRecorder(options.file(), options.interval());
+        instrumentation.addTransformer(new TraceAgent(recorder));
+        for(Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if(!clazz.isArray() && !clazz.isPrimitive() && !clazz.isHidden()) {
+                ProtectionDomain domain = clazz.getProtectionDomain();
+                recorder.recordLoaded(clazz.getName(), domain != null ? domain.getCodeSource() : null);
+            }
+        }
+        recorder.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "jtrace-shutdown"));
+    }
+
+    /**
+     * Entry point when attached to a running JVM
+     * @param args - agent arguments
+     * @param instrumentation - instrumentation
+     * @throws IOException - thrown if the trace file can't be created
+     */
+    public static void agentmain(String args, Instrumentation instrumentation) throws IOException {
+        premain(args, instrumentation);
+    }
+
+    /**
+     * Records a class being defined, the class file is left untouched
+     * @param loader - defining loader
+     * @param className - internal class name, null for hidden classes
+     * @param classBeingRedefined - class being redefined, null when first loaded
+     * @param protectionDomain - protection domain
+     * @param classfileBuffer - class file
+     * @return null, the class isn't transformed
+     */
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if(className != null && classBeingRedefined == null) {
+            CodeSource codeSource = protectionDomain != null ? protectionDomain.getCodeSource() : null;
+            recorder.record(className, codeSource);
+        }
+        return null;
+    }
+}
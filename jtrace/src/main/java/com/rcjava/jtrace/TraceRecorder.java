@@ -0,0 +1,224 @@
+package com.rcjava.jtrace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes loaded classes to an append-only trace file. Loading threads only add to a lock-free queue, a daemon
+ * thread drains it in batches and appends them to the file so class loading never waits on I/O. Locations
+ * are written once and then referred to by number, the format is:
+ * <pre>
+ * # rcjava class trace 1
+ * L 0 file:/app/lib/a.jar
+ * C 0 com.foo.Bar
+ * C - java.lang.String
+ * </pre>
+ * L lines define a location, C lines are classes in load order with their location number or - for classes
+ * without a code source (the JDK).
+ * @author Ryan Cuprak
+ */
+class TraceRecorder implements Runnable {
+
+    /**
+     * First line of every trace
+     */
+    static final String HEADER = "# rcjava class trace 1";
+
+    /**
+     * A loaded class
+     * @param className - internal class name
+     * @param location - code source location, may be null
+     */
+    private record Loaded(String className, URL location) {
+
+        /**
+         * Returns the key identifying the class and its location
+         * @return dotted class name and location
+         */
+        String key() {
+            return className.replace('/', '.') + " " + location;
+        }
+    }
+
+    /**
+     * Classes already loaded when the agent started, written ahead of the queue, guarded by this
+     */
+    private final List<Loaded> loaded = new ArrayList<>();
+
+    /**
+     * Keys of the already loaded classes, dropped from the queue until the first batch is written, guarded by this
+     */
+    private final Set<String> pending = new HashSet<>();
+
+    /**
+     * Classes waiting to be written
+     */
+    private final ConcurrentLinkedQueue<Loaded> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Location numbers keyed by location, guarded by this
+     */
+    private final Map<String,Integer> locations = new HashMap<>();
+
+    /**
+     * Trace output
+     */
+    private final Writer writer;
+
+    /**
+     * Time between batches in milliseconds
+     */
+    private final long interval;
+
+    /**
+     * Thread writing batches
+     */
+    private final Thread thread;
+
+    /**
+     * Set once the recorder is closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Set once the file is closed, guarded by this
+     */
+    private boolean finished;
+
+    /**
+     * Creates a recorder, the trace file is replaced
+     * @param file - trace file
+     * @param interval - time between batches in milliseconds
+     * @throws IOException - thrown if the file can't be created
+     */
+    TraceRecorder(File file, long interval) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 64 * 1024);
+        this.interval = interval;
+        this.writer.write(HEADER);
+        this.writer.write('\n');
+        this.thread = new Thread(this, "jtrace-writer");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the writing thread
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Records a loaded class, called on the loading thread
+     * @param className - class name, internal or dotted
+     * @param codeSource - code source, may be null
+     */
+    void record(String className, CodeSource codeSource) {
+        if(!closed) {
+            queue.add(new Loaded(className, codeSource != null ? codeSource.getLocation() : null));
+        }
+    }
+
+    /**
+     * Records a class that was loaded before the transformer was registered. A class loaded while the loaded
+     * classes were being listed is also queued by the transformer, the queued copy is dropped.
+     * @param className - class name, internal or dotted
+     * @param codeSource - code source, may be null
+     */
+    synchronized void recordLoaded(String className, CodeSource codeSource) {
+        Loaded entry = new Loaded(className, codeSource != null ? codeSource.getLocation() : null);
+        if(pending.add(entry.key())) {
+            loaded.add(entry);
+        }
+    }
+
+    /**
+     * Writes batches until closed
+     */
+    @Override
+    public void run() {
+        while(!closed) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(interval));
+            drain();
+        }
+    }
+
+    /**
+     * Writes every queued class and flushes the file
+     */
+    private synchronized void drain() {
+        if(finished) {
+            return;
+        }
+        try {
+            for(Loaded entry : loaded) {
+                write(entry);
+            }
+            loaded.clear();
+            Loaded entry;
+            while((entry = queue.poll()) != null) {
+                if(pending.isEmpty() || !pending.remove(entry.key())) {
+                    write(entry);
+                }
+            }
+            // everything queued before the writer started has been seen
+            pending.clear();
+            writer.flush();
+        } catch (IOException e) {
+            closed = true;
+            queue.clear();
+            loaded.clear();
+            System.err.println("jtrace: unable to write trace, recording stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a class, preceded by its location the first time the location is seen
+     * @param entry - loaded class
+     * @throws IOException - thrown if the trace can't be written
+     */
+    private void write(Loaded entry) throws IOException {
+        String location = "-";
+        if(entry.location() != null) {
+            String url = entry.location().toString();
+            Integer id = locations.get(url);
+            if(id == null) {
+                id = locations.size();
+                locations.put(url, id);
+                writer.write("L " + id + " " + url + "\n");
+            }
+            location = id.toString();
+        }
+        writer.write("C " + location + " " + entry.className().replace('/', '.') + "\n");
+    }
+
+    /**
+     * Writes the remaining classes and closes the file
+     */
+    synchronized void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        drain();
+        finished = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("jtrace: unable to close trace: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rcjava.jtrace;
+
+import com.rcjava.common.trace.ClassLoadTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.List;
+
+/**
+ * Tests the trace recorder and the agent options
+ * @author Ryan Cuprak
+ */
+public class TraceRecorderTests {
+
+    /**
+     * Trace file
+     */
+    private Path file;
+
+    /**
+     * Creates the trace file
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        file = Files.createTempFile("classes", ".trace");
+    }
+
+    /**
+     * Removes the trace file
+     */
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Defaults, keyed options and a bare file name
+     */
+    @Test
+    public void testOptions() {
+        TraceAgent.Options options = TraceAgent.Options.parse(null);
+        Assertions.assertEquals(new File("classes.trace"), options.file());
+        Assertions.assertEquals(100, options.interval());
+        Assertions.assertEquals(new TraceAgent.Options(new File("a.trace"), 20), TraceAgent.Options.parse("file=a.trace, interval=20"));
+        Assertions.assertEquals(new TraceAgent.Options(new File("b.trace"), 100), TraceAgent.Options.parse("b.trace"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TraceAgent.Options.parse("depth=2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TraceAgent.Options.parse("interval=soon"));
+    }
+
+    /**
+     * Already loaded classes come first, a class seen by both the listing and the transformer is written once
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        CodeSource app = new CodeSource(new URL("file:/app/lib/a.jar"), (Certificate[]) null);
+        CodeSource other = new CodeSource(new URL("file:/app/lib/b.jar"), (Certificate[]) null);
+        TraceRecorder recorder = new TraceRecorder(file.toFile(), 10);
+        recorder.record("com/foo/Gap", app);
+        recorder.recordLoaded("java.lang.String", null);
+        recorder.recordLoaded("com.foo.Gap", app);
+        recorder.recordLoaded("java.lang.String", null);
+        recorder.start();
+        recorder.record("com/foo/Bar", other);
+        recorder.record("com/foo/Baz", app);
+        recorder.close();
+        recorder.record("com/foo/Late", app);
+
+        List<ClassLoadTrace.Entry> entries = ClassLoadTrace.read(file.toFile()).getEntries();
+        Assertions.assertEquals(List.of(new ClassLoadTrace.Entry("java.lang.String", null),
+                new ClassLoadTrace.Entry("com.foo.Gap", "file:/app/lib/a.jar"),
+                new ClassLoadTrace.Entry("com.foo.Bar", "file:/app/lib/b.jar"),
+                new ClassLoadTrace.Entry("com.foo.Baz", "file:/app/lib/a.jar")), entries);
+        Assertions.assertEquals(TraceRecorder.HEADER, Files.readAllLines(file).get(0));
+        Assertions.assertEquals(new File("/app/lib/a.jar"), entries.get(1).getFile());
+    }
+}
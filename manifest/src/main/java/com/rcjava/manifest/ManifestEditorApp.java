@@ -1,10 +1,15 @@
 package com.rcjava.manifest;
 
 import com.rcjava.common.ManifestEditor;
+import com.rcjava.common.manifest.BulkManifestEditor;
+import com.rcjava.common.manifest.BulkManifestResult;
+import com.rcjava.common.manifest.ManifestEditScript;
 import picocli.CommandLine;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 /**
@@ -33,6 +38,24 @@ public class ManifestEditorApp implements Callable<Integer> {
     @CommandLine.Option(names = {"-c", "--clear"}, description = "Clears the classpath from the manifest")
     private boolean clear;
 
+    /**
+     * Attributes to set in the manifest
+     */
+    @CommandLine.Option(names = {"-s", "--set"}, description = "Sets a manifest attribute, Name=Value")
+    private Map<String,String> attributes;
+
+    /**
+     * Edit script, applied after the command line edits
+     */
+    @CommandLine.Option(names = {"--script"}, description = "File containing edits (clear, add, remove, set), one per line")
+    private File script;
+
+    /**
+     * Number of jars edited concurrently in bulk mode
+     */
+    @CommandLine.Option(names = {"-t", "--threads"}, description = "Number of jars edited concurrently in bulk mode")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Name of the new jar file
      */
@@ -40,10 +63,10 @@ public class ManifestEditorApp implements Callable<Integer> {
     private String name;
 
     /**
-     * JAR file
+     * JAR files or directories, more than one jar (or a directory) edits all of them in bulk
      */
-    @CommandLine.Parameters(arity="1",description = "JAR File")
-    private File jarFile;
+    @CommandLine.Parameters(arity="1..*",description = "JAR files or directories containing JAR files")
+    private List<File> jarFiles;
 
     /**
      * Main entry point
@@ -60,16 +83,36 @@ public class ManifestEditorApp implements Callable<Integer> {
      */
     public Integer call() {
         try {
-            ManifestEditor ma = ManifestEditor.createEditor(jarFile);
+            ManifestEditScript edits = new ManifestEditScript();
             if(clear) {
-                ma.clearClasspath();
+                edits.clearClasspath();
             }
             if(add != null) {
-                ma.removeJars(add);
+                edits.addJars(add);
             }
             if(remove != null) {
-                ma.removeJars(remove);
+                edits.removeJars(remove);
             }
+            if(attributes != null) {
+                for(Map.Entry<String,String> entry : attributes.entrySet()) {
+                    edits.setAttribute(entry.getKey(), entry.getValue());
+                }
+            }
+            if(script != null) {
+                for(String line : Files.readAllLines(script.toPath())) {
+                    line = line.trim();
+                    if(!line.isEmpty() && !line.startsWith("#") && !edits.addCommand(line)) {
+                        System.err.println("Unknown command: " + line);
+                        return 1;
+                    }
+                }
+            }
+            if(jarFiles.size() > 1 || jarFiles.get(0).isDirectory()) {
+                return bulk(edits);
+            }
+            File jarFile = jarFiles.get(0);
+            ManifestEditor ma = ManifestEditor.createManifestOnlyEditor(jarFile);
+            edits.apply(ma, true);
             File output;
             if(name != null && name.length() > 0) {
                 output = new File(name);
@@ -87,4 +130,28 @@ public class ManifestEditorApp implements Callable<Integer> {
             return 1;
         }
     }
+
+    /**
+     * Applies the edits to all of the jars, each jar is replaced in place
+     * @param edits - edits
+     * @return status code
+     * @throws Exception - thrown if the jars can't be collected
+     */
+    private Integer bulk(ManifestEditScript edits) throws Exception {
+        if(name != null && name.length() > 0) {
+            System.err.println("--name can only be used with a single JAR file");
+            return 1;
+        }
+        List<File> jars = BulkManifestEditor.collectJars(jarFiles);
+        BulkManifestResult result = new BulkManifestEditor(edits, threads).apply(jars);
+        for(File jar : result.getChanged()) {
+            System.out.println("Changed: " + jar);
+        }
+        for(Map.Entry<File,String> failure : result.getFailed().entrySet()) {
+            System.err.println("Failed: " + failure.getKey() + " " + failure.getValue());
+        }
+        System.out.println(jars.size() + " jars, " + result.getChanged().size() + " changed, "
+                + result.getUnchanged().size() + " unchanged, " + result.getFailed().size() + " failed");
+        return result.hasFailures() ? 1 : 0;
+    }
 }
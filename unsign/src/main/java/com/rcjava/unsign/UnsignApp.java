@@ -1,18 +1,23 @@
 package com.rcjava.unsign;
 
 import com.rcjava.common.JarUtil;
+import com.rcjava.common.zip.CompressionPolicy;
+import com.rcjava.common.zip.CompressionReport;
 import picocli.CommandLine;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Handles Unsigning a jar file
  * @author Ryan Cuprak
  */
-@CommandLine.Command(description = "Removes the digital signatures from a JAR file.",
+@CommandLine.Command(description = "Removes the digital signatures from a JAR file or from every signed JAR file in a directory.",
         name = "unsign", mixinStandardHelpOptions = true, version = "unsign 0.1")
-public class UnsignApp {
+public class UnsignApp implements Callable<Integer> {
 
     /**
      * Flag indicating that we want a list of all the imports
@@ -20,10 +25,28 @@ public class UnsignApp {
     @CommandLine.Option(names = {"-o", "--overwrite"}, description = "Overwrite the original file.")
     private boolean overwrite;
 
+    /**
+     * Number of jars unsigned concurrently in directory mode
+     */
+    @CommandLine.Option(names = {"-t", "--threads"}, description = "Number of JAR files unsigned concurrently when a directory is given.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Compression policy for the unsigned jars
+     */
+    @CommandLine.Option(names = {"-c", "--compression"}, description = "Recompresses the entries: a preset (startup, smallest) and/or extension=level pairs, min-size=bytes, max-ratio=ratio.")
+    private String compression;
+
+    /**
+     * Flag indicating the compression report should be printed
+     */
+    @CommandLine.Option(names = {"-r", "--report"}, description = "Prints the size and time trade-offs of the compression.")
+    private boolean report;
+
     /**
      * JAR file we want to query
      */
-    @CommandLine.Parameters(arity="1",description = "JAR File")
+    @CommandLine.Parameters(arity="1",description = "JAR File or directory")
     private File jarFile;
 
 
@@ -33,9 +56,28 @@ public class UnsignApp {
      */
     public Integer call() {
         try {
-            JarUtil.unsignJar(jarFile.toPath(),overwrite);
+            CompressionPolicy policy = compression != null ? CompressionPolicy.parse(compression) : null;
+            CompressionReport compressionReport = new CompressionReport();
+            if(jarFile.isDirectory()) {
+                Map<Path,Path> unsigned = JarUtil.unsignJars(jarFile.toPath(), overwrite, threads, policy, compressionReport);
+                for(Map.Entry<Path,Path> entry : unsigned.entrySet()) {
+                    System.out.println("Unsigned: " + entry.getKey() + (overwrite ? "" : " -> " + entry.getValue()));
+                }
+                System.out.println(unsigned.size() + " signed JAR files unsigned");
+            } else {
+                JarUtil.unsignJar(jarFile.toPath(),overwrite, policy, compressionReport);
+            }
+            if(report) {
+                System.out.print(compressionReport);
+            }
         } catch (IOException e) {
             System.err.println(e.getMessage());
+            for(Throwable suppressed : e.getSuppressed()) {
+                System.err.println(suppressed.getMessage());
+            }
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return 1;
         }
         return 0;